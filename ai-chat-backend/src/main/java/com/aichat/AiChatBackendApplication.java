@@ -2,11 +2,13 @@ package com.aichat;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * AI角色扮演聊天室后端应用主启动类
  */
 @SpringBootApplication
+@EnableScheduling
 public class AiChatBackendApplication {
 
     public static void main(String[] args) {
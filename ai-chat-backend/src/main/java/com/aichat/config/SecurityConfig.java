@@ -110,7 +110,8 @@ public class SecurityConfig {
             "Accept",
             "Origin",
             "Access-Control-Request-Method",
-            "Access-Control-Request-Headers"
+            "Access-Control-Request-Headers",
+            "X-Trace-Id"
         ));
         configuration.setMaxAge(maxAge);
 
@@ -0,0 +1,86 @@
+package com.aichat.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.task.TaskExecutorCustomizer;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 虚拟线程执行模式
+ * 开启后Tomcat请求处理（含原生WebSocket消息）、STOMP入站/出站通道和应用任务线程池（StreamingResponseBody等）
+ * 都运行在虚拟线程上，DeepSeek和语音服务中的 block() 等待上游时只挂起虚拟线程，不再占用平台线程。
+ * 需要JDK 21及以上运行时，低版本运行时开启时启动失败。
+ */
+@Configuration
+@ConditionalOnProperty(name = "execution.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig implements WebSocketMessageBrokerConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    // 线程池形式的执行器中允许同时存在的虚拟线程数
+    @Value("${execution.virtual-threads.max-concurrency:10000}")
+    private int maxConcurrency;
+
+    @PostConstruct
+    public void init() {
+        if (!VirtualThreads.isSupported()) {
+            throw new IllegalStateException("execution.virtual-threads.enabled=true 需要JDK 21及以上运行时，当前为 "
+                    + System.getProperty("java.version"));
+        }
+        logger.info("虚拟线程执行模式已开启: maxConcurrency={}", maxConcurrency);
+    }
+
+    /**
+     * Tomcat每个请求一个虚拟线程
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.newThreadPerTaskExecutor("tomcat-vt-"));
+    }
+
+    /**
+     * 应用任务线程池改用虚拟线程，并放宽核心线程数
+     */
+    @Bean
+    public TaskExecutorCustomizer virtualThreadTaskExecutorCustomizer() {
+        return executor -> configure(executor, "task-vt-");
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor(channelExecutor("stomp-inbound-vt-"));
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor(channelExecutor("stomp-outbound-vt-"));
+    }
+
+    private ThreadPoolTaskExecutor channelExecutor(String prefix) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        configure(executor, prefix);
+        return executor;
+    }
+
+    /**
+     * Spring 5.3的通道和任务执行器只接受 ThreadPoolTaskExecutor，线程由虚拟线程工厂创建，
+     * 核心线程数即虚拟线程并发上限，空闲后回收
+     */
+    private void configure(ThreadPoolTaskExecutor executor, String prefix) {
+        executor.setThreadFactory(VirtualThreads.threadFactory(prefix));
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setKeepAliveSeconds(60);
+    }
+}
@@ -1,10 +1,15 @@
 package com.aichat.config;
 
 import com.aichat.websocket.ChatWebSocketHandler;
+import com.aichat.websocket.StompPrincipalInterceptor;
 import com.aichat.websocket.WebSocketAuthInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.*;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
 
 /**
  * WebSocket配置
@@ -17,11 +22,14 @@ public class WebSocketConfig implements WebSocketConfigurer, WebSocketMessageBro
 
     private final ChatWebSocketHandler chatWebSocketHandler;
     private final WebSocketAuthInterceptor webSocketAuthInterceptor;
+    private final StompPrincipalInterceptor stompPrincipalInterceptor;
 
     public WebSocketConfig(ChatWebSocketHandler chatWebSocketHandler,
-                          WebSocketAuthInterceptor webSocketAuthInterceptor) {
+                          WebSocketAuthInterceptor webSocketAuthInterceptor,
+                          StompPrincipalInterceptor stompPrincipalInterceptor) {
         this.chatWebSocketHandler = chatWebSocketHandler;
         this.webSocketAuthInterceptor = webSocketAuthInterceptor;
+        this.stompPrincipalInterceptor = stompPrincipalInterceptor;
     }
 
     @Override
@@ -30,6 +38,26 @@ public class WebSocketConfig implements WebSocketConfigurer, WebSocketMessageBro
                 .addInterceptors(webSocketAuthInterceptor)
                 .setAllowedOrigins("*")
                 .withSockJS();
+
+        // 原生WebSocket端点，实时语音需要二进制帧，SockJS不支持
+        registry.addHandler(chatWebSocketHandler, "/ws/chat")
+                .addInterceptors(webSocketAuthInterceptor)
+                .setAllowedOrigins("*");
+    }
+
+    /**
+     * 容器级消息缓冲：处理器接收分片消息，缓冲只需容纳单个分片
+     */
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer(
+            @Value("${websocket.max-text-buffer-bytes:65536}") int maxTextBufferBytes,
+            @Value("${websocket.max-binary-buffer-bytes:65536}") int maxBinaryBufferBytes,
+            @Value("${websocket.max-idle-ms:300000}") long maxIdleMillis) {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(maxTextBufferBytes);
+        container.setMaxBinaryMessageBufferSize(maxBinaryBufferBytes);
+        container.setMaxSessionIdleTimeout(maxIdleMillis);
+        return container;
     }
 
     @Override
@@ -46,13 +74,24 @@ public class WebSocketConfig implements WebSocketConfigurer, WebSocketMessageBro
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        // STOMP端点与原生端点使用同一握手认证
         registry.addEndpoint("/ws")
+                .addInterceptors(webSocketAuthInterceptor)
                 .setAllowedOriginPatterns("*")
                 .withSockJS()
                 .setSessionCookieNeeded(false);
         
         // 添加不使用SockJS的端点，用于原生WebSocket连接
         registry.addEndpoint("/ws")
+                .addInterceptors(webSocketAuthInterceptor)
                 .setAllowedOriginPatterns("*");
     }
+
+    /**
+     * CONNECT时把握手验证的身份绑定为STOMP会话用户
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompPrincipalInterceptor);
+    }
 }
\ No newline at end of file
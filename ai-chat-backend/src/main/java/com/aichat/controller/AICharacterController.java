@@ -69,6 +69,20 @@ public class AICharacterController {
         }
     }
 
+    /**
+     * 搜索联想（名称、标签，支持拼音和首字母）
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<String>> suggestCharacters(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(characterService.suggestCharacters(prefix, limit));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     /**
      * 根据类型获取角色
      */
@@ -82,6 +96,24 @@ public class AICharacterController {
         }
     }
 
+    /**
+     * 按知识领域和技能标签筛选角色
+     * mode=all 需同时包含所有标签，mode=any 包含任一标签即可
+     */
+    @GetMapping("/tags")
+    public ResponseEntity<List<AICharacter>> getCharactersByTags(
+            @RequestParam(required = false) List<String> domains,
+            @RequestParam(required = false) List<String> skills,
+            @RequestParam(defaultValue = "all") String mode) {
+        try {
+            List<AICharacter> characters = characterService.getCharactersByTags(
+                domains, skills, !"any".equalsIgnoreCase(mode));
+            return ResponseEntity.ok(characters);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     /**
      * 获取热门角色
      */
@@ -96,6 +128,20 @@ public class AICharacterController {
         }
     }
 
+    /**
+     * 获取近期热度上升的角色
+     */
+    @GetMapping("/trending")
+    public ResponseEntity<List<AICharacter>> getTrendingCharacters(
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            List<AICharacter> characters = characterService.getTrendingCharacters(limit);
+            return ResponseEntity.ok(characters);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     /**
      * 根据ID获取角色详情
      */
@@ -232,12 +278,10 @@ public class AICharacterController {
     @GetMapping("/{id}/skills")
     public ResponseEntity<List<String>> getCharacterSkills(@PathVariable Long id) {
         try {
-            Optional<AICharacter> characterOpt = characterService.getCharacterById(id);
-            if (characterOpt.isPresent()) {
-                AICharacter character = characterOpt.get();
-                String skillsStr = character.getAvailableSkills();
-                if (skillsStr != null && !skillsStr.isEmpty()) {
-                    List<String> skills = Arrays.asList(skillsStr.split(","));
+            Optional<List<String>> skillsOpt = characterService.getCharacterSkills(id);
+            if (skillsOpt.isPresent()) {
+                List<String> skills = skillsOpt.get();
+                if (!skills.isEmpty()) {
                     return ResponseEntity.ok(skills);
                 } else {
                     // 返回默认技能
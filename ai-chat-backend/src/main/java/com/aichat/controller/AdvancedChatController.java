@@ -1,18 +1,28 @@
 package com.aichat.controller;
 
+import com.aichat.dto.BatchChatRequest;
 import com.aichat.dto.ChatRequest;
 import com.aichat.dto.ChatResponse;
 import com.aichat.dto.EmotionAnalysisResult;
 import com.aichat.entity.ChatCharacter;
 import com.aichat.entity.User;
 import com.aichat.service.AIService;
+import com.aichat.service.OpenAISpeechService;
+import com.aichat.service.ReactiveChatService;
+import com.aichat.service.analytics.UserBehaviorAggregator;
+import com.aichat.service.batch.BatchChatService;
+import com.aichat.service.batch.BatchJob;
+import com.aichat.service.speech.SpeechAudioCache;
+import com.aichat.service.speech.SynthesizedAudio;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
@@ -21,10 +31,12 @@ import org.springframework.web.multipart.MultipartFile;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.nio.channels.Channels;
 import java.time.Duration;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -41,12 +53,28 @@ public class AdvancedChatController {
 
     private static final Logger logger = LoggerFactory.getLogger(AdvancedChatController.class);
 
+
     @Autowired
     private AIService aiService;
 
+    @Autowired
+    private ReactiveChatService reactiveChatService;
+
+    @Autowired
+    private BatchChatService batchChatService;
+
+    @Autowired
+    private UserBehaviorAggregator behaviorAggregator;
+
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private OpenAISpeechService speechService;
+
+    @Autowired
+    private SpeechAudioCache audioCache;
+
     /**
      * 发送聊天消息
      */
@@ -88,6 +116,45 @@ public class AdvancedChatController {
             .doOnError(error -> logger.error("流式聊天错误", error));
     }
 
+    /**
+     * 非阻塞发送聊天消息
+     * 等待LLM回复期间释放请求线程，同时在途的聊天数不受容器线程数限制
+     */
+    @PostMapping("/reactive/send")
+    @ApiOperation(value = "非阻塞发送聊天消息", notes = "与 /send 相同的请求和响应，全链路非阻塞")
+    public Mono<ResponseEntity<ChatResponse>> sendMessageReactive(@Valid @RequestBody ChatRequest request) {
+
+        logger.info("收到非阻塞聊天请求: userId={}, characterId={}", request.getUserId(), request.getCharacterId());
+
+        // 新对话的会话ID在这里确定，失败响应也带上它，客户端据此续接对话
+        String sessionId = reactiveChatService.resolveSessionId(request);
+        return reactiveChatService.send(request)
+            .doOnNext(response -> messagingTemplate.convertAndSend("/topic/chat/" + request.getUserId(), response))
+            .map(ResponseEntity::ok)
+            .onErrorResume(error -> {
+                logger.error("处理非阻塞聊天消息失败: userId={}", request.getUserId(), error);
+                return Mono.just(ResponseEntity.internalServerError()
+                    .body(reactiveChatService.failure(request, sessionId, error)));
+            });
+    }
+
+    /**
+     * 非阻塞流式聊天（SSE）
+     * 每个增量为一个 delta 事件，最后以携带完整回复的 done 事件或 error 事件结束
+     */
+    @PostMapping(value = "/reactive/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiOperation(value = "非阻塞流式聊天", notes = "以SSE返回回复增量，全链路非阻塞")
+    public Flux<ServerSentEvent<ChatResponse>> streamChatReactive(@Valid @RequestBody ChatRequest request) {
+
+        logger.info("开始非阻塞流式聊天: userId={}, characterId={}", request.getUserId(), request.getCharacterId());
+
+        return reactiveChatService.stream(request)
+            .map(response -> ServerSentEvent.builder(response)
+                .event(sseEventName(response.getStatus()))
+                .build())
+            .doOnComplete(() -> logger.info("非阻塞流式聊天完成: userId={}", request.getUserId()));
+    }
+
     /**
      * 多模态消息处理
      */
@@ -171,14 +238,46 @@ public class AdvancedChatController {
         
         logger.info("收到语音合成请求: userId={}, textLength={}", userId, text.length());
         
+        // 音频写入内容寻址缓存，客户端通过缓存键下载；缓存关闭或未写入时直接内联返回音频
+        SynthesizedAudio audio = speechService.synthesizeToCache(text, null);
+        
         Map<String, Object> result = new HashMap<>();
-        result.put("audioUrl", "https://example.com/audio/" + System.currentTimeMillis() + ".wav");
+        if (audio.isCached()) {
+            result.put("audioUrl", "/api/v2/chat/audio/" + audio.getKey());
+        } else {
+            result.put("audioData", Base64.getEncoder().encodeToString(audio.getAudio()));
+            result.put("audioFormat", "mp3");
+        }
         result.put("text", text);
         result.put("success", true);
         
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * 下载缓存的合成音频
+     * 磁盘层命中时通过FileChannel.transferTo写出，写出期间分段被固定，淘汰要等写出结束才删除文件
+     */
+    @GetMapping("/audio/{key}")
+    @ApiOperation(value = "获取合成音频", notes = "按缓存键返回TTS音频")
+    public void getSynthesizedAudio(@PathVariable String key,
+                                    HttpServletResponse response) throws IOException {
+        int length = audioCache.getLength(key);
+        if (length < 0) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        response.setContentType("audio/mpeg");
+        response.setContentLength(length);
+        response.setHeader("Cache-Control", "public, max-age=86400, immutable");
+
+        // 查询长度与写出之间条目可能被淘汰，此时尚未写出任何数据，仍可重置为404
+        if (!audioCache.transferTo(key, Channels.newChannel(response.getOutputStream()))) {
+            response.reset();
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+
     /**
      * 情感分析
      */
@@ -204,12 +303,16 @@ public class AdvancedChatController {
      */
     @GetMapping("/character-recommendations")
     @ApiOperation(value = "角色推荐", notes = "基于用户偏好推荐聊天角色")
-    public ResponseEntity<List<ChatCharacter>> getCharacterRecommendations(@RequestParam Long userId) {
+    public Mono<ResponseEntity<List<ChatCharacter>>> getCharacterRecommendations(
+            @RequestParam Long userId,
+            @RequestParam(defaultValue = "10") int limit) {
         
         logger.info("收到角色推荐请求: userId={}", userId);
         
-        // 返回空列表，实际应该从数据库获取
-        return ResponseEntity.ok(new ArrayList<>());
+        User user = new User();
+        user.setId(userId);
+        return aiService.recommendCharacters(user, limit)
+                .map(ResponseEntity::ok);
     }
 
     /**
@@ -304,16 +407,12 @@ public class AdvancedChatController {
      * 用户行为分析
      */
     @PostMapping("/user-behavior-analysis")
-    @ApiOperation(value = "用户行为分析", notes = "分析用户的聊天行为和偏好")
+    @ApiOperation(value = "用户行为分析", notes = "从内存中的流式聚合读取；任意时间范围的精确统计可提交 user_behavior 后台任务")
     public ResponseEntity<Map<String, Object>> analyzeUserBehavior(@RequestParam Long userId) {
         
-        logger.info("收到用户行为分析请求: userId={}", userId);
+        logger.debug("收到用户行为分析请求: userId={}", userId);
         
-        Map<String, Object> result = new HashMap<>();
-        result.put("userId", userId);
-        result.put("totalMessages", 100);
-        result.put("averageLength", 50);
-        result.put("preferredTopics", Arrays.asList("技术", "生活", "娱乐"));
+        Map<String, Object> result = behaviorAggregator.describe(userId);
         result.put("success", true);
         
         return ResponseEntity.ok(result);
@@ -321,18 +420,81 @@ public class AdvancedChatController {
 
     /**
      * 批量处理消息
+     * 以NDJSON逐条返回结果，先完成的条目先返回（ordered=true时按请求顺序）；
+     * 请求无效时返回400，响应体为一行与 /batch/jobs 相同的错误信息
      */
-    @PostMapping("/batch-process")
-    @ApiOperation(value = "批量处理消息", notes = "批量处理多个聊天消息")
-    public ResponseEntity<Map<String, Object>> batchProcessMessages(@RequestBody List<Map<String, Object>> messages) {
-        
-        logger.info("收到批量处理请求: count={}", messages.size());
-        
+    @PostMapping(value = "/batch-process", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @ApiOperation(value = "批量处理消息", notes = "并发处理多个聊天消息，结果以NDJSON流式返回")
+    public ResponseEntity<Flux<?>> batchProcessMessages(@RequestBody BatchChatRequest request) {
+
+        logger.info("收到批量处理请求: {}", request);
+
+        try {
+            return ResponseEntity.ok(batchChatService.process(request));
+        } catch (IllegalArgumentException e) {
+            logger.warn("批量处理请求无效: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Flux.just(batchError(e)));
+        }
+    }
+
+    /**
+     * 提交异步批量任务
+     */
+    @PostMapping("/batch/jobs")
+    @ApiOperation(value = "提交批量任务", notes = "条目较多时异步处理，返回任务ID供轮询")
+    public ResponseEntity<Map<String, Object>> submitBatchJob(@RequestBody BatchChatRequest request) {
+
+        try {
+            BatchJob job = batchChatService.submit(request);
+            return ResponseEntity.accepted().body(job.snapshot(0, 0));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(batchError(e));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(batchError(e));
+        }
+    }
+
+    /**
+     * 批量接口拒绝请求时的响应体
+     */
+    private static Map<String, Object> batchError(RuntimeException e) {
         Map<String, Object> result = new HashMap<>();
-        result.put("processedCount", messages.size());
-        result.put("success", true);
-        result.put("timestamp", System.currentTimeMillis());
-        
+        result.put("success", false);
+        result.put("error", e.getMessage());
+        return result;
+    }
+
+    /**
+     * 查询批量任务进度和结果
+     */
+    @GetMapping("/batch/jobs/{jobId}")
+    @ApiOperation(value = "查询批量任务", notes = "返回任务进度和从offset起最多limit条结果")
+    public ResponseEntity<Map<String, Object>> getBatchJob(
+            @PathVariable String jobId,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "100") int limit) {
+
+        BatchJob job = batchChatService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.snapshot(offset, Math.min(limit, 1000)));
+    }
+
+    /**
+     * 取消批量任务
+     */
+    @DeleteMapping("/batch/jobs/{jobId}")
+    @ApiOperation(value = "取消批量任务", notes = "未完成的条目不再处理，已产出的结果保留")
+    public ResponseEntity<Map<String, Object>> cancelBatchJob(@PathVariable String jobId) {
+
+        BatchJob job = batchChatService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", batchChatService.cancel(jobId));
+        result.put("status", job.getStatus());
         return ResponseEntity.ok(result);
     }
 
@@ -401,4 +563,15 @@ public class AdvancedChatController {
         result.put("timestamp", System.currentTimeMillis());
         return result;
     }
-}
\ No newline at end of file
+
+    private static String sseEventName(ChatResponse.ResponseStatus status) {
+        switch (status) {
+            case PROCESSING:
+                return "delta";
+            case ERROR:
+                return "error";
+            default:
+                return "done";
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.aichat.controller;
+
+import com.aichat.entity.AnalyticsJob;
+import com.aichat.service.job.JobEngine;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 后台任务控制器
+ * 提交分析、摘要等后台任务并轮询结果
+ */
+@RestController
+@RequestMapping("/api/jobs")
+@CrossOrigin(origins = "*")
+@Api(tags = "后台任务")
+public class AnalyticsJobController {
+
+    @Autowired
+    private JobEngine jobEngine;
+
+    /**
+     * 提交后台任务
+     * 请求体：type 任务类型，payload 任务参数，priority 优先级（可选，默认0）
+     */
+    @PostMapping
+    @ApiOperation(value = "提交后台任务", notes = "返回任务ID供轮询，相同参数的任务复用已有结果")
+    @SuppressWarnings("unchecked")
+    public ResponseEntity<Map<String, Object>> submit(@RequestBody Map<String, Object> request) {
+
+        Map<String, Object> result = new HashMap<>();
+        try {
+            String type = (String) request.get("type");
+            Object payload = request.get("payload");
+            if (payload != null && !(payload instanceof Map)) {
+                throw new IllegalArgumentException("payload 必须是JSON对象");
+            }
+            Object priority = request.get("priority");
+            AnalyticsJob job = jobEngine.submit(type, (Map<String, Object>) payload,
+                    priority instanceof Number ? ((Number) priority).intValue() : JobEngine.PRIORITY_NORMAL);
+            return ResponseEntity.accepted().body(jobEngine.describe(job));
+        } catch (IllegalArgumentException e) {
+            result.put("success", false);
+            result.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(result);
+        }
+    }
+
+    /**
+     * 查询任务状态和结果
+     */
+    @GetMapping("/{jobId}")
+    @ApiOperation(value = "查询后台任务", notes = "成功的任务附带结果")
+    public ResponseEntity<Map<String, Object>> getJob(@PathVariable Long jobId) {
+
+        AnalyticsJob job = jobEngine.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(jobEngine.describe(job));
+    }
+
+    /**
+     * 任务队列统计
+     */
+    @GetMapping("/stats")
+    @ApiOperation(value = "后台任务统计", notes = "进程内排队数、工作线程和各状态任务数")
+    public ResponseEntity<Map<String, Object>> getStatistics() {
+        return ResponseEntity.ok(jobEngine.getStatistics());
+    }
+}
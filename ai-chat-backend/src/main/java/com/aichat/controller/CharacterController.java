@@ -67,8 +67,11 @@ public class CharacterController {
      */
     @GetMapping("/recommended")
     public ResponseEntity<List<ChatCharacter>> getRecommendedCharacters(
+            @RequestParam(required = false) Long userId,
             @RequestParam(defaultValue = "6") int limit) {
-        List<ChatCharacter> characters = characterService.getRecommendedCharacters(limit);
+        List<ChatCharacter> characters = userId != null
+                ? characterService.getRecommendedCharacters(userId, limit)
+                : characterService.getRecommendedCharacters(limit);
         return ResponseEntity.ok(characters);
     }
 
@@ -8,23 +8,33 @@ import com.aichat.repository.ChatMessageRepository;
 import com.aichat.repository.ChatSessionRepository;
 import com.aichat.repository.AICharacterRepository;
 import com.aichat.service.ChatService;
+import com.aichat.service.LLMService;
+import com.aichat.service.SpeechService;
+import com.aichat.service.prompt.CharacterPromptCache;
+import com.aichat.service.speech.SpeechSegment;
+import com.aichat.service.speech.StreamingSpeechService;
+import com.aichat.service.speech.VoiceUpload;
+import com.aichat.service.tracing.Span;
+import com.aichat.service.tracing.Tracer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * 聊天控制器
@@ -38,6 +48,9 @@ public class ChatController {
     @Autowired
     private ChatService chatService;
 
+    @Autowired
+    private CharacterPromptCache characterPrompts;
+
     @Autowired
     private ChatSessionRepository sessionRepository;
 
@@ -47,6 +60,18 @@ public class ChatController {
     @Autowired
     private AICharacterRepository characterRepository;
 
+    @Autowired
+    private LLMService llmService;
+
+    @Autowired
+    private StreamingSpeechService streamingSpeechService;
+
+    @Autowired
+    private SpeechService speechService;
+
+    @Value("${speech.upload.max-bytes:26214400}")
+    private long maxVoiceUploadBytes;
+
     /**
      * 处理文本聊天请求
      */
@@ -69,6 +94,49 @@ public class ChatController {
         }
     }
 
+    /**
+     * 流式语音回复
+     * 边生成回复边按句合成语音，以分块传输的MP3音频流返回，首段音频只需等待第一句
+     */
+    @PostMapping(value = "/text/speech-stream", produces = "audio/mpeg")
+    public ResponseEntity<StreamingResponseBody> streamSpeechReply(
+            @RequestBody ChatRequest request,
+            @RequestParam(value = "emotion", required = false) String emotion) {
+        if (request.getUserId() == null || request.getCharacterId() == null ||
+            request.getMessage() == null || request.getMessage().trim().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        String systemPrompt;
+        try (Span ignored = Tracer.startSpan(Tracer.STAGE_CONTEXT_BUILD)) {
+            // 优先使用预编译的角色提示词，角色不在目录中时再查询
+            systemPrompt = characterPrompts.getSystemPrompt(request.getCharacterId());
+            if (systemPrompt == null) {
+                systemPrompt = chatService.getCharacterSystemPrompt(request.getCharacterId());
+            }
+        }
+        Flux<String> tokens = llmService.chatStream(request.getMessage(), systemPrompt, null);
+        Flux<SpeechSegment> segments = streamingSpeechService.synthesize(tokens, request.getCharacterId(), emotion);
+
+        StreamingResponseBody body = outputStream -> {
+            // 关闭Stream时取消上游，客户端断开后不再继续生成和合成
+            try (Stream<SpeechSegment> stream = segments.toStream(1)) {
+                stream.forEach(segment -> {
+                    try {
+                        outputStream.write(segment.getAudio());
+                        outputStream.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("audio/mpeg"))
+                .header("X-Accel-Buffering", "no")
+                .body(body);
+    }
+
     /**
      * 处理语音聊天请求
      */
@@ -80,16 +148,8 @@ public class ChatController {
             @RequestParam(value = "needVoiceResponse", defaultValue = "true") boolean needVoiceResponse) {
         
         try {
-            // 验证文件
-            if (audioFile.isEmpty()) {
-                return ResponseEntity.badRequest().build();
-            }
-
-            // 保存临时音频文件
-            String tempDir = System.getProperty("java.io.tmpdir");
-            String fileName = "audio_" + System.currentTimeMillis() + ".wav";
-            Path tempFile = Paths.get(tempDir, fileName);
-            Files.write(tempFile, audioFile.getBytes());
+            // 校验大小和格式后直接包装上传分片，转写时以流方式转发，不读入内存也不另写临时文件
+            VoiceUpload upload = VoiceUpload.of(audioFile, maxVoiceUploadBytes, speechService.getSupportedAudioFormats());
 
             // 构建请求对象
             ChatRequest request = new ChatRequest();
@@ -98,17 +158,14 @@ public class ChatController {
             request.setNeedVoiceResponse(needVoiceResponse);
 
             // 处理语音聊天
-            ChatResponse response = chatService.processVoiceChat(tempFile.toFile(), request);
-
-            // 清理临时文件
-            Files.deleteIfExists(tempFile);
+            ChatResponse response = chatService.processVoiceChat(upload, request);
 
             return ResponseEntity.ok(response);
-        } catch (IOException e) {
+        } catch (IllegalArgumentException e) {
             ChatResponse errorResponse = new ChatResponse();
-            errorResponse.setMessage("音频文件处理失败，请重试。");
+            errorResponse.setMessage("音频文件无效，请重新录制。");
             errorResponse.setError(e.getMessage());
-            return ResponseEntity.internalServerError().body(errorResponse);
+            return ResponseEntity.badRequest().body(errorResponse);
         } catch (Exception e) {
             ChatResponse errorResponse = new ChatResponse();
             errorResponse.setMessage("语音聊天处理失败，请稍后再试。");
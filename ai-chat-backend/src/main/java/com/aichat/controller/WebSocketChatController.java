@@ -2,21 +2,26 @@ package com.aichat.controller;
 
 import com.aichat.dto.ChatRequest;
 import com.aichat.dto.ChatResponse;
+import com.aichat.security.JwtPrincipal;
 import com.aichat.service.AIService;
+import com.aichat.websocket.WebSocketAuthInterceptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
+import java.security.Principal;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * WebSocket聊天控制器
- * 处理STOMP消息
+ * 处理STOMP消息。发送者身份取自STOMP会话：已认证连接为令牌中的用户，
+ * 匿名连接为握手参数中的userId（握手未带时固定为首条消息的userId），消息体中的userId只用于校验。
  */
 @Controller
 public class WebSocketChatController {
@@ -34,7 +39,7 @@ public class WebSocketChatController {
      */
     @MessageMapping("/chat.sendMessage")
     @SendTo("/topic/messages")
-    public Map<String, Object> sendMessage(Map<String, Object> message) {
+    public Map<String, Object> sendMessage(Map<String, Object> message, SimpMessageHeaderAccessor headerAccessor) {
         logger.info("收到WebSocket消息: {}", message);
         
         try {
@@ -43,11 +48,11 @@ public class WebSocketChatController {
                 throw new IllegalArgumentException("消息不能为空");
             }
             
-            Object userIdObj = message.get("userId");
+            Long userId = resolveUserId(headerAccessor, message.get("userId"));
             Object contentObj = message.get("content");
             
-            if (userIdObj == null) {
-                throw new IllegalArgumentException("用户ID不能为空");
+            if (userId == null) {
+                throw new IllegalArgumentException("用户ID不能为空或与连接身份不一致");
             }
             
             if (contentObj == null) {
@@ -56,7 +61,7 @@ public class WebSocketChatController {
             
             // 构建聊天请求
             ChatRequest request = new ChatRequest();
-            request.setUserId(Long.valueOf(userIdObj.toString()));
+            request.setUserId(userId);
             request.setMessage(contentObj.toString());
             request.setMessageType(message.getOrDefault("messageType", "text").toString());
             request.setCharacterId(1L); // 默认角色ID
@@ -72,6 +77,8 @@ public class WebSocketChatController {
             responseMessage.put("messageType", "text");
             responseMessage.put("timestamp", response != null && response.getTimestamp() != null ? response.getTimestamp().toString() : java.time.LocalDateTime.now().toString());
             responseMessage.put("model", response != null && response.getModel() != null ? response.getModel() : "unknown");
+            // 回复广播给所有订阅者，带回客户端的消息ID以便发送方认领自己的回复
+            responseMessage.put("replyTo", message.get("messageId"));
             
             return responseMessage;
             
@@ -82,6 +89,7 @@ public class WebSocketChatController {
             errorMessage.put("content", "抱歉，消息处理失败，请稍后重试。错误信息: " + e.getMessage());
             errorMessage.put("userId", "system");
             errorMessage.put("timestamp", java.time.LocalDateTime.now().toString());
+            errorMessage.put("replyTo", message != null ? message.get("messageId") : null);
             return errorMessage;
         }
     }
@@ -91,12 +99,16 @@ public class WebSocketChatController {
      */
     @MessageMapping("/chat.typing")
     @SendTo("/topic/messages")
-    public Map<String, Object> handleTyping(Map<String, Object> message) {
+    public Map<String, Object> handleTyping(Map<String, Object> message, SimpMessageHeaderAccessor headerAccessor) {
         logger.info("收到输入状态: {}", message);
+        Long userId = resolveUserId(headerAccessor, message.get("userId"));
+        if (userId == null) {
+            return null;
+        }
         
         Map<String, Object> typingMessage = new HashMap<>();
         typingMessage.put("type", "typing_status");
-        typingMessage.put("userId", message.get("userId"));
+        typingMessage.put("userId", userId);
         typingMessage.put("isTyping", message.get("isTyping"));
         
         return typingMessage;
@@ -107,12 +119,16 @@ public class WebSocketChatController {
      */
     @MessageMapping("/chat.joinRoom")
     @SendTo("/topic/notifications")
-    public Map<String, Object> joinRoom(Map<String, Object> message) {
+    public Map<String, Object> joinRoom(Map<String, Object> message, SimpMessageHeaderAccessor headerAccessor) {
         logger.info("用户加入房间: {}", message);
+        Long userId = resolveUserId(headerAccessor, message.get("userId"));
+        if (userId == null) {
+            return null;
+        }
         
         Map<String, Object> joinMessage = new HashMap<>();
         joinMessage.put("type", "user_join");
-        joinMessage.put("userId", message.get("userId"));
+        joinMessage.put("userId", userId);
         joinMessage.put("roomId", message.get("roomId"));
         joinMessage.put("message", "用户加入了聊天");
         
@@ -124,15 +140,63 @@ public class WebSocketChatController {
      */
     @MessageMapping("/chat.leaveRoom")
     @SendTo("/topic/notifications")
-    public Map<String, Object> leaveRoom(Map<String, Object> message) {
+    public Map<String, Object> leaveRoom(Map<String, Object> message, SimpMessageHeaderAccessor headerAccessor) {
         logger.info("用户离开房间: {}", message);
+        Long userId = resolveUserId(headerAccessor, message.get("userId"));
+        if (userId == null) {
+            return null;
+        }
         
         Map<String, Object> leaveMessage = new HashMap<>();
         leaveMessage.put("type", "user_leave");
-        leaveMessage.put("userId", message.get("userId"));
+        leaveMessage.put("userId", userId);
         leaveMessage.put("roomId", message.get("roomId"));
         leaveMessage.put("message", "用户离开了聊天");
         
         return leaveMessage;
     }
-}
\ No newline at end of file
+
+    /**
+     * 取消息发送者的userId；消息体中的userId与连接身份不一致或无法确定身份时返回null
+     */
+    private Long resolveUserId(SimpMessageHeaderAccessor headerAccessor, Object claimed) {
+        Principal user = headerAccessor.getUser();
+        Map<String, Object> attributes = headerAccessor.getSessionAttributes();
+        Long bound;
+        if (user instanceof JwtPrincipal) {
+            bound = ((JwtPrincipal) user).getUserId();
+        } else if (attributes == null) {
+            return null;
+        } else {
+            bound = (Long) attributes.get(WebSocketAuthInterceptor.USER_ID_ATTRIBUTE);
+            if (bound == null) {
+                Long first = parseUserId(claimed);
+                if (first == null) {
+                    return null;
+                }
+                Object previous = attributes.putIfAbsent(WebSocketAuthInterceptor.USER_ID_ATTRIBUTE, first);
+                bound = previous != null ? (Long) previous : first;
+            }
+        }
+        if (claimed != null && !bound.equals(parseUserId(claimed))) {
+            logger.warn("STOMP消息userId与连接身份不一致: sessionId={}, bound={}, claimed={}",
+                    headerAccessor.getSessionId(), bound, claimed);
+            return null;
+        }
+        return bound;
+    }
+
+    private static Long parseUserId(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value != null) {
+            try {
+                return Long.valueOf(value.toString());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,71 @@
+package com.aichat.dto;
+
+import java.util.List;
+
+/**
+ * 批量聊天请求DTO
+ * 未设置的选项使用 batch.* 配置中的默认值
+ */
+public class BatchChatRequest {
+
+    private List<ChatRequest> requests;
+
+    // 同时处理的条目数，超过 batch.max-concurrency 时按上限处理
+    private Integer concurrency;
+
+    // 单条超时（毫秒）
+    private Long itemTimeoutMs;
+
+    // true按请求顺序返回结果，false按完成顺序返回
+    private boolean ordered = false;
+
+    public BatchChatRequest() {
+    }
+
+    public BatchChatRequest(List<ChatRequest> requests) {
+        this.requests = requests;
+    }
+
+    // Getters and Setters
+    public List<ChatRequest> getRequests() {
+        return requests;
+    }
+
+    public void setRequests(List<ChatRequest> requests) {
+        this.requests = requests;
+    }
+
+    public Integer getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(Integer concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public Long getItemTimeoutMs() {
+        return itemTimeoutMs;
+    }
+
+    public void setItemTimeoutMs(Long itemTimeoutMs) {
+        this.itemTimeoutMs = itemTimeoutMs;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchChatRequest{" +
+                "count=" + (requests != null ? requests.size() : 0) +
+                ", concurrency=" + concurrency +
+                ", itemTimeoutMs=" + itemTimeoutMs +
+                ", ordered=" + ordered +
+                '}';
+    }
+}
@@ -0,0 +1,88 @@
+package com.aichat.dto;
+
+/**
+ * 批量聊天中单条请求的处理结果
+ * index 为该条在批量请求中的下标，无序模式下客户端据此对应请求
+ */
+public class BatchItemResult {
+
+    private int index;
+
+    private Status status;
+
+    // 成功时的回复
+    private ChatResponse response;
+
+    // 失败或超时的原因
+    private String error;
+
+    // 处理耗时（毫秒）
+    private long elapsedMs;
+
+    // 结果状态枚举
+    public enum Status {
+        SUCCESS,    // 成功
+        ERROR,      // 出错
+        TIMEOUT     // 超时
+    }
+
+    public BatchItemResult() {
+    }
+
+    public BatchItemResult(int index, Status status, ChatResponse response, String error, long elapsedMs) {
+        this.index = index;
+        this.status = status;
+        this.response = response;
+        this.error = error;
+        this.elapsedMs = elapsedMs;
+    }
+
+    public static BatchItemResult success(int index, ChatResponse response, long elapsedMs) {
+        return new BatchItemResult(index, Status.SUCCESS, response, null, elapsedMs);
+    }
+
+    public static BatchItemResult failure(int index, Status status, String error, long elapsedMs) {
+        return new BatchItemResult(index, status, null, error, elapsedMs);
+    }
+
+    // Getters and Setters
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public ChatResponse getResponse() {
+        return response;
+    }
+
+    public void setResponse(ChatResponse response) {
+        this.response = response;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public void setElapsedMs(long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+}
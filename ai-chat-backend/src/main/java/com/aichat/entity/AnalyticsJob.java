@@ -0,0 +1,209 @@
+package com.aichat.entity;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 后台分析任务实体类
+ * 任务表同时是持久化队列：待执行的任务按优先级和 next_run_at 取出，
+ * 成功结果保存在 result 中，在 result_expires_at 之前相同任务直接复用该结果。
+ */
+@Entity
+@Table(name = "analytics_jobs", indexes = {
+    @Index(name = "idx_job_status_run", columnList = "status,next_run_at"),
+    @Index(name = "idx_job_dedup", columnList = "dedup_key")
+})
+public class AnalyticsJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_type", nullable = false, length = 50)
+    private String jobType;
+
+    // 任务类型加参数摘要，相同的任务得到相同的键
+    @Column(name = "dedup_key", nullable = false, length = 120)
+    private String dedupKey;
+
+    // JSON格式的任务参数
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    // 数值越大越先执行
+    @Column(name = "priority", nullable = false)
+    private int priority;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Status status = Status.PENDING;
+
+    // 已开始执行的次数
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "max_attempts", nullable = false)
+    private int maxAttempts;
+
+    // 最早可执行时间，重试退避时推后
+    @Column(name = "next_run_at", nullable = false)
+    private LocalDateTime nextRunAt;
+
+    // JSON格式的执行结果
+    @Column(name = "result", columnDefinition = "TEXT")
+    private String result;
+
+    // 最近一次失败原因
+    @Column(name = "error", length = 1000)
+    private String error;
+
+    @Column(name = "result_expires_at")
+    private LocalDateTime resultExpiresAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    // 任务状态枚举
+    public enum Status {
+        PENDING,    // 等待执行（含等待重试）
+        RUNNING,    // 执行中
+        SUCCEEDED,  // 成功
+        FAILED      // 重试次数用尽
+    }
+
+    public AnalyticsJob() {
+        this.createdAt = LocalDateTime.now();
+        this.nextRunAt = this.createdAt;
+    }
+
+    public boolean isFinished() {
+        return status == Status.SUCCEEDED || status == Status.FAILED;
+    }
+
+    // Getter和Setter方法
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getJobType() {
+        return jobType;
+    }
+
+    public void setJobType(String jobType) {
+        this.jobType = jobType;
+    }
+
+    public String getDedupKey() {
+        return dedupKey;
+    }
+
+    public void setDedupKey(String dedupKey) {
+        this.dedupKey = dedupKey;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public LocalDateTime getNextRunAt() {
+        return nextRunAt;
+    }
+
+    public void setNextRunAt(LocalDateTime nextRunAt) {
+        this.nextRunAt = nextRunAt;
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    public void setResult(String result) {
+        this.result = result;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getResultExpiresAt() {
+        return resultExpiresAt;
+    }
+
+    public void setResultExpiresAt(LocalDateTime resultExpiresAt) {
+        this.resultExpiresAt = resultExpiresAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
@@ -0,0 +1,61 @@
+package com.aichat.entity;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 个性化档案快照实体类
+ * 保存档案构建器的状态（特质和交流风格的移动平均），档案缓存淘汰或重启后从这里恢复。
+ */
+@Entity
+@Table(name = "personality_profiles")
+public class PersonalityProfileSnapshot {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    // 已计入的对话轮数
+    @Column(name = "turns", nullable = false)
+    private int turns;
+
+    // JSON格式的构建器状态
+    @Column(name = "state", nullable = false, columnDefinition = "TEXT")
+    private String state;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+    public void setTurns(int turns) {
+        this.turns = turns;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,207 @@
+package com.aichat.entity;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 用户行为聚合快照实体类
+ * 内存中的滚动聚合定期写入此表，进程重启或聚合被淘汰后从这里恢复；
+ * 直方图、按天计数和常聊角色以逗号分隔的文本保存。
+ */
+@Entity
+@Table(name = "user_behavior_snapshots")
+public class UserBehaviorSnapshot {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "total_messages", nullable = false)
+    private long totalMessages;
+
+    // 用户消息的字符数合计
+    @Column(name = "total_chars", nullable = false)
+    private long totalChars;
+
+    @Column(name = "total_sessions", nullable = false)
+    private long totalSessions;
+
+    @Column(name = "closed_session_messages", nullable = false)
+    private long closedSessionMessages;
+
+    @Column(name = "closed_session_millis", nullable = false)
+    private long closedSessionMillis;
+
+    // 当前会话：sessionId的哈希、开始时间（毫秒）和消息数
+    @Column(name = "session_key", nullable = false)
+    private int sessionKey;
+
+    @Column(name = "session_start", nullable = false)
+    private long sessionStart;
+
+    @Column(name = "session_messages", nullable = false)
+    private int sessionMessages;
+
+    @Column(name = "last_event_at", nullable = false)
+    private long lastEventAt;
+
+    // 按天环形计数中最新一天的 epochDay
+    @Column(name = "last_epoch_day", nullable = false)
+    private long lastEpochDay;
+
+    @Column(name = "hour_histogram", nullable = false, length = 400)
+    private String hourHistogram;
+
+    @Column(name = "daily_counts", nullable = false, length = 600)
+    private String dailyCounts;
+
+    // characterId:count 列表
+    @Column(name = "favorite_characters", nullable = false, length = 400)
+    private String favoriteCharacters;
+
+    @Column(name = "engagement", nullable = false)
+    private double engagement;
+
+    @Column(name = "engagement_updated_at", nullable = false)
+    private long engagementUpdatedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public long getTotalMessages() {
+        return totalMessages;
+    }
+
+    public void setTotalMessages(long totalMessages) {
+        this.totalMessages = totalMessages;
+    }
+
+    public long getTotalChars() {
+        return totalChars;
+    }
+
+    public void setTotalChars(long totalChars) {
+        this.totalChars = totalChars;
+    }
+
+    public long getTotalSessions() {
+        return totalSessions;
+    }
+
+    public void setTotalSessions(long totalSessions) {
+        this.totalSessions = totalSessions;
+    }
+
+    public long getClosedSessionMessages() {
+        return closedSessionMessages;
+    }
+
+    public void setClosedSessionMessages(long closedSessionMessages) {
+        this.closedSessionMessages = closedSessionMessages;
+    }
+
+    public long getClosedSessionMillis() {
+        return closedSessionMillis;
+    }
+
+    public void setClosedSessionMillis(long closedSessionMillis) {
+        this.closedSessionMillis = closedSessionMillis;
+    }
+
+    public int getSessionKey() {
+        return sessionKey;
+    }
+
+    public void setSessionKey(int sessionKey) {
+        this.sessionKey = sessionKey;
+    }
+
+    public long getSessionStart() {
+        return sessionStart;
+    }
+
+    public void setSessionStart(long sessionStart) {
+        this.sessionStart = sessionStart;
+    }
+
+    public int getSessionMessages() {
+        return sessionMessages;
+    }
+
+    public void setSessionMessages(int sessionMessages) {
+        this.sessionMessages = sessionMessages;
+    }
+
+    public long getLastEventAt() {
+        return lastEventAt;
+    }
+
+    public void setLastEventAt(long lastEventAt) {
+        this.lastEventAt = lastEventAt;
+    }
+
+    public long getLastEpochDay() {
+        return lastEpochDay;
+    }
+
+    public void setLastEpochDay(long lastEpochDay) {
+        this.lastEpochDay = lastEpochDay;
+    }
+
+    public String getHourHistogram() {
+        return hourHistogram;
+    }
+
+    public void setHourHistogram(String hourHistogram) {
+        this.hourHistogram = hourHistogram;
+    }
+
+    public String getDailyCounts() {
+        return dailyCounts;
+    }
+
+    public void setDailyCounts(String dailyCounts) {
+        this.dailyCounts = dailyCounts;
+    }
+
+    public String getFavoriteCharacters() {
+        return favoriteCharacters;
+    }
+
+    public void setFavoriteCharacters(String favoriteCharacters) {
+        this.favoriteCharacters = favoriteCharacters;
+    }
+
+    public double getEngagement() {
+        return engagement;
+    }
+
+    public void setEngagement(double engagement) {
+        this.engagement = engagement;
+    }
+
+    public long getEngagementUpdatedAt() {
+        return engagementUpdatedAt;
+    }
+
+    public void setEngagementUpdatedAt(long engagementUpdatedAt) {
+        this.engagementUpdatedAt = engagementUpdatedAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,17 @@
+package com.aichat.security;
+
+/**
+ * JWT无效（格式错误、签名不符、已过期等）
+ */
+public class InvalidTokenException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidTokenException(String message) {
+        super(message);
+    }
+
+    public InvalidTokenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
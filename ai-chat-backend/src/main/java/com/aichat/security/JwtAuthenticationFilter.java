@@ -1,5 +1,13 @@
 package com.aichat.security;
 
+import com.aichat.service.tracing.Span;
+import com.aichat.service.tracing.Tracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -8,17 +16,61 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * JWT认证过滤器
+ * 携带Bearer令牌的请求必须通过验证，验证后的身份写入SecurityContext；
+ * 未携带令牌的请求按原样放行，由各端点的访问规则决定是否需要认证。
  */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    @Autowired
+    private JwtVerifier jwtVerifier;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) 
             throws ServletException, IOException {
-        // 暂时直接通过，后续可以添加JWT验证逻辑
+        String token = resolveToken(request.getHeader("Authorization"));
+        if (token == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        JwtPrincipal principal;
+        try (Span ignored = Tracer.startSpan(Tracer.STAGE_AUTH)) {
+            principal = jwtVerifier.verify(token);
+        } catch (InvalidTokenException e) {
+            logger.debug("JWT验证失败: {} {}", request.getRequestURI(), e.getMessage());
+            SecurityContextHolder.clearContext();
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, e.getMessage());
+            return;
+        }
+
+        List<SimpleGrantedAuthority> authorities = new ArrayList<>(principal.getRoles().size());
+        for (String role : principal.getRoles()) {
+            authorities.add(new SimpleGrantedAuthority(role.startsWith("ROLE_") ? role : "ROLE_" + role));
+        }
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(principal, null, authorities);
+        SecurityContextHolder.getContext().setAuthentication(authentication);
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    /**
+     * 从Authorization请求头取出Bearer令牌
+     */
+    static String resolveToken(String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return null;
+        }
+        String token = authorization.substring(BEARER_PREFIX.length()).trim();
+        return token.isEmpty() ? null : token;
+    }
+}
@@ -0,0 +1,52 @@
+package com.aichat.security;
+
+import java.security.Principal;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 已验证JWT中的用户身份
+ */
+public final class JwtPrincipal implements Principal {
+
+    private final Long userId;
+    private final String username;
+    private final List<String> roles;
+    private final long expiresAt;
+
+    public JwtPrincipal(Long userId, String username, List<String> roles, long expiresAt) {
+        this.userId = userId;
+        this.username = username;
+        this.roles = Collections.unmodifiableList(roles);
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    /**
+     * 过期时间（epoch秒）
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    @Override
+    public String getName() {
+        return username != null ? username : String.valueOf(userId);
+    }
+
+    @Override
+    public String toString() {
+        return "JwtPrincipal{userId=" + userId + ", username=" + username + ", roles=" + roles + "}";
+    }
+}
@@ -0,0 +1,368 @@
+package com.aichat.security;
+
+import com.aichat.service.jfr.FlightRecorderEvents;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JWT验证器
+ * 使用本地配置的密钥验证签名（HS256/HS384/HS512使用共享密钥，RS256使用公钥），
+ * 配置了key-id时，头部kid与之不同的令牌直接拒绝。
+ * 验证通过的令牌以SHA-256摘要为键缓存解析出的身份，有效期不超过令牌的exp（不含时钟偏差），
+ * 重复请求命中缓存时只需计算一次摘要，不再做签名运算和JSON解析。
+ */
+@Component
+public class JwtVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtVerifier.class);
+
+    private static final Base64.Decoder BASE64_URL = Base64.getUrlDecoder();
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    });
+
+    @Value("${security.jwt.secret:}")
+    private String secret;
+
+    @Value("${security.jwt.public-key:}")
+    private String publicKeyPem;
+
+    @Value("${security.jwt.issuer:}")
+    private String issuer;
+
+    // 当前密钥的kid，为空时不校验
+    @Value("${security.jwt.key-id:}")
+    private String keyId;
+
+    @Value("${security.jwt.clock-skew-seconds:30}")
+    private long clockSkewSeconds;
+
+    @Value("${security.jwt.cache.max-size:10000}")
+    private int cacheMaxSize;
+
+    @Value("${security.jwt.cache.max-ttl-seconds:900}")
+    private long cacheMaxTtlSeconds;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Clock clock = Clock.systemUTC();
+
+    private byte[] secretBytes;
+    private PublicKey publicKey;
+
+    private final Map<TokenKey, CachedPrincipal> cache = new ConcurrentHashMap<>();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        if (secret != null && !secret.isEmpty()) {
+            secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        if (publicKeyPem != null && !publicKeyPem.trim().isEmpty()) {
+            try {
+                String base64 = publicKeyPem
+                        .replace("-----BEGIN PUBLIC KEY-----", "")
+                        .replace("-----END PUBLIC KEY-----", "")
+                        .replaceAll("\\s", "");
+                publicKey = KeyFactory.getInstance("RSA")
+                        .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(base64)));
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                throw new IllegalStateException("JWT公钥配置无效", e);
+            }
+        }
+        if (!isConfigured()) {
+            logger.warn("未配置JWT密钥，所有令牌都将被拒绝");
+        }
+    }
+
+    /**
+     * 是否配置了任一验证密钥
+     */
+    public boolean isConfigured() {
+        return secretBytes != null || publicKey != null;
+    }
+
+    /**
+     * 验证令牌并返回身份
+     *
+     * @throws InvalidTokenException 令牌无效或已过期时抛出
+     */
+    public JwtPrincipal verify(String token) {
+        if (token == null || token.isEmpty()) {
+            throw new InvalidTokenException("缺少令牌");
+        }
+        long now = clock.millis();
+        FlightRecorderEvents.CacheLookup event = FlightRecorderEvents.cacheLookup();
+        TokenKey key = TokenKey.of(token);
+        CachedPrincipal cached = cache.get(key);
+        if (cached != null) {
+            if (cached.validUntil > now) {
+                cacheHits.increment();
+                event.record("jwt", "hit");
+                return cached.principal;
+            }
+            cache.remove(key, cached);
+        }
+        cacheMisses.increment();
+        event.record("jwt", "miss");
+
+        JwtPrincipal principal = parseAndVerify(token, now / 1000);
+        // 时钟偏差只用于验证，缓存不超过exp；偏差宽限期内的令牌每次重新验证
+        long validUntil = Math.min(principal.getExpiresAt() * 1000, now + cacheMaxTtlSeconds * 1000);
+        if (validUntil > now) {
+            if (cache.size() >= cacheMaxSize) {
+                evict(now);
+            }
+            cache.put(key, new CachedPrincipal(principal, validUntil));
+        }
+        return principal;
+    }
+
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMissCount() {
+        return cacheMisses.sum();
+    }
+
+    /**
+     * 缓存统计信息
+     */
+    public Map<String, Object> getCacheStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        long hits = cacheHits.sum();
+        long misses = cacheMisses.sum();
+        statistics.put("size", cache.size());
+        statistics.put("hits", hits);
+        statistics.put("misses", misses);
+        statistics.put("hitRatio", hits + misses > 0 ? (double) hits / (hits + misses) : 0.0);
+        return statistics;
+    }
+
+    /**
+     * 定期清理已过期的缓存项
+     */
+    @Scheduled(fixedDelayString = "${security.jwt.cache.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = clock.millis();
+        cache.values().removeIf(entry -> entry.validUntil <= now);
+    }
+
+    private JwtPrincipal parseAndVerify(String token, long nowSeconds) {
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (firstDot <= 0 || secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+            throw new InvalidTokenException("令牌格式错误");
+        }
+
+        JsonNode header = decodeJson(token.substring(0, firstDot));
+        if (keyId != null && !keyId.isEmpty() && header.has("kid") && !keyId.equals(header.get("kid").asText())) {
+            throw new InvalidTokenException("未知的密钥ID: " + header.get("kid").asText());
+        }
+        byte[] signingInput = token.substring(0, secondDot).getBytes(StandardCharsets.US_ASCII);
+        byte[] signature = decodeBase64(token.substring(secondDot + 1));
+        verifySignature(header.path("alg").asText(), signingInput, signature);
+
+        JsonNode claims = decodeJson(token.substring(firstDot + 1, secondDot));
+        if (!claims.path("exp").canConvertToLong()) {
+            throw new InvalidTokenException("令牌缺少过期时间");
+        }
+        long expiresAt = claims.get("exp").asLong();
+        if (expiresAt + clockSkewSeconds < nowSeconds) {
+            throw new InvalidTokenException("令牌已过期");
+        }
+        if (claims.has("nbf") && claims.get("nbf").asLong() - clockSkewSeconds > nowSeconds) {
+            throw new InvalidTokenException("令牌尚未生效");
+        }
+        if (issuer != null && !issuer.isEmpty() && !issuer.equals(claims.path("iss").asText())) {
+            throw new InvalidTokenException("令牌签发者不匹配");
+        }
+
+        Long userId = parseUserId(claims);
+        if (userId == null) {
+            throw new InvalidTokenException("令牌缺少用户ID");
+        }
+        List<String> roles = new ArrayList<>();
+        JsonNode rolesNode = claims.path("roles");
+        if (rolesNode.isArray()) {
+            for (JsonNode role : rolesNode) {
+                roles.add(role.asText());
+            }
+        } else if (rolesNode.isTextual()) {
+            roles.add(rolesNode.asText());
+        }
+        String username = claims.hasNonNull("username") ? claims.get("username").asText() : null;
+        return new JwtPrincipal(userId, username, roles, expiresAt);
+    }
+
+    /**
+     * 用户ID优先取userId声明，否则取数字形式的sub
+     */
+    private static Long parseUserId(JsonNode claims) {
+        JsonNode userId = claims.path("userId");
+        if (userId.canConvertToLong()) {
+            return userId.asLong();
+        }
+        if (userId.isTextual() || claims.path("sub").isTextual()) {
+            String value = userId.isTextual() ? userId.asText() : claims.get("sub").asText();
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private void verifySignature(String algorithm, byte[] signingInput, byte[] signature) {
+        try {
+            boolean valid;
+            switch (algorithm) {
+                case "HS256":
+                case "HS384":
+                case "HS512":
+                    if (secretBytes == null) {
+                        throw new InvalidTokenException("不支持的签名算法: " + algorithm);
+                    }
+                    String macAlgorithm = "HmacSHA" + algorithm.substring(2);
+                    Mac mac = Mac.getInstance(macAlgorithm);
+                    mac.init(new SecretKeySpec(secretBytes, macAlgorithm));
+                    valid = MessageDigest.isEqual(mac.doFinal(signingInput), signature);
+                    break;
+                case "RS256":
+                    if (publicKey == null) {
+                        throw new InvalidTokenException("不支持的签名算法: " + algorithm);
+                    }
+                    Signature verifier = Signature.getInstance("SHA256withRSA");
+                    verifier.initVerify(publicKey);
+                    verifier.update(signingInput);
+                    valid = verifier.verify(signature);
+                    break;
+                default:
+                    // 包括 "none"，一律拒绝
+                    throw new InvalidTokenException("不支持的签名算法: " + algorithm);
+            }
+            if (!valid) {
+                throw new InvalidTokenException("令牌签名无效");
+            }
+        } catch (GeneralSecurityException e) {
+            throw new InvalidTokenException("令牌签名验证失败", e);
+        }
+    }
+
+    private JsonNode decodeJson(String part) {
+        try {
+            JsonNode node = objectMapper.readTree(decodeBase64(part));
+            if (node == null || !node.isObject()) {
+                throw new InvalidTokenException("令牌格式错误");
+            }
+            return node;
+        } catch (IOException e) {
+            throw new InvalidTokenException("令牌格式错误", e);
+        }
+    }
+
+    private static byte[] decodeBase64(String part) {
+        try {
+            return BASE64_URL.decode(part);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidTokenException("令牌格式错误", e);
+        }
+    }
+
+    /**
+     * 缓存已满时先清理过期项，仍然不足时丢弃一部分现有项
+     */
+    private void evict(long now) {
+        cache.values().removeIf(entry -> entry.validUntil <= now);
+        int target = cacheMaxSize - Math.max(1, cacheMaxSize / 10);
+        Iterator<TokenKey> keys = cache.keySet().iterator();
+        while (cache.size() > target && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    /**
+     * 令牌摘要的前128位，缓存中不保存令牌原文
+     */
+    private static final class TokenKey {
+
+        private final long high;
+        private final long low;
+
+        private TokenKey(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        static TokenKey of(String token) {
+            byte[] digest = SHA256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+            ByteBuffer buffer = ByteBuffer.wrap(digest);
+            return new TokenKey(buffer.getLong(), buffer.getLong());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TokenKey)) {
+                return false;
+            }
+            TokenKey other = (TokenKey) o;
+            return high == other.high && low == other.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (high ^ (high >>> 32));
+        }
+    }
+
+    private static final class CachedPrincipal {
+
+        final JwtPrincipal principal;
+        final long validUntil;
+
+        CachedPrincipal(JwtPrincipal principal, long validUntil) {
+            this.principal = principal;
+            this.validUntil = validUntil;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.aichat.security;
 
+import com.aichat.service.tracing.Span;
+import com.aichat.service.tracing.Tracer;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -18,7 +20,9 @@ public class RateLimitingFilter extends OncePerRequestFilter {
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) 
             throws ServletException, IOException {
-        // 暂时直接通过，后续可以添加限流逻辑
+        try (Span ignored = Tracer.startSpan(Tracer.STAGE_RATE_LIMIT)) {
+            // 暂时直接通过，后续可以添加限流逻辑
+        }
         filterChain.doFilter(request, response);
     }
 }
\ No newline at end of file
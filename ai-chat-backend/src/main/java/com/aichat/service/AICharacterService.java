@@ -37,6 +37,11 @@ public interface AICharacterService {
      */
     Page<AICharacter> searchCharacters(String keyword, int page, int size);
     
+    /**
+     * 搜索联想（支持拼音和前缀）
+     */
+    List<String> suggestCharacters(String prefix, int limit);
+    
     /**
      * 按受欢迎程度获取角色
      */
@@ -67,6 +72,17 @@ public interface AICharacterService {
      */
     List<AICharacter> getCharactersBySkill(String skill);
     
+    /**
+     * 按知识领域和技能标签组合查询角色
+     * @param matchAll true表示需同时包含所有标签，false表示包含任一标签
+     */
+    List<AICharacter> getCharactersByTags(List<String> domains, List<String> skills, boolean matchAll);
+    
+    /**
+     * 获取角色技能列表，角色不存在时返回empty
+     */
+    Optional<List<String>> getCharacterSkills(Long id);
+    
     /**
      * 创建角色
      */
@@ -93,10 +109,15 @@ public interface AICharacterService {
     void deactivateCharacter(Long id);
     
     /**
-     * 增加人气值
+     * 增加人气值（内存累加，异步批量落库）
      */
     void incrementPopularity(Long id);
     
+    /**
+     * 获取按时间衰减热度排序的趋势角色
+     */
+    List<AICharacter> getTrendingCharacters(int limit);
+    
     /**
      * 创建默认角色
      */
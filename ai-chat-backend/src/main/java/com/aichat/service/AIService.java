@@ -136,7 +136,7 @@ public interface AIService {
     /**
      * 用户行为分析
      * @param userId 用户ID
-     * @param timeRange 时间范围
+     * @param timeRange 时间范围（如 24h、7d），为null时返回内存中的流式聚合
      * @return 行为分析报告
      */
     Mono<Map<String, Object>> analyzeUserBehavior(Long userId, String timeRange);
@@ -31,9 +31,9 @@ public interface CharacterService {
     List<ChatCharacter> searchCharactersByName(String name);
     
     /**
-     * 根据关键词搜索角色（名称和描述）
+     * 根据关键词搜索角色（名称、描述、性格和技能）
      * @param keyword 搜索关键词
-     * @return 匹配的角色列表
+     * @return 按相关度排序的匹配角色列表
      */
     List<ChatCharacter> searchCharactersByKeyword(String keyword);
     
@@ -65,12 +65,20 @@ public interface CharacterService {
     void activateCharacter(Long id);
     
     /**
-     * 获取推荐角色列表
+     * 获取推荐角色列表（近期热门）
      * @param limit 返回数量限制
      * @return 推荐角色列表
      */
     List<ChatCharacter> getRecommendedCharacters(int limit);
     
+    /**
+     * 获取用户的个性化推荐角色列表，新用户返回近期热门
+     * @param userId 用户ID
+     * @param limit 返回数量限制
+     * @return 推荐角色列表
+     */
+    List<ChatCharacter> getRecommendedCharacters(Long userId, int limit);
+    
     /**
      * 初始化默认角色数据
      */
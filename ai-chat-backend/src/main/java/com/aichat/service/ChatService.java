@@ -2,8 +2,7 @@ package com.aichat.service;
 
 import com.aichat.dto.ChatRequest;
 import com.aichat.dto.ChatResponse;
-
-import java.io.File;
+import com.aichat.service.speech.VoiceUpload;
 
 /**
  * 聊天服务接口
@@ -24,12 +23,12 @@ public interface ChatService {
      * 处理语音聊天请求
      * 先将语音转换为文本，然后处理文本聊天，最后可选择性地生成语音回复
      * 
-     * @param audioFile 用户上传的音频文件
+     * @param audio 用户上传的语音（以流方式转发给语音识别，不落临时文件）
      * @param request 聊天请求对象（不包含message字段，将从音频中提取）
      * @return 聊天响应对象，包含AI回复文本和可能的音频URL
      * @throws RuntimeException 当处理过程中发生错误时抛出异常
      */
-    ChatResponse processVoiceChat(File audioFile, ChatRequest request);
+    ChatResponse processVoiceChat(VoiceUpload audio, ChatRequest request);
 
     /**
      * 获取角色的系统提示词
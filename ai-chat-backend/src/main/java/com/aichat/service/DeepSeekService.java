@@ -1,16 +1,28 @@
 package com.aichat.service;
 
+import com.aichat.service.jfr.FlightRecorderEvents;
+import com.aichat.service.metrics.ChatMetrics;
+import com.aichat.service.tracing.Tracer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * DeepSeek LLM服务实现类
@@ -21,8 +33,14 @@ public class DeepSeekService implements LLMService {
 
     private static final Logger logger = LoggerFactory.getLogger(DeepSeekService.class);
 
+    private static final String STREAM_DONE = "[DONE]";
+
     private final WebClient webClient;
     private final String model;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private ChatMetrics chatMetrics;
 
     public DeepSeekService(@Value("${api.deepseek.base-url}") String baseUrl,
                           @Value("${api.deepseek.key}") String apiKey,
@@ -44,42 +62,101 @@ public class DeepSeekService implements LLMService {
 
     @Override
     public String chatWithContext(String userMessage, String systemPrompt, String conversationHistory) {
-        try {
-            // 构建请求消息列表
-            List<Map<String, String>> messages = buildMessages(systemPrompt, conversationHistory, userMessage);
-            
-            // 构建请求体
-            Map<String, Object> requestBody = new java.util.HashMap<>();
-            requestBody.put("model", model);
-            requestBody.put("messages", messages);
-            requestBody.put("max_tokens", 2000);
-            requestBody.put("temperature", 0.7);
-            requestBody.put("stream", false);
-
-            logger.debug("发送DeepSeek API请求: {}", requestBody);
-
-            // 发送API请求
-            Map<String, Object> response = webClient.post()
+        return chatAsync(userMessage, systemPrompt, conversationHistory).block();
+    }
+
+    @Override
+    public Mono<String> chatAsync(String userMessage, String systemPrompt, String conversationHistory) {
+        // 构建请求消息列表
+        List<Map<String, String>> messages = buildMessages(systemPrompt, conversationHistory, userMessage);
+
+        // 构建请求体
+        Map<String, Object> requestBody = new java.util.HashMap<>();
+        requestBody.put("model", model);
+        requestBody.put("messages", messages);
+        requestBody.put("max_tokens", 2000);
+        requestBody.put("temperature", 0.7);
+        requestBody.put("stream", false);
+
+        logger.debug("发送DeepSeek API请求: {}", requestBody);
+
+        Mono<String> reply = Mono.defer(() -> {
+            long start = System.nanoTime();
+            FlightRecorderEvents.LlmCall event = FlightRecorderEvents.llmCall();
+            AtomicReference<Object> usage = new AtomicReference<>();
+            return webClient.post()
                     .uri("/chat/completions")
                     .bodyValue(requestBody)
                     .retrieve()
                     .bodyToMono(Map.class)
                     .timeout(Duration.ofSeconds(30))
-                    .block();
+                    .switchIfEmpty(Mono.error(() -> new IllegalStateException("响应体为空")))
+                    .map(response -> {
+                        // 解析响应
+                        @SuppressWarnings("unchecked")
+                        Map<String, Object> body = (Map<String, Object>) response;
+                        usage.set(body.get("usage"));
+                        String aiResponse = extractResponseContent(body);
+                        logger.debug("DeepSeek API响应: {}", aiResponse);
+                        return aiResponse;
+                    })
+                    .onErrorMap(e -> {
+                        if (e instanceof WebClientResponseException) {
+                            WebClientResponseException response = (WebClientResponseException) e;
+                            logger.error("DeepSeek API调用失败，状态码: {}, 响应: {}", response.getStatusCode(), response.getResponseBodyAsString());
+                            return new RuntimeException("DeepSeek API调用失败: " + e.getMessage(), e);
+                        }
+                        logger.error("DeepSeek服务异常", e);
+                        return new RuntimeException("DeepSeek服务异常: " + e.getMessage(), e);
+                    })
+                    .doFinally(signal -> {
+                        String outcome = ChatMetrics.outcome(signal);
+                        chatMetrics.recordLlm(model, start, outcome);
+                        event.record(model, "blocking", tokenCount(usage.get(), "prompt_tokens"),
+                                tokenCount(usage.get(), "completion_tokens"), 0, outcome);
+                    });
+        });
+        return Tracer.trace(reply, Tracer.STAGE_LLM);
+    }
 
-            // 解析响应
-            String aiResponse = extractResponseContent(response);
-            logger.debug("DeepSeek API响应: {}", aiResponse);
-            
-            return aiResponse;
+    @Override
+    public Flux<String> chatStream(String userMessage, String systemPrompt, String conversationHistory) {
+        List<Map<String, String>> messages = buildMessages(systemPrompt, conversationHistory, userMessage);
 
-        } catch (WebClientResponseException e) {
-            logger.error("DeepSeek API调用失败，状态码: {}, 响应: {}", e.getStatusCode(), e.getResponseBodyAsString());
-            throw new RuntimeException("DeepSeek API调用失败: " + e.getMessage(), e);
-        } catch (Exception e) {
-            logger.error("DeepSeek服务异常", e);
-            throw new RuntimeException("DeepSeek服务异常: " + e.getMessage(), e);
-        }
+        Map<String, Object> requestBody = new java.util.HashMap<>();
+        requestBody.put("model", model);
+        requestBody.put("messages", messages);
+        requestBody.put("max_tokens", 2000);
+        requestBody.put("temperature", 0.7);
+        requestBody.put("stream", true);
+        // 最后一个数据块附带token用量
+        requestBody.put("stream_options", Collections.singletonMap("include_usage", true));
+
+        logger.debug("发送DeepSeek流式API请求: {}", requestBody);
+
+        // 超时作用于相邻两段增量之间，而不是整个回复
+        Flux<String> deltas = Flux.defer(() -> {
+            StreamUsage usage = new StreamUsage();
+            FlightRecorderEvents.LlmCall llmEvent = FlightRecorderEvents.llmCall();
+            return webClient.post()
+                    .uri("/chat/completions")
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .bodyValue(requestBody)
+                    .retrieve()
+                    .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                    .timeout(Duration.ofSeconds(30))
+                    .map(event -> event.data() != null ? event.data() : "")
+                    .takeWhile(data -> !STREAM_DONE.equals(data.trim()))
+                    .map(data -> extractDeltaContent(data, usage))
+                    .filter(delta -> !delta.isEmpty())
+                    .onErrorMap(WebClientResponseException.class, e -> {
+                        logger.error("DeepSeek流式API调用失败，状态码: {}, 响应: {}", e.getStatusCode(), e.getResponseBodyAsString());
+                        return new RuntimeException("DeepSeek API调用失败: " + e.getMessage(), e);
+                    })
+                    .doFinally(signal -> llmEvent.record(model, "stream", usage.promptTokens,
+                            usage.completionTokens, usage.deltas, ChatMetrics.outcome(signal)));
+        });
+        return Tracer.trace(chatMetrics.timeLlmStream(deltas, model), Tracer.STAGE_LLM);
     }
 
     @Override
@@ -116,7 +193,7 @@ public class DeepSeekService implements LLMService {
     /**
      * 构建消息列表
      */
-    private List<Map<String, String>> buildMessages(String systemPrompt, String conversationHistory, String userMessage) {
+    List<Map<String, String>> buildMessages(String systemPrompt, String conversationHistory, String userMessage) {
         List<Map<String, String>> messages = new java.util.ArrayList<>();
         
         // 添加系统提示词
@@ -147,7 +224,7 @@ public class DeepSeekService implements LLMService {
     /**
      * 从API响应中提取内容
      */
-    private String extractResponseContent(Map<String, Object> response) {
+    String extractResponseContent(Map<String, Object> response) {
         try {
             @SuppressWarnings("unchecked")
             List<Map<String, Object>> choices = (List<Map<String, Object>>) response.get("choices");
@@ -176,4 +253,52 @@ public class DeepSeekService implements LLMService {
             throw new RuntimeException("DeepSeek API响应格式错误", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 从流式响应的一个数据块中提取增量内容
+     */
+    String extractDeltaContent(String data, StreamUsage usage) {
+        if (data.trim().isEmpty()) {
+            return "";
+        }
+        try {
+            JsonNode chunk = objectMapper.readTree(data);
+            JsonNode tokens = chunk.path("usage");
+            if (tokens.isObject()) {
+                usage.promptTokens = tokens.path("prompt_tokens").asInt(-1);
+                usage.completionTokens = tokens.path("completion_tokens").asInt(-1);
+            }
+            JsonNode content = chunk.path("choices").path(0).path("delta").path("content");
+            if (!content.isTextual()) {
+                return "";
+            }
+            usage.deltas++;
+            return content.asText();
+        } catch (java.io.IOException e) {
+            logger.error("DeepSeek流式响应解析错误: {}", data, e);
+            throw new RuntimeException("DeepSeek API响应格式错误", e);
+        }
+    }
+
+    /**
+     * 从响应的usage中取token数，缺失时返回-1
+     */
+    private static int tokenCount(Object usage, String field) {
+        if (usage instanceof Map) {
+            Object value = ((Map<?, ?>) usage).get(field);
+            if (value instanceof Number) {
+                return ((Number) value).intValue();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 一次流式调用中累计的用量
+     */
+    static final class StreamUsage {
+        int promptTokens = -1;
+        int completionTokens = -1;
+        int deltas;
+    }
+}
@@ -1,5 +1,8 @@
 package com.aichat.service;
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
 /**
  * 大语言模型服务接口
  * 定义与LLM API交互的核心方法
@@ -27,6 +30,26 @@ public interface LLMService {
      */
     String chatWithContext(String userMessage, String systemPrompt, String conversationHistory);
 
+    /**
+     * 非阻塞对话（带上下文），订阅时才发起请求，等待回复期间不占用线程
+     * 
+     * @param userMessage 用户输入的消息
+     * @param systemPrompt 系统提示词（角色设定）
+     * @param conversationHistory 对话历史上下文，可为null
+     * @return 完整回复文本，API调用失败时以RuntimeException结束
+     */
+    Mono<String> chatAsync(String userMessage, String systemPrompt, String conversationHistory);
+
+    /**
+     * 流式对话，按生成顺序逐段返回回复文本
+     * 
+     * @param userMessage 用户输入的消息
+     * @param systemPrompt 系统提示词（角色设定）
+     * @param conversationHistory 对话历史上下文，可为null
+     * @return 回复文本的增量片段流
+     */
+    Flux<String> chatStream(String userMessage, String systemPrompt, String conversationHistory);
+
     /**
      * 检查LLM服务是否可用
      * 
@@ -1,16 +1,27 @@
 package com.aichat.service;
 
 import com.aichat.service.SpeechService;
+import com.aichat.service.metrics.ChatMetrics;
+import com.aichat.service.tracing.Tracer;
+import com.aichat.service.speech.AudioPreprocessor;
+import com.aichat.service.speech.SpeechAudioCache;
+import com.aichat.service.speech.SynthesizedAudio;
+import com.aichat.service.speech.VoiceProfile;
+import com.aichat.service.speech.VoiceProfileResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -18,6 +29,7 @@ import java.io.IOException;
 import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.springframework.util.MultiValueMap;
 import org.springframework.util.LinkedMultiValueMap;
@@ -31,40 +43,28 @@ public class OpenAISpeechService implements SpeechService {
 
     private static final Logger logger = LoggerFactory.getLogger(OpenAISpeechService.class);
 
+    @Autowired
+    private SpeechAudioCache audioCache;
+
+    @Autowired
+    private AudioPreprocessor audioPreprocessor;
+
+    @Autowired
+    private VoiceProfileResolver voiceProfileResolver;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Value("${speech.preprocess.transcribe-parallelism:4}")
+    private int transcribeParallelism;
+
     private final WebClient webClient;
     private final String ttsModel;
     private final String ttsVoice;
     private final String whisperModel;
 
-    private static final String[] SUPPORTED_FORMATS = {"mp3", "mp4", "mpeg", "mpga", "m4a", "wav", "webm"};
+    private static final String[] SUPPORTED_FORMATS = {"mp3", "mp4", "mpeg", "mpga", "m4a", "wav", "webm", "pcm"};
     
-    // 情绪到语音风格的映射
-    private static final Map<String, VoiceConfig> EMOTION_VOICE_MAP;
-    static {
-        Map<String, VoiceConfig> map = new java.util.HashMap<>();
-        map.put("HAPPY", new VoiceConfig("alloy", 1.2, 1.1));      // 快语速，高音调
-        map.put("EXCITED", new VoiceConfig("nova", 1.3, 1.2));     // 更快语速，更高音调
-        map.put("CALM", new VoiceConfig("echo", 0.8, 0.9));        // 慢语速，低音调
-        map.put("SAD", new VoiceConfig("fable", 0.7, 0.8));        // 很慢语速，很低音调
-        map.put("ANGRY", new VoiceConfig("onyx", 1.1, 0.9));       // 中等语速，低音调
-        map.put("SURPRISED", new VoiceConfig("shimmer", 1.2, 1.1)); // 快语速，高音调
-        map.put("THOUGHTFUL", new VoiceConfig("echo", 0.9, 0.95));   // 慢语速，中等音调
-        EMOTION_VOICE_MAP = java.util.Collections.unmodifiableMap(map);
-    }
-    
-    // 语音配置内部类
-    private static class VoiceConfig {
-        final String voice;
-        final double speed;
-        final double pitch;
-        
-        VoiceConfig(String voice, double speed, double pitch) {
-            this.voice = voice;
-            this.speed = speed;
-            this.pitch = pitch;
-        }
-    }
-
     public OpenAISpeechService(@Value("${api.openai.base-url}") String baseUrl,
                               @Value("${api.openai.key}") String apiKey,
                               @Value("${api.openai.tts-model:tts-1}") String ttsModel,
@@ -88,29 +88,22 @@ public class OpenAISpeechService implements SpeechService {
         if (audioFile == null || !audioFile.exists()) {
             throw new IllegalArgumentException("音频文件不存在或为空");
         }
+        return transcribe(new FileSystemResource(audioFile));
+    }
 
+    @Override
+    public String transcribe(Resource audio) {
         try {
-            // 构建multipart请求
-            MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
-            parts.add("file", new FileSystemResource(audioFile));
-            parts.add("model", whisperModel);
-            parts.add("response_format", "json");
-
-            logger.debug("发送Whisper API请求，文件: {}", audioFile.getName());
-
-            // 发送API请求
-            Map<String, Object> response = webClient.post()
-                    .uri("/audio/transcriptions")
-                    .contentType(MediaType.MULTIPART_FORM_DATA)
-                    .body(BodyInserters.fromMultipartData(parts))
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .timeout(Duration.ofSeconds(60))
-                    .block();
+            // WAV/PCM先做预处理，长录音切段后并行转写，再按原顺序拼接
+            List<Resource> parts = prepareForTranscription(audio);
+            String transcription = parts.size() == 1
+                    ? transcribeAsync(parts.get(0)).block()
+                    : Flux.fromIterable(parts)
+                        .flatMapSequential(this::transcribeAsync, transcribeParallelism)
+                        .collectList()
+                        .map(OpenAISpeechService::joinTranscripts)
+                        .block();
 
-            // 提取转录文本
-            String transcription = (String) response.get("text");
-            
             if (transcription == null || transcription.trim().isEmpty()) {
                 throw new RuntimeException("Whisper API返回空的转录结果");
             }
@@ -118,15 +111,86 @@ public class OpenAISpeechService implements SpeechService {
             logger.debug("Whisper转录结果: {}", transcription);
             return transcription.trim();
 
-        } catch (WebClientResponseException e) {
-            logger.error("Whisper API调用失败，状态码: {}, 响应: {}", e.getStatusCode(), e.getResponseBodyAsString());
-            throw new RuntimeException("语音转文字失败: " + e.getMessage(), e);
-        } catch (Exception e) {
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof WebClientResponseException) {
+                // API错误已在transcribeAsync中记录并转换
+                throw e;
+            }
             logger.error("语音转文字服务异常", e);
             throw new RuntimeException("语音转文字服务异常: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * 预处理上传的音频，不需要或无法预处理时原样作为唯一分段
+     */
+    private List<Resource> prepareForTranscription(Resource audio) {
+        if (audioPreprocessor.supports(audio.getFilename())) {
+            try {
+                List<Resource> parts = audioPreprocessor.prepare(audio);
+                if (parts != null) {
+                    return parts;
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("读取音频失败: " + e.getMessage(), e);
+            }
+        }
+        return Collections.singletonList(audio);
+    }
+
+    /**
+     * 非阻塞地转写单个音频分段，不做预处理，空结果返回空字符串
+     */
+    public Mono<String> transcribeAsync(Resource audio) {
+        // 构建multipart请求
+        MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
+        parts.add("file", audio);
+        parts.add("model", whisperModel);
+        parts.add("response_format", "json");
+
+        logger.debug("发送Whisper API请求，文件: {}", audio.getFilename());
+
+        Mono<String> transcript = webClient.post()
+                .uri("/audio/transcriptions")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(parts))
+                .retrieve()
+                .bodyToMono(Map.class)
+                .timeout(Duration.ofSeconds(60))
+                .map(response -> {
+                    Object text = response.get("text");
+                    return text instanceof String ? ((String) text).trim() : "";
+                })
+                .onErrorMap(WebClientResponseException.class, e -> {
+                    logger.error("Whisper API调用失败，状态码: {}, 响应: {}", e.getStatusCode(), e.getResponseBodyAsString());
+                    return new RuntimeException("语音转文字失败: " + e.getMessage(), e);
+                });
+        return Tracer.trace(chatMetrics.timeStt(transcript), Tracer.STAGE_STT);
+    }
+
+    /**
+     * 拼接各分段的转写文本，两侧都是拉丁字母或数字时以空格分隔
+     */
+    private static String joinTranscripts(List<String> transcripts) {
+        StringBuilder joined = new StringBuilder();
+        for (String transcript : transcripts) {
+            if (transcript.isEmpty()) {
+                continue;
+            }
+            if (joined.length() > 0 && isLatin(joined.charAt(joined.length() - 1)) && isLatin(transcript.charAt(0))) {
+                joined.append(' ');
+            }
+            joined.append(transcript);
+        }
+        return joined.toString();
+    }
+
+    private static boolean isLatin(char c) {
+        return (c < 0x80 && Character.isLetterOrDigit(c)) || c == ',' || c == '.';
+    }
+
     @Override
     public byte[] synthesize(String text) {
         return synthesizeWithEmotion(text, null);
@@ -140,47 +204,97 @@ public class OpenAISpeechService implements SpeechService {
             throw new IllegalArgumentException("文本内容不能为空");
         }
 
-        try {
-            // 根据情绪选择语音配置
-            VoiceConfig voiceConfig = getVoiceConfigForEmotion(emotion);
-            
-            // 构建TTS请求
-            Map<String, Object> requestBody = new java.util.HashMap<>();
-            requestBody.put("model", ttsModel);
-            requestBody.put("input", text.trim());
-            requestBody.put("voice", voiceConfig.voice);
-            requestBody.put("response_format", "mp3");
-            requestBody.put("speed", voiceConfig.speed);
-
-            logger.debug("发送TTS API请求，文本长度: {}, 情绪: {}, 语音: {}, 语速: {}", 
-                        text.length(), emotion, voiceConfig.voice, voiceConfig.speed);
-
-            // 发送API请求并获取音频数据
-            byte[] audioData = webClient.post()
-                    .uri("/audio/speech")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(byte[].class)
-                    .timeout(Duration.ofSeconds(30))
-                    .block();
+        return block(synthesizeAsync(text, emotion));
+    }
 
-            if (audioData == null || audioData.length == 0) {
-                throw new RuntimeException("TTS API返回空的音频数据");
+    private <T> T block(Mono<T> synthesis) {
+        try {
+            return synthesis.block();
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof WebClientResponseException) {
+                // API错误已在synthesizeAsync中记录并转换
+                throw e;
             }
-
-            logger.debug("TTS生成音频数据大小: {} bytes", audioData.length);
-            return audioData;
-
-        } catch (WebClientResponseException e) {
-            logger.error("TTS API调用失败，状态码: {}, 响应: {}", e.getStatusCode(), e.getResponseBodyAsString());
-            throw new RuntimeException("文字转语音失败: " + e.getMessage(), e);
-        } catch (Exception e) {
             logger.error("文字转语音服务异常", e);
             throw new RuntimeException("文字转语音服务异常: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * 非阻塞的带情绪语音合成，供流式合成按句并发调用
+     */
+    public Mono<byte[]> synthesizeAsync(String text, String emotion) {
+        return synthesizeAsync(text, null, emotion);
+    }
+
+    /**
+     * 按角色语音配置和情绪非阻塞地合成语音，characterId为聊天角色（chat_characters）ID
+     */
+    public Mono<byte[]> synthesizeAsync(String text, Long characterId, String emotion) {
+        return synthesizeCachedAsync(text, characterId, emotion).map(SynthesizedAudio::getAudio);
+    }
+
+    /**
+     * 与 synthesizeAsync 相同，但同时返回音频实际使用的缓存键以及是否已写入缓存
+     */
+    public Mono<SynthesizedAudio> synthesizeCachedAsync(String text, Long characterId, String emotion) {
+        if (text == null || text.trim().isEmpty()) {
+            return Mono.error(new IllegalArgumentException("文本内容不能为空"));
+        }
+
+        // 角色配置与情绪合并后的语音参数，已按 (角色, 情绪) 缓存
+        VoiceProfile voiceProfile = voiceProfileResolver.resolve(characterId, emotion);
+
+        // 相同文本和语音参数的音频直接从缓存返回
+        String cacheKey = SpeechAudioCache.key(text, voiceProfile, ttsModel);
+        byte[] cached = audioCache.get(cacheKey);
+        if (cached != null) {
+            logger.debug("TTS缓存命中，文本长度: {}, 情绪: {}", text.length(), emotion);
+            return Mono.just(new SynthesizedAudio(cacheKey, cached, true));
+        }
+
+        // 构建TTS请求
+        Map<String, Object> requestBody = new java.util.HashMap<>();
+        requestBody.put("model", ttsModel);
+        requestBody.put("input", text.trim());
+        requestBody.put("voice", voiceProfile.getVoice());
+        requestBody.put("response_format", "mp3");
+        requestBody.put("speed", voiceProfile.getSpeed());
+
+        logger.debug("发送TTS API请求，文本长度: {}, 情绪: {}, 语音: {}, 语速: {}", 
+                    text.length(), emotion, voiceProfile.getVoice(), voiceProfile.getSpeed());
+
+        // 只统计上游合成耗时，缓存命中不计入
+        Mono<SynthesizedAudio> speech = webClient.post()
+                .uri("/audio/speech")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(byte[].class)
+                .timeout(Duration.ofSeconds(30))
+                .filter(audioData -> audioData.length > 0)
+                .switchIfEmpty(Mono.error(new RuntimeException("TTS API返回空的音频数据")))
+                .map(audioData -> {
+                    logger.debug("TTS生成音频数据大小: {} bytes", audioData.length);
+                    return new SynthesizedAudio(cacheKey, audioData, audioCache.put(cacheKey, audioData));
+                })
+                .onErrorMap(WebClientResponseException.class, e -> {
+                    logger.error("TTS API调用失败，状态码: {}, 响应: {}", e.getStatusCode(), e.getResponseBodyAsString());
+                    return new RuntimeException("文字转语音失败: " + e.getMessage(), e);
+                });
+        return Tracer.trace(chatMetrics.timeTts(speech), Tracer.STAGE_TTS);
+    }
+
+    /**
+     * 合成语音并写入缓存，返回缓存键和音频；缓存未开启或未能写入时 isCached 为false，客户端无法按键下载
+     */
+    public SynthesizedAudio synthesizeToCache(String text, String emotion) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new IllegalArgumentException("文本内容不能为空");
+        }
+        return block(synthesizeCachedAsync(text, null, emotion));
+    }
+
     /**
      * 带情绪的语音合成到文件
      */
@@ -209,17 +323,6 @@ public class OpenAISpeechService implements SpeechService {
         }
     }
 
-    /**
-     * 根据情绪获取语音配置
-     */
-    private VoiceConfig getVoiceConfigForEmotion(String emotion) {
-        if (emotion != null && EMOTION_VOICE_MAP.containsKey(emotion.toUpperCase())) {
-            return EMOTION_VOICE_MAP.get(emotion.toUpperCase());
-        }
-        // 默认配置
-        return new VoiceConfig(ttsVoice, 1.0, 1.0);
-    }
-
     @Override
     public String synthesizeToFile(String text, File outputFile) {
         return synthesizeWithEmotion(text, outputFile, null);
@@ -0,0 +1,219 @@
+package com.aichat.service;
+
+import com.aichat.dto.ChatRequest;
+import com.aichat.dto.ChatResponse;
+import com.aichat.entity.ChatCharacter;
+import com.aichat.service.catalog.ChatCharacterCatalog;
+import com.aichat.service.prompt.CharacterPromptCache;
+import com.aichat.service.tracing.Tracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+/**
+ * 非阻塞聊天服务
+ * 从角色目录快照和预编译的角色提示词模板取系统提示词，经 WebClient 调用LLM，等待上游期间不占用任何线程，
+ * 同时在途的聊天数只受内存限制。读取历史和保存对话是阻塞的JPA调用，统一交给有界的持久化调度器，
+ * 保存在回复返回后异步进行，队列满时丢弃并记录日志，不反压到请求链路。
+ */
+@Service
+public class ReactiveChatService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveChatService.class);
+
+    private static final String DEFAULT_SYSTEM_PROMPT = "你是一个友好、乐于助人的AI角色，请用自然的语气与用户交流。";
+
+    @Autowired
+    private LLMService llmService;
+
+    @Autowired
+    private ChatCharacterCatalog characterCatalog;
+
+    @Autowired
+    private CharacterPromptCache characterPrompts;
+
+    @Autowired
+    private ObjectProvider<ChatService> chatService;
+
+    @Value("${chat.reactive.persistence-threads:8}")
+    private int persistenceThreads;
+
+    @Value("${chat.reactive.persistence-queue-size:10000}")
+    private int persistenceQueueSize;
+
+    @Value("${chat.reactive.history-limit:10}")
+    private int historyLimit;
+
+    private Scheduler persistenceScheduler;
+
+    @PostConstruct
+    public void init() {
+        persistenceScheduler = Schedulers.newBoundedElastic(persistenceThreads, persistenceQueueSize, "chat-persistence");
+        logger.info("非阻塞聊天服务初始化完成: persistenceThreads={}, queueSize={}", persistenceThreads, persistenceQueueSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        persistenceScheduler.dispose();
+    }
+
+    /**
+     * 发送聊天消息，回复完整生成后返回
+     */
+    public Mono<ChatResponse> send(ChatRequest request) {
+        String sessionId = resolveSessionId(request);
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return context(request)
+                    .flatMap(context -> llmService.chatAsync(request.getMessage(), context.systemPrompt, context.history)
+                            .map(reply -> {
+                                persist(request, sessionId, reply);
+                                return reply(request, context, sessionId, reply, start);
+                            }));
+        });
+    }
+
+    /**
+     * 流式聊天：每个增量为一个PROCESSING状态的响应，最后一个SUCCESS响应携带完整回复；
+     * 出错时以一个ERROR状态的响应结束
+     */
+    public Flux<ChatResponse> stream(ChatRequest request) {
+        String sessionId = resolveSessionId(request);
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            return context(request).flatMapMany(context -> {
+                StringBuilder reply = new StringBuilder();
+                Flux<ChatResponse> deltas = llmService.chatStream(request.getMessage(), context.systemPrompt, context.history)
+                        .map(delta -> {
+                            reply.append(delta);
+                            ChatResponse response = new ChatResponse(request.getCharacterId(), delta);
+                            response.setSessionId(sessionId);
+                            response.setStatus(ChatResponse.ResponseStatus.PROCESSING);
+                            return response;
+                        });
+                Mono<ChatResponse> done = Mono.fromCallable(() -> {
+                    String text = reply.toString();
+                    persist(request, sessionId, text);
+                    return reply(request, context, sessionId, text, start);
+                });
+                return deltas.concatWith(done);
+            });
+        }).onErrorResume(e -> {
+            logger.error("流式聊天失败: userId={}", request.getUserId(), e);
+            return Mono.just(failure(request, sessionId, e));
+        });
+    }
+
+    /**
+     * 构建失败时返回给前端的响应
+     */
+    public ChatResponse failure(ChatRequest request, String sessionId, Throwable error) {
+        ChatResponse response = new ChatResponse(ChatResponse.ResponseStatus.ERROR, "抱歉，我现在无法回复您的消息，请稍后再试。");
+        response.setCharacterId(request.getCharacterId());
+        response.setMessage("抱歉，我现在无法回复您的消息，请稍后再试。");
+        response.setSessionId(sessionId);
+        response.setError(error.getMessage());
+        return response;
+    }
+
+    /**
+     * 请求的会话ID，新对话未携带时生成一个并写回请求，之后的回复、失败响应和保存的记录都使用同一个ID
+     */
+    public String resolveSessionId(ChatRequest request) {
+        String sessionId = request.getSessionId();
+        if (sessionId == null || sessionId.isEmpty()) {
+            sessionId = UUID.randomUUID().toString();
+            request.setSessionId(sessionId);
+        }
+        return sessionId;
+    }
+
+    /**
+     * 取系统提示词和对话历史，目录快照命中时不经过持久化调度器
+     */
+    private Mono<ChatContext> context(ChatRequest request) {
+        Long characterId = request.getCharacterId();
+        ChatService service = chatService.getIfAvailable();
+        Optional<ChatCharacter> character = characterCatalog.getCharacter(characterId);
+
+        Mono<String> systemPrompt;
+        if (character.isPresent()) {
+            systemPrompt = Mono.just(characterPrompts.get(character.get()).render(null));
+        } else if (service != null) {
+            systemPrompt = offload(() -> service.getCharacterSystemPrompt(characterId));
+        } else {
+            systemPrompt = Mono.empty();
+        }
+
+        Mono<String> history = service == null
+                ? Mono.just("")
+                : offload(() -> service.getConversationHistory(request.getUserId(), characterId, historyLimit))
+                        .defaultIfEmpty("")
+                        .onErrorResume(e -> {
+                            logger.warn("读取对话历史失败，按无历史处理: userId={}, characterId={}, error={}",
+                                    request.getUserId(), characterId, e.getMessage());
+                            return Mono.just("");
+                        });
+
+        Mono<ChatContext> context = Mono.zip(systemPrompt.defaultIfEmpty(DEFAULT_SYSTEM_PROMPT), history)
+                .map(tuple -> new ChatContext(character.map(ChatCharacter::getName).orElse(null),
+                        tuple.getT1(), tuple.getT2()));
+        return Tracer.trace(context, Tracer.STAGE_CONTEXT_BUILD);
+    }
+
+    /**
+     * 把对话记录交给持久化调度器，不等待写库结果
+     */
+    private void persist(ChatRequest request, String sessionId, String reply) {
+        ChatService service = chatService.getIfAvailable();
+        if (service == null || reply.isEmpty()) {
+            return;
+        }
+        Mono.fromRunnable(() -> service.saveConversation(request.getUserId(), request.getCharacterId(),
+                        request.getMessage(), reply, sessionId, null))
+                .subscribeOn(persistenceScheduler)
+                .subscribe(null, e -> logger.error("保存对话失败: userId={}, sessionId={}",
+                        request.getUserId(), sessionId, e));
+    }
+
+    private <T> Mono<T> offload(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(persistenceScheduler);
+    }
+
+    private static ChatResponse reply(ChatRequest request, ChatContext context, String sessionId,
+                                      String reply, long startNanos) {
+        ChatResponse response = new ChatResponse(request.getCharacterId(), reply);
+        response.setCharacterName(context.characterName);
+        response.setSessionId(sessionId);
+        response.setResponseTime((System.nanoTime() - startNanos) / 1_000_000);
+        return response;
+    }
+
+    /**
+     * 一次聊天的角色上下文
+     */
+    private static final class ChatContext {
+        private final String characterName;
+        private final String systemPrompt;
+        private final String history;
+
+        ChatContext(String characterName, String systemPrompt, String history) {
+            this.characterName = characterName;
+            this.systemPrompt = systemPrompt;
+            this.history = history;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.aichat.service;
 
+import org.springframework.core.io.Resource;
+
 import java.io.File;
 
 /**
@@ -18,6 +20,16 @@ public interface SpeechService {
      */
     String transcribe(File audioFile);
 
+    /**
+     * 语音转文字（流式上传）
+     * 音频内容按流读取并直接转发给Whisper API，不在内存中完整缓存
+     * 
+     * @param audio 音频资源，需提供带扩展名的文件名和内容长度
+     * @return 转换后的文本内容
+     * @throws RuntimeException 当API调用失败或文件格式不支持时抛出异常
+     */
+    String transcribe(Resource audio);
+
     /**
      * 文字转语音 (Text-to-Speech)
      * 使用TTS API将文本转换为音频数据
@@ -0,0 +1,42 @@
+package com.aichat.service.analytics;
+
+/**
+ * 对话记录写入事件
+ * ChatService.saveConversation 成功后发布，事务提交后由用户行为聚合器消费
+ */
+public class ConversationSavedEvent {
+
+    private final Long userId;
+    private final Long characterId;
+    private final String sessionId;
+    private final int messageLength;
+    private final long timestamp;
+
+    public ConversationSavedEvent(Long userId, Long characterId, String sessionId, int messageLength, long timestamp) {
+        this.userId = userId;
+        this.characterId = characterId;
+        this.sessionId = sessionId;
+        this.messageLength = messageLength;
+        this.timestamp = timestamp;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getCharacterId() {
+        return characterId;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public int getMessageLength() {
+        return messageLength;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,154 @@
+package com.aichat.service.analytics;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * 单个用户的滚动行为聚合
+ * 只用定长的基本类型字段和数组，每个用户约五百字节，每条对话O(1)更新：
+ * - 会话按 sessionId 变化或超过空闲间隔切分，记录会话数、消息数和时长
+ * - 按小时的24格活跃直方图，按天的32格环形计数（近1/7/30天消息数）
+ * - 最常聊角色用 Space-Saving 算法的8个槽位近似统计，计数为上界
+ * - 参与度为按半衰期指数衰减的消息数
+ * 读写都在对象锁内进行。
+ */
+final class UserActivity {
+
+    static final int HOURS = 24;
+    static final int DAYS = 32;
+    static final int FAVORITE_SLOTS = 8;
+
+    long totalMessages;
+    long totalChars;
+    long sessions;
+
+    // 已结束会话的消息数和时长合计，当前会话单独记录
+    long closedSessionMessages;
+    long closedSessionMillis;
+    int sessionKey;
+    long sessionStart;
+    int sessionMessages;
+
+    long lastEventAt;
+    long lastEpochDay;
+
+    final int[] hourHistogram = new int[HOURS];
+    final int[] dailyCounts = new int[DAYS];
+
+    // 槽位计数为0表示空槽
+    final long[] favoriteIds = new long[FAVORITE_SLOTS];
+    final long[] favoriteCounts = new long[FAVORITE_SLOTS];
+
+    double engagement;
+    long engagementUpdatedAt;
+
+    // 每次变更加一，与已写入快照的版本不同时需要刷写
+    long version;
+    long snapshotVersion;
+
+    volatile long lastAccessAt = System.currentTimeMillis();
+
+    // 已从内存淘汰，之后的事件需要重新加载
+    boolean evicted;
+
+    /**
+     * 计入一条对话，已被淘汰时不计入并返回false
+     */
+    synchronized boolean record(Long characterId, String sessionId, int messageLength, long timestamp,
+                                ZoneId zone, long sessionGapMillis, double decayRate) {
+        if (evicted) {
+            return false;
+        }
+        int key = sessionId != null ? sessionId.hashCode() : 0;
+        boolean newSession = totalMessages == 0
+                || (key != 0 && key != sessionKey)
+                || timestamp - lastEventAt > sessionGapMillis;
+        if (newSession) {
+            if (totalMessages > 0) {
+                closedSessionMessages += sessionMessages;
+                closedSessionMillis += Math.max(0, lastEventAt - sessionStart);
+            }
+            sessions++;
+            sessionKey = key;
+            sessionStart = timestamp;
+            sessionMessages = 0;
+        }
+        sessionMessages++;
+
+        ZonedDateTime time = Instant.ofEpochMilli(timestamp).atZone(zone);
+        hourHistogram[time.getHour()]++;
+        countDay(time.toLocalDate().toEpochDay());
+        if (characterId != null) {
+            countCharacter(characterId);
+        }
+
+        if (timestamp >= engagementUpdatedAt) {
+            engagement = engagementAt(timestamp, decayRate) + 1.0;
+            engagementUpdatedAt = timestamp;
+        } else {
+            // 乱序到达的旧事件按其时间折算
+            engagement += Math.exp(-decayRate * (engagementUpdatedAt - timestamp));
+        }
+
+        totalMessages++;
+        totalChars += messageLength;
+        lastEventAt = Math.max(lastEventAt, timestamp);
+        version++;
+        return true;
+    }
+
+    /**
+     * 截至 today（含）最近 days 天的消息数，days 不超过环形计数的长度
+     */
+    synchronized long messagesInLastDays(long today, int days) {
+        long total = 0;
+        for (long day = today - Math.min(days, DAYS) + 1; day <= today; day++) {
+            if (day <= lastEpochDay && day > lastEpochDay - DAYS) {
+                total += dailyCounts[slot(day)];
+            }
+        }
+        return total;
+    }
+
+    synchronized double engagementAt(long now, double decayRate) {
+        return engagement * Math.exp(-decayRate * Math.max(0, now - engagementUpdatedAt));
+    }
+
+    private void countDay(long epochDay) {
+        if (totalMessages == 0) {
+            lastEpochDay = epochDay;
+        } else if (epochDay > lastEpochDay) {
+            long skipped = Math.min(epochDay - lastEpochDay, DAYS);
+            for (long i = 1; i <= skipped; i++) {
+                dailyCounts[slot(lastEpochDay + i)] = 0;
+            }
+            lastEpochDay = epochDay;
+        }
+        if (lastEpochDay - epochDay < DAYS) {
+            dailyCounts[slot(epochDay)]++;
+        }
+    }
+
+    /**
+     * Space-Saving：命中则加一，有空槽则占用，否则替换计数最小的槽位并在其计数上加一
+     */
+    private void countCharacter(long characterId) {
+        int min = 0;
+        for (int i = 0; i < FAVORITE_SLOTS; i++) {
+            if (favoriteCounts[i] > 0 && favoriteIds[i] == characterId) {
+                favoriteCounts[i]++;
+                return;
+            }
+            if (favoriteCounts[i] < favoriteCounts[min]) {
+                min = i;
+            }
+        }
+        favoriteIds[min] = characterId;
+        favoriteCounts[min]++;
+    }
+
+    private static int slot(long epochDay) {
+        return (int) Math.floorMod(epochDay, (long) DAYS);
+    }
+}
@@ -0,0 +1,481 @@
+package com.aichat.service.analytics;
+
+import com.aichat.service.catalog.ChatCharacterCatalog;
+import com.aichat.service.jfr.FlightRecorderEvents;
+import com.aichat.service.metrics.ChatMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 用户行为流式聚合器
+ * 消费对话写入事件，在内存中维护每个用户的滚动聚合（消息数、会话长度、24小时活跃直方图、常聊角色、参与度），
+ * 查询直接读内存，不扫描对话历史。聚合定期增量写入 user_behavior_snapshots 表，长时间不活跃的用户从内存淘汰，
+ * 再次访问时从快照恢复；没有快照的用户首次访问时用启动时刻之前的对话历史回填一次，之后只靠事件更新。
+ * 既没有快照也没有对话历史的用户查询时返回空结果，不放入聚合，只在容量有限的空结果缓存中短暂记录，
+ * 避免任意用户ID占用内存，也避免反复查询同一个空用户时每次都读快照表和扫描对话历史。
+ */
+@Service
+public class UserBehaviorAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserBehaviorAggregator.class);
+
+    private static final String SNAPSHOT_COLUMNS = "total_messages, total_chars, total_sessions, "
+            + "closed_session_messages, closed_session_millis, session_key, session_start, session_messages, "
+            + "last_event_at, last_epoch_day, hour_histogram, daily_counts, favorite_characters, "
+            + "engagement, engagement_updated_at, updated_at";
+
+    private static final String SELECT_SQL = "SELECT " + SNAPSHOT_COLUMNS + " FROM user_behavior_snapshots WHERE user_id = ?";
+
+    private static final String UPDATE_SQL = "UPDATE user_behavior_snapshots SET total_messages = ?, total_chars = ?, "
+            + "total_sessions = ?, closed_session_messages = ?, closed_session_millis = ?, session_key = ?, "
+            + "session_start = ?, session_messages = ?, last_event_at = ?, last_epoch_day = ?, hour_histogram = ?, "
+            + "daily_counts = ?, favorite_characters = ?, engagement = ?, engagement_updated_at = ?, updated_at = ? "
+            + "WHERE user_id = ?";
+
+    private static final String INSERT_SQL = "INSERT INTO user_behavior_snapshots (" + SNAPSHOT_COLUMNS
+            + ", user_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String BACKFILL_SQL = "SELECT character_id, session_id, LENGTH(user_message) AS message_length, "
+            + "timestamp FROM conversation_history WHERE user_id = ? AND id <= ? ORDER BY timestamp, id";
+
+    private static final int FAVORITE_LIMIT = 3;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ChatCharacterCatalog characterCatalog;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    // 同一会话中两条消息间隔超过此值视为新会话
+    @Value("${analytics.behavior.session-gap-ms:1800000}")
+    private long sessionGapMillis;
+
+    @Value("${analytics.behavior.engagement-half-life-hours:168}")
+    private double engagementHalfLifeHours;
+
+    // 衰减消息数达到该值时参与度约为63分
+    @Value("${analytics.behavior.engagement-saturation:20}")
+    private double engagementSaturation;
+
+    @Value("${analytics.behavior.idle-evict-ms:86400000}")
+    private long idleEvictMillis;
+
+    @Value("${analytics.behavior.backfill-enabled:true}")
+    private boolean backfillEnabled;
+
+    @Value("${analytics.behavior.empty-user-ttl-ms:60000}")
+    private long emptyUserTtlMillis;
+
+    @Value("${analytics.behavior.empty-user-max-entries:10000}")
+    private int emptyUserMaxEntries;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final Map<Long, UserActivity> activities = new ConcurrentHashMap<>();
+
+    // 最近查询结果为空的用户及过期时间，按插入顺序超出容量时淘汰最早的
+    private final LinkedHashMap<Long, Long> emptyUsers = new LinkedHashMap<Long, Long>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > emptyUserMaxEntries;
+        }
+    };
+
+    // 启动时对话历史的最大ID，回填只读到这里，之后写入的对话由事件计入
+    private volatile long backfillWatermark = -1;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (!backfillEnabled) {
+            return;
+        }
+        try {
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM conversation_history", Long.class);
+            backfillWatermark = maxId != null ? maxId : 0;
+            logger.info("用户行为聚合器初始化完成: backfillWatermark={}", backfillWatermark);
+        } catch (Exception e) {
+            logger.warn("读取对话历史水位失败，不做历史回填: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 对话写入事务提交后计入聚合，失败只记录日志，不影响对话保存
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onConversationSaved(ConversationSavedEvent event) {
+        if (event.getUserId() == null) {
+            return;
+        }
+        try {
+            double rate = decayRate();
+            // 取到的聚合恰好被淘汰时重新加载
+            while (!activity(event.getUserId()).record(event.getCharacterId(), event.getSessionId(),
+                    event.getMessageLength(), event.getTimestamp(), zone, sessionGapMillis, rate)) {
+                logger.debug("用户行为聚合已淘汰，重新加载: userId={}", event.getUserId());
+            }
+        } catch (Exception e) {
+            logger.warn("用户行为聚合更新失败: userId={}, error={}", event.getUserId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 用户行为分析结果，直接从内存聚合读取
+     */
+    public Map<String, Object> describe(Long userId) {
+        UserActivity activity = lookup(userId);
+        long now = System.currentTimeMillis();
+        long today = LocalDate.now(zone).toEpochDay();
+
+        Map<String, Object> analysis = new HashMap<>();
+        List<long[]> favorites = new ArrayList<>();
+        synchronized (activity) {
+            long currentSessionMillis = activity.totalMessages > 0 ? activity.lastEventAt - activity.sessionStart : 0;
+            analysis.put("userId", userId);
+            analysis.put("totalMessages", activity.totalMessages);
+            analysis.put("totalSessions", activity.sessions);
+            analysis.put("messagesToday", activity.messagesInLastDays(today, 1));
+            analysis.put("messagesLast7Days", activity.messagesInLastDays(today, 7));
+            analysis.put("messagesLast30Days", activity.messagesInLastDays(today, 30));
+            analysis.put("averageMessageLength", average(activity.totalChars, activity.totalMessages));
+            analysis.put("averageSessionMessages", average(activity.totalMessages, activity.sessions));
+            analysis.put("averageSessionMinutes",
+                    average(activity.closedSessionMillis + currentSessionMillis, activity.sessions * 60_000L));
+            analysis.put("hourHistogram", Arrays.copyOf(activity.hourHistogram, UserActivity.HOURS));
+            analysis.put("mostActiveHour", mostActiveHour(activity.hourHistogram));
+            analysis.put("engagementScore", engagementScore(activity.engagementAt(now, decayRate())));
+            analysis.put("lastActiveAt", activity.totalMessages > 0
+                    ? LocalDateTime.ofInstant(Instant.ofEpochMilli(activity.lastEventAt), zone).toString() : null);
+            for (int i = 0; i < UserActivity.FAVORITE_SLOTS; i++) {
+                if (activity.favoriteCounts[i] > 0) {
+                    favorites.add(new long[]{activity.favoriteIds[i], activity.favoriteCounts[i]});
+                }
+            }
+        }
+
+        favorites.sort((a, b) -> Long.compare(b[1], a[1]));
+        List<Map<String, Object>> favoriteCharacters = new ArrayList<>();
+        for (long[] favorite : favorites.subList(0, Math.min(FAVORITE_LIMIT, favorites.size()))) {
+            Map<String, Object> character = new HashMap<>();
+            character.put("characterId", favorite[0]);
+            character.put("name", characterCatalog.getCharacter(favorite[0]).map(c -> c.getName()).orElse(null));
+            character.put("messages", favorite[1]);
+            favoriteCharacters.add(character);
+        }
+        analysis.put("favoriteCharacters", favoriteCharacters);
+        analysis.put("analyzedAt", LocalDateTime.now().toString());
+        return analysis;
+    }
+
+    /**
+     * describe 是否只读内存：聚合已加载或用户在空结果缓存中；否则首次查询会读快照表并可能回填对话历史
+     */
+    public boolean isResident(Long userId) {
+        return activities.containsKey(userId) || isKnownEmpty(userId);
+    }
+
+    public Map<String, Object> getStatistics() {
+        long dirty = 0;
+        for (UserActivity activity : activities.values()) {
+            synchronized (activity) {
+                if (activity.version != activity.snapshotVersion) {
+                    dirty++;
+                }
+            }
+        }
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("trackedUsers", activities.size());
+        statistics.put("pendingSnapshots", dirty);
+        return statistics;
+    }
+
+    /**
+     * 把有变化的聚合写入快照表，并淘汰长时间未访问且已写入快照的用户
+     */
+    @Scheduled(fixedDelayString = "${analytics.behavior.snapshot-interval-ms:30000}")
+    public synchronized void snapshot() {
+        List<Long> userIds = new ArrayList<>();
+        List<Long> versions = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<Long, UserActivity> entry : activities.entrySet()) {
+            UserActivity activity = entry.getValue();
+            synchronized (activity) {
+                if (activity.version == activity.snapshotVersion) {
+                    continue;
+                }
+                userIds.add(entry.getKey());
+                versions.add(activity.version);
+                rows.add(toRow(entry.getKey(), activity, now));
+            }
+        }
+
+        if (!rows.isEmpty()) {
+            long start = System.nanoTime();
+            FlightRecorderEvents.DbWrite event = FlightRecorderEvents.dbWrite();
+            try {
+                int[] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, rows);
+                List<Object[]> inserts = new ArrayList<>();
+                for (int i = 0; i < updated.length; i++) {
+                    if (updated[i] == 0) {
+                        inserts.add(rows.get(i));
+                    }
+                }
+                if (!inserts.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+                }
+                chatMetrics.recordDbWrite("behavior_snapshot", start, ChatMetrics.OUTCOME_SUCCESS);
+                event.record("behavior_snapshot", rows.size(), ChatMetrics.OUTCOME_SUCCESS);
+                for (int i = 0; i < userIds.size(); i++) {
+                    UserActivity activity = activities.get(userIds.get(i));
+                    if (activity != null) {
+                        synchronized (activity) {
+                            activity.snapshotVersion = Math.max(activity.snapshotVersion, versions.get(i));
+                        }
+                    }
+                }
+                logger.debug("用户行为快照已写入: {} 个用户", rows.size());
+            } catch (Exception e) {
+                // 未标记为已写入，下个周期重试
+                chatMetrics.recordDbWrite("behavior_snapshot", start, ChatMetrics.OUTCOME_ERROR);
+                event.record("behavior_snapshot", rows.size(), ChatMetrics.OUTCOME_ERROR);
+                logger.warn("用户行为快照写入失败，将在下个周期重试: {}", e.getMessage());
+            }
+        }
+
+        evictIdle();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshot();
+    }
+
+    private UserActivity activity(Long userId) {
+        UserActivity activity = activities.get(userId);
+        if (activity == null) {
+            forgetEmpty(userId);
+            // 在映射外加载，避免数据库访问期间占住并发映射的桶；并发加载时保留先放入的一份
+            UserActivity loaded = load(userId);
+            activity = activities.putIfAbsent(userId, loaded);
+            if (activity == null) {
+                activity = loaded;
+            }
+        }
+        activity.lastAccessAt = System.currentTimeMillis();
+        return activity;
+    }
+
+    /**
+     * 查询用的聚合：加载结果为空时不放入聚合，只记入空结果缓存，用户有了对话后由事件创建
+     */
+    private UserActivity lookup(Long userId) {
+        UserActivity activity = activities.get(userId);
+        if (activity == null) {
+            if (isKnownEmpty(userId)) {
+                return new UserActivity();
+            }
+            UserActivity loaded = load(userId);
+            if (loaded.totalMessages == 0) {
+                rememberEmpty(userId);
+                return loaded;
+            }
+            activity = activities.putIfAbsent(userId, loaded);
+            if (activity == null) {
+                activity = loaded;
+            }
+        }
+        activity.lastAccessAt = System.currentTimeMillis();
+        return activity;
+    }
+
+    private boolean isKnownEmpty(Long userId) {
+        synchronized (emptyUsers) {
+            Long expiresAt = emptyUsers.get(userId);
+            if (expiresAt == null) {
+                return false;
+            }
+            if (expiresAt > System.currentTimeMillis()) {
+                return true;
+            }
+            emptyUsers.remove(userId);
+            return false;
+        }
+    }
+
+    private void rememberEmpty(Long userId) {
+        if (emptyUserTtlMillis <= 0 || emptyUserMaxEntries <= 0) {
+            return;
+        }
+        synchronized (emptyUsers) {
+            // 先移除再放入，刷新插入顺序
+            emptyUsers.remove(userId);
+            emptyUsers.put(userId, System.currentTimeMillis() + emptyUserTtlMillis);
+        }
+    }
+
+    private void forgetEmpty(Long userId) {
+        synchronized (emptyUsers) {
+            emptyUsers.remove(userId);
+        }
+    }
+
+    private UserActivity load(Long userId) {
+        List<UserActivity> restored = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> fromRow(rs), userId);
+        if (!restored.isEmpty()) {
+            return restored.get(0);
+        }
+
+        UserActivity activity = new UserActivity();
+        if (backfillEnabled && backfillWatermark > 0) {
+            double rate = decayRate();
+            jdbcTemplate.query(BACKFILL_SQL, rs -> {
+                long characterId = rs.getLong("character_id");
+                Long character = rs.wasNull() ? null : characterId;
+                Timestamp timestamp = rs.getTimestamp("timestamp");
+                if (timestamp == null) {
+                    // 没有时间的记录无法归入时段和会话，跳过
+                    return;
+                }
+                activity.record(character, rs.getString("session_id"),
+                        rs.getInt("message_length"), timestamp.getTime(), zone, sessionGapMillis, rate);
+            }, userId, backfillWatermark);
+            if (activity.totalMessages > 0) {
+                logger.debug("用户行为已从对话历史回填: userId={}, messages={}", userId, activity.totalMessages);
+            }
+        }
+        return activity;
+    }
+
+    private void evictIdle() {
+        long threshold = System.currentTimeMillis() - idleEvictMillis;
+        Iterator<Map.Entry<Long, UserActivity>> iterator = activities.entrySet().iterator();
+        while (iterator.hasNext()) {
+            UserActivity activity = iterator.next().getValue();
+            synchronized (activity) {
+                if (activity.lastAccessAt < threshold && activity.version == activity.snapshotVersion) {
+                    activity.evicted = true;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private double decayRate() {
+        return Math.log(2) / (engagementHalfLifeHours * 3_600_000.0);
+    }
+
+    /**
+     * 把衰减消息数映射到0-100：100 * (1 - e^(-x / saturation))
+     */
+    private long engagementScore(double decayedMessages) {
+        return Math.round(100 * (1 - Math.exp(-decayedMessages / engagementSaturation)));
+    }
+
+    private static long average(long total, long count) {
+        return count > 0 ? Math.round((double) total / count) : 0;
+    }
+
+    private static Integer mostActiveHour(int[] histogram) {
+        int best = -1;
+        for (int hour = 0; hour < histogram.length; hour++) {
+            if (histogram[hour] > 0 && (best < 0 || histogram[hour] > histogram[best])) {
+                best = hour;
+            }
+        }
+        return best >= 0 ? best : null;
+    }
+
+    private static Object[] toRow(Long userId, UserActivity activity, LocalDateTime now) {
+        StringBuilder favorites = new StringBuilder();
+        for (int i = 0; i < UserActivity.FAVORITE_SLOTS; i++) {
+            if (activity.favoriteCounts[i] > 0) {
+                if (favorites.length() > 0) {
+                    favorites.append(',');
+                }
+                favorites.append(activity.favoriteIds[i]).append(':').append(activity.favoriteCounts[i]);
+            }
+        }
+        return new Object[]{activity.totalMessages, activity.totalChars, activity.sessions,
+                activity.closedSessionMessages, activity.closedSessionMillis, activity.sessionKey,
+                activity.sessionStart, activity.sessionMessages, activity.lastEventAt, activity.lastEpochDay,
+                join(activity.hourHistogram), join(activity.dailyCounts), favorites.toString(),
+                activity.engagement, activity.engagementUpdatedAt, Timestamp.valueOf(now), userId};
+    }
+
+    private static UserActivity fromRow(ResultSet rs) throws SQLException {
+        UserActivity activity = new UserActivity();
+        activity.totalMessages = rs.getLong("total_messages");
+        activity.totalChars = rs.getLong("total_chars");
+        activity.sessions = rs.getLong("total_sessions");
+        activity.closedSessionMessages = rs.getLong("closed_session_messages");
+        activity.closedSessionMillis = rs.getLong("closed_session_millis");
+        activity.sessionKey = rs.getInt("session_key");
+        activity.sessionStart = rs.getLong("session_start");
+        activity.sessionMessages = rs.getInt("session_messages");
+        activity.lastEventAt = rs.getLong("last_event_at");
+        activity.lastEpochDay = rs.getLong("last_epoch_day");
+        split(rs.getString("hour_histogram"), activity.hourHistogram);
+        split(rs.getString("daily_counts"), activity.dailyCounts);
+        String favorites = rs.getString("favorite_characters");
+        if (favorites != null && !favorites.isEmpty()) {
+            String[] entries = favorites.split(",");
+            for (int i = 0; i < entries.length && i < UserActivity.FAVORITE_SLOTS; i++) {
+                int separator = entries[i].indexOf(':');
+                activity.favoriteIds[i] = Long.parseLong(entries[i].substring(0, separator));
+                activity.favoriteCounts[i] = Long.parseLong(entries[i].substring(separator + 1));
+            }
+        }
+        activity.engagement = rs.getDouble("engagement");
+        activity.engagementUpdatedAt = rs.getLong("engagement_updated_at");
+        return activity;
+    }
+
+    private static String join(int[] values) {
+        StringBuilder builder = new StringBuilder(values.length * 3);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(values[i]);
+        }
+        return builder.toString();
+    }
+
+    private static void split(String text, int[] target) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String[] parts = text.split(",");
+        for (int i = 0; i < parts.length && i < target.length; i++) {
+            target[i] = Integer.parseInt(parts[i]);
+        }
+    }
+}
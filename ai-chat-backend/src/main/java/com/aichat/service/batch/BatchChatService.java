@@ -0,0 +1,168 @@
+package com.aichat.service.batch;
+
+import com.aichat.dto.BatchChatRequest;
+import com.aichat.dto.BatchItemResult;
+import com.aichat.dto.ChatRequest;
+import com.aichat.service.ReactiveChatService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 批量聊天服务
+ * 每条请求经 ReactiveChatService 非阻塞处理，并发数有上限，单条超时或出错只影响该条结果。
+ * 同步模式以流的形式逐条返回结果；条目很多时以异步任务提交，客户端按任务ID轮询进度和结果。
+ * 任务保存在内存中，完成后保留一段时间供轮询，重启后丢失。
+ */
+@Service
+public class BatchChatService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchChatService.class);
+
+    @Autowired
+    private ReactiveChatService reactiveChatService;
+
+    @Value("${batch.default-concurrency:8}")
+    private int defaultConcurrency;
+
+    @Value("${batch.max-concurrency:32}")
+    private int maxConcurrency;
+
+    @Value("${batch.item-timeout-ms:60000}")
+    private long defaultItemTimeoutMillis;
+
+    @Value("${batch.max-items:500}")
+    private int maxItems;
+
+    @Value("${batch.jobs.max-items:10000}")
+    private int maxJobItems;
+
+    @Value("${batch.jobs.max-active:4}")
+    private int maxActiveJobs;
+
+    @Value("${batch.jobs.retention-ms:3600000}")
+    private long jobRetentionMillis;
+
+    private final Map<String, BatchJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * 同步批量处理，结果在产出时逐条发出
+     *
+     * @throws IllegalArgumentException 请求为空或条目数超过 batch.max-items
+     */
+    public Flux<BatchItemResult> process(BatchChatRequest request) {
+        List<ChatRequest> items = validate(request, maxItems);
+        logger.info("开始批量处理: {}", request);
+        return run(items, request);
+    }
+
+    /**
+     * 提交异步批量任务
+     *
+     * @throws IllegalArgumentException 请求为空或条目数超过 batch.jobs.max-items
+     * @throws IllegalStateException 运行中的任务数已达 batch.jobs.max-active
+     */
+    public BatchJob submit(BatchChatRequest request) {
+        List<ChatRequest> items = validate(request, maxJobItems);
+        synchronized (jobs) {
+            long active = jobs.values().stream().filter(job -> !job.isFinished()).count();
+            if (active >= maxActiveJobs) {
+                throw new IllegalStateException("运行中的批量任务已达上限: " + maxActiveJobs);
+            }
+            BatchJob job = new BatchJob(UUID.randomUUID().toString(), items.size());
+            jobs.put(job.getId(), job);
+            logger.info("提交批量任务: jobId={}, {}", job.getId(), request);
+            job.start(run(items, request).subscribe(
+                    job::add,
+                    error -> {
+                        logger.error("批量任务失败: jobId={}", job.getId(), error);
+                        job.finish(BatchJob.Status.FAILED, error.getMessage());
+                    },
+                    () -> {
+                        job.finish(BatchJob.Status.COMPLETED, null);
+                        logger.info("批量任务完成: jobId={}", job.getId());
+                    }));
+            return job;
+        }
+    }
+
+    public BatchJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * 取消任务，任务不存在或已结束时返回false
+     */
+    public boolean cancel(String jobId) {
+        BatchJob job = jobs.get(jobId);
+        return job != null && job.cancel();
+    }
+
+    /**
+     * 清理超过保留时间的已结束任务
+     */
+    @Scheduled(fixedDelayString = "${batch.jobs.cleanup-interval-ms:60000}")
+    public void evictExpiredJobs() {
+        long expireBefore = System.currentTimeMillis() - jobRetentionMillis;
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt() < expireBefore);
+    }
+
+    private Flux<BatchItemResult> run(List<ChatRequest> items, BatchChatRequest request) {
+        int concurrency = request.getConcurrency() != null
+                ? Math.max(1, Math.min(request.getConcurrency(), maxConcurrency))
+                : Math.min(defaultConcurrency, maxConcurrency);
+        Duration timeout = Duration.ofMillis(request.getItemTimeoutMs() != null && request.getItemTimeoutMs() > 0
+                ? request.getItemTimeoutMs()
+                : defaultItemTimeoutMillis);
+
+        Flux<Integer> indices = Flux.range(0, items.size());
+        return request.isOrdered()
+                ? indices.flatMapSequential(index -> processItem(index, items.get(index), timeout), concurrency)
+                : indices.flatMap(index -> processItem(index, items.get(index), timeout), concurrency);
+    }
+
+    private Mono<BatchItemResult> processItem(int index, ChatRequest item, Duration timeout) {
+        if (item == null || !item.isValid() || item.getMessage() == null) {
+            return Mono.just(BatchItemResult.failure(index, BatchItemResult.Status.ERROR, "请求参数不完整", 0));
+        }
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return reactiveChatService.send(item)
+                    .timeout(timeout)
+                    .map(response -> BatchItemResult.success(index, response, elapsedMillis(start)))
+                    .onErrorResume(TimeoutException.class, e -> Mono.just(BatchItemResult.failure(index,
+                            BatchItemResult.Status.TIMEOUT, "处理超时: " + timeout.toMillis() + "ms", elapsedMillis(start))))
+                    .onErrorResume(e -> {
+                        logger.warn("批量条目处理失败: index={}, error={}", index, e.getMessage());
+                        return Mono.just(BatchItemResult.failure(index, BatchItemResult.Status.ERROR,
+                                e.getMessage(), elapsedMillis(start)));
+                    });
+        });
+    }
+
+    private static List<ChatRequest> validate(BatchChatRequest request, int limit) {
+        if (request == null || request.getRequests() == null || request.getRequests().isEmpty()) {
+            throw new IllegalArgumentException("批量请求不能为空");
+        }
+        if (request.getRequests().size() > limit) {
+            throw new IllegalArgumentException("批量请求条目数超过上限: " + limit);
+        }
+        return request.getRequests();
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,118 @@
+package com.aichat.service.batch;
+
+import com.aichat.dto.BatchItemResult;
+import reactor.core.Disposable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 异步批量任务
+ * 结果按产出顺序追加（有序模式下即请求顺序），轮询时按偏移量分页读取
+ */
+public class BatchJob {
+
+    // 任务状态枚举
+    public enum Status {
+        RUNNING,    // 处理中
+        COMPLETED,  // 全部条目已处理（含失败条目）
+        FAILED,     // 任务本身出错
+        CANCELLED   // 已取消
+    }
+
+    private final String id;
+    private final int total;
+    private final long createdAt = System.currentTimeMillis();
+    private final List<BatchItemResult> results;
+
+    private volatile Status status = Status.RUNNING;
+    private volatile long finishedAt;
+    private volatile String error;
+    private volatile Disposable subscription;
+    private int succeeded;
+    private int failed;
+
+    BatchJob(String id, int total) {
+        this.id = id;
+        this.total = total;
+        this.results = new ArrayList<>(total);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isFinished() {
+        return status != Status.RUNNING;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * 任务进度和 offset 起最多 limit 条结果
+     */
+    public synchronized Map<String, Object> snapshot(int offset, int limit) {
+        int from = Math.min(Math.max(0, offset), results.size());
+        int to = Math.min(results.size(), from + Math.max(0, limit));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("jobId", id);
+        result.put("status", status);
+        result.put("total", total);
+        result.put("completed", results.size());
+        result.put("succeeded", succeeded);
+        result.put("failed", failed);
+        result.put("createdAt", createdAt);
+        result.put("finishedAt", finishedAt > 0 ? finishedAt : null);
+        result.put("error", error);
+        result.put("offset", from);
+        result.put("nextOffset", to);
+        result.put("results", new ArrayList<>(results.subList(from, to)));
+        return result;
+    }
+
+    synchronized void add(BatchItemResult result) {
+        results.add(result);
+        if (result.getStatus() == BatchItemResult.Status.SUCCESS) {
+            succeeded++;
+        } else {
+            failed++;
+        }
+    }
+
+    void start(Disposable subscription) {
+        this.subscription = subscription;
+    }
+
+    synchronized void finish(Status status, String error) {
+        if (this.status != Status.RUNNING) {
+            return;
+        }
+        this.status = status;
+        this.error = error;
+        this.finishedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 取消未完成的条目，已产出的结果保留
+     */
+    boolean cancel() {
+        Disposable current = subscription;
+        if (isFinished()) {
+            return false;
+        }
+        finish(Status.CANCELLED, null);
+        if (current != null) {
+            current.dispose();
+        }
+        return true;
+    }
+}
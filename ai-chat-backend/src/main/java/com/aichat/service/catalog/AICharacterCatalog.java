@@ -0,0 +1,426 @@
+package com.aichat.service.catalog;
+
+import com.aichat.entity.AICharacter;
+import com.aichat.repository.AICharacterRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * AI角色目录缓存
+ * 将激活角色物化为不可变快照，并预先计算人气、最新、名称排序以及类型索引和知识领域/技能标签位图索引。
+ * 读取只做一次volatile读和子列表截取，不访问数据库；
+ * 写入在事务提交后复制当前快照并替换变更的角色（写时复制），同时增量更新搜索索引。
+ */
+@Component
+public class AICharacterCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(AICharacterCatalog.class);
+
+    // 搜索字段权重
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float TAG_WEIGHT = 1.5f;
+    private static final float TEXT_WEIGHT = 1.0f;
+
+    @Autowired
+    private AICharacterRepository characterRepository;
+
+    @Value("${catalog.search.popularity-weight:0.1}")
+    private double popularityWeight;
+
+    private volatile Snapshot snapshot;
+
+    private volatile CharacterSearchIndex<AICharacter> searchIndex;
+
+    // 重建代数，每次从数据库重建时加一，只在目录锁内修改
+    private volatile long reloadGeneration;
+
+    /**
+     * 获取所有激活角色
+     */
+    public List<AICharacter> getActiveCharacters() {
+        return current().active;
+    }
+
+    /**
+     * 按人气降序获取前limit个角色
+     */
+    public List<AICharacter> getPopularCharacters(int limit) {
+        return head(current().byPopularity, limit);
+    }
+
+    /**
+     * 按创建时间降序获取前limit个角色
+     */
+    public List<AICharacter> getLatestCharacters(int limit) {
+        return head(current().byRecency, limit);
+    }
+
+    /**
+     * 按名称升序获取所有激活角色
+     */
+    public List<AICharacter> getCharactersOrderedByName() {
+        return current().byName;
+    }
+
+    /**
+     * 根据角色类型获取激活角色
+     */
+    public List<AICharacter> getCharactersByType(String characterType) {
+        return lookup(current().byType, characterType);
+    }
+
+    /**
+     * 根据知识领域获取激活角色（按标签精确匹配，人气降序）
+     */
+    public List<AICharacter> getCharactersByKnowledgeDomain(String domain) {
+        Snapshot current = current();
+        return current.select(current.domainTags.match(domain));
+    }
+
+    /**
+     * 根据技能获取激活角色（按标签精确匹配，人气降序）
+     */
+    public List<AICharacter> getCharactersBySkill(String skill) {
+        Snapshot current = current();
+        return current.select(current.skillTags.match(skill));
+    }
+
+    /**
+     * 多标签组合查询
+     * matchAll为true时要求同时包含所有领域和技能（AND），否则包含任一即可（OR）
+     */
+    public List<AICharacter> getCharactersByTags(Collection<String> domains, Collection<String> skills, boolean matchAll) {
+        Snapshot current = current();
+        BitSet matched;
+        if (matchAll) {
+            matched = current.domainTags.matchAll(domains);
+            matched.and(current.skillTags.matchAll(skills));
+        } else {
+            matched = current.domainTags.matchAny(domains);
+            matched.or(current.skillTags.matchAny(skills));
+        }
+        return current.select(matched);
+    }
+
+    /**
+     * 获取激活角色预先解析好的技能列表，角色不在目录中时返回empty
+     */
+    public Optional<List<String>> getSkills(Long id) {
+        Snapshot current = current();
+        Integer ordinal = current.ordinals.get(id);
+        return ordinal != null ? Optional.of(current.skillTags.tagsOf(ordinal)) : Optional.<List<String>>empty();
+    }
+
+    /**
+     * 所有知识领域标签
+     */
+    public List<String> getKnowledgeDomains() {
+        return current().domainTags.getTags();
+    }
+
+    /**
+     * 所有技能标签
+     */
+    public List<String> getAvailableSkills() {
+        return current().skillTags.getTags();
+    }
+
+    /**
+     * 根据ID获取激活角色
+     */
+    public Optional<AICharacter> getCharacter(Long id) {
+        return Optional.ofNullable(current().byId.get(id));
+    }
+
+    /**
+     * 根据名称获取激活角色，名称在角色表中唯一
+     */
+    public Optional<AICharacter> getCharacterByName(String name) {
+        return Optional.ofNullable(name != null ? current().byNameKey.get(name) : null);
+    }
+
+    /**
+     * 关键词搜索激活角色，按BM25相关度与人气融合排序
+     */
+    public List<AICharacter> search(String keyword, int limit) {
+        current();
+        return searchIndex.search(keyword, limit);
+    }
+
+    /**
+     * 分页关键词搜索，同时返回命中总数
+     */
+    public CharacterSearchIndex.Hits<AICharacter> search(String keyword, int offset, int limit) {
+        current();
+        return searchIndex.search(keyword, offset, limit);
+    }
+
+    /**
+     * 搜索联想，支持名称、标签的原文、全拼和拼音首字母前缀
+     */
+    public List<String> suggest(String prefix, int limit) {
+        current();
+        return searchIndex.suggest(prefix, limit);
+    }
+
+    /**
+     * 激活角色数量
+     */
+    public int size() {
+        return current().active.size();
+    }
+
+    /**
+     * 从数据库全量重建快照
+     * 启动时执行一次，之后定期执行以吸收人气值等非事件驱动的变化
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${catalog.reload-interval-ms:300000}",
+               initialDelayString = "${catalog.reload-interval-ms:300000}")
+    public synchronized void reload() {
+        reloadGeneration++;
+        List<AICharacter> characters = characterRepository.findByIsActiveTrue();
+        Snapshot rebuilt = new Snapshot(characters);
+        CharacterSearchIndex<AICharacter> index = new CharacterSearchIndex<>(popularityWeight);
+        for (AICharacter character : rebuilt.active) {
+            index.put(toDocument(character));
+        }
+        searchIndex = index;
+        snapshot = rebuilt;
+        logger.debug("AI角色目录已重建: {} 个激活角色", snapshot.active.size());
+    }
+
+    /**
+     * 角色变更事务提交后，基于当前快照做写时复制更新
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCharacterChanged(AICharacterChangedEvent event) {
+        apply(event);
+    }
+
+    /**
+     * 开始一次人气写库，返回当前的重建代数
+     * 在目录锁内读取，返回时没有进行中的重建；之后开始的重建都会让代数变化
+     */
+    public synchronized long beginPopularityWrite() {
+        return reloadGeneration;
+    }
+
+    /**
+     * 吸收已写入数据库的人气增量，只在内存中复制快照，不访问数据库
+     * 写库期间没有发生重建时，快照不含增量，直接补上；发生过重建时无法确定重建读到的是写库前还是写库后的值，
+     * 改为再重建一次，从数据库读到包含增量的值，增量不会被漏计或重复计入。
+     * 更新快照的角色为副本，旧快照中的对象保持不变。
+     */
+    public synchronized void applyPopularityDeltas(Map<Long, Long> deltas, long generation) {
+        try {
+            if (reloadGeneration != generation) {
+                reload();
+                return;
+            }
+            Snapshot current = current();
+            Map<Long, AICharacter> characters = new LinkedHashMap<>(current.byId);
+            boolean changed = false;
+            for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+                AICharacter character = characters.get(entry.getKey());
+                if (character == null) {
+                    continue;
+                }
+                int base = character.getPopularityScore() != null ? character.getPopularityScore() : 0;
+                int updated = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, base + entry.getValue()));
+                AICharacter copy = new AICharacter();
+                BeanUtils.copyProperties(character, copy);
+                copy.setPopularityScore(updated);
+                characters.put(copy.getId(), copy);
+                changed = true;
+            }
+            if (changed) {
+                Snapshot rebuilt = new Snapshot(characters.values());
+                for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+                    AICharacter character = rebuilt.byId.get(entry.getKey());
+                    if (character != null) {
+                        searchIndex.updatePopularity(character.getId(), character, character.getPopularityScore());
+                    }
+                }
+                snapshot = rebuilt;
+            }
+        } catch (RuntimeException e) {
+            // 增量已写入数据库，不能重试；内存中的人气值在下次重建时恢复
+            logger.warn("人气增量同步到角色目录失败，等待下次重建: {}", e.getMessage());
+        }
+    }
+
+    private synchronized void apply(AICharacterChangedEvent event) {
+        if (snapshot == null) {
+            reload();
+            return;
+        }
+
+        Map<Long, AICharacter> characters = new LinkedHashMap<>(snapshot.byId);
+        if (event.isRemoved()) {
+            characters.remove(event.getCharacterId());
+        } else {
+            characters.put(event.getCharacterId(), event.getCharacter());
+        }
+        snapshot = new Snapshot(characters.values());
+
+        AICharacter character = snapshot.byId.get(event.getCharacterId());
+        if (character != null) {
+            searchIndex.put(toDocument(character));
+        } else {
+            searchIndex.remove(event.getCharacterId());
+        }
+    }
+
+    private static CharacterSearchIndex.Document<AICharacter> toDocument(AICharacter character) {
+        CharacterSearchIndex.Document<AICharacter> document =
+                new CharacterSearchIndex.Document<>(character.getId(), character, character.getPopularityScore())
+                        .field(character.getName(), NAME_WEIGHT)
+                        .field(character.getKnowledgeDomains(), TAG_WEIGHT)
+                        .field(character.getAvailableSkills(), TAG_WEIGHT)
+                        .field(character.getPersonalityTraits(), TEXT_WEIGHT)
+                        .field(character.getDescription(), TEXT_WEIGHT)
+                        .completion(character.getName());
+        for (String tag : TagIndex.parseTags(character.getKnowledgeDomains())) {
+            document.completion(tag);
+        }
+        for (String tag : TagIndex.parseTags(character.getAvailableSkills())) {
+            document.completion(tag);
+        }
+        return document;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private static List<AICharacter> head(List<AICharacter> list, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        return limit >= list.size() ? list : list.subList(0, limit);
+    }
+
+    private static List<AICharacter> lookup(Map<String, List<AICharacter>> index, String key) {
+        if (key == null) {
+            return Collections.emptyList();
+        }
+        List<AICharacter> characters = index.get(key);
+        return characters != null ? characters : Collections.<AICharacter>emptyList();
+    }
+
+    /**
+     * 不可变目录快照
+     */
+    private static final class Snapshot {
+
+        private static final Comparator<AICharacter> BY_POPULARITY = Comparator
+                .comparingInt((AICharacter c) -> c.getPopularityScore() != null ? c.getPopularityScore() : 0)
+                .reversed()
+                .thenComparing(AICharacter::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+        private static final Comparator<AICharacter> BY_RECENCY = Comparator
+                .comparing(AICharacter::getCreatedAt, Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder()))
+                .thenComparing(AICharacter::getId, Comparator.nullsLast(Comparator.reverseOrder()));
+
+        private static final Comparator<AICharacter> BY_NAME = Comparator
+                .comparing(AICharacter::getName, Comparator.nullsLast(Comparator.naturalOrder()));
+
+        final Map<Long, AICharacter> byId;
+        final List<AICharacter> active;
+        final List<AICharacter> byPopularity;
+        final List<AICharacter> byRecency;
+        final List<AICharacter> byName;
+        final Map<String, List<AICharacter>> byType;
+        final Map<String, AICharacter> byNameKey;
+
+        // 标签位图以人气排序中的下标作为角色序号，位图遍历结果天然按人气降序
+        final Map<Long, Integer> ordinals;
+        final TagIndex domainTags;
+        final TagIndex skillTags;
+
+        Snapshot(Collection<AICharacter> characters) {
+            Map<Long, AICharacter> ids = new LinkedHashMap<>();
+            for (AICharacter character : characters) {
+                if (Boolean.TRUE.equals(character.getIsActive()) && character.getId() != null) {
+                    ids.put(character.getId(), character);
+                }
+            }
+
+            List<AICharacter> all = new ArrayList<>(ids.values());
+            Map<String, List<AICharacter>> types = new HashMap<>();
+            Map<String, AICharacter> names = new HashMap<>();
+            for (AICharacter character : all) {
+                if (character.getCharacterType() != null) {
+                    types.computeIfAbsent(character.getCharacterType(), k -> new ArrayList<>()).add(character);
+                }
+                if (character.getName() != null) {
+                    names.put(character.getName(), character);
+                }
+            }
+
+            this.byId = Collections.unmodifiableMap(ids);
+            this.active = Collections.unmodifiableList(all);
+            this.byPopularity = sorted(all, BY_POPULARITY);
+            this.byRecency = sorted(all, BY_RECENCY);
+            this.byName = sorted(all, BY_NAME);
+            this.byType = freeze(types);
+            this.byNameKey = Collections.unmodifiableMap(names);
+
+            Map<Long, Integer> positions = new HashMap<>();
+            TagIndex.Builder domains = new TagIndex.Builder(byPopularity.size());
+            TagIndex.Builder skills = new TagIndex.Builder(byPopularity.size());
+            for (int i = 0; i < byPopularity.size(); i++) {
+                AICharacter character = byPopularity.get(i);
+                positions.put(character.getId(), i);
+                domains.add(i, character.getKnowledgeDomains());
+                skills.add(i, character.getAvailableSkills());
+            }
+            this.ordinals = Collections.unmodifiableMap(positions);
+            this.domainTags = domains.build();
+            this.skillTags = skills.build();
+        }
+
+        List<AICharacter> select(BitSet matched) {
+            List<AICharacter> result = new ArrayList<>(matched.cardinality());
+            for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+                result.add(byPopularity.get(i));
+            }
+            return Collections.unmodifiableList(result);
+        }
+
+        private static List<AICharacter> sorted(List<AICharacter> characters, Comparator<AICharacter> comparator) {
+            List<AICharacter> copy = new ArrayList<>(characters);
+            copy.sort(comparator);
+            return Collections.unmodifiableList(copy);
+        }
+
+        private static Map<String, List<AICharacter>> freeze(Map<String, List<AICharacter>> index) {
+            Map<String, List<AICharacter>> frozen = new HashMap<>();
+            for (Map.Entry<String, List<AICharacter>> entry : index.entrySet()) {
+                frozen.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(frozen);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.aichat.service.catalog;
+
+import com.aichat.entity.AICharacter;
+
+/**
+ * AI角色变更事件
+ * 角色创建、更新、激活、停用或删除后发布，事务提交后由角色目录缓存消费
+ */
+public class AICharacterChangedEvent {
+
+    private final Long characterId;
+
+    // 变更后的角色状态，删除时为null
+    private final AICharacter character;
+
+    private AICharacterChangedEvent(Long characterId, AICharacter character) {
+        this.characterId = characterId;
+        this.character = character;
+    }
+
+    // 静态工厂方法 - 角色新增或更新
+    public static AICharacterChangedEvent updated(AICharacter character) {
+        return new AICharacterChangedEvent(character.getId(), character);
+    }
+
+    // 静态工厂方法 - 角色删除
+    public static AICharacterChangedEvent removed(Long characterId) {
+        return new AICharacterChangedEvent(characterId, null);
+    }
+
+    public Long getCharacterId() {
+        return characterId;
+    }
+
+    public AICharacter getCharacter() {
+        return character;
+    }
+
+    public boolean isRemoved() {
+        return character == null;
+    }
+}
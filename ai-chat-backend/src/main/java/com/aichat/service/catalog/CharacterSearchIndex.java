@@ -0,0 +1,373 @@
+package com.aichat.service.catalog;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 角色内存倒排索引
+ * 基于中文二元组分词建立倒排表，按字段加权的BM25打分并与人气值融合排序；
+ * 另维护名称、拼音、拼音首字母和标签的有序前缀表，用于输入联想和拼音搜索。
+ * 支持按角色增量更新，读写之间通过读写锁隔离。
+ *
+ * @param <T> 被索引的角色类型
+ */
+public class CharacterSearchIndex<T> {
+
+    // BM25参数
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // 拼音/前缀命中时的基础相关度
+    private static final double PREFIX_MATCH_SCORE = 1.0;
+
+    private final double popularityWeight;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, IndexedDocument<T>> documents = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final TreeMap<String, Map<String, Set<Long>>> completions = new TreeMap<>();
+    private double totalLength;
+
+    public CharacterSearchIndex(double popularityWeight) {
+        this.popularityWeight = popularityWeight;
+    }
+
+    /**
+     * 新增或替换一个角色文档
+     */
+    public void put(Document<T> document) {
+        IndexedDocument<T> indexed = new IndexedDocument<>(document);
+        lock.writeLock().lock();
+        try {
+            removeInternal(document.id);
+            documents.put(document.id, indexed);
+            totalLength += indexed.length;
+            for (String term : indexed.termWeights.keySet()) {
+                postings.computeIfAbsent(term, k -> new HashSet<>()).add(document.id);
+            }
+            for (String[] completion : indexed.completionKeys) {
+                completions.computeIfAbsent(completion[0], k -> new HashMap<>())
+                        .computeIfAbsent(completion[1], k -> new HashSet<>())
+                        .add(document.id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 移除一个角色文档
+     */
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 更新人气值和返回的角色对象，不重新分词
+     */
+    public void updatePopularity(Long id, T value, int popularity) {
+        lock.writeLock().lock();
+        try {
+            IndexedDocument<T> document = documents.get(id);
+            if (document != null) {
+                document.value = value;
+                document.popularity = popularity;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 关键词搜索，按相关度和人气融合得分降序返回
+     */
+    public List<T> search(String keyword, int limit) {
+        return search(keyword, 0, limit).getItems();
+    }
+
+    /**
+     * 分页搜索：返回从offset开始的至多limit个结果，以及命中的总数
+     */
+    public Hits<T> search(String keyword, int offset, int limit) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return new Hits<>(Collections.<T>emptyList(), 0);
+        }
+        String query = keyword.trim().toLowerCase();
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(SearchTokenizer.tokenizeQuery(query)));
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = new HashMap<>();
+            scoreTerms(terms, scores);
+            if (SearchTokenizer.isAsciiAlphanumeric(query)) {
+                for (Set<Long> ids : prefixMatches(query).values()) {
+                    for (Long id : ids) {
+                        scores.merge(id, PREFIX_MATCH_SCORE, Double::sum);
+                    }
+                }
+            }
+            int from = Math.max(0, offset);
+            if (scores.size() <= from || limit <= 0) {
+                return new Hits<>(Collections.<T>emptyList(), scores.size());
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.size());
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                IndexedDocument<T> document = documents.get(entry.getKey());
+                entry.setValue(entry.getValue() * (1.0 + popularityWeight * Math.log1p(Math.max(0, document.popularity))));
+                ranked.add(entry);
+            }
+            ranked.sort((a, b) -> {
+                int cmp = Double.compare(b.getValue(), a.getValue());
+                return cmp != 0 ? cmp : Long.compare(a.getKey(), b.getKey());
+            });
+
+            int to = (int) Math.min(ranked.size(), (long) from + limit);
+            List<T> results = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                results.add(documents.get(ranked.get(i).getKey()).value);
+            }
+            return new Hits<>(results, ranked.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 输入联想：按前缀（原文、全拼或拼音首字母）返回候选名称/标签，热门角色优先
+     */
+    public List<String> suggest(String prefix, int limit) {
+        if (prefix == null || prefix.trim().isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> candidates = new HashMap<>();
+            for (Map.Entry<String, Set<Long>> entry : prefixMatches(prefix.trim().toLowerCase()).entrySet()) {
+                int best = 0;
+                for (Long id : entry.getValue()) {
+                    best = Math.max(best, documents.get(id).popularity);
+                }
+                candidates.merge(entry.getKey(), best, Math::max);
+            }
+            List<Map.Entry<String, Integer>> ranked = new ArrayList<>(candidates.entrySet());
+            ranked.sort((a, b) -> {
+                int cmp = Integer.compare(b.getValue(), a.getValue());
+                return cmp != 0 ? cmp : a.getKey().compareTo(b.getKey());
+            });
+            List<String> results = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (int i = 0; i < ranked.size() && results.size() < limit; i++) {
+                results.add(ranked.get(i).getKey());
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 所有查询词都必须命中（与原LIKE语义一致），命中文档累加字段加权BM25得分
+     */
+    private void scoreTerms(List<String> terms, Map<Long, Double> scores) {
+        if (terms.isEmpty() || documents.isEmpty()) {
+            return;
+        }
+        List<Set<Long>> termPostings = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Set<Long> ids = postings.get(term);
+            if (ids == null) {
+                return;
+            }
+            termPostings.add(ids);
+        }
+
+        // 从最短的倒排表开始求交集
+        Set<Long> shortest = Collections.min(termPostings, Comparator.comparingInt(Set::size));
+        double avgLength = totalLength / documents.size();
+        int docCount = documents.size();
+        for (Long id : shortest) {
+            boolean matchesAll = true;
+            for (Set<Long> ids : termPostings) {
+                if (!ids.contains(id)) {
+                    matchesAll = false;
+                    break;
+                }
+            }
+            if (!matchesAll) {
+                continue;
+            }
+
+            IndexedDocument<T> document = documents.get(id);
+            double score = 0;
+            for (int i = 0; i < terms.size(); i++) {
+                double tf = document.termWeights.get(terms.get(i));
+                int df = termPostings.get(i).size();
+                double idf = Math.log(1.0 + (docCount - df + 0.5) / (df + 0.5));
+                double norm = K1 * (1 - B + B * document.length / avgLength);
+                score += idf * tf * (K1 + 1) / (tf + norm);
+            }
+            scores.put(id, score);
+        }
+    }
+
+    private Map<String, Set<Long>> prefixMatches(String prefix) {
+        Map<String, Set<Long>> matches = new HashMap<>();
+        for (Map<String, Set<Long>> displays : completions.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            for (Map.Entry<String, Set<Long>> entry : displays.entrySet()) {
+                matches.computeIfAbsent(entry.getKey(), k -> new HashSet<>()).addAll(entry.getValue());
+            }
+        }
+        return matches;
+    }
+
+    private void removeInternal(Long id) {
+        IndexedDocument<T> previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        totalLength -= previous.length;
+        for (String term : previous.termWeights.keySet()) {
+            Set<Long> ids = postings.get(term);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        for (String[] completion : previous.completionKeys) {
+            Map<String, Set<Long>> displays = completions.get(completion[0]);
+            if (displays == null) {
+                continue;
+            }
+            Set<Long> ids = displays.get(completion[1]);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    displays.remove(completion[1]);
+                }
+            }
+            if (displays.isEmpty()) {
+                completions.remove(completion[0]);
+            }
+        }
+    }
+
+    /**
+     * 一页搜索结果和命中总数
+     */
+    public static class Hits<T> {
+
+        private final List<T> items;
+        private final int total;
+
+        Hits(List<T> items, int total) {
+            this.items = items;
+            this.total = total;
+        }
+
+        public List<T> getItems() {
+            return items;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+    }
+
+    /**
+     * 待索引的角色文档
+     */
+    public static class Document<T> {
+
+        private final Long id;
+        private final T value;
+        private final int popularity;
+        private final List<String> texts = new ArrayList<>();
+        private final List<Float> weights = new ArrayList<>();
+        private final List<String> completions = new ArrayList<>();
+
+        public Document(Long id, T value, Integer popularity) {
+            this.id = id;
+            this.value = value;
+            this.popularity = popularity != null ? popularity : 0;
+        }
+
+        /**
+         * 添加一个带权重的检索字段
+         */
+        public Document<T> field(String text, float weight) {
+            if (text != null && !text.isEmpty()) {
+                texts.add(text);
+                weights.add(weight);
+            }
+            return this;
+        }
+
+        /**
+         * 添加一个联想候选，同时按原文、全拼和首字母建立前缀
+         */
+        public Document<T> completion(String display) {
+            if (display != null && !display.trim().isEmpty()) {
+                completions.add(display.trim());
+            }
+            return this;
+        }
+    }
+
+    /**
+     * 分词后的文档
+     */
+    private static class IndexedDocument<T> {
+
+        volatile T value;
+        final Map<String, Double> termWeights = new HashMap<>();
+        // 前缀键与展示文本的二元组
+        final List<String[]> completionKeys = new ArrayList<>();
+        final double length;
+        volatile int popularity;
+
+        IndexedDocument(Document<T> document) {
+            this.value = document.value;
+            this.popularity = document.popularity;
+
+            double weightedLength = 0;
+            for (int i = 0; i < document.texts.size(); i++) {
+                float weight = document.weights.get(i);
+                for (String term : SearchTokenizer.tokenizeDocument(document.texts.get(i))) {
+                    termWeights.merge(term, (double) weight, Double::sum);
+                    weightedLength += weight;
+                }
+            }
+            this.length = Math.max(weightedLength, 1.0);
+
+            for (String display : document.completions) {
+                Set<String> keys = new LinkedHashSet<>();
+                keys.add(display.toLowerCase());
+                String pinyin = SearchTokenizer.toPinyin(display);
+                if (!pinyin.isEmpty()) {
+                    keys.add(pinyin);
+                    keys.add(SearchTokenizer.toPinyinInitials(display));
+                }
+                for (String key : keys) {
+                    completionKeys.add(new String[]{key, display});
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.aichat.service.catalog;
+
+import com.aichat.entity.ChatCharacter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 聊天角色目录缓存
+ * 将激活的聊天角色物化为不可变快照，预先计算名称和创建时间排序，
+ * 事务提交后按变更事件写时复制更新快照，并增量维护关键词搜索索引
+ */
+@Component
+public class ChatCharacterCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatCharacterCatalog.class);
+
+    private static final Comparator<ChatCharacter> BY_NAME = Comparator
+            .comparing(ChatCharacter::getName, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private static final Comparator<ChatCharacter> BY_RECENCY = Comparator
+            .comparing(ChatCharacter::getCreatedAt, Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder()))
+            .thenComparing(ChatCharacter::getId, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${catalog.search.popularity-weight:0.1}")
+    private double popularityWeight;
+
+    private volatile Snapshot snapshot;
+
+    private volatile CharacterSearchIndex<ChatCharacter> searchIndex;
+
+    /**
+     * 按名称升序获取所有激活角色
+     */
+    public List<ChatCharacter> getActiveCharacters() {
+        return current().byName;
+    }
+
+    /**
+     * 按创建时间降序获取前limit个角色
+     */
+    public List<ChatCharacter> getLatestCharacters(int limit) {
+        List<ChatCharacter> byRecency = current().byRecency;
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        return limit >= byRecency.size() ? byRecency : byRecency.subList(0, limit);
+    }
+
+    /**
+     * 关键词搜索激活角色（名称、描述、性格、技能），按相关度排序
+     */
+    public List<ChatCharacter> search(String keyword, int limit) {
+        current();
+        return searchIndex.search(keyword, limit);
+    }
+
+    /**
+     * 根据ID获取激活角色
+     */
+    public Optional<ChatCharacter> getCharacter(Long id) {
+        return Optional.ofNullable(current().byId.get(id));
+    }
+
+    /**
+     * 从数据库全量重建快照
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${catalog.reload-interval-ms:300000}",
+               initialDelayString = "${catalog.reload-interval-ms:300000}")
+    public synchronized void reload() {
+        List<ChatCharacter> characters = entityManager.createQuery(
+            "SELECT c FROM ChatCharacter c WHERE c.isActive = true", ChatCharacter.class
+        ).getResultList();
+        Snapshot rebuilt = new Snapshot(characters);
+        CharacterSearchIndex<ChatCharacter> index = new CharacterSearchIndex<>(popularityWeight);
+        for (ChatCharacter character : rebuilt.byName) {
+            index.put(toDocument(character));
+        }
+        searchIndex = index;
+        snapshot = rebuilt;
+        logger.debug("聊天角色目录已重建: {} 个激活角色", snapshot.byName.size());
+    }
+
+    /**
+     * 角色变更事务提交后，基于当前快照做写时复制更新
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCharacterChanged(ChatCharacterChangedEvent event) {
+        apply(event.getCharacter());
+    }
+
+    private synchronized void apply(ChatCharacter character) {
+        if (snapshot == null) {
+            reload();
+            return;
+        }
+
+        Map<Long, ChatCharacter> characters = new LinkedHashMap<>(snapshot.byId);
+        characters.put(character.getId(), character);
+        snapshot = new Snapshot(characters.values());
+
+        if (snapshot.byId.containsKey(character.getId())) {
+            searchIndex.put(toDocument(character));
+        } else {
+            searchIndex.remove(character.getId());
+        }
+    }
+
+    private static CharacterSearchIndex.Document<ChatCharacter> toDocument(ChatCharacter character) {
+        CharacterSearchIndex.Document<ChatCharacter> document =
+                new CharacterSearchIndex.Document<>(character.getId(), character, 0)
+                        .field(character.getName(), 3.0f)
+                        .field(character.getSkills(), 1.5f)
+                        .field(character.getPersonality(), 1.0f)
+                        .field(character.getDescription(), 1.0f)
+                        .completion(character.getName());
+        for (String skill : TagIndex.parseTags(character.getSkills())) {
+            document.completion(skill);
+        }
+        return document;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 不可变目录快照
+     */
+    private static final class Snapshot {
+
+        final Map<Long, ChatCharacter> byId;
+        final List<ChatCharacter> byName;
+        final List<ChatCharacter> byRecency;
+
+        Snapshot(Collection<ChatCharacter> characters) {
+            Map<Long, ChatCharacter> ids = new LinkedHashMap<>();
+            for (ChatCharacter character : characters) {
+                if (Boolean.TRUE.equals(character.getIsActive()) && character.getId() != null) {
+                    ids.put(character.getId(), character);
+                }
+            }
+
+            List<ChatCharacter> name = new ArrayList<>(ids.values());
+            name.sort(BY_NAME);
+            List<ChatCharacter> recency = new ArrayList<>(ids.values());
+            recency.sort(BY_RECENCY);
+
+            this.byId = Collections.unmodifiableMap(ids);
+            this.byName = Collections.unmodifiableList(name);
+            this.byRecency = Collections.unmodifiableList(recency);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.aichat.service.catalog;
+
+import com.aichat.entity.ChatCharacter;
+
+/**
+ * 聊天角色变更事件
+ * 角色创建、更新、激活或软删除后发布，事务提交后由角色目录缓存消费
+ */
+public class ChatCharacterChangedEvent {
+
+    private final ChatCharacter character;
+
+    public ChatCharacterChangedEvent(ChatCharacter character) {
+        this.character = character;
+    }
+
+    public ChatCharacter getCharacter() {
+        return character;
+    }
+}
@@ -0,0 +1,250 @@
+package com.aichat.service.catalog;
+
+import com.aichat.service.jfr.FlightRecorderEvents;
+import com.aichat.service.metrics.ChatMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 角色人气计数器
+ * 点击只累加到每个角色的分段计数器（LongAdder），热门角色上的并发点击分散到不同的单元，不访问数据库；
+ * 刷写时读出每个计数器的当前和并减去同样的值，读取之后到达的点击留在计数器里进入下个周期，
+ * 在一个事务内批量执行 popularity_score = popularity_score + ? 语句，写库失败时整体回滚并放回增量。
+ * 写库在角色目录锁之外进行，成功后再由目录在内存中发布新的人气排序。
+ * 另在内存中维护按时间衰减的热度分，用于热门趋势榜。
+ */
+@Component
+public class PopularityCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PopularityCounter.class);
+
+    private static final String INCREMENT_SQL =
+            "UPDATE ai_characters SET popularity_score = COALESCE(popularity_score, 0) + ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AICharacterCatalog characterCatalog;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Value("${catalog.popularity.trending-enabled:true}")
+    private boolean trendingEnabled;
+
+    @Value("${catalog.popularity.trending-half-life-minutes:60}")
+    private double trendingHalfLifeMinutes;
+
+    @Value("${catalog.popularity.trending-size:50}")
+    private int trendingSize;
+
+    // 尚未刷写到数据库的增量；计数器创建后不再移除，条目数不超过角色数
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    // 时间衰减热度分
+    private final Map<Long, DecayingScore> trending = new ConcurrentHashMap<>();
+
+    // 热度前K名的角色ID，每次刷写后整体替换
+    private volatile List<Long> trendingTopK = Collections.emptyList();
+
+    /**
+     * 记录一次人气增量
+     */
+    public void increment(Long characterId) {
+        counter(characterId).increment();
+        if (trendingEnabled) {
+            long now = System.currentTimeMillis();
+            DecayingScore score = trending.get(characterId);
+            if (score == null) {
+                score = trending.computeIfAbsent(characterId, k -> new DecayingScore(now));
+            }
+            score.add(1.0, now, decayRate());
+        }
+    }
+
+    /**
+     * 热度趋势榜（按衰减热度分降序的角色ID）
+     */
+    public List<Long> getTrendingCharacterIds(int limit) {
+        List<Long> top = trendingTopK;
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        return limit >= top.size() ? top : top.subList(0, limit);
+    }
+
+    /**
+     * 未刷写的增量总数
+     */
+    public long getPendingCount() {
+        long total = 0;
+        for (LongAdder delta : pending.values()) {
+            total += delta.sum();
+        }
+        return total;
+    }
+
+    /**
+     * 批量刷写累计增量并刷新热度榜
+     */
+    @Scheduled(fixedDelayString = "${catalog.popularity.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        Map<Long, Long> deltas = drain();
+        if (!deltas.isEmpty()) {
+            List<Object[]> batch = new ArrayList<>(deltas.size());
+            for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+                batch.add(new Object[]{entry.getValue(), entry.getKey()});
+            }
+            long generation = characterCatalog.beginPopularityWrite();
+            boolean written = false;
+            try {
+                write(batch);
+                written = true;
+                logger.debug("人气增量已刷写: {} 个角色", deltas.size());
+            } catch (Exception e) {
+                // 事务已回滚，增量放回计数器
+                for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+                    counter(entry.getKey()).add(entry.getValue());
+                }
+                logger.warn("人气增量刷写失败，将在下个周期重试: {}", e.getMessage());
+            }
+            if (written) {
+                characterCatalog.applyPopularityDeltas(deltas, generation);
+            }
+        }
+        if (trendingEnabled) {
+            refreshTrending();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 在一个事务内批量写入增量，任一语句失败则整体回滚
+     */
+    private void write(List<Object[]> batch) {
+        long start = System.nanoTime();
+        FlightRecorderEvents.DbWrite event = FlightRecorderEvents.dbWrite();
+        try {
+            transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(INCREMENT_SQL, batch));
+        } catch (RuntimeException e) {
+            chatMetrics.recordDbWrite("popularity_flush", start, ChatMetrics.OUTCOME_ERROR);
+            event.record("popularity_flush", batch.size(), ChatMetrics.OUTCOME_ERROR);
+            throw e;
+        }
+        chatMetrics.recordDbWrite("popularity_flush", start, ChatMetrics.OUTCOME_SUCCESS);
+        event.record("popularity_flush", batch.size(), ChatMetrics.OUTCOME_SUCCESS);
+    }
+
+    private LongAdder counter(Long characterId) {
+        LongAdder counter = pending.get(characterId);
+        return counter != null ? counter : pending.computeIfAbsent(characterId, k -> new LongAdder());
+    }
+
+    /**
+     * 读出每个计数器的和并减去同样的值
+     * sum() 没有读到的并发点击仍留在计数器里；不替换计数器，避免持有旧计数器的点击在替换之后丢失
+     */
+    private Map<Long, Long> drain() {
+        Map<Long, Long> deltas = new HashMap<>();
+        for (Map.Entry<Long, LongAdder> entry : pending.entrySet()) {
+            long delta = entry.getValue().sum();
+            if (delta != 0) {
+                entry.getValue().add(-delta);
+                deltas.put(entry.getKey(), delta);
+            }
+        }
+        return deltas;
+    }
+
+    /**
+     * 用大小为K的小顶堆选出热度前K名，并清理已衰减到可忽略的条目
+     */
+    private void refreshTrending() {
+        long now = System.currentTimeMillis();
+        double rate = decayRate();
+        PriorityQueue<Map.Entry<Long, Double>> heap =
+                new PriorityQueue<>(Math.max(1, trendingSize), Map.Entry.comparingByValue());
+        Iterator<Map.Entry<Long, DecayingScore>> iterator = trending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, DecayingScore> entry = iterator.next();
+            double score = entry.getValue().valueAt(now, rate);
+            if (score < 0.01) {
+                iterator.remove();
+                continue;
+            }
+            if (entry.getValue().needsRebase(now, rate)) {
+                trending.replace(entry.getKey(), entry.getValue(), new DecayingScore(now, score));
+            }
+            heap.offer(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), score));
+            if (heap.size() > trendingSize) {
+                heap.poll();
+            }
+        }
+
+        Long[] top = new Long[heap.size()];
+        for (int i = top.length - 1; i >= 0; i--) {
+            top[i] = heap.poll().getKey();
+        }
+        trendingTopK = Collections.unmodifiableList(Arrays.asList(top));
+    }
+
+    private double decayRate() {
+        return Math.log(2) / (trendingHalfLifeMinutes * 60_000.0);
+    }
+
+    /**
+     * 指数衰减分数：value(t) = e^(-rate * (t - epoch)) * Σ amount_i * e^(rate * (t_i - epoch))
+     * 每次累加只向DoubleAdder加一个换算到基准时刻的值，不加锁；
+     * 距基准时刻超过 REBASE_HALF_LIVES 个半衰期后由刷新线程换成以当前时刻为基准的新分数，避免指数溢出，
+     * 换基准期间落在旧对象上的少量点击会丢失，对趋势榜没有影响
+     */
+    private static final class DecayingScore {
+
+        // 2^32 倍以内的放大系数不会损失有意义的精度
+        private static final double REBASE_HALF_LIVES = 32;
+
+        private final long epoch;
+        private final DoubleAdder weighted = new DoubleAdder();
+
+        DecayingScore(long epoch) {
+            this.epoch = epoch;
+        }
+
+        DecayingScore(long epoch, double initial) {
+            this.epoch = epoch;
+            weighted.add(initial);
+        }
+
+        void add(double amount, long now, double rate) {
+            weighted.add(amount * Math.exp(rate * (now - epoch)));
+        }
+
+        double valueAt(long now, double rate) {
+            return weighted.sum() * Math.exp(-rate * (now - epoch));
+        }
+
+        boolean needsRebase(long now, double rate) {
+            return rate * (now - epoch) > REBASE_HALF_LIVES * Math.log(2);
+        }
+    }
+}
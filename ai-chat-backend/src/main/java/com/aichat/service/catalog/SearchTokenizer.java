@@ -0,0 +1,143 @@
+package com.aichat.service.catalog;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 角色搜索分词器
+ * 中文按字切分为单字和二元组（bigram），英文和数字按连续片段切分为词，并提供拼音转换
+ */
+final class SearchTokenizer {
+
+    private static final HanyuPinyinOutputFormat PINYIN_FORMAT = new HanyuPinyinOutputFormat();
+    static {
+        PINYIN_FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        PINYIN_FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        PINYIN_FORMAT.setVCharType(HanyuPinyinVCharType.WITH_V);
+    }
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 文档分词：中文输出单字和二元组，保证单字查询和多字查询都能命中
+     */
+    static List<String> tokenizeDocument(String text) {
+        return tokenize(text, false);
+    }
+
+    /**
+     * 查询分词：中文片段长度大于1时只输出二元组，相当于要求连续命中
+     */
+    static List<String> tokenizeQuery(String text) {
+        return tokenize(text, true);
+    }
+
+    private static List<String> tokenize(String text, boolean query) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<String> tokens = new ArrayList<>();
+        String lower = text.toLowerCase();
+        int length = lower.length();
+        int i = 0;
+        while (i < length) {
+            char c = lower.charAt(i);
+            if (isCjk(c)) {
+                int start = i;
+                while (i < length && isCjk(lower.charAt(i))) {
+                    i++;
+                }
+                int runLength = i - start;
+                if (!query || runLength == 1) {
+                    for (int j = start; j < i; j++) {
+                        tokens.add(String.valueOf(lower.charAt(j)));
+                    }
+                }
+                for (int j = start; j + 1 < i; j++) {
+                    tokens.add(lower.substring(j, j + 2));
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < length && Character.isLetterOrDigit(lower.charAt(i)) && !isCjk(lower.charAt(i))) {
+                    i++;
+                }
+                tokens.add(lower.substring(start, i));
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 全拼（无声调、无分隔），非汉字字符原样保留为小写字母或数字
+     */
+    static String toPinyin(String text) {
+        return convertPinyin(text, false);
+    }
+
+    /**
+     * 拼音首字母
+     */
+    static String toPinyinInitials(String text) {
+        return convertPinyin(text, true);
+    }
+
+    private static String convertPinyin(String text, boolean initialsOnly) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder pinyin = new StringBuilder(text.length() * 4);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isCjk(c)) {
+                String syllable = firstReading(c);
+                if (syllable != null) {
+                    pinyin.append(initialsOnly ? syllable.substring(0, 1) : syllable);
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                pinyin.append(Character.toLowerCase(c));
+            }
+        }
+        return pinyin.toString();
+    }
+
+    private static String firstReading(char c) {
+        try {
+            String[] readings = PinyinHelper.toHanyuPinyinStringArray(c, PINYIN_FORMAT);
+            return readings != null && readings.length > 0 ? readings[0] : null;
+        } catch (BadHanyuPinyinOutputFormatCombination e) {
+            return null;
+        }
+    }
+
+    static boolean isCjk(char c) {
+        return Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+    }
+
+    /**
+     * 是否为纯ASCII字母数字查询（可能是拼音输入）
+     */
+    static boolean isAsciiAlphanumeric(String text) {
+        if (text == null || text.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c > 127 || !Character.isLetterOrDigit(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
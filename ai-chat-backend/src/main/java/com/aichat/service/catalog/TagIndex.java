@@ -0,0 +1,165 @@
+package com.aichat.service.catalog;
+
+import java.util.*;
+
+/**
+ * 不可变标签位图索引
+ * 把逗号分隔的标签字符串（知识领域、技能）解析一次，建立 标签→整数ID 字典，
+ * 并为每个标签维护一个角色序号位图，多标签的AND/OR查询通过位运算完成。
+ * 角色序号由调用方分配（0..n-1），索引本身不关心角色类型。
+ */
+public final class TagIndex {
+
+    private static final TagIndex EMPTY = new Builder(0).build();
+
+    private final Map<String, Integer> tagIds;
+    private final String[] tags;
+    private final BitSet[] postings;
+    private final int[][] tagsByOrdinal;
+    private final int size;
+
+    private TagIndex(Map<String, Integer> tagIds, String[] tags, BitSet[] postings, int[][] tagsByOrdinal) {
+        this.tagIds = tagIds;
+        this.tags = tags;
+        this.postings = postings;
+        this.tagsByOrdinal = tagsByOrdinal;
+        this.size = tagsByOrdinal.length;
+    }
+
+    public static TagIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 解析逗号分隔的标签字符串，兼容中英文逗号，去重并保持原有顺序
+     */
+    public static List<String> parseTags(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<String> tags = new LinkedHashSet<>();
+        for (String tag : value.split("[,，]")) {
+            String trimmed = tag.trim();
+            if (!trimmed.isEmpty()) {
+                tags.add(trimmed);
+            }
+        }
+        return new ArrayList<>(tags);
+    }
+
+    /**
+     * 标签对应的整数ID，不存在时返回-1
+     */
+    public int tagId(String tag) {
+        Integer id = tag != null ? tagIds.get(tag.trim()) : null;
+        return id != null ? id : -1;
+    }
+
+    /**
+     * 所有标签，下标即标签ID
+     */
+    public List<String> getTags() {
+        return Collections.unmodifiableList(Arrays.asList(tags));
+    }
+
+    /**
+     * 指定角色序号的标签列表
+     */
+    public List<String> tagsOf(int ordinal) {
+        if (ordinal < 0 || ordinal >= size) {
+            return Collections.emptyList();
+        }
+        int[] ids = tagsByOrdinal[ordinal];
+        List<String> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(tags[id]);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * 包含指定标签的角色序号位图（返回副本）
+     */
+    public BitSet match(String tag) {
+        int id = tagId(tag);
+        return id >= 0 ? (BitSet) postings[id].clone() : new BitSet(size);
+    }
+
+    /**
+     * 同时包含所有标签的角色序号（AND）；标签集合为空时匹配全部
+     */
+    public BitSet matchAll(Collection<String> tagNames) {
+        BitSet result = new BitSet(size);
+        result.set(0, size);
+        for (String tag : tagNames) {
+            int id = tagId(tag);
+            if (id < 0) {
+                result.clear();
+                return result;
+            }
+            result.and(postings[id]);
+            if (result.isEmpty()) {
+                return result;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 包含任一标签的角色序号（OR）
+     */
+    public BitSet matchAny(Collection<String> tagNames) {
+        BitSet result = new BitSet(size);
+        for (String tag : tagNames) {
+            int id = tagId(tag);
+            if (id >= 0) {
+                result.or(postings[id]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 索引构建器，按角色序号依次添加标签字符串
+     */
+    public static final class Builder {
+
+        private final Map<String, Integer> tagIds = new HashMap<>();
+        private final List<String> tags = new ArrayList<>();
+        private final List<BitSet> postings = new ArrayList<>();
+        private final int[][] tagsByOrdinal;
+
+        public Builder(int size) {
+            this.tagsByOrdinal = new int[size][];
+        }
+
+        public Builder add(int ordinal, String value) {
+            List<String> parsed = parseTags(value);
+            int[] ids = new int[parsed.size()];
+            for (int i = 0; i < parsed.size(); i++) {
+                String tag = parsed.get(i);
+                Integer id = tagIds.get(tag);
+                if (id == null) {
+                    id = tags.size();
+                    tagIds.put(tag, id);
+                    tags.add(tag);
+                    postings.add(new BitSet(tagsByOrdinal.length));
+                }
+                postings.get(id).set(ordinal);
+                ids[i] = id;
+            }
+            tagsByOrdinal[ordinal] = ids;
+            return this;
+        }
+
+        public TagIndex build() {
+            for (int i = 0; i < tagsByOrdinal.length; i++) {
+                if (tagsByOrdinal[i] == null) {
+                    tagsByOrdinal[i] = new int[0];
+                }
+            }
+            return new TagIndex(Collections.unmodifiableMap(new HashMap<>(tagIds)),
+                    tags.toArray(new String[0]), postings.toArray(new BitSet[0]), tagsByOrdinal);
+        }
+    }
+}
@@ -3,15 +3,25 @@ package com.aichat.service.impl;
 import com.aichat.entity.AICharacter;
 import com.aichat.repository.AICharacterRepository;
 import com.aichat.service.AICharacterService;
+import com.aichat.service.catalog.AICharacterCatalog;
+import com.aichat.service.catalog.AICharacterChangedEvent;
+import com.aichat.service.catalog.CharacterSearchIndex;
+import com.aichat.service.catalog.PopularityCounter;
+import com.aichat.service.catalog.TagIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,20 +36,47 @@ public class AICharacterServiceImpl implements AICharacterService {
     @Autowired
     private AICharacterRepository characterRepository;
 
+    @Autowired
+    private AICharacterCatalog characterCatalog;
+
+    @Autowired
+    private PopularityCounter popularityCounter;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Override
     public List<AICharacter> getLatestCharacters(int limit) {
-        Pageable pageable = PageRequest.of(0, limit);
-        return characterRepository.findLatestCharacters(pageable);
+        return characterCatalog.getLatestCharacters(limit);
     }
 
     @Override
     public List<AICharacter> getCharactersByKnowledgeDomain(String domain) {
-        return characterRepository.findByKnowledgeDomain(domain);
+        return characterCatalog.getCharactersByKnowledgeDomain(domain);
     }
 
     @Override
     public List<AICharacter> getCharactersBySkill(String skill) {
-        return characterRepository.findByAvailableSkill(skill);
+        return characterCatalog.getCharactersBySkill(skill);
+    }
+
+    @Override
+    public List<AICharacter> getCharactersByTags(List<String> domains, List<String> skills, boolean matchAll) {
+        return characterCatalog.getCharactersByTags(
+            domains != null ? domains : Collections.<String>emptyList(),
+            skills != null ? skills : Collections.<String>emptyList(),
+            matchAll);
+    }
+
+    @Override
+    public Optional<List<String>> getCharacterSkills(Long id) {
+        Optional<List<String>> skills = characterCatalog.getSkills(id);
+        if (skills.isPresent()) {
+            return skills;
+        }
+        // 未激活角色不在目录中，回退到数据库
+        return characterRepository.findById(id)
+            .map(character -> TagIndex.parseTags(character.getAvailableSkills()));
     }
 
     @Override
@@ -50,7 +87,7 @@ public class AICharacterServiceImpl implements AICharacterService {
 
     @Override
     public List<AICharacter> getAllActiveCharacters() {
-        return characterRepository.findByIsActiveTrue();
+        return characterCatalog.getActiveCharacters();
     }
 
     @Override
@@ -63,17 +100,24 @@ public class AICharacterServiceImpl implements AICharacterService {
     @Override
     public Page<AICharacter> searchCharacters(String keyword, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        return characterRepository.searchActiveCharacters(keyword, pageable);
+        CharacterSearchIndex.Hits<AICharacter> hits =
+                characterCatalog.search(keyword, (int) Math.min(Integer.MAX_VALUE, pageable.getOffset()), size);
+        return new PageImpl<>(hits.getItems(), pageable, hits.getTotal());
+    }
+
+    @Override
+    public List<String> suggestCharacters(String prefix, int limit) {
+        return characterCatalog.suggest(prefix, limit);
     }
 
     @Override
     public List<AICharacter> getCharactersByType(String characterType) {
-        return characterRepository.findByCharacterTypeAndIsActiveTrue(characterType);
+        return characterCatalog.getCharactersByType(characterType);
     }
 
     @Override
     public List<AICharacter> getPopularCharacters(int limit) {
-        return characterRepository.findByIsActiveTrueOrderByPopularityScoreDesc(PageRequest.of(0, limit));
+        return characterCatalog.getPopularCharacters(limit);
     }
 
     @Override
@@ -102,19 +146,24 @@ public class AICharacterServiceImpl implements AICharacterService {
             character.setPopularityScore(0);
         }
         
-        return characterRepository.save(character);
+        AICharacter saved = characterRepository.save(character);
+        eventPublisher.publishEvent(AICharacterChangedEvent.updated(saved));
+        return saved;
     }
 
     @Override
     public AICharacter updateCharacter(AICharacter character) {
         // 更新修改时间
         character.setUpdatedAt(LocalDateTime.now());
-        return characterRepository.save(character);
+        AICharacter saved = characterRepository.save(character);
+        eventPublisher.publishEvent(AICharacterChangedEvent.updated(saved));
+        return saved;
     }
 
     @Override
     public void deleteCharacter(Long id) {
         characterRepository.deleteById(id);
+        eventPublisher.publishEvent(AICharacterChangedEvent.removed(id));
     }
 
     @Override
@@ -124,7 +173,8 @@ public class AICharacterServiceImpl implements AICharacterService {
             AICharacter character = characterOpt.get();
             character.setIsActive(true);
             character.setUpdatedAt(LocalDateTime.now());
-            characterRepository.save(character);
+            AICharacter saved = characterRepository.save(character);
+            eventPublisher.publishEvent(AICharacterChangedEvent.updated(saved));
         }
     }
 
@@ -135,19 +185,26 @@ public class AICharacterServiceImpl implements AICharacterService {
             AICharacter character = characterOpt.get();
             character.setIsActive(false);
             character.setUpdatedAt(LocalDateTime.now());
-            characterRepository.save(character);
+            AICharacter saved = characterRepository.save(character);
+            eventPublisher.publishEvent(AICharacterChangedEvent.updated(saved));
         }
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void incrementPopularity(Long characterId) {
-        Optional<AICharacter> characterOpt = characterRepository.findById(characterId);
-        if (characterOpt.isPresent()) {
-            AICharacter character = characterOpt.get();
-            character.setPopularityScore(character.getPopularityScore() + 1);
-            character.setUpdatedAt(LocalDateTime.now());
-            characterRepository.save(character);
+        // 只累加内存计数，由PopularityCounter定时批量刷写到数据库
+        popularityCounter.increment(characterId);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<AICharacter> getTrendingCharacters(int limit) {
+        List<AICharacter> result = new ArrayList<>();
+        for (Long id : popularityCounter.getTrendingCharacterIds(limit)) {
+            characterCatalog.getCharacter(id).ifPresent(result::add);
         }
+        return result;
     }
 
     /**
@@ -235,7 +292,6 @@ public class AICharacterServiceImpl implements AICharacterService {
      * 根据人气排序获取角色
      */
     public List<AICharacter> getCharactersByPopularity(int limit) {
-        Pageable pageable = PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "popularity"));
-        return characterRepository.findAll(pageable).getContent();
+        return characterCatalog.getPopularCharacters(limit);
     }
 }
\ No newline at end of file
@@ -6,10 +6,14 @@ import com.aichat.service.AISkillService.KnowledgeAnswerResult;
 import com.aichat.service.AISkillService.CreativeWritingResult;
 import com.aichat.service.AISkillService.SkillProcessResult;
 import com.aichat.service.AIService;
+import com.aichat.service.jfr.FlightRecorderEvents;
+import com.aichat.service.tracing.Span;
+import com.aichat.service.tracing.Tracer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 /**
@@ -56,6 +60,10 @@ public class AISkillServiceImpl implements AISkillService {
     
     @Override
     public EmotionAnalysisResult analyzeEmotion(String text, String characterName) {
+        return executeSkill("情感分析", characterName, () -> doAnalyzeEmotion(text, characterName));
+    }
+
+    private EmotionAnalysisResult doAnalyzeEmotion(String text, String characterName) {
         if (text == null || text.trim().isEmpty()) {
             return new EmotionAnalysisResult("中性", 0.5, "低", "无明显情感表达", "保持友好对话");
         }
@@ -104,6 +112,10 @@ public class AISkillServiceImpl implements AISkillService {
     
     @Override
     public KnowledgeAnswerResult answerQuestion(String question, String characterName, String context) {
+        return executeSkill("知识问答", characterName, () -> doAnswerQuestion(question, characterName, context));
+    }
+
+    private KnowledgeAnswerResult doAnswerQuestion(String question, String characterName, String context) {
         if (question == null || question.trim().isEmpty()) {
             return new KnowledgeAnswerResult("请提出具体问题，我很乐意为您解答。", 
                 "通用回应", 0.8, Arrays.asList("提问技巧"), false);
@@ -135,6 +147,10 @@ public class AISkillServiceImpl implements AISkillService {
     
     @Override
     public CreativeWritingResult creativeWriting(String prompt, String characterName, String writingType) {
+        return executeSkill("创意写作", characterName, () -> doCreativeWriting(prompt, characterName, writingType));
+    }
+
+    private CreativeWritingResult doCreativeWriting(String prompt, String characterName, String writingType) {
         if (prompt == null || prompt.trim().isEmpty()) {
             prompt = "请进行自由创作";
         }
@@ -167,6 +183,35 @@ public class AISkillServiceImpl implements AISkillService {
     
     @Override
     public SkillProcessResult processWithSkills(String userInput, String characterName, List<String> conversationHistory) {
+        FlightRecorderEvents.SkillExecution event = FlightRecorderEvents.skillExecution();
+        String skillUsed = null;
+        String outcome = "error";
+        try (Span ignored = Tracer.startSpan(Tracer.STAGE_SKILL)) {
+            SkillProcessResult result = applySkills(userInput, characterName, conversationHistory);
+            skillUsed = result.getSkillUsed();
+            outcome = "success";
+            return result;
+        } finally {
+            event.record("综合处理/" + skillUsed, characterName, outcome);
+        }
+    }
+
+    /**
+     * 执行单项技能并记录JFR事件
+     */
+    private <T> T executeSkill(String skill, String characterName, Supplier<T> body) {
+        FlightRecorderEvents.SkillExecution event = FlightRecorderEvents.skillExecution();
+        String outcome = "error";
+        try {
+            T result = body.get();
+            outcome = "success";
+            return result;
+        } finally {
+            event.record(skill, characterName, outcome);
+        }
+    }
+
+    private SkillProcessResult applySkills(String userInput, String characterName, List<String> conversationHistory) {
         if (userInput == null || userInput.trim().isEmpty()) {
             return new SkillProcessResult("请告诉我您想聊什么？", "通用对话");
         }
@@ -418,7 +463,7 @@ public class AISkillServiceImpl implements AISkillService {
         return String.format("作为%s，我想与你分享一个关于%s的思考...", characterName, writingType);
     }
     
-    private String detectUserIntent(String userInput) {
+    String detectUserIntent(String userInput) {
         String lowerInput = userInput.toLowerCase();
         
         // 检查是否是问题
@@ -438,7 +483,7 @@ public class AISkillServiceImpl implements AISkillService {
         return "conversation";
     }
     
-    private String buildContextFromHistory(List<String> conversationHistory) {
+    String buildContextFromHistory(List<String> conversationHistory) {
         if (conversationHistory == null || conversationHistory.isEmpty()) {
             return "";
         }
@@ -3,18 +3,35 @@ package com.aichat.service.impl;
 import com.aichat.dto.ChatRequest;
 import com.aichat.dto.ChatResponse;
 import com.aichat.dto.EmotionAnalysisResult;
-import com.aichat.dto.PersonalityProfile;
 import com.aichat.entity.ChatCharacter;
 import com.aichat.entity.ConversationHistory;
 import com.aichat.entity.User;
 import com.aichat.service.AIService;
+import com.aichat.service.analytics.UserBehaviorAggregator;
+import com.aichat.service.job.ContentTagsJobHandler;
+import com.aichat.service.job.ConversationQualityJobHandler;
+import com.aichat.service.job.ConversationSummaryJobHandler;
+import com.aichat.service.job.ConversationTranscript;
+import com.aichat.service.job.JobEngine;
+import com.aichat.service.job.UserBehaviorJobHandler;
+import com.aichat.service.metrics.ChatMetrics;
+import com.aichat.service.personality.PersonalityProfileStore;
+import com.aichat.service.prompt.CharacterPromptCache;
+import com.aichat.service.prompt.PromptTemplate;
+import com.aichat.service.recommend.CharacterRecommender;
+import com.aichat.service.speech.SpeechAudioCache;
+import com.aichat.service.tracing.Span;
+import com.aichat.service.tracing.Tracer;
+import com.fasterxml.jackson.core.type.TypeReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -44,8 +61,35 @@ public class AdvancedAIServiceImpl implements AIService {
     @Value("${ai.features.personality-adaptation}")
     private boolean personalityAdaptationEnabled;
 
+    // 情感分析结果是否计入个性化档案；analyzeEmotion 目前返回固定结果，接入真实分析之前保持关闭
+    @Value("${ai.features.personality-emotion-traits:false}")
+    private boolean personalityEmotionTraitsEnabled;
+
+    @Value("${batch.max-concurrency:32}")
+    private int batchMaxConcurrency;
+
+    @Autowired
+    private CharacterRecommender characterRecommender;
+
+    @Autowired
+    private SpeechAudioCache speechAudioCache;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Autowired
+    private JobEngine jobEngine;
+
+    @Autowired
+    private UserBehaviorAggregator behaviorAggregator;
+
+    @Autowired
+    private PersonalityProfileStore personalityProfiles;
+
+    @Autowired
+    private CharacterPromptCache characterPrompts;
+
     private final WebClient webClient;
-    private final Map<Long, PersonalityProfile> personalityCache = new ConcurrentHashMap<>();
     private final Map<String, Object> modelStatusCache = new ConcurrentHashMap<>();
 
     public AdvancedAIServiceImpl(WebClient.Builder webClientBuilder) {
@@ -59,26 +103,53 @@ public class AdvancedAIServiceImpl implements AIService {
             logger.info("处理聊天请求: userId={}, characterId={}", request.getUserId(), request.getCharacterId());
 
             // 构建增强的提示词
-            String enhancedPrompt = buildEnhancedPrompt(request);
+            Map<String, Object> requestBody;
+            try (Span ignored = Tracer.startSpan(Tracer.STAGE_CONTEXT_BUILD)) {
+                String enhancedPrompt = buildEnhancedPrompt(request);
 
-            // 调用AI API
-            Map<String, Object> requestBody = buildApiRequest(enhancedPrompt, request);
+                // 调用AI API
+                requestBody = buildApiRequest(enhancedPrompt, request);
+            }
             
             // 模拟AI响应（实际项目中会调用真实API）
-            String aiResponse = generateMockResponse(request);
+            String aiResponse;
+            try (Span ignored = Tracer.startSpan(Tracer.STAGE_LLM)) {
+                aiResponse = generateMockResponse(request);
+            }
 
             // 构建响应
             ChatResponse response = new ChatResponse();
-            response.setMessage(aiResponse);
-            response.setCharacterId(request.getCharacterId());
-            response.setTimestamp(LocalDateTime.now());
-            response.setModel(deepseekModel);
-            response.setTokensUsed(estimateTokens(aiResponse));
+            try (Span ignored = Tracer.startSpan(Tracer.STAGE_SKILL)) {
+                response.setMessage(aiResponse);
+                response.setCharacterId(request.getCharacterId());
+                response.setTimestamp(LocalDateTime.now());
+                response.setModel(deepseekModel);
+                response.setTokensUsed(estimateTokens(aiResponse));
+
+                // analyzeEmotion 目前返回固定结果，计入档案会把所有用户的特质推向同一组常量并被持久化，
+                // 接入真实的情感分析之前档案只学习文字风格
+                boolean adaptPersonality = personalityAdaptationEnabled && request.getUserId() != null;
+                boolean emotionTraits = adaptPersonality && personalityEmotionTraitsEnabled;
+                if (adaptPersonality && !(emotionTraits && emotionAnalysisEnabled)) {
+                    personalityProfiles.observe(request.getUserId(), request.getMessage(), null);
+                }
 
-            // 异步进行情感分析
-            if (emotionAnalysisEnabled) {
-                analyzeEmotion(request.getMessage(), request.getUserId())
-                    .subscribe(emotion -> logger.info("情感分析完成: {}", emotion));
+                // 异步进行情感分析
+                if (emotionAnalysisEnabled) {
+                    analyzeEmotion(request.getMessage(), request.getUserId())
+                        .subscribe(emotion -> {
+                                    logger.debug("情感分析完成: {}", emotion);
+                                    if (emotionTraits) {
+                                        personalityProfiles.observe(request.getUserId(), request.getMessage(), emotion);
+                                    }
+                                },
+                                e -> {
+                                    logger.warn("情感分析失败: userId={}, error={}", request.getUserId(), e.getMessage());
+                                    if (emotionTraits) {
+                                        personalityProfiles.observe(request.getUserId(), request.getMessage(), null);
+                                    }
+                                });
+                }
             }
 
             return response;
@@ -170,21 +241,7 @@ public class AdvancedAIServiceImpl implements AIService {
     public Mono<List<ChatCharacter>> recommendCharacters(User user, int limit) {
         return Mono.fromCallable(() -> {
             logger.info("为用户推荐角色: userId={}, limit={}", user.getId(), limit);
-
-            // 模拟个性化推荐
-            List<ChatCharacter> recommendations = new ArrayList<>();
-            
-            // 基于用户偏好生成推荐
-            for (int i = 0; i < limit; i++) {
-                ChatCharacter character = new ChatCharacter();
-                character.setId((long) (i + 1));
-                character.setName("推荐角色" + (i + 1));
-                character.setSystemPrompt("这是一个为你量身定制的AI角色");
-                character.setSkills("智能对话,情感理解,个性化服务");
-                recommendations.add(character);
-            }
-
-            return recommendations;
+            return characterRecommender.recommend(user.getId(), limit);
         });
     }
 
@@ -192,31 +249,25 @@ public class AdvancedAIServiceImpl implements AIService {
     public Mono<String> generatePersonalizedPrompt(User user, ChatCharacter character, 
                                                   List<ConversationHistory> conversationHistory) {
         return Mono.fromCallable(() -> {
-            StringBuilder prompt = new StringBuilder();
-            prompt.append("你是").append(character.getName()).append("，");
-            prompt.append(character.getSystemPrompt()).append("\n");
-            
-            // 添加个性化元素
+            // 角色部分已预编译为静态前缀，这里只填充个性化提示和对话历史
+            Map<String, Object> slots = new HashMap<>();
             if (personalityAdaptationEnabled) {
-                PersonalityProfile profile = personalityCache.get(user.getId());
-                if (profile != null) {
-                    prompt.append("用户的交流风格是：").append(profile.getCommunicationStyle()).append("\n");
-                    prompt.append("请根据用户的个性特点调整你的回应方式。\n");
+                String hint = personalityProfiles.getPromptHint(user.getId());
+                if (hint != null) {
+                    slots.put(CharacterPromptCache.SLOT_PERSONALIZATION, hint);
                 }
             }
-
-            // 添加上下文
             if (!conversationHistory.isEmpty()) {
-                prompt.append("最近的对话上下文：\n");
-                conversationHistory.stream()
-                    .limit(5)
-                    .forEach(conv -> {
-                        prompt.append("用户：").append(conv.getUserMessage()).append("\n");
-                        prompt.append("你：").append(conv.getAiResponse()).append("\n");
-                    });
+                slots.put(CharacterPromptCache.SLOT_HISTORY, (PromptTemplate.SlotWriter) out -> {
+                    int limit = Math.min(5, conversationHistory.size());
+                    for (int i = 0; i < limit; i++) {
+                        ConversationHistory conv = conversationHistory.get(i);
+                        out.append("用户：").append(conv.getUserMessage()).append("\n");
+                        out.append("你：").append(conv.getAiResponse()).append("\n");
+                    }
+                });
             }
-
-            return prompt.toString();
+            return characterPrompts.get(character).render(slots);
         });
     }
 
@@ -237,37 +288,18 @@ public class AdvancedAIServiceImpl implements AIService {
 
     @Override
     public Mono<Map<String, Object>> evaluateConversationQuality(List<ConversationHistory> conversation) {
-        return Mono.fromCallable(() -> {
-            Map<String, Object> evaluation = new HashMap<>();
-            evaluation.put("overallScore", 8.5);
-            evaluation.put("coherenceScore", 9.0);
-            evaluation.put("engagementScore", 8.0);
-            evaluation.put("creativityScore", 8.5);
-            evaluation.put("suggestions", Arrays.asList(
-                "对话流畅自然，保持了良好的连贯性",
-                "可以增加更多互动性问题",
-                "角色扮演很到位"
-            ));
-            evaluation.put("analyzedAt", LocalDateTime.now());
-            return evaluation;
-        });
+        Map<String, Object> payload = new HashMap<>();
+        payload.put(ConversationTranscript.PAYLOAD_KEY, ConversationTranscript.toPayload(conversation));
+        return jobEngine.submitAndAwait(ConversationQualityJobHandler.TYPE, payload, JobEngine.PRIORITY_NORMAL,
+            new TypeReference<Map<String, Object>>() {});
     }
 
     @Override
     public Mono<String> generateConversationSummary(List<ConversationHistory> conversations) {
-        return Mono.fromCallable(() -> {
-            if (conversations.isEmpty()) {
-                return "暂无对话内容";
-            }
-
-            StringBuilder summary = new StringBuilder();
-            summary.append("对话摘要：\n");
-            summary.append("参与者进行了一次").append(conversations.size()).append("轮的有趣对话。");
-            summary.append("主要讨论了日常话题，氛围轻松愉快。");
-            summary.append("AI角色表现出色，回应自然流畅。");
-
-            return summary.toString();
-        });
+        Map<String, Object> payload = new HashMap<>();
+        payload.put(ConversationTranscript.PAYLOAD_KEY, ConversationTranscript.toPayload(conversations));
+        return jobEngine.submitAndAwait(ConversationSummaryJobHandler.TYPE, payload, JobEngine.PRIORITY_NORMAL,
+            new TypeReference<String>() {});
     }
 
     @Override
@@ -325,22 +357,25 @@ public class AdvancedAIServiceImpl implements AIService {
 
     @Override
     public Mono<Map<String, Object>> analyzeUserBehavior(Long userId, String timeRange) {
-        return Mono.fromCallable(() -> {
-            Map<String, Object> analysis = new HashMap<>();
-            analysis.put("totalMessages", 150);
-            analysis.put("averageSessionLength", "25分钟");
-            analysis.put("favoriteCharacters", Arrays.asList("智能助手", "创意伙伴"));
-            analysis.put("activityPattern", "晚上最活跃");
-            analysis.put("engagementScore", 8.5);
-            return analysis;
-        });
+        // 未指定时间范围时直接读流式聚合（含今日/近7天/近30天/累计），指定时才提交后台任务扫描历史
+        if (timeRange == null) {
+            // 已在内存中的用户直接在调用线程读取；未加载的用户首次查询会读快照表并可能回填对话历史，放到弹性线程池
+            Mono<Map<String, Object>> analysis = Mono.fromCallable(() -> behaviorAggregator.describe(userId));
+            return behaviorAggregator.isResident(userId)
+                ? analysis
+                : analysis.subscribeOn(Schedulers.boundedElastic());
+        }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("userId", userId);
+        payload.put("timeRange", timeRange);
+        return jobEngine.submitAndAwait(UserBehaviorJobHandler.TYPE, payload, JobEngine.PRIORITY_NORMAL,
+            new TypeReference<Map<String, Object>>() {});
     }
 
     @Override
     public Mono<List<String>> generateTags(String content) {
-        return Mono.fromCallable(() -> {
-            return Arrays.asList("AI", "聊天", "智能", "对话", "创意");
-        });
+        return jobEngine.submitAndAwait(ContentTagsJobHandler.TYPE, Collections.<String, Object>singletonMap("content", content),
+            JobEngine.PRIORITY_NORMAL, new TypeReference<List<String>>() {});
     }
 
     @Override
@@ -361,13 +396,23 @@ public class AdvancedAIServiceImpl implements AIService {
 
     @Override
     public Mono<Map<String, Object>> getModelStatus() {
-        return Mono.fromCallable(() -> modelStatusCache);
+        return Mono.fromCallable(() -> {
+            Map<String, Object> status = new HashMap<>(modelStatusCache);
+            status.put("recommendation", characterRecommender.getModelStatus());
+            status.put("ttsCache", speechAudioCache.getStatistics());
+            // 各链路的实时延迟分位数
+            status.put("latency", chatMetrics.latencySnapshot());
+            status.put("lastCheck", LocalDateTime.now());
+            return status;
+        });
     }
 
     @Override
     public Flux<ChatResponse> batchProcessMessages(List<ChatRequest> requests) {
+        // sendMessage是阻塞调用，放到弹性线程池执行，并发数受 batch.max-concurrency 限制
         return Flux.fromIterable(requests)
-            .flatMap(request -> Mono.fromCallable(() -> sendMessage(request)));
+            .flatMapSequential(request -> Mono.fromCallable(() -> sendMessage(request))
+                .subscribeOn(Schedulers.boundedElastic()), batchMaxConcurrency);
     }
 
     // 私有辅助方法
@@ -416,8 +461,5 @@ public class AdvancedAIServiceImpl implements AIService {
     private void initializeModelStatus() {
         modelStatusCache.put("status", "healthy");
         modelStatusCache.put("model", deepseekModel != null ? deepseekModel : "default-model");
-        modelStatusCache.put("lastCheck", LocalDateTime.now());
-        modelStatusCache.put("responseTime", "150ms");
-        modelStatusCache.put("availability", "99.9%");
     }
 }
\ No newline at end of file
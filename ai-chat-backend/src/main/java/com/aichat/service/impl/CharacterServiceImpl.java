@@ -2,7 +2,11 @@ package com.aichat.service.impl;
 
 import com.aichat.entity.ChatCharacter;
 import com.aichat.service.CharacterService;
+import com.aichat.service.catalog.ChatCharacterCatalog;
+import com.aichat.service.catalog.ChatCharacterChangedEvent;
+import com.aichat.service.recommend.CharacterRecommender;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,13 +27,18 @@ public class CharacterServiceImpl implements CharacterService {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private ChatCharacterCatalog characterCatalog;
+
+    @Autowired
+    private CharacterRecommender characterRecommender;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Override
     public List<ChatCharacter> getAllActiveCharacters() {
-        TypedQuery<ChatCharacter> query = entityManager.createQuery(
-            "SELECT c FROM ChatCharacter c WHERE c.isActive = true ORDER BY c.name", 
-            ChatCharacter.class
-        );
-        return query.getResultList();
+        return characterCatalog.getActiveCharacters();
     }
 
     @Override
@@ -50,14 +59,7 @@ public class CharacterServiceImpl implements CharacterService {
 
     @Override
     public List<ChatCharacter> searchCharactersByKeyword(String keyword) {
-        TypedQuery<ChatCharacter> query = entityManager.createQuery(
-            "SELECT c FROM ChatCharacter c WHERE c.isActive = true AND " +
-            "(LOWER(c.name) LIKE LOWER(:keyword) OR LOWER(c.description) LIKE LOWER(:keyword)) " +
-            "ORDER BY c.name", 
-            ChatCharacter.class
-        );
-        query.setParameter("keyword", "%" + keyword + "%");
-        return query.getResultList();
+        return characterCatalog.search(keyword, Integer.MAX_VALUE);
     }
 
     @Override
@@ -68,6 +70,7 @@ public class CharacterServiceImpl implements CharacterService {
             character.setIsActive(true);
         }
         entityManager.persist(character);
+        eventPublisher.publishEvent(new ChatCharacterChangedEvent(character));
         return character;
     }
 
@@ -89,7 +92,9 @@ public class CharacterServiceImpl implements CharacterService {
         existingCharacter.setPersonalityConfig(character.getPersonalityConfig());
         existingCharacter.setUpdatedAt(LocalDateTime.now());
         
-        return entityManager.merge(existingCharacter);
+        ChatCharacter merged = entityManager.merge(existingCharacter);
+        eventPublisher.publishEvent(new ChatCharacterChangedEvent(merged));
+        return merged;
     }
 
     @Override
@@ -98,7 +103,7 @@ public class CharacterServiceImpl implements CharacterService {
         if (character != null) {
             character.setIsActive(false);
             character.setUpdatedAt(LocalDateTime.now());
-            entityManager.merge(character);
+            eventPublisher.publishEvent(new ChatCharacterChangedEvent(entityManager.merge(character)));
         }
     }
 
@@ -108,18 +113,18 @@ public class CharacterServiceImpl implements CharacterService {
         if (character != null) {
             character.setIsActive(true);
             character.setUpdatedAt(LocalDateTime.now());
-            entityManager.merge(character);
+            eventPublisher.publishEvent(new ChatCharacterChangedEvent(entityManager.merge(character)));
         }
     }
 
     @Override
     public List<ChatCharacter> getRecommendedCharacters(int limit) {
-        TypedQuery<ChatCharacter> query = entityManager.createQuery(
-            "SELECT c FROM ChatCharacter c WHERE c.isActive = true ORDER BY c.createdAt DESC", 
-            ChatCharacter.class
-        );
-        query.setMaxResults(limit);
-        return query.getResultList();
+        return characterRecommender.getTrendingCharacters(limit);
+    }
+
+    @Override
+    public List<ChatCharacter> getRecommendedCharacters(Long userId, int limit) {
+        return characterRecommender.recommend(userId, limit);
     }
 
     @Override
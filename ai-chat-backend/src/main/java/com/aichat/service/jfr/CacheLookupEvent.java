@@ -0,0 +1,41 @@
+package com.aichat.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Registered;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * 一次缓存查找
+ * 查找本身通常只有微秒级，默认只记录超过阈值的慢查找；命中率看指标即可。
+ */
+@Name("com.aichat.CacheLookup")
+@Label("缓存查找")
+@Category({"AI Chat", "Cache"})
+@Description("缓存名、查找结果和耗时")
+@StackTrace(false)
+@Threshold("100 us")
+@Registered(false)
+public class CacheLookupEvent extends Event implements FlightRecorderEvents.CacheLookup {
+
+    @Label("缓存")
+    String cache;
+
+    @Label("结果")
+    @Description("hit/miss，TTS缓存区分 memory/disk")
+    String result;
+
+    @Override
+    public void record(String cache, String result) {
+        end();
+        if (shouldCommit()) {
+            this.cache = cache;
+            this.result = result;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.aichat.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Registered;
+import jdk.jfr.StackTrace;
+
+/**
+ * 一次数据库写入（保存对话、人气增量批量刷写）
+ */
+@Name("com.aichat.DbWrite")
+@Label("数据库写入")
+@Category({"AI Chat", "Persistence"})
+@Description("写入操作、批量记录数和耗时")
+@StackTrace(false)
+@Registered(false)
+public class DbWriteEvent extends Event implements FlightRecorderEvents.DbWrite {
+
+    @Label("操作")
+    String operation;
+
+    @Label("记录数")
+    int records;
+
+    @Label("结果")
+    String outcome;
+
+    @Override
+    public void record(String operation, int records, String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.records = records;
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
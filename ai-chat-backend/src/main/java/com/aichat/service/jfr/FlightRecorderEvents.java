@@ -0,0 +1,179 @@
+package com.aichat.service.jfr;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Set;
+
+/**
+ * 自定义JFR事件的注册与创建
+ * 业务代码只通过这里的静态方法取得事件，不直接引用 jdk.jfr 中的类：
+ * 运行时没有 jdk.jfr 模块（部分Java 8发行版）时只探测一次并始终返回空实现，不会触发 NoClassDefFoundError。
+ * 事件类声明为不自动注册，按配置注册后才会被JFR插桩；未注册的事件类型返回共享的空实现，热点路径上不分配对象。
+ * 注册后事件是否写入由录制配置决定，例如 -XX:StartFlightRecording=disk=true,maxage=12h,settings=profile。
+ */
+@Component
+public class FlightRecorderEvents {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecorderEvents.class);
+
+    private static final boolean JFR_PRESENT = probe();
+
+    private static final Noop NOOP = new Noop();
+
+    // 已注册的事件类型，只在注册和销毁时修改
+    private static volatile boolean llmCallEnabled;
+    private static volatile boolean webSocketBroadcastEnabled;
+    private static volatile boolean dbWriteEnabled;
+    private static volatile boolean skillExecutionEnabled;
+    private static volatile boolean cacheLookupEnabled;
+
+    @Value("${jfr.events.enabled:false}")
+    private boolean enabled;
+
+    @Value("${jfr.events.types:llm,websocket-broadcast,db-write,skill,cache-lookup}")
+    private String[] types;
+
+    /**
+     * 一次LLM调用
+     */
+    public interface LlmCall {
+
+        /**
+         * 结束计时，录制中且超过阈值时写入事件
+         */
+        void record(String model, String mode, int promptTokens, int completionTokens, int deltas, String outcome);
+    }
+
+    /**
+     * 一次WebSocket广播
+     */
+    public interface WebSocketBroadcast {
+
+        void record(String messageType, int fanOut);
+    }
+
+    /**
+     * 一次数据库写入
+     */
+    public interface DbWrite {
+
+        void record(String operation, int records, String outcome);
+    }
+
+    /**
+     * 一次技能执行
+     */
+    public interface SkillExecution {
+
+        void record(String skill, String characterName, String outcome);
+    }
+
+    /**
+     * 一次缓存查找
+     */
+    public interface CacheLookup {
+
+        void record(String cache, String result);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (!JFR_PRESENT) {
+            logger.warn("当前运行时没有jdk.jfr，自定义事件未注册");
+            return;
+        }
+        Set<String> registered = JfrEventFactory.register(types);
+        llmCallEnabled = registered.contains(JfrEventFactory.LLM);
+        webSocketBroadcastEnabled = registered.contains(JfrEventFactory.WEBSOCKET_BROADCAST);
+        dbWriteEnabled = registered.contains(JfrEventFactory.DB_WRITE);
+        skillExecutionEnabled = registered.contains(JfrEventFactory.SKILL);
+        cacheLookupEnabled = registered.contains(JfrEventFactory.CACHE_LOOKUP);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        llmCallEnabled = false;
+        webSocketBroadcastEnabled = false;
+        dbWriteEnabled = false;
+        skillExecutionEnabled = false;
+        cacheLookupEnabled = false;
+    }
+
+    /**
+     * 开始计时一次LLM调用
+     */
+    public static LlmCall llmCall() {
+        return llmCallEnabled ? JfrEventFactory.llmCall() : NOOP;
+    }
+
+    /**
+     * 开始计时一次WebSocket广播
+     */
+    public static WebSocketBroadcast webSocketBroadcast() {
+        return webSocketBroadcastEnabled ? JfrEventFactory.webSocketBroadcast() : NOOP;
+    }
+
+    /**
+     * 开始计时一次数据库写入
+     */
+    public static DbWrite dbWrite() {
+        return dbWriteEnabled ? JfrEventFactory.dbWrite() : NOOP;
+    }
+
+    /**
+     * 开始计时一次技能执行
+     */
+    public static SkillExecution skillExecution() {
+        return skillExecutionEnabled ? JfrEventFactory.skillExecution() : NOOP;
+    }
+
+    /**
+     * 开始计时一次缓存查找
+     */
+    public static CacheLookup cacheLookup() {
+        return cacheLookupEnabled ? JfrEventFactory.cacheLookup() : NOOP;
+    }
+
+    private static boolean probe() {
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightRecorderEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * 未注册或运行时不支持JFR时使用的空实现
+     */
+    private static final class Noop implements LlmCall, WebSocketBroadcast, DbWrite, SkillExecution, CacheLookup {
+
+        @Override
+        public void record(String model, String mode, int promptTokens, int completionTokens, int deltas, String outcome) {
+        }
+
+        @Override
+        public void record(String messageType, int fanOut) {
+        }
+
+        @Override
+        public void record(String operation, int records, String outcome) {
+        }
+
+        @Override
+        public void record(String skill, String characterName, String outcome) {
+        }
+
+        @Override
+        public void record(String cache, String result) {
+        }
+    }
+}
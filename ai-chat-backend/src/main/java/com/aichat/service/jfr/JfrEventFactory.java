@@ -0,0 +1,92 @@
+package com.aichat.service.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 直接引用 jdk.jfr 的部分，只在确认运行时包含JFR后由 {@link FlightRecorderEvents} 加载
+ */
+final class JfrEventFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(JfrEventFactory.class);
+
+    static final String LLM = "llm";
+    static final String WEBSOCKET_BROADCAST = "websocket-broadcast";
+    static final String DB_WRITE = "db-write";
+    static final String SKILL = "skill";
+    static final String CACHE_LOOKUP = "cache-lookup";
+
+    private static final Map<String, Class<? extends Event>> EVENT_TYPES = new LinkedHashMap<>();
+
+    static {
+        EVENT_TYPES.put(LLM, LlmCallEvent.class);
+        EVENT_TYPES.put(WEBSOCKET_BROADCAST, WebSocketBroadcastEvent.class);
+        EVENT_TYPES.put(DB_WRITE, DbWriteEvent.class);
+        EVENT_TYPES.put(SKILL, SkillExecutionEvent.class);
+        EVENT_TYPES.put(CACHE_LOOKUP, CacheLookupEvent.class);
+    }
+
+    private JfrEventFactory() {
+    }
+
+    /**
+     * 注册配置中的事件类型，返回实际注册的类型
+     */
+    static Set<String> register(String[] types) {
+        if (!FlightRecorder.isAvailable()) {
+            logger.warn("当前JVM不支持JFR，自定义事件未注册");
+            return Collections.emptySet();
+        }
+        Set<String> registered = new LinkedHashSet<>();
+        for (String type : types) {
+            String key = type.trim();
+            Class<? extends Event> eventClass = EVENT_TYPES.get(key);
+            if (eventClass == null) {
+                logger.warn("未知的JFR事件类型: {}，可选: {}", key, EVENT_TYPES.keySet());
+                continue;
+            }
+            FlightRecorder.register(eventClass);
+            registered.add(key);
+        }
+        logger.info("JFR自定义事件已注册: {}", registered);
+        return registered;
+    }
+
+    static FlightRecorderEvents.LlmCall llmCall() {
+        LlmCallEvent event = new LlmCallEvent();
+        event.begin();
+        return event;
+    }
+
+    static FlightRecorderEvents.WebSocketBroadcast webSocketBroadcast() {
+        WebSocketBroadcastEvent event = new WebSocketBroadcastEvent();
+        event.begin();
+        return event;
+    }
+
+    static FlightRecorderEvents.DbWrite dbWrite() {
+        DbWriteEvent event = new DbWriteEvent();
+        event.begin();
+        return event;
+    }
+
+    static FlightRecorderEvents.SkillExecution skillExecution() {
+        SkillExecutionEvent event = new SkillExecutionEvent();
+        event.begin();
+        return event;
+    }
+
+    static FlightRecorderEvents.CacheLookup cacheLookup() {
+        CacheLookupEvent event = new CacheLookupEvent();
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,59 @@
+package com.aichat.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Registered;
+import jdk.jfr.StackTrace;
+
+/**
+ * 一次LLM调用，持续时间为请求发出到响应（流式为最后一个增量）结束
+ */
+@Name("com.aichat.LlmCall")
+@Label("LLM调用")
+@Category({"AI Chat", "LLM"})
+@Description("上游LLM请求的模型、token用量和耗时")
+@StackTrace(false)
+@Registered(false)
+public class LlmCallEvent extends Event implements FlightRecorderEvents.LlmCall {
+
+    @Label("模型")
+    String model;
+
+    @Label("调用方式")
+    @Description("blocking 或 stream")
+    String mode;
+
+    @Label("提示token数")
+    @Description("上游未返回用量时为-1")
+    int promptTokens;
+
+    @Label("生成token数")
+    @Description("上游未返回用量时为-1")
+    int completionTokens;
+
+    @Label("流式增量数")
+    int deltas;
+
+    @Label("结果")
+    String outcome;
+
+    /**
+     * 结束计时，录制中且超过阈值时写入事件
+     */
+    @Override
+    public void record(String model, String mode, int promptTokens, int completionTokens, int deltas, String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.model = model;
+            this.mode = mode;
+            this.promptTokens = promptTokens;
+            this.completionTokens = completionTokens;
+            this.deltas = deltas;
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
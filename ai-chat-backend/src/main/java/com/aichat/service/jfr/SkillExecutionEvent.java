@@ -0,0 +1,41 @@
+package com.aichat.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Registered;
+import jdk.jfr.StackTrace;
+
+/**
+ * 一次AI技能执行，综合技能处理中调用的单项技能会嵌套在内
+ */
+@Name("com.aichat.SkillExecution")
+@Label("技能执行")
+@Category({"AI Chat", "Skill"})
+@Description("执行的技能、角色和耗时")
+@StackTrace(false)
+@Registered(false)
+public class SkillExecutionEvent extends Event implements FlightRecorderEvents.SkillExecution {
+
+    @Label("技能")
+    String skill;
+
+    @Label("角色")
+    String characterName;
+
+    @Label("结果")
+    String outcome;
+
+    @Override
+    public void record(String skill, String characterName, String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.skill = skill;
+            this.characterName = characterName;
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.aichat.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Registered;
+import jdk.jfr.StackTrace;
+
+/**
+ * 一次WebSocket广播，持续时间为遍历并写入所有目标连接的总耗时
+ */
+@Name("com.aichat.WebSocketBroadcast")
+@Label("WebSocket广播")
+@Category({"AI Chat", "WebSocket"})
+@Description("广播的消息类型、扇出连接数和耗时")
+@StackTrace(false)
+@Registered(false)
+public class WebSocketBroadcastEvent extends Event implements FlightRecorderEvents.WebSocketBroadcast {
+
+    @Label("消息类型")
+    String messageType;
+
+    @Label("扇出连接数")
+    int fanOut;
+
+    @Override
+    public void record(String messageType, int fanOut) {
+        end();
+        if (shouldCommit()) {
+            this.messageType = messageType;
+            this.fanOut = fanOut;
+            commit();
+        }
+    }
+}
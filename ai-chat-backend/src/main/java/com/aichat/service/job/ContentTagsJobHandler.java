@@ -0,0 +1,57 @@
+package com.aichat.service.job;
+
+import com.aichat.service.LLMService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 内容标签生成任务
+ * 参数：content；结果：不超过 MAX_TAGS 个去重后的标签
+ */
+@Component
+public class ContentTagsJobHandler implements JobHandler {
+
+    public static final String TYPE = "content_tags";
+
+    private static final int MAX_TAGS = 5;
+
+    private static final String SYSTEM_PROMPT = "你是内容标注助手。请为下面的内容生成最多" + MAX_TAGS
+            + "个简短的中文标签，每个标签不超过6个字，只输出标签，用逗号分隔。";
+
+    @Autowired
+    private LLMService llmService;
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public Object execute(Map<String, Object> payload) {
+        Object content = payload.get("content");
+        if (content == null || content.toString().trim().isEmpty()) {
+            return new ArrayList<String>();
+        }
+        return parseTags(llmService.chat(content.toString(), SYSTEM_PROMPT));
+    }
+
+    static List<String> parseTags(String reply) {
+        Set<String> tags = new LinkedHashSet<>();
+        for (String tag : reply.split("[,，、\\n]")) {
+            String trimmed = tag.trim().replaceAll("^[#\\-*\\d.\\s]+", "");
+            if (!trimmed.isEmpty()) {
+                tags.add(trimmed);
+            }
+            if (tags.size() >= MAX_TAGS) {
+                break;
+            }
+        }
+        return new ArrayList<>(tags);
+    }
+}
@@ -0,0 +1,63 @@
+package com.aichat.service.job;
+
+import com.aichat.service.LLMService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 对话质量评估任务
+ * 参数：conversation（见 ConversationTranscript）；
+ * 结果：overallScore、coherenceScore、engagementScore、creativityScore（0-10）、suggestions 和 analyzedAt
+ */
+@Component
+public class ConversationQualityJobHandler implements JobHandler {
+
+    public static final String TYPE = "conversation_quality";
+
+    private static final String SYSTEM_PROMPT = "你是对话质量评估专家。请从连贯性、互动性、创造性三个方面为下面这段用户与AI角色的对话打分（0-10分），"
+            + "并给出不超过3条改进建议。只输出一个JSON对象，格式为："
+            + "{\"overallScore\":8.5,\"coherenceScore\":9,\"engagementScore\":8,\"creativityScore\":8.5,\"suggestions\":[\"...\"]}";
+
+    @Autowired
+    private LLMService llmService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public Object execute(Map<String, Object> payload) throws IOException {
+        if (ConversationTranscript.turns(payload) == 0) {
+            throw new IllegalArgumentException("对话内容为空");
+        }
+        String reply = llmService.chat(ConversationTranscript.format(payload), SYSTEM_PROMPT);
+        Map<String, Object> evaluation = objectMapper.readValue(extractJson(reply),
+                new TypeReference<Map<String, Object>>() {});
+        if (!(evaluation.get("overallScore") instanceof Number)) {
+            throw new IllegalStateException("评估结果缺少overallScore: " + reply);
+        }
+        evaluation.put("analyzedAt", LocalDateTime.now().toString());
+        return evaluation;
+    }
+
+    /**
+     * 模型可能在JSON前后附带说明或代码块标记，取第一个左花括号到最后一个右花括号
+     */
+    static String extractJson(String reply) {
+        int start = reply.indexOf('{');
+        int end = reply.lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            throw new IllegalStateException("评估结果不是JSON: " + reply);
+        }
+        return reply.substring(start, end + 1);
+    }
+}
@@ -0,0 +1,36 @@
+package com.aichat.service.job;
+
+import com.aichat.service.LLMService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 对话摘要任务
+ * 参数：conversation（见 ConversationTranscript）；结果：摘要文本
+ */
+@Component
+public class ConversationSummaryJobHandler implements JobHandler {
+
+    public static final String TYPE = "conversation_summary";
+
+    private static final String SYSTEM_PROMPT = "你是对话分析助手。请用不超过200字的中文概括下面这段用户与AI角色的对话，"
+            + "包括主要话题、用户的诉求和对话氛围，只输出摘要正文。";
+
+    @Autowired
+    private LLMService llmService;
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public Object execute(Map<String, Object> payload) {
+        if (ConversationTranscript.turns(payload) == 0) {
+            return "暂无对话内容";
+        }
+        return llmService.chat(ConversationTranscript.format(payload), SYSTEM_PROMPT);
+    }
+}
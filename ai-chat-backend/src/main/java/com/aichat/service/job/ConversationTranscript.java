@@ -0,0 +1,57 @@
+package com.aichat.service.job;
+
+import com.aichat.entity.ConversationHistory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 对话记录在任务参数中的表示：[{user, ai}, ...]
+ * 只保留文本，相同的对话得到相同的参数，便于任务去重
+ */
+public final class ConversationTranscript {
+
+    public static final String PAYLOAD_KEY = "conversation";
+
+    private ConversationTranscript() {
+    }
+
+    public static List<Map<String, String>> toPayload(List<ConversationHistory> conversation) {
+        List<Map<String, String>> turns = new ArrayList<>(conversation.size());
+        for (ConversationHistory history : conversation) {
+            Map<String, String> turn = new HashMap<>();
+            turn.put("user", history.getUserMessage());
+            turn.put("ai", history.getAiResponse());
+            turns.add(turn);
+        }
+        return turns;
+    }
+
+    /**
+     * 任务参数中的对话轮数
+     */
+    static int turns(Map<String, Object> payload) {
+        Object turns = payload.get(PAYLOAD_KEY);
+        return turns instanceof List ? ((List<?>) turns).size() : 0;
+    }
+
+    /**
+     * 格式化为提示词中的对话文本
+     */
+    static String format(Map<String, Object> payload) {
+        Object turns = payload.get(PAYLOAD_KEY);
+        StringBuilder text = new StringBuilder();
+        if (turns instanceof List) {
+            for (Object turn : (List<?>) turns) {
+                if (turn instanceof Map) {
+                    Map<?, ?> map = (Map<?, ?>) turn;
+                    text.append("用户：").append(map.get("user")).append("\n");
+                    text.append("AI：").append(map.get("ai")).append("\n");
+                }
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,567 @@
+package com.aichat.service.job;
+
+import com.aichat.entity.AnalyticsJob;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 后台任务引擎
+ * 用于分析、摘要等耗时且不需要即时返回的AI任务，不占用交互请求的线程和延迟：
+ * - analytics_jobs 表是持久化队列，重启后未完成的任务继续执行
+ * - 默认传输为进程内优先级队列，固定数量的工作线程按优先级取任务，排队数有上限，超出的任务留在表中由轮询补充
+ * - 相同类型和参数的任务去重：未结束的任务或结果未过期的成功任务直接返回，不重复执行
+ * - 失败按指数退避（带随机抖动）重试，次数用尽或参数错误时标记为失败
+ * - 执行中的任务超过运行时限仍未结束（状态更新失败、实例宕机）时由定时回收放回等待或标记失败
+ * 去重在本进程内加锁判断，多实例部署共用一张表时可能出现少量重复执行。
+ */
+@Service
+public class JobEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobEngine.class);
+
+    private static final String SELECT_COLUMNS = "SELECT id, job_type, dedup_key, payload, priority, status, attempts, "
+            + "max_attempts, next_run_at, result, error, result_expires_at, created_at, started_at, finished_at "
+            + "FROM analytics_jobs ";
+
+    private static final String INSERT_SQL = "INSERT INTO analytics_jobs (job_type, dedup_key, payload, priority, "
+            + "status, attempts, max_attempts, next_run_at, created_at) VALUES (?, ?, ?, ?, 'PENDING', 0, ?, ?, ?)";
+
+    private static final String CLAIM_SQL = "UPDATE analytics_jobs SET status = 'RUNNING', attempts = attempts + 1, "
+            + "started_at = ? WHERE id = ? AND status = 'PENDING'";
+
+    private static final String SUCCEED_SQL = "UPDATE analytics_jobs SET status = 'SUCCEEDED', result = ?, error = NULL, "
+            + "finished_at = ?, result_expires_at = ? WHERE id = ?";
+
+    private static final String RETRY_SQL = "UPDATE analytics_jobs SET status = 'PENDING', error = ?, next_run_at = ? "
+            + "WHERE id = ?";
+
+    private static final String FAIL_SQL = "UPDATE analytics_jobs SET status = 'FAILED', error = ?, finished_at = ? "
+            + "WHERE id = ?";
+
+    private static final String REAP_RETRY_SQL = "UPDATE analytics_jobs SET status = 'PENDING', error = ?, next_run_at = ? "
+            + "WHERE id = ? AND status = 'RUNNING' AND attempts < max_attempts";
+
+    private static final String REAP_FAIL_SQL = "UPDATE analytics_jobs SET status = 'FAILED', error = ?, finished_at = ? "
+            + "WHERE id = ? AND status = 'RUNNING' AND attempts >= max_attempts";
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    // 常用优先级，数值越大越先执行
+    public static final int PRIORITY_LOW = -10;
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 10;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired(required = false)
+    private List<JobHandler> jobHandlers;
+
+    @Value("${jobs.workers:4}")
+    private int workerCount;
+
+    @Value("${jobs.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${jobs.max-attempts:3}")
+    private int defaultMaxAttempts;
+
+    @Value("${jobs.backoff-initial-ms:2000}")
+    private long backoffInitialMillis;
+
+    @Value("${jobs.backoff-max-ms:300000}")
+    private long backoffMaxMillis;
+
+    @Value("${jobs.result-ttl-ms:86400000}")
+    private long resultTtlMillis;
+
+    @Value("${jobs.retention-ms:604800000}")
+    private long retentionMillis;
+
+    @Value("${jobs.running-timeout-ms:1800000}")
+    private long runningTimeoutMillis;
+
+    @Value("${jobs.await-timeout-ms:120000}")
+    private long awaitTimeoutMillis;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+    private final Map<String, JobHandler> handlers = new HashMap<>();
+    // 已进入进程内队列或正在执行的任务，避免轮询重复入队
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+    // 等待任务结束的调用方，同一任务的等待方共用一个条目
+    private final Map<Long, Waiter> waiters = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ThreadPoolExecutor workers;
+
+    @PostConstruct
+    public void init() {
+        if (jobHandlers != null) {
+            for (JobHandler handler : jobHandlers) {
+                handlers.put(handler.getType(), handler);
+            }
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "analytics-job-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        logger.info("后台任务引擎初始化完成: workers={}, queueCapacity={}, types={}",
+                workerCount, queueCapacity, handlers.keySet());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * 重启前正在执行的任务已中断，放回等待状态
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        int recovered = jdbcTemplate.update("UPDATE analytics_jobs SET status = 'PENDING' WHERE status = 'RUNNING'");
+        if (recovered > 0) {
+            logger.info("恢复中断的后台任务: {} 个", recovered);
+        }
+        dispatchDue();
+    }
+
+    /**
+     * 提交任务，已有相同的未结束任务或未过期的成功结果时直接返回该任务
+     *
+     * @param type 任务类型
+     * @param payload 任务参数
+     * @param priority 优先级，数值越大越先执行
+     * @throws IllegalArgumentException 不支持的任务类型
+     */
+    public AnalyticsJob submit(String type, Map<String, Object> payload, int priority) {
+        if (!handlers.containsKey(type)) {
+            throw new IllegalArgumentException("不支持的任务类型: " + type);
+        }
+        String payloadJson = toJson(payload != null ? payload : new HashMap<String, Object>());
+        String dedupKey = type + ":" + sha256(payloadJson);
+
+        AnalyticsJob job;
+        synchronized (this) {
+            AnalyticsJob existing = findReusable(dedupKey);
+            if (existing != null) {
+                logger.debug("复用已有任务: id={}, type={}, status={}", existing.getId(), type, existing.getStatus());
+                return existing;
+            }
+            job = insert(type, dedupKey, payloadJson, priority);
+        }
+        logger.info("提交后台任务: id={}, type={}, priority={}", job.getId(), type, priority);
+        enqueue(job.getId(), priority);
+        return job;
+    }
+
+    /**
+     * 提交任务并在任务结束后返回结果，等待期间不占用线程
+     *
+     * @throws RuntimeException 任务最终失败时以异常结束
+     */
+    public <T> Mono<T> submitAndAwait(String type, Map<String, Object> payload, int priority, TypeReference<T> resultType) {
+        return Mono.fromCallable(() -> submit(type, payload, priority))
+                .flatMap(job -> job.isFinished() ? Mono.just(job) : await(job.getId()))
+                .flatMap(job -> {
+                    if (job.getStatus() == AnalyticsJob.Status.FAILED) {
+                        return Mono.error(new RuntimeException("后台任务失败: " + job.getError()));
+                    }
+                    return Mono.justOrEmpty(readResult(job, resultType));
+                });
+    }
+
+    /**
+     * 等待任务结束，超过等待时限以异常结束；超时或取消时注销等待，不影响同一任务的其他等待方
+     */
+    public Mono<AnalyticsJob> await(long jobId) {
+        Waiter waiter = waiters.compute(jobId, (id, existing) -> {
+            Waiter registered = existing != null ? existing : new Waiter();
+            registered.count++;
+            return registered;
+        });
+        // 注册之前任务可能已经结束
+        AnalyticsJob current;
+        try {
+            current = getJob(jobId);
+        } catch (RuntimeException e) {
+            release(jobId, waiter);
+            throw e;
+        }
+        if (current == null || current.isFinished()) {
+            release(jobId, waiter);
+            return Mono.justOrEmpty(current);
+        }
+        // 每个等待方订阅自己的副本，取消时不会取消共用的future
+        return Mono.fromFuture(waiter.future.thenApply(job -> job))
+                .timeout(Duration.ofMillis(awaitTimeoutMillis))
+                .onErrorMap(TimeoutException.class, e -> new RuntimeException("等待后台任务超时: id=" + jobId))
+                .doFinally(signal -> release(jobId, waiter));
+    }
+
+    /**
+     * 按ID读取任务，不存在时返回null
+     */
+    public AnalyticsJob getJob(long jobId) {
+        List<AnalyticsJob> jobs = jdbcTemplate.query(SELECT_COLUMNS + "WHERE id = ?", JOB_MAPPER, jobId);
+        return jobs.isEmpty() ? null : jobs.get(0);
+    }
+
+    /**
+     * 把任务结果反序列化为指定类型，没有结果时返回null
+     */
+    public <T> T readResult(AnalyticsJob job, TypeReference<T> resultType) {
+        if (job.getResult() == null) {
+            return null;
+        }
+        try {
+            JavaType type = objectMapper.getTypeFactory().constructType(resultType);
+            return objectMapper.readValue(job.getResult(), type);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("任务结果格式错误: id=" + job.getId(), e);
+        }
+    }
+
+    /**
+     * 任务的对外视图，成功时附带解析后的结果
+     */
+    public Map<String, Object> describe(AnalyticsJob job) {
+        Map<String, Object> view = new HashMap<>();
+        view.put("jobId", job.getId());
+        view.put("type", job.getJobType());
+        view.put("status", job.getStatus());
+        view.put("priority", job.getPriority());
+        view.put("attempts", job.getAttempts());
+        view.put("createdAt", job.getCreatedAt());
+        view.put("startedAt", job.getStartedAt());
+        view.put("finishedAt", job.getFinishedAt());
+        if (job.getStatus() == AnalyticsJob.Status.PENDING && job.getError() != null) {
+            view.put("nextRunAt", job.getNextRunAt());
+        }
+        if (job.getError() != null) {
+            view.put("error", job.getError());
+        }
+        if (job.getStatus() == AnalyticsJob.Status.SUCCEEDED) {
+            view.put("result", readResult(job, new TypeReference<Object>() {}));
+            view.put("resultExpiresAt", job.getResultExpiresAt());
+        }
+        return view;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("queued", queued.size());
+        statistics.put("activeWorkers", workers.getActiveCount());
+        statistics.put("completedTasks", workers.getCompletedTaskCount());
+        for (Map<String, Object> row : jdbcTemplate.queryForList(
+                "SELECT status, COUNT(*) AS total FROM analytics_jobs GROUP BY status")) {
+            statistics.put(String.valueOf(row.get("status")).toLowerCase(), row.get("total"));
+        }
+        return statistics;
+    }
+
+    /**
+     * 把到期的等待任务补充进进程内队列：超出队列容量的提交、退避结束的重试、重启前遗留的任务
+     */
+    @Scheduled(fixedDelayString = "${jobs.poll-interval-ms:1000}")
+    public void dispatchDue() {
+        int room = queueCapacity - queued.size();
+        if (room <= 0) {
+            return;
+        }
+        List<Map<String, Object>> due = jdbcTemplate.queryForList(
+                "SELECT id, priority FROM analytics_jobs WHERE status = 'PENDING' AND next_run_at <= ? "
+                        + "ORDER BY priority DESC, id ASC LIMIT ?",
+                Timestamp.valueOf(LocalDateTime.now()), room + queued.size());
+        for (Map<String, Object> row : due) {
+            enqueue(((Number) row.get("id")).longValue(), ((Number) row.get("priority")).intValue());
+        }
+    }
+
+    /**
+     * 回收超过运行时限仍处于执行中的任务：执行结束时状态更新失败、或执行它的实例已退出。
+     * 本进程仍在执行的任务不回收；次数未用尽的放回等待，否则标记为失败。
+     * 多实例部署时无法区分其他实例上的慢任务，运行时限需大于任务的最长执行时间，否则可能被重复执行
+     */
+    @Scheduled(fixedDelayString = "${jobs.reap-interval-ms:60000}")
+    public void reapStale() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> stale = jdbcTemplate.queryForList(
+                "SELECT id FROM analytics_jobs WHERE status = 'RUNNING' AND started_at < ?", Long.class,
+                Timestamp.valueOf(now.minus(runningTimeoutMillis, ChronoUnit.MILLIS)));
+        String error = "执行超时，超过 " + runningTimeoutMillis + "ms 未结束";
+        for (Long jobId : stale) {
+            if (queued.contains(jobId)) {
+                continue;
+            }
+            if (jdbcTemplate.update(REAP_RETRY_SQL, error, Timestamp.valueOf(now), jobId) > 0) {
+                logger.warn("回收超时的后台任务，重新排队: id={}", jobId);
+            } else if (jdbcTemplate.update(REAP_FAIL_SQL, error, Timestamp.valueOf(now), jobId) > 0) {
+                logger.warn("回收超时的后台任务，标记为失败: id={}", jobId);
+                notifyWaiters(jobId);
+            }
+        }
+    }
+
+    /**
+     * 删除超过保留期限的已结束任务
+     */
+    @Scheduled(fixedDelayString = "${jobs.cleanup-interval-ms:3600000}")
+    public void purgeFinished() {
+        Timestamp before = Timestamp.valueOf(LocalDateTime.now().minus(retentionMillis, ChronoUnit.MILLIS));
+        int purged = jdbcTemplate.update(
+                "DELETE FROM analytics_jobs WHERE status IN ('SUCCEEDED', 'FAILED') AND finished_at < ?", before);
+        if (purged > 0) {
+            logger.info("清理过期后台任务: {} 个", purged);
+        }
+    }
+
+    private void enqueue(long jobId, int priority) {
+        if (queued.size() >= queueCapacity || !queued.add(jobId)) {
+            return;
+        }
+        workers.execute(new JobTask(jobId, priority, sequence.incrementAndGet()));
+    }
+
+    private void execute(long jobId) {
+        try {
+            if (jdbcTemplate.update(CLAIM_SQL, Timestamp.valueOf(LocalDateTime.now()), jobId) == 0) {
+                // 已被取走或已结束
+                return;
+            }
+            AnalyticsJob job = getJob(jobId);
+            if (job == null) {
+                return;
+            }
+            JobHandler handler = handlers.get(job.getJobType());
+            try {
+                if (handler == null) {
+                    throw new IllegalStateException("不支持的任务类型: " + job.getJobType());
+                }
+                Map<String, Object> payload = objectMapper.readValue(job.getPayload(),
+                        new TypeReference<Map<String, Object>>() {});
+                long start = System.nanoTime();
+                String result = toJson(handler.execute(payload));
+                LocalDateTime now = LocalDateTime.now();
+                jdbcTemplate.update(SUCCEED_SQL, result, Timestamp.valueOf(now),
+                        Timestamp.valueOf(now.plus(resultTtlMillis, ChronoUnit.MILLIS)), jobId);
+                logger.info("后台任务完成: id={}, type={}, attempt={}, elapsed={}ms", jobId, job.getJobType(),
+                        job.getAttempts(), (System.nanoTime() - start) / 1_000_000);
+            } catch (Exception e) {
+                fail(job, e);
+            }
+            notifyWaiters(jobId);
+        } catch (RuntimeException e) {
+            logger.error("后台任务状态更新失败: id={}", jobId, e);
+        } finally {
+            queued.remove(jobId);
+        }
+    }
+
+    private void fail(AnalyticsJob job, Exception e) {
+        String error = truncate(e.getMessage() != null ? e.getMessage() : e.toString());
+        // 参数错误重试也不会成功
+        boolean retryable = !(e instanceof IllegalArgumentException);
+        if (retryable && job.getAttempts() < job.getMaxAttempts()) {
+            long delay = backoffMillis(job.getAttempts());
+            jdbcTemplate.update(RETRY_SQL, error,
+                    Timestamp.valueOf(LocalDateTime.now().plus(delay, ChronoUnit.MILLIS)), job.getId());
+            logger.warn("后台任务失败，{}ms后重试: id={}, type={}, attempt={}/{}, error={}", delay, job.getId(),
+                    job.getJobType(), job.getAttempts(), job.getMaxAttempts(), error);
+        } else {
+            jdbcTemplate.update(FAIL_SQL, error, Timestamp.valueOf(LocalDateTime.now()), job.getId());
+            logger.error("后台任务失败: id={}, type={}, attempt={}/{}", job.getId(), job.getJobType(),
+                    job.getAttempts(), job.getMaxAttempts(), e);
+        }
+    }
+
+    /**
+     * 第n次失败后的等待时间：initial * 2^(n-1)，不超过上限，再乘以 [0.5, 1) 的随机抖动
+     */
+    private long backoffMillis(int attempts) {
+        long delay = backoffInitialMillis << Math.min(Math.max(0, attempts - 1), 20);
+        delay = Math.min(delay, backoffMaxMillis);
+        return (long) (delay * (0.5 + ThreadLocalRandom.current().nextDouble() * 0.5));
+    }
+
+    private void notifyWaiters(long jobId) {
+        Waiter waiter = waiters.get(jobId);
+        if (waiter == null) {
+            return;
+        }
+        AnalyticsJob job = getJob(jobId);
+        if (job != null && job.isFinished() && waiters.remove(jobId, waiter)) {
+            waiter.future.complete(job);
+        }
+    }
+
+    /**
+     * 注销一个等待方，最后一个等待方离开时移除条目
+     */
+    private void release(long jobId, Waiter waiter) {
+        waiters.computeIfPresent(jobId, (id, existing) -> existing == waiter && --existing.count == 0 ? null : existing);
+    }
+
+    private AnalyticsJob findReusable(String dedupKey) {
+        List<AnalyticsJob> jobs = jdbcTemplate.query(SELECT_COLUMNS
+                        + "WHERE dedup_key = ? AND (status IN ('PENDING', 'RUNNING') "
+                        + "OR (status = 'SUCCEEDED' AND result_expires_at > ?)) ORDER BY id DESC LIMIT 1",
+                JOB_MAPPER, dedupKey, Timestamp.valueOf(LocalDateTime.now()));
+        return jobs.isEmpty() ? null : jobs.get(0);
+    }
+
+    private AnalyticsJob insert(String type, String dedupKey, String payload, int priority) {
+        AnalyticsJob job = new AnalyticsJob();
+        job.setJobType(type);
+        job.setDedupKey(dedupKey);
+        job.setPayload(payload);
+        job.setPriority(priority);
+        job.setMaxAttempts(Math.max(1, defaultMaxAttempts));
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_SQL, new String[]{"id"});
+            statement.setString(1, type);
+            statement.setString(2, dedupKey);
+            statement.setString(3, payload);
+            statement.setInt(4, priority);
+            statement.setInt(5, job.getMaxAttempts());
+            statement.setTimestamp(6, Timestamp.valueOf(job.getNextRunAt()));
+            statement.setTimestamp(7, Timestamp.valueOf(job.getCreatedAt()));
+            return statement;
+        }, keyHolder);
+        job.setId(keyHolder.getKey().longValue());
+        return job;
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("任务数据无法序列化为JSON", e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String truncate(String error) {
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private static final RowMapper<AnalyticsJob> JOB_MAPPER = (rs, rowNum) -> {
+        AnalyticsJob job = new AnalyticsJob();
+        job.setId(rs.getLong("id"));
+        job.setJobType(rs.getString("job_type"));
+        job.setDedupKey(rs.getString("dedup_key"));
+        job.setPayload(rs.getString("payload"));
+        job.setPriority(rs.getInt("priority"));
+        job.setStatus(AnalyticsJob.Status.valueOf(rs.getString("status")));
+        job.setAttempts(rs.getInt("attempts"));
+        job.setMaxAttempts(rs.getInt("max_attempts"));
+        job.setNextRunAt(toLocalDateTime(rs.getTimestamp("next_run_at")));
+        job.setResult(rs.getString("result"));
+        job.setError(rs.getString("error"));
+        job.setResultExpiresAt(toLocalDateTime(rs.getTimestamp("result_expires_at")));
+        job.setCreatedAt(toLocalDateTime(rs.getTimestamp("created_at")));
+        job.setStartedAt(toLocalDateTime(rs.getTimestamp("started_at")));
+        job.setFinishedAt(toLocalDateTime(rs.getTimestamp("finished_at")));
+        return job;
+    };
+
+    /**
+     * 同一任务的等待方，count 在 waiters 的 compute 中修改
+     */
+    private static final class Waiter {
+        private final CompletableFuture<AnalyticsJob> future = new CompletableFuture<>();
+        private int count;
+    }
+
+    /**
+     * 进程内队列中的任务，优先级高的先执行，同优先级按入队顺序
+     */
+    private final class JobTask implements Runnable, Comparable<JobTask> {
+
+        private final long jobId;
+        private final int priority;
+        private final long sequence;
+
+        JobTask(long jobId, int priority, long sequence) {
+            this.jobId = jobId;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            execute(jobId);
+        }
+
+        @Override
+        public int compareTo(JobTask other) {
+            if (priority != other.priority) {
+                return Integer.compare(other.priority, priority);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
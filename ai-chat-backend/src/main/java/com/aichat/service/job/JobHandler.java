@@ -0,0 +1,26 @@
+package com.aichat.service.job;
+
+import java.util.Map;
+
+/**
+ * 后台任务处理器
+ * 每种任务类型一个实现，由 JobEngine 的工作线程调用，可以执行阻塞操作。
+ * 抛出异常的任务按退避策略重试（IllegalArgumentException 表示参数错误，直接失败），返回值序列化为JSON保存为任务结果。
+ */
+public interface JobHandler {
+
+    /**
+     * 处理的任务类型
+     */
+    String getType();
+
+    /**
+     * 执行任务
+     *
+     * @param payload 提交任务时的参数
+     * @return 可序列化为JSON的结果
+     * @throws IllegalArgumentException 参数错误，任务直接失败
+     * @throws Exception 执行失败，任务将被重试
+     */
+    Object execute(Map<String, Object> payload) throws Exception;
+}
@@ -0,0 +1,105 @@
+package com.aichat.service.job;
+
+import com.aichat.service.catalog.ChatCharacterCatalog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 用户行为分析任务
+ * 参数：userId、timeRange（如 24h、7d、30d，默认30d）；
+ * 结果：时间范围内的消息数、会话数、平均消息长度、最常聊的角色和最活跃时段
+ */
+@Component
+public class UserBehaviorJobHandler implements JobHandler {
+
+    public static final String TYPE = "user_behavior";
+
+    private static final Pattern TIME_RANGE = Pattern.compile("(\\d+)\\s*([hdw])");
+
+    private static final int FAVORITE_LIMIT = 3;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ChatCharacterCatalog characterCatalog;
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public Object execute(Map<String, Object> payload) {
+        Object userIdValue = payload.get("userId");
+        if (!(userIdValue instanceof Number)) {
+            throw new IllegalArgumentException("缺少userId");
+        }
+        Long userId = ((Number) userIdValue).longValue();
+        String timeRange = payload.get("timeRange") != null ? payload.get("timeRange").toString() : "30d";
+        LocalDateTime since = since(timeRange);
+
+        Object[] totals = entityManager.createQuery(
+            "SELECT COUNT(h), COUNT(DISTINCT h.sessionId), AVG(LENGTH(h.userMessage)) FROM ConversationHistory h " +
+            "WHERE h.userId = :userId AND h.timestamp >= :since", Object[].class
+        ).setParameter("userId", userId).setParameter("since", since).getSingleResult();
+
+        List<Object[]> byCharacter = entityManager.createQuery(
+            "SELECT h.characterId, COUNT(h) FROM ConversationHistory h " +
+            "WHERE h.userId = :userId AND h.timestamp >= :since GROUP BY h.characterId ORDER BY COUNT(h) DESC", Object[].class
+        ).setParameter("userId", userId).setParameter("since", since).setMaxResults(FAVORITE_LIMIT).getResultList();
+
+        List<Object[]> byHour = entityManager.createQuery(
+            "SELECT HOUR(h.timestamp), COUNT(h) FROM ConversationHistory h " +
+            "WHERE h.userId = :userId AND h.timestamp >= :since GROUP BY HOUR(h.timestamp) ORDER BY COUNT(h) DESC", Object[].class
+        ).setParameter("userId", userId).setParameter("since", since).setMaxResults(1).getResultList();
+
+        List<Map<String, Object>> favorites = new ArrayList<>();
+        for (Object[] row : byCharacter) {
+            Long characterId = ((Number) row[0]).longValue();
+            Map<String, Object> favorite = new HashMap<>();
+            favorite.put("characterId", characterId);
+            favorite.put("name", characterCatalog.getCharacter(characterId).map(c -> c.getName()).orElse(null));
+            favorite.put("messages", ((Number) row[1]).longValue());
+            favorites.add(favorite);
+        }
+
+        Map<String, Object> analysis = new HashMap<>();
+        analysis.put("userId", userId);
+        analysis.put("timeRange", timeRange);
+        analysis.put("totalMessages", ((Number) totals[0]).longValue());
+        analysis.put("totalSessions", ((Number) totals[1]).longValue());
+        analysis.put("averageMessageLength", totals[2] != null ? Math.round(((Number) totals[2]).doubleValue()) : 0);
+        analysis.put("favoriteCharacters", favorites);
+        analysis.put("mostActiveHour", byHour.isEmpty() ? null : ((Number) byHour.get(0)[0]).intValue());
+        analysis.put("analyzedAt", LocalDateTime.now().toString());
+        return analysis;
+    }
+
+    private static LocalDateTime since(String timeRange) {
+        Matcher matcher = TIME_RANGE.matcher(timeRange.trim().toLowerCase());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("时间范围格式错误: " + timeRange);
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        LocalDateTime now = LocalDateTime.now();
+        switch (matcher.group(2)) {
+            case "h":
+                return now.minusHours(amount);
+            case "w":
+                return now.minusWeeks(amount);
+            default:
+                return now.minusDays(amount);
+        }
+    }
+}
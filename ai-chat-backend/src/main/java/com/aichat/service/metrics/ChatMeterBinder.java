@@ -0,0 +1,73 @@
+package com.aichat.service.metrics;
+
+import com.aichat.security.JwtVerifier;
+import com.aichat.service.catalog.PopularityCounter;
+import com.aichat.service.speech.SpeechAudioCache;
+import com.aichat.websocket.ChatWebSocketHandler;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 状态类指标
+ * 活跃连接、发送缓冲、待刷写人气增量和各缓存命中率在抓取时从组件读取，不在业务路径上额外记录。
+ */
+@Component
+public class ChatMeterBinder implements MeterBinder {
+
+    @Autowired
+    private ChatWebSocketHandler webSocketHandler;
+
+    @Autowired
+    private PopularityCounter popularityCounter;
+
+    @Autowired
+    private SpeechAudioCache speechAudioCache;
+
+    @Autowired
+    private JwtVerifier jwtVerifier;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("websocket.sessions.active", webSocketHandler, ChatWebSocketHandler::getActiveSessionCount)
+                .description("活跃WebSocket连接数")
+                .register(registry);
+        Gauge.builder("websocket.voice.sessions.active", webSocketHandler, ChatWebSocketHandler::getVoiceSessionCount)
+                .description("进行中的实时语音会话数")
+                .register(registry);
+        Gauge.builder("websocket.send.buffer", webSocketHandler, ChatWebSocketHandler::getSendBufferBytes)
+                .description("所有连接待发送的缓冲字节数")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("catalog.popularity.pending", popularityCounter, PopularityCounter::getPendingCount)
+                .description("尚未刷写到数据库的人气增量")
+                .register(registry);
+
+        bindCache(registry, "tts", speechAudioCache, SpeechAudioCache::getHitCount, SpeechAudioCache::getMissCount);
+        bindCache(registry, "jwt", jwtVerifier, JwtVerifier::getCacheHitCount, JwtVerifier::getCacheMissCount);
+    }
+
+    private static <T> void bindCache(MeterRegistry registry, String cache, T source,
+                                      ToDoubleFunction<T> hits, ToDoubleFunction<T> misses) {
+        FunctionCounter.builder("cache.gets", source, hits)
+                .tag("cache", cache)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", source, misses)
+                .tag("cache", cache)
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("cache.hit.ratio", source, value -> {
+                    double hit = hits.applyAsDouble(value);
+                    double total = hit + misses.applyAsDouble(value);
+                    return total > 0 ? hit / total : 0.0;
+                })
+                .tag("cache", cache)
+                .register(registry);
+    }
+}
@@ -0,0 +1,190 @@
+package com.aichat.service.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 聊天链路指标
+ * 统一登记LLM、TTS/STT、WebSocket帧和数据库写入的计时器与分布摘要，
+ * 计时器同时发布客户端分位数（供 getModelStatus 读取）和直方图桶（供Prometheus聚合）。
+ */
+@Component
+public class ChatMetrics {
+
+    public static final String LLM_LATENCY = "llm.request.latency";
+    public static final String LLM_FIRST_TOKEN = "llm.first.token.latency";
+    public static final String TTS_LATENCY = "speech.tts.latency";
+    public static final String STT_LATENCY = "speech.stt.latency";
+    public static final String WS_FRAMES_IN = "websocket.frames.in";
+    public static final String WS_FRAMES_OUT = "websocket.frames.out";
+    public static final String DB_WRITE_LATENCY = "db.write.latency";
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_ERROR = "error";
+    public static final String OUTCOME_CANCELLED = "cancelled";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private DistributionSummary textFramesIn;
+    private DistributionSummary binaryFramesIn;
+    private DistributionSummary textFramesOut;
+    private DistributionSummary binaryFramesOut;
+
+    @PostConstruct
+    public void init() {
+        textFramesIn = frameSummary(WS_FRAMES_IN, "text");
+        binaryFramesIn = frameSummary(WS_FRAMES_IN, "binary");
+        textFramesOut = frameSummary(WS_FRAMES_OUT, "text");
+        binaryFramesOut = frameSummary(WS_FRAMES_OUT, "binary");
+    }
+
+    /**
+     * 记录一次非流式LLM调用（同步阻塞调用和 chatAsync 共用 mode=blocking 标签）
+     */
+    public void recordLlm(String model, long startNanos, String outcome) {
+        timer(LLM_LATENCY, "model", model, "mode", "blocking", "outcome", outcome)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 为流式LLM调用计时：订阅到首个增量为首token延迟，订阅到结束为总延迟
+     */
+    public <T> Flux<T> timeLlmStream(Flux<T> stream, String model) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean first = new AtomicBoolean();
+            return stream
+                    .doOnNext(item -> {
+                        if (first.compareAndSet(false, true)) {
+                            timer(LLM_FIRST_TOKEN, "model", model)
+                                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                    })
+                    .doFinally(signal -> timer(LLM_LATENCY, "model", model, "mode", "stream", "outcome", outcome(signal))
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    /**
+     * 为一次上游TTS调用计时
+     */
+    public <T> Mono<T> timeTts(Mono<T> call) {
+        return timed(call, TTS_LATENCY);
+    }
+
+    /**
+     * 为一次上游STT调用计时
+     */
+    public <T> Mono<T> timeStt(Mono<T> call) {
+        return timed(call, STT_LATENCY);
+    }
+
+    /**
+     * 记录一次数据库写入
+     */
+    public void recordDbWrite(String operation, long startNanos, String outcome) {
+        timer(DB_WRITE_LATENCY, "operation", operation, "outcome", outcome)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFrameIn(boolean binary, int bytes) {
+        (binary ? binaryFramesIn : textFramesIn).record(bytes);
+    }
+
+    public void recordFrameOut(boolean binary, int bytes) {
+        (binary ? binaryFramesOut : textFramesOut).record(bytes);
+    }
+
+    /**
+     * 各计时器最近统计窗口内的实时分位数（毫秒），按标签组合分组
+     */
+    public Map<String, Object> latencySnapshot() {
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("llm", summarize(registry.find(LLM_LATENCY).timers()));
+        snapshot.put("llmFirstToken", summarize(registry.find(LLM_FIRST_TOKEN).timers()));
+        snapshot.put("tts", summarize(registry.find(TTS_LATENCY).timers()));
+        snapshot.put("stt", summarize(registry.find(STT_LATENCY).timers()));
+        snapshot.put("dbWrite", summarize(registry.find(DB_WRITE_LATENCY).timers()));
+        return snapshot;
+    }
+
+    private <T> Mono<T> timed(Mono<T> call, String name) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doFinally(signal -> timer(name, "outcome", outcome(signal))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    private Timer timer(String name, String... tags) {
+        return Timer.builder(name)
+                .tags(tags)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private DistributionSummary frameSummary(String name, String type) {
+        return DistributionSummary.builder(name)
+                .baseUnit("bytes")
+                .tag("type", type)
+                .publishPercentiles(PERCENTILES)
+                .register(registry);
+    }
+
+    /**
+     * 终止信号对应的结果标签
+     */
+    public static String outcome(SignalType signal) {
+        switch (signal) {
+            case ON_COMPLETE:
+                return OUTCOME_SUCCESS;
+            case CANCEL:
+                return OUTCOME_CANCELLED;
+            default:
+                return OUTCOME_ERROR;
+        }
+    }
+
+    private static Map<String, Object> summarize(Collection<Timer> timers) {
+        Map<String, Object> result = new HashMap<>();
+        for (Timer timer : timers) {
+            StringBuilder key = new StringBuilder();
+            for (Tag tag : timer.getId().getTags()) {
+                if (key.length() > 0) {
+                    key.append('/');
+                }
+                key.append(tag.getValue());
+            }
+            HistogramSnapshot histogram = timer.takeSnapshot();
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("count", histogram.count());
+            stats.put("meanMs", histogram.mean(TimeUnit.MILLISECONDS));
+            stats.put("maxMs", histogram.max(TimeUnit.MILLISECONDS));
+            for (ValueAtPercentile percentile : histogram.percentileValues()) {
+                stats.put("p" + Math.round(percentile.percentile() * 100) + "Ms", percentile.value(TimeUnit.MILLISECONDS));
+            }
+            result.put(key.length() > 0 ? key.toString() : "all", stats);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,79 @@
+package com.aichat.service.metrics;
+
+import com.aichat.service.ChatService;
+import com.aichat.service.analytics.ConversationSavedEvent;
+import com.aichat.service.jfr.FlightRecorderEvents;
+import com.aichat.service.tracing.Span;
+import com.aichat.service.tracing.Tracer;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * 为 ChatService 的 saveConversation 计时
+ * 不依赖具体实现类，任何 ChatService Bean 都会被包装，写库耗时记入 db.write.latency{operation=save_conversation}，
+ * 并作为链路中的 persistence 阶段。写入成功后发布 ConversationSavedEvent，供用户行为聚合等流式消费方使用。
+ */
+@Component
+public class ChatServiceMetricsPostProcessor implements BeanPostProcessor {
+
+    private static final String SAVE_CONVERSATION = "saveConversation";
+
+    private final ObjectProvider<ChatMetrics> chatMetrics;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ChatServiceMetricsPostProcessor(ObjectProvider<ChatMetrics> chatMetrics,
+                                           ApplicationEventPublisher eventPublisher) {
+        this.chatMetrics = chatMetrics;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (!(bean instanceof ChatService)) {
+            return bean;
+        }
+        return Proxy.newProxyInstance(ChatService.class.getClassLoader(), new Class<?>[]{ChatService.class},
+                (proxy, method, args) -> {
+                    if (!SAVE_CONVERSATION.equals(method.getName())) {
+                        return invoke(bean, method, args);
+                    }
+                    long start = System.nanoTime();
+                    String outcome = ChatMetrics.OUTCOME_ERROR;
+                    FlightRecorderEvents.DbWrite event = FlightRecorderEvents.dbWrite();
+                    try (Span ignored = Tracer.startSpan(Tracer.STAGE_PERSISTENCE)) {
+                        Object result = invoke(bean, method, args);
+                        outcome = ChatMetrics.OUTCOME_SUCCESS;
+                        eventPublisher.publishEvent(savedEvent(args));
+                        return result;
+                    } finally {
+                        chatMetrics.getObject().recordDbWrite("save_conversation", start, outcome);
+                        event.record("save_conversation", 1, outcome);
+                    }
+                });
+    }
+
+    /**
+     * 参数顺序同 saveConversation(userId, characterId, userMessage, aiResponse, sessionId, audioUrl)
+     */
+    private static ConversationSavedEvent savedEvent(Object[] args) {
+        String userMessage = (String) args[2];
+        return new ConversationSavedEvent((Long) args[0], (Long) args[1], (String) args[4],
+                userMessage != null ? userMessage.length() : 0, System.currentTimeMillis());
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
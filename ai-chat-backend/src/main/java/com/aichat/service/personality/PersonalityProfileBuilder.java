@@ -0,0 +1,326 @@
+package com.aichat.service.personality;
+
+import com.aichat.dto.EmotionAnalysisResult;
+import com.aichat.dto.PersonalityProfile;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 个性化档案增量构建器
+ * 每轮对话从用户消息的文字风格（长度、提问、感叹/表情、礼貌用语、结尾标点）和情感分析结果中提取信号，
+ * 以指数移动平均更新五大人格特质和交流风格，不回看历史对话。前几轮学习率较大，之后稳定在最小学习率，
+ * 使档案能随用户近期表现缓慢漂移。特质由启发式信号估计，置信度随轮数增长。
+ * 非线程安全，由调用方加锁。
+ */
+public class PersonalityProfileBuilder {
+
+    public static final String TRAIT_OPENNESS = "openness";
+    public static final String TRAIT_CONSCIENTIOUSNESS = "conscientiousness";
+    public static final String TRAIT_EXTROVERSION = "extroversion";
+    public static final String TRAIT_AGREEABLENESS = "agreeableness";
+    public static final String TRAIT_NEUROTICISM = "neuroticism";
+
+    private static final String[] EMOTIONS = {"joy", "sadness", "anger", "fear", "surprise"};
+
+    private static final String[] POLITE_WORDS = {"请", "谢谢", "您", "麻烦", "不好意思", "辛苦"};
+
+    private static final double MIN_LEARNING_RATE = 0.05;
+
+    // 置信度达到约63%所需的轮数
+    private static final double CONFIDENCE_TURNS = 20.0;
+
+    private int turns;
+    private double openness = 0.5;
+    private double conscientiousness = 0.5;
+    private double extroversion = 0.5;
+    private double agreeableness = 0.5;
+    private double neuroticism = 0.5;
+
+    // 文字风格的移动平均
+    private double messageLength;
+    private double questionRate;
+    private double expressiveRate;
+    private double politeRate;
+
+    private final double[] emotionMix = new double[EMOTIONS.length];
+
+    private long updatedAt;
+
+    /**
+     * 计入一轮对话，emotion 为空时只用文字风格信号
+     */
+    public PersonalityProfileBuilder observe(String message, EmotionAnalysisResult emotion) {
+        if (message == null || message.trim().isEmpty()) {
+            return this;
+        }
+        double rate = Math.max(1.0 / (turns + 1), MIN_LEARNING_RATE);
+
+        String text = message.trim();
+        int length = text.codePointCount(0, text.length());
+        double question = isQuestion(text) ? 1 : 0;
+        double expressive = isExpressive(text) ? 1 : 0;
+        double polite = containsAny(text, POLITE_WORDS) ? 1 : 0;
+        double punctuated = endsWithPunctuation(text) ? 1 : 0;
+
+        messageLength = ema(messageLength, length, rate);
+        questionRate = ema(questionRate, question, rate);
+        expressiveRate = ema(expressiveRate, expressive, rate);
+        politeRate = ema(politeRate, polite, rate);
+
+        double intensity = 0.5;
+        double sentiment = 0.5;
+        double[] scores = new double[EMOTIONS.length];
+        boolean hasEmotion = emotion != null && emotion.getEmotionScores() != null;
+        if (hasEmotion) {
+            for (int i = 0; i < EMOTIONS.length; i++) {
+                Double score = emotion.getEmotionScores().get(EMOTIONS[i]);
+                scores[i] = score != null ? clamp(score) : 0;
+                emotionMix[i] = ema(emotionMix[i], scores[i], rate);
+            }
+            if (emotion.getIntensity() != null) {
+                intensity = clamp(emotion.getIntensity() / 10.0);
+            }
+            if (emotion.getSentimentScore() != null) {
+                // 情感分数按 -1~1 映射到 0~1
+                sentiment = clamp((emotion.getSentimentScore() + 1) / 2);
+            }
+        }
+        double sadness = scores[1];
+        double anger = scores[2];
+        double fear = scores[3];
+        double surprise = scores[4];
+
+        extroversion = ema(extroversion,
+                clamp(0.4 * expressive + 0.3 * Math.min(length / 80.0, 1) + 0.3 * intensity), rate);
+        openness = ema(openness,
+                clamp(0.5 * question + 0.3 * surprise + 0.2 * Math.min(length / 120.0, 1)), rate);
+        agreeableness = ema(agreeableness,
+                clamp(0.5 * sentiment + 0.3 * polite + 0.2 * (1 - anger)), rate);
+        conscientiousness = ema(conscientiousness,
+                clamp(0.5 * polite + 0.3 * punctuated + 0.2 * Math.min(length / 60.0, 1)), rate);
+        if (hasEmotion) {
+            neuroticism = ema(neuroticism, clamp(sadness + anger + fear), rate);
+        }
+
+        turns++;
+        updatedAt = System.currentTimeMillis();
+        return this;
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+    /**
+     * 生成档案，turns 为0时返回null
+     */
+    public PersonalityProfile build(Long userId) {
+        if (turns == 0) {
+            return null;
+        }
+        Map<String, Double> traits = new HashMap<>();
+        traits.put(TRAIT_OPENNESS, round(openness));
+        traits.put(TRAIT_CONSCIENTIOUSNESS, round(conscientiousness));
+        traits.put(TRAIT_EXTROVERSION, round(extroversion));
+        traits.put(TRAIT_AGREEABLENESS, round(agreeableness));
+        traits.put(TRAIT_NEUROTICISM, round(neuroticism));
+
+        PersonalityProfile profile = new PersonalityProfile(userId, personalityType(), traits);
+        profile.setOpennessScore(round(openness));
+        profile.setConscientiousnessScore(round(conscientiousness));
+        profile.setExtroversionScore(round(extroversion));
+        profile.setAgreeablenessScore(round(agreeableness));
+        profile.setNeuroticismScore(round(neuroticism));
+        profile.setDominantTrait(dominantTrait());
+        profile.setCommunicationStyle(communicationStyle());
+        profile.setRecommendedCharacterTypes(recommendedCharacterTypes());
+
+        Map<String, Double> emotions = new HashMap<>();
+        for (int i = 0; i < EMOTIONS.length; i++) {
+            emotions.put(EMOTIONS[i], round(emotionMix[i]));
+        }
+        Map<String, Object> preferences = new HashMap<>();
+        preferences.put("averageMessageLength", Math.round(messageLength));
+        preferences.put("questionRate", round(questionRate));
+        preferences.put("expressiveRate", round(expressiveRate));
+        preferences.put("politeRate", round(politeRate));
+        preferences.put("emotionMix", emotions);
+        profile.setConversationPreferences(preferences);
+
+        Map<String, Object> patterns = new HashMap<>();
+        patterns.put("turns", turns);
+        profile.setBehaviorPatterns(patterns);
+
+        profile.setConfidenceScore(round(1 - Math.exp(-turns / CONFIDENCE_TURNS)));
+        profile.setLastUpdated(LocalDateTime.ofInstant(Instant.ofEpochMilli(updatedAt), ZoneId.systemDefault()));
+        return profile;
+    }
+
+    /**
+     * 导出持久化状态
+     */
+    public Map<String, Object> toState() {
+        Map<String, Object> state = new HashMap<>();
+        state.put("turns", turns);
+        state.put("traits", new double[]{openness, conscientiousness, extroversion, agreeableness, neuroticism});
+        state.put("style", new double[]{messageLength, questionRate, expressiveRate, politeRate});
+        state.put("emotions", Arrays.copyOf(emotionMix, emotionMix.length));
+        state.put("updatedAt", updatedAt);
+        return state;
+    }
+
+    /**
+     * 从持久化状态恢复，缺失的字段保持初始值
+     */
+    public static PersonalityProfileBuilder fromState(Map<String, Object> state) {
+        PersonalityProfileBuilder builder = new PersonalityProfileBuilder();
+        if (state == null) {
+            return builder;
+        }
+        builder.turns = state.get("turns") instanceof Number ? ((Number) state.get("turns")).intValue() : 0;
+        builder.updatedAt = state.get("updatedAt") instanceof Number ? ((Number) state.get("updatedAt")).longValue() : 0;
+        double[] traits = doubles(state.get("traits"), 5);
+        if (traits != null) {
+            builder.openness = traits[0];
+            builder.conscientiousness = traits[1];
+            builder.extroversion = traits[2];
+            builder.agreeableness = traits[3];
+            builder.neuroticism = traits[4];
+        }
+        double[] style = doubles(state.get("style"), 4);
+        if (style != null) {
+            builder.messageLength = style[0];
+            builder.questionRate = style[1];
+            builder.expressiveRate = style[2];
+            builder.politeRate = style[3];
+        }
+        double[] emotions = doubles(state.get("emotions"), EMOTIONS.length);
+        if (emotions != null) {
+            System.arraycopy(emotions, 0, builder.emotionMix, 0, EMOTIONS.length);
+        }
+        return builder;
+    }
+
+    private String personalityType() {
+        return (extroversion >= 0.5 ? "E" : "I")
+                + (openness >= 0.5 ? "N" : "S")
+                + (agreeableness >= 0.5 ? "F" : "T")
+                + (conscientiousness >= 0.5 ? "J" : "P");
+    }
+
+    private String dominantTrait() {
+        String dominant = TRAIT_OPENNESS;
+        double best = openness;
+        if (conscientiousness > best) {
+            dominant = TRAIT_CONSCIENTIOUSNESS;
+            best = conscientiousness;
+        }
+        if (extroversion > best) {
+            dominant = TRAIT_EXTROVERSION;
+            best = extroversion;
+        }
+        if (agreeableness > best) {
+            dominant = TRAIT_AGREEABLENESS;
+            best = agreeableness;
+        }
+        if (neuroticism > best) {
+            dominant = TRAIT_NEUROTICISM;
+        }
+        return dominant;
+    }
+
+    private String communicationStyle() {
+        List<String> styles = new ArrayList<>();
+        if (expressiveRate >= 0.4) {
+            styles.add("热情活泼");
+        }
+        if (questionRate >= 0.4) {
+            styles.add("好奇爱提问");
+        }
+        if (politeRate >= 0.4) {
+            styles.add("礼貌正式");
+        }
+        if (messageLength >= 60) {
+            styles.add("表达详细");
+        } else if (messageLength < 15) {
+            styles.add("简洁直接");
+        }
+        return styles.isEmpty() ? "自然随和" : String.join("、", styles);
+    }
+
+    private List<String> recommendedCharacterTypes() {
+        switch (dominantTrait()) {
+            case TRAIT_EXTROVERSION:
+                return Arrays.asList("幽默", "冒险", "社交");
+            case TRAIT_CONSCIENTIOUSNESS:
+                return Arrays.asList("专业", "导师", "效率");
+            case TRAIT_AGREEABLENESS:
+                return Arrays.asList("温暖", "陪伴", "倾听");
+            case TRAIT_NEUROTICISM:
+                return Arrays.asList("治愈", "倾听", "安慰");
+            default:
+                return Arrays.asList("知识", "创意", "探索");
+        }
+    }
+
+    private static boolean isQuestion(String text) {
+        return text.indexOf('?') >= 0 || text.indexOf('？') >= 0
+                || text.endsWith("吗") || text.endsWith("呢") || text.endsWith("么");
+    }
+
+    private static boolean isExpressive(String text) {
+        if (text.indexOf('!') >= 0 || text.indexOf('！') >= 0 || text.contains("哈哈")) {
+            return true;
+        }
+        // 表情符号位于补充平面
+        return text.codePoints().anyMatch(c -> c >= 0x1F300);
+    }
+
+    private static boolean endsWithPunctuation(String text) {
+        char last = text.charAt(text.length() - 1);
+        return "。.！!？?".indexOf(last) >= 0;
+    }
+
+    private static boolean containsAny(String text, String[] words) {
+        for (String word : words) {
+            if (text.contains(word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double[] doubles(Object value, int length) {
+        if (!(value instanceof List)) {
+            return null;
+        }
+        List<?> values = (List<?>) value;
+        if (values.size() != length) {
+            return null;
+        }
+        double[] result = new double[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = values.get(i) instanceof Number ? ((Number) values.get(i)).doubleValue() : 0;
+        }
+        return result;
+    }
+
+    private static double ema(double current, double sample, double rate) {
+        return current + rate * (sample - current);
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0, Math.min(1, value));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
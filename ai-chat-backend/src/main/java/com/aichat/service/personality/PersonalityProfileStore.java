@@ -0,0 +1,380 @@
+package com.aichat.service.personality;
+
+import com.aichat.dto.EmotionAnalysisResult;
+import com.aichat.dto.PersonalityProfile;
+import com.aichat.service.jfr.FlightRecorderEvents;
+import com.aichat.service.metrics.ChatMetrics;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 个性化档案存储
+ * 每个用户一个增量构建器，每轮对话更新后立即生成档案和个性化提示片段，读取时不再计算。
+ * 内存层是按条目数限制的LRU，条目超过TTL未访问即失效；有未保存更新的条目被淘汰时转入待写队列，
+ * 定时批量写入 personality_profiles 表，再次访问时从待写队列或数据库恢复。
+ * 没有档案的用户也缓存一个空条目，避免对同一用户反复查库；读取失败时不缓存，
+ * 该轮对话不更新档案，避免空档案在刷写时覆盖库中已有的数据。
+ */
+@Service
+public class PersonalityProfileStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersonalityProfileStore.class);
+
+    private static final String SELECT_SQL = "SELECT state FROM personality_profiles WHERE user_id = ?";
+
+    private static final String UPDATE_SQL =
+            "UPDATE personality_profiles SET turns = ?, state = ?, updated_at = ? WHERE user_id = ?";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO personality_profiles (turns, state, updated_at, user_id) VALUES (?, ?, ?, ?)";
+
+    // 置信度低于此值时提示片段只包含交流风格
+    private static final double TRAIT_HINT_MIN_CONFIDENCE = 0.3;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Value("${personality.cache.max-entries:100000}")
+    private int maxEntries;
+
+    @Value("${personality.cache.ttl-ms:21600000}")
+    private long ttlMillis;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // 访问顺序的LinkedHashMap，头部为最久未访问
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(1024, 0.75f, true);
+
+    // 已淘汰但尚未写入数据库的条目
+    private final Map<Long, Entry> pendingWrites = new ConcurrentHashMap<>();
+
+    // 定时刷写和关闭时的刷写互斥，刷写期间不占用存储锁
+    private final Object flushLock = new Object();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+
+    /**
+     * 用一轮对话更新用户档案
+     */
+    public void observe(Long userId, String message, EmotionAnalysisResult emotion) {
+        // 取到的条目恰好被移出内存时重新获取
+        while (true) {
+            Entry entry = entry(userId);
+            if (entry == null) {
+                return;
+            }
+            synchronized (entry) {
+                if (!entry.retired) {
+                    entry.builder.observe(message, emotion);
+                    entry.refresh(userId);
+                    entry.version++;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 用户档案，还没有任何对话时返回null
+     */
+    public PersonalityProfile getProfile(Long userId) {
+        Entry entry = entry(userId);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            return entry.profile;
+        }
+    }
+
+    /**
+     * 预先生成的个性化提示片段，没有档案时返回null
+     */
+    public String getPromptHint(Long userId) {
+        Entry entry = entry(userId);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            return entry.promptHint;
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        synchronized (this) {
+            statistics.put("entries", entries.size());
+        }
+        statistics.put("maxEntries", maxEntries);
+        statistics.put("pendingWrites", pendingWrites.size());
+        statistics.put("hits", hits.sum());
+        statistics.put("loads", loads.sum());
+        statistics.put("evictions", evictions.sum());
+        statistics.put("loadFailures", loadFailures.sum());
+        return statistics;
+    }
+
+    /**
+     * 清理过期条目，并把有未保存更新的条目批量写入数据库
+     */
+    @Scheduled(fixedDelayString = "${personality.cache.flush-interval-ms:30000}")
+    public void flush() {
+        synchronized (flushLock) {
+            doFlush();
+        }
+    }
+
+    private void doFlush() {
+        List<Map.Entry<Long, Entry>> candidates = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, Entry> item = iterator.next();
+                if (now - item.getValue().lastAccessAt > ttlMillis) {
+                    iterator.remove();
+                    retire(item.getKey(), item.getValue());
+                } else {
+                    candidates.add(item);
+                }
+            }
+        }
+        candidates.addAll(pendingWrites.entrySet());
+
+        List<Entry> written = new ArrayList<>();
+        List<Long> versions = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        Timestamp updatedAt = Timestamp.valueOf(LocalDateTime.now());
+        for (Map.Entry<Long, Entry> item : candidates) {
+            Entry entry = item.getValue();
+            synchronized (entry) {
+                if (entry.version == entry.savedVersion) {
+                    continue;
+                }
+                try {
+                    rows.add(new Object[]{entry.builder.getTurns(),
+                            objectMapper.writeValueAsString(entry.builder.toState()), updatedAt, item.getKey()});
+                } catch (JsonProcessingException e) {
+                    logger.warn("个性化档案序列化失败: userId={}, error={}", item.getKey(), e.getMessage());
+                    continue;
+                }
+                written.add(entry);
+                versions.add(entry.version);
+            }
+        }
+
+        if (!rows.isEmpty()) {
+            long start = System.nanoTime();
+            FlightRecorderEvents.DbWrite event = FlightRecorderEvents.dbWrite();
+            try {
+                int[] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, rows);
+                List<Object[]> inserts = new ArrayList<>();
+                for (int i = 0; i < updated.length; i++) {
+                    if (updated[i] == 0) {
+                        inserts.add(rows.get(i));
+                    }
+                }
+                if (!inserts.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+                }
+                chatMetrics.recordDbWrite("personality_flush", start, ChatMetrics.OUTCOME_SUCCESS);
+                event.record("personality_flush", rows.size(), ChatMetrics.OUTCOME_SUCCESS);
+                for (int i = 0; i < written.size(); i++) {
+                    Entry entry = written.get(i);
+                    synchronized (entry) {
+                        entry.savedVersion = Math.max(entry.savedVersion, versions.get(i));
+                    }
+                }
+                logger.debug("个性化档案已写入: {} 个用户", rows.size());
+            } catch (Exception e) {
+                // 未标记为已保存，下个周期重试
+                chatMetrics.recordDbWrite("personality_flush", start, ChatMetrics.OUTCOME_ERROR);
+                event.record("personality_flush", rows.size(), ChatMetrics.OUTCOME_ERROR);
+                logger.warn("个性化档案写入失败，将在下个周期重试: {}", e.getMessage());
+            }
+        }
+
+        pendingWrites.entrySet().removeIf(item -> {
+            Entry entry = item.getValue();
+            synchronized (entry) {
+                return entry.version == entry.savedVersion;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 取得用户的条目，不在内存中时加载；数据库读取失败时返回null
+     */
+    private Entry entry(Long userId) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Entry entry = entries.get(userId);
+            if (entry != null && now - entry.lastAccessAt <= ttlMillis) {
+                entry.lastAccessAt = now;
+                hits.increment();
+                return entry;
+            }
+            if (entry != null) {
+                entries.remove(userId);
+                retire(userId, entry);
+            }
+        }
+
+        // 待写队列中的条目比数据库新；数据库访问在锁外进行，并发加载时保留先放入的一份
+        Entry loaded = pendingWrites.get(userId);
+        if (loaded == null) {
+            loaded = load(userId);
+            if (loaded == null) {
+                return null;
+            }
+        }
+        synchronized (this) {
+            Entry existing = entries.get(userId);
+            if (existing != null) {
+                existing.lastAccessAt = now;
+                return existing;
+            }
+            loaded.lastAccessAt = now;
+            synchronized (loaded) {
+                loaded.retired = false;
+            }
+            entries.put(userId, loaded);
+            pendingWrites.remove(userId, loaded);
+            Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+            while (entries.size() > maxEntries && iterator.hasNext()) {
+                Map.Entry<Long, Entry> eldest = iterator.next();
+                iterator.remove();
+                retire(eldest.getKey(), eldest.getValue());
+            }
+            return loaded;
+        }
+    }
+
+    /**
+     * 移出内存的条目如有未保存的更新，转入待写队列
+     */
+    private void retire(Long userId, Entry entry) {
+        evictions.increment();
+        synchronized (entry) {
+            entry.retired = true;
+            if (entry.version != entry.savedVersion) {
+                pendingWrites.put(userId, entry);
+            }
+        }
+    }
+
+    /**
+     * 从数据库加载，没有档案时返回空条目，读取失败时返回null
+     */
+    private Entry load(Long userId) {
+        loads.increment();
+        PersonalityProfileBuilder builder = null;
+        try {
+            List<String> states = jdbcTemplate.queryForList(SELECT_SQL, String.class, userId);
+            if (!states.isEmpty()) {
+                builder = PersonalityProfileBuilder.fromState(
+                        objectMapper.readValue(states.get(0), new TypeReference<Map<String, Object>>() {}));
+            }
+        } catch (Exception e) {
+            // 不能用空档案代替：空条目刷写时会覆盖库中已学到的档案
+            loadFailures.increment();
+            logger.warn("读取个性化档案失败，本次不更新档案: userId={}, error={}", userId, e.getMessage());
+            return null;
+        }
+        Entry entry = new Entry(builder != null ? builder : new PersonalityProfileBuilder());
+        entry.refresh(userId);
+        return entry;
+    }
+
+    /**
+     * 由档案预先生成提示片段
+     */
+    static String promptHint(PersonalityProfile profile) {
+        if (profile == null) {
+            return null;
+        }
+        StringBuilder hint = new StringBuilder();
+        hint.append("用户的交流风格是：").append(profile.getCommunicationStyle()).append("\n");
+        if (profile.getConfidenceScore() != null && profile.getConfidenceScore() >= TRAIT_HINT_MIN_CONFIDENCE) {
+            hint.append("用户的性格类型倾向为").append(profile.getPersonalityType())
+                    .append("，突出特质是").append(traitName(profile.getDominantTrait())).append("\n");
+        }
+        hint.append("请根据用户的个性特点调整你的回应方式。\n");
+        return hint.toString();
+    }
+
+    private static String traitName(String trait) {
+        switch (trait) {
+            case PersonalityProfileBuilder.TRAIT_OPENNESS:
+                return "开放好奇";
+            case PersonalityProfileBuilder.TRAIT_CONSCIENTIOUSNESS:
+                return "认真严谨";
+            case PersonalityProfileBuilder.TRAIT_EXTROVERSION:
+                return "外向热情";
+            case PersonalityProfileBuilder.TRAIT_AGREEABLENESS:
+                return "友善随和";
+            default:
+                return "情绪敏感";
+        }
+    }
+
+    /**
+     * 缓存条目：构建器和由它生成的档案、提示片段，字段在条目锁内读写
+     */
+    private static final class Entry {
+
+        private final PersonalityProfileBuilder builder;
+        private PersonalityProfile profile;
+        private String promptHint;
+
+        // 每次更新加一，与已保存版本不同时需要写库
+        private long version;
+        private long savedVersion;
+
+        // 已移出内存，更新需要重新获取条目
+        private boolean retired;
+
+        // 在存储锁内读写
+        private long lastAccessAt;
+
+        Entry(PersonalityProfileBuilder builder) {
+            this.builder = builder;
+        }
+
+        void refresh(Long userId) {
+            profile = builder.build(userId);
+            promptHint = PersonalityProfileStore.promptHint(profile);
+        }
+    }
+}
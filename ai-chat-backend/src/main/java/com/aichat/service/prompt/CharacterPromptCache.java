@@ -0,0 +1,169 @@
+package com.aichat.service.prompt;
+
+import com.aichat.entity.ChatCharacter;
+import com.aichat.service.catalog.ChatCharacterCatalog;
+import com.aichat.service.catalog.ChatCharacterChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 角色提示词模板缓存
+ * 每个角色的提示词模板只编译一次：角色名、系统提示词、背景设定和性格在编译时折叠进静态前缀，
+ * 每轮对话只填充个性化提示和对话历史等动态插槽。内容相同的前缀共享同一实例。
+ * 角色创建、更新（CharacterServiceImpl.updateCharacter）、停用后收到变更事件即失效，
+ * 查询时角色的 updatedAt 与编译时不同也会重新编译。
+ */
+@Service
+public class CharacterPromptCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CharacterPromptCache.class);
+
+    // 编译时展开的插槽
+    public static final String SLOT_NAME = "name";
+    public static final String SLOT_SYSTEM_PROMPT = "system_prompt";
+    public static final String SLOT_BACKGROUND = "background";
+    public static final String SLOT_PERSONALITY = "personality";
+
+    // 请求时填充的插槽
+    public static final String SLOT_PERSONALIZATION = "personalization";
+    public static final String SLOT_HISTORY = "history";
+
+    private static final String DEFAULT_TEMPLATE =
+            "你是{{name}}，{{system_prompt}}\n"
+            + "{{#background}}背景设定：{{background}}\n{{/background}}"
+            + "{{#personality}}性格特点：{{personality}}\n{{/personality}}"
+            + "{{#personalization}}{{personalization}}{{/personalization}}"
+            + "{{#history}}最近的对话上下文：\n{{history}}{{/history}}";
+
+    @Autowired
+    private ChatCharacterCatalog characterCatalog;
+
+    // 为空时使用内置模板
+    @Value("${prompt.character-template:}")
+    private String configuredTemplate;
+
+    private String template;
+
+    private final Map<Long, CompiledPrompt> compiled = new ConcurrentHashMap<>();
+
+    // 按内容复用的静态前缀
+    private final Map<String, PromptPrefix> prefixes = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder compilations = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        template = configuredTemplate == null || configuredTemplate.isEmpty() ? DEFAULT_TEMPLATE : configuredTemplate;
+        // 启动时校验模板格式
+        PromptTemplate.compile(template, new HashMap<String, String>(), PromptPrefix::new);
+    }
+
+    /**
+     * 角色的系统提示词（只含静态部分），角色不在目录中时返回null
+     */
+    public String getSystemPrompt(Long characterId) {
+        if (characterId == null) {
+            return null;
+        }
+        return characterCatalog.getCharacter(characterId)
+                .map(character -> get(character).render(null))
+                .orElse(null);
+    }
+
+    /**
+     * 角色的已编译模板
+     */
+    public PromptTemplate get(ChatCharacter character) {
+        if (character.getId() == null) {
+            // 未保存的角色不缓存
+            return compile(character);
+        }
+        CompiledPrompt current = compiled.get(character.getId());
+        if (current != null && Objects.equals(current.updatedAt, character.getUpdatedAt())) {
+            hits.increment();
+            return current.template;
+        }
+        CompiledPrompt rebuilt = new CompiledPrompt(compile(character), character.getUpdatedAt());
+        if (compiled.put(character.getId(), rebuilt) != null) {
+            releaseUnusedPrefixes();
+        }
+        return rebuilt.template;
+    }
+
+    /**
+     * 角色变更事务提交后使对应模板失效，下次使用时重新编译
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCharacterChanged(ChatCharacterChangedEvent event) {
+        Long id = event.getCharacter().getId();
+        if (id != null && compiled.remove(id) != null) {
+            logger.debug("角色提示词模板已失效: characterId={}", id);
+            releaseUnusedPrefixes();
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("characters", compiled.size());
+        statistics.put("prefixes", prefixes.size());
+        statistics.put("hits", hits.sum());
+        statistics.put("compilations", compilations.sum());
+        return statistics;
+    }
+
+    private PromptTemplate compile(ChatCharacter character) {
+        compilations.increment();
+        Map<String, String> values = new HashMap<>();
+        values.put(SLOT_NAME, trim(character.getName()));
+        values.put(SLOT_SYSTEM_PROMPT, trim(character.getSystemPrompt()));
+        values.put(SLOT_BACKGROUND, trim(character.getBackgroundPrompt()));
+        values.put(SLOT_PERSONALITY, trim(character.getPersonality()));
+        return PromptTemplate.compile(template, values, this::intern);
+    }
+
+    private PromptPrefix intern(String text) {
+        PromptPrefix prefix = new PromptPrefix(text);
+        PromptPrefix existing = prefixes.putIfAbsent(prefix.getFingerprint(), prefix);
+        return existing != null ? existing : prefix;
+    }
+
+    /**
+     * 清理不再被任何角色使用的前缀，角色数量有限，直接全量比对
+     */
+    private void releaseUnusedPrefixes() {
+        Set<String> used = new HashSet<>();
+        for (CompiledPrompt prompt : compiled.values()) {
+            used.add(prompt.template.getPrefix().getFingerprint());
+        }
+        prefixes.keySet().removeIf(fingerprint -> !used.contains(fingerprint));
+    }
+
+    private static String trim(String value) {
+        return value != null ? value.trim() : "";
+    }
+
+    private static final class CompiledPrompt {
+        private final PromptTemplate template;
+        private final LocalDateTime updatedAt;
+
+        CompiledPrompt(PromptTemplate template, LocalDateTime updatedAt) {
+            this.template = template;
+            this.updatedAt = updatedAt;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.aichat.service.prompt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 预渲染的提示词静态前缀
+ * 文本在编译时固定，相同内容的前缀共享同一实例（见 CharacterPromptCache）。
+ * 渲染结果总是以该前缀开头，模型服务端的前缀缓存可以稳定命中。
+ */
+public final class PromptPrefix {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String text;
+    private final String fingerprint;
+
+    PromptPrefix(String text) {
+        this.text = text;
+        this.fingerprint = sha256(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * 前缀字节的SHA-256，内容相同则相同
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+                hex[i * 2 + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+}
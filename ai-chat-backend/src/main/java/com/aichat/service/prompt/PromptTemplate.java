@@ -0,0 +1,249 @@
+package com.aichat.service.prompt;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.Function;
+
+/**
+ * 编译后的提示词模板
+ * 语法：{{name}} 为插槽，{{#name}}...{{/name}} 为区块，值为空时整个区块不输出，区块可以嵌套。
+ * 编译时已知的值（角色名、系统提示词等）直接折叠为文本，开头连续的文本预渲染为静态前缀，
+ * 只剩下的动态插槽在每次请求时填充。渲染在池化的缓冲区中进行，没有动态内容时直接返回前缀字符串。
+ * 插入的值按原样输出，不会再被当作模板解析。
+ */
+public final class PromptTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    private static final int BUFFER_POOL_SIZE = 64;
+
+    // 超过该容量的缓冲区用完后不放回池中，避免长期占用大块内存
+    private static final int MAX_POOLED_CAPACITY = 32 * 1024;
+
+    private static final ArrayBlockingQueue<StringBuilder> BUFFERS = new ArrayBlockingQueue<>(BUFFER_POOL_SIZE);
+
+    private final PromptPrefix prefix;
+    private final Node[] dynamic;
+
+    private PromptTemplate(PromptPrefix prefix, Node[] dynamic) {
+        this.prefix = prefix;
+        this.dynamic = dynamic;
+    }
+
+    /**
+     * 编译模板
+     *
+     * @param template 模板文本
+     * @param staticValues 编译时已知的插槽值，对应的插槽和区块在编译时展开
+     * @param interner 静态前缀的复用方式，相同文本应返回同一实例
+     * @throws IllegalArgumentException 模板格式错误
+     */
+    public static PromptTemplate compile(String template, Map<String, String> staticValues,
+                                         Function<String, PromptPrefix> interner) {
+        List<Node> nodes = new ArrayList<>();
+        fold(parse(template), staticValues, nodes);
+
+        String prefixText = "";
+        int start = 0;
+        if (!nodes.isEmpty() && nodes.get(0) instanceof Literal) {
+            prefixText = ((Literal) nodes.get(0)).text;
+            start = 1;
+        }
+        List<Node> rest = nodes.subList(start, nodes.size());
+        return new PromptTemplate(interner.apply(prefixText), rest.toArray(new Node[0]));
+    }
+
+    public PromptPrefix getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * 填充动态插槽，值可以是 CharSequence 或 SlotWriter，缺失或为空的插槽不输出
+     */
+    public String render(Map<String, ?> values) {
+        if (dynamic.length == 0) {
+            return prefix.getText();
+        }
+        StringBuilder out = acquire();
+        try {
+            out.append(prefix.getText());
+            int prefixLength = out.length();
+            write(dynamic, values, out);
+            return out.length() == prefixLength ? prefix.getText() : out.toString();
+        } finally {
+            release(out);
+        }
+    }
+
+    /**
+     * 直接把内容写入渲染缓冲区的插槽值，用于对话历史等需要逐条拼接的内容
+     */
+    public interface SlotWriter {
+        void writeTo(StringBuilder out);
+    }
+
+    private static void write(Node[] nodes, Map<String, ?> values, StringBuilder out) {
+        for (Node node : nodes) {
+            if (node instanceof Literal) {
+                out.append(((Literal) node).text);
+            } else if (node instanceof Slot) {
+                Object value = values != null ? values.get(node.name) : null;
+                if (value instanceof SlotWriter) {
+                    ((SlotWriter) value).writeTo(out);
+                } else if (value != null) {
+                    out.append(value instanceof CharSequence ? (CharSequence) value : value.toString());
+                }
+            } else if (present(values != null ? values.get(node.name) : null)) {
+                write(((Section) node).children, values, out);
+            }
+        }
+    }
+
+    private static boolean present(Object value) {
+        if (value instanceof CharSequence) {
+            return ((CharSequence) value).length() > 0;
+        }
+        return value != null;
+    }
+
+    private static List<Node> parse(String template) {
+        Deque<Section> open = new ArrayDeque<>();
+        Deque<List<Node>> levels = new ArrayDeque<>();
+        levels.push(new ArrayList<>());
+
+        int position = 0;
+        while (position < template.length()) {
+            int tagStart = template.indexOf(OPEN, position);
+            if (tagStart < 0) {
+                levels.peek().add(new Literal(template.substring(position)));
+                break;
+            }
+            if (tagStart > position) {
+                levels.peek().add(new Literal(template.substring(position, tagStart)));
+            }
+            int tagEnd = template.indexOf(CLOSE, tagStart + OPEN.length());
+            if (tagEnd < 0) {
+                throw new IllegalArgumentException("提示词模板格式错误: 位置 " + tagStart + " 的标签未闭合");
+            }
+            String tag = template.substring(tagStart + OPEN.length(), tagEnd).trim();
+            if (tag.startsWith("#")) {
+                Section section = new Section(name(tag.substring(1), tagStart));
+                levels.peek().add(section);
+                open.push(section);
+                levels.push(new ArrayList<>());
+            } else if (tag.startsWith("/")) {
+                String name = name(tag.substring(1), tagStart);
+                if (open.isEmpty() || !open.peek().name.equals(name)) {
+                    throw new IllegalArgumentException("提示词模板格式错误: 多余的结束标签 {{/" + name + "}}");
+                }
+                open.pop().children = levels.pop().toArray(new Node[0]);
+            } else {
+                levels.peek().add(new Slot(name(tag, tagStart)));
+            }
+            position = tagEnd + CLOSE.length();
+        }
+
+        if (!open.isEmpty()) {
+            throw new IllegalArgumentException("提示词模板格式错误: 区块 {{#" + open.peek().name + "}} 未闭合");
+        }
+        return levels.pop();
+    }
+
+    private static String name(String name, int position) {
+        String trimmed = name.trim();
+        if (trimmed.isEmpty()) {
+            throw new IllegalArgumentException("提示词模板格式错误: 位置 " + position + " 的标签缺少名称");
+        }
+        return trimmed;
+    }
+
+    /**
+     * 展开编译时已知的插槽和区块，并合并相邻文本
+     */
+    private static void fold(List<Node> nodes, Map<String, String> staticValues, List<Node> out) {
+        for (Node node : nodes) {
+            if (node instanceof Literal) {
+                appendLiteral(out, ((Literal) node).text);
+            } else if (!staticValues.containsKey(node.name)) {
+                if (node instanceof Section) {
+                    List<Node> children = new ArrayList<>();
+                    fold(Arrays.asList(((Section) node).children), staticValues, children);
+                    Section section = new Section(node.name);
+                    section.children = children.toArray(new Node[0]);
+                    out.add(section);
+                } else {
+                    out.add(node);
+                }
+            } else if (node instanceof Slot) {
+                String value = staticValues.get(node.name);
+                appendLiteral(out, value != null ? value : "");
+            } else if (present(staticValues.get(node.name))) {
+                fold(Arrays.asList(((Section) node).children), staticValues, out);
+            }
+        }
+    }
+
+    private static void appendLiteral(List<Node> out, String text) {
+        if (text.isEmpty()) {
+            return;
+        }
+        int last = out.size() - 1;
+        if (last >= 0 && out.get(last) instanceof Literal) {
+            out.set(last, new Literal(((Literal) out.get(last)).text + text));
+        } else {
+            out.add(new Literal(text));
+        }
+    }
+
+    private static StringBuilder acquire() {
+        StringBuilder buffer = BUFFERS.poll();
+        if (buffer == null) {
+            return new StringBuilder(1024);
+        }
+        return buffer;
+    }
+
+    private static void release(StringBuilder buffer) {
+        if (buffer.capacity() <= MAX_POOLED_CAPACITY) {
+            buffer.setLength(0);
+            BUFFERS.offer(buffer);
+        }
+    }
+
+    private abstract static class Node {
+        final String name;
+
+        Node(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class Literal extends Node {
+        final String text;
+
+        Literal(String text) {
+            super(null);
+            this.text = text;
+        }
+    }
+
+    private static final class Slot extends Node {
+        Slot(String name) {
+            super(name);
+        }
+    }
+
+    private static final class Section extends Node {
+        Node[] children = new Node[0];
+
+        Section(String name) {
+            super(name);
+        }
+    }
+}
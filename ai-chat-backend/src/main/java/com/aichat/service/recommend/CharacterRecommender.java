@@ -0,0 +1,140 @@
+package com.aichat.service.recommend;
+
+import com.aichat.entity.ChatCharacter;
+import com.aichat.service.catalog.ChatCharacterCatalog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 角色推荐引擎
+ * 后台定期从对话历史聚合 用户×角色 交互，构建物品-物品共现模型并为每个用户预计算推荐列表；
+ * 请求时只读取当前模型（一次volatile读 + 哈希查找），新用户或推荐不足时用近期热门角色补齐。
+ */
+@Component
+public class CharacterRecommender {
+
+    private static final Logger logger = LoggerFactory.getLogger(CharacterRecommender.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ChatCharacterCatalog characterCatalog;
+
+    @Value("${recommendation.lookback-days:180}")
+    private int lookbackDays;
+
+    @Value("${recommendation.half-life-days:30}")
+    private double halfLifeDays;
+
+    @Value("${recommendation.trending-half-life-days:3}")
+    private double trendingHalfLifeDays;
+
+    @Value("${recommendation.max-neighbors:50}")
+    private int maxNeighbors;
+
+    @Value("${recommendation.top-n:20}")
+    private int topN;
+
+    @Value("${recommendation.tag-weight:0.3}")
+    private double tagWeight;
+
+    @Value("${recommendation.trending-weight:0.05}")
+    private double trendingWeight;
+
+    private volatile RecommendationModel model = RecommendationModel.empty();
+
+    /**
+     * 为用户推荐角色：预计算的个性化结果优先，不足部分依次用近期热门和最新角色补齐
+     */
+    public List<ChatCharacter> recommend(Long userId, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        RecommendationModel current = model;
+        Map<Long, ChatCharacter> result = new LinkedHashMap<>();
+        if (userId != null) {
+            long[] personalized = current.recommendationsFor(userId);
+            if (personalized != null) {
+                collect(personalized, limit, result);
+            }
+        }
+        collect(current.getTrending(), limit, result);
+        if (result.size() < limit) {
+            for (ChatCharacter character : characterCatalog.getLatestCharacters(limit)) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.putIfAbsent(character.getId(), character);
+            }
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    /**
+     * 近期热门角色（冷启动推荐）
+     */
+    public List<ChatCharacter> getTrendingCharacters(int limit) {
+        return recommend(null, limit);
+    }
+
+    /**
+     * 当前模型状态
+     */
+    public Map<String, Object> getModelStatus() {
+        RecommendationModel current = model;
+        Map<String, Object> status = new HashMap<>();
+        status.put("characters", current.getItemCount());
+        status.put("users", current.getUserCount());
+        status.put("similarityPairs", current.getPairCount());
+        status.put("builtAt", current.getBuiltAt());
+        return status;
+    }
+
+    /**
+     * 后台重建推荐模型，构建完成后整体替换
+     */
+    @Scheduled(fixedDelayString = "${recommendation.refresh-interval-ms:600000}",
+               initialDelayString = "${recommendation.initial-delay-ms:30000}")
+    public synchronized void refresh() {
+        long start = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        List<ChatCharacter> characters = characterCatalog.getActiveCharacters();
+        RecommendationModel.Builder builder = new RecommendationModel.Builder(characters);
+
+        List<Object[]> rows = entityManager.createQuery(
+            "SELECT h.userId, h.characterId, COUNT(h), MAX(h.timestamp) FROM ConversationHistory h " +
+            "WHERE h.timestamp >= :since GROUP BY h.userId, h.characterId", Object[].class
+        ).setParameter("since", now.minusDays(lookbackDays)).getResultList();
+        for (Object[] row : rows) {
+            LocalDateTime lastAt = (LocalDateTime) row[3];
+            double ageDays = lastAt != null ? Duration.between(lastAt, now).toMinutes() / 1440.0 : lookbackDays;
+            builder.add(((Number) row[0]).longValue(), ((Number) row[1]).longValue(), ((Number) row[2]).longValue(),
+                    ageDays, halfLifeDays, trendingHalfLifeDays);
+        }
+
+        RecommendationModel rebuilt = builder.build(maxNeighbors, topN, tagWeight, trendingWeight);
+        model = rebuilt;
+        logger.info("角色推荐模型已重建: {} 个角色, {} 个用户, {} 条交互, 耗时 {}ms",
+                rebuilt.getItemCount(), rebuilt.getUserCount(), rows.size(), System.currentTimeMillis() - start);
+    }
+
+    private void collect(long[] ids, int limit, Map<Long, ChatCharacter> result) {
+        for (int i = 0; i < ids.length && result.size() < limit; i++) {
+            if (!result.containsKey(ids[i])) {
+                // 模型构建后被停用的角色在目录中已不存在，直接跳过
+                characterCatalog.getCharacter(ids[i]).ifPresent(c -> result.put(c.getId(), c));
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.aichat.service.recommend;
+
+import com.aichat.entity.ChatCharacter;
+import com.aichat.service.catalog.TagIndex;
+
+import java.util.*;
+
+/**
+ * 不可变的角色推荐模型
+ * 角色和用户都映射为稠密下标，交互矩阵、物品-物品共现相似度均以CSR形式存放在基本类型数组中；
+ * 构建时为每个用户预先计算好前N个推荐角色，请求时只做一次哈希查找。
+ */
+final class RecommendationModel {
+
+    // 衰减到该值以下的交互视为无效，保证参与计算的权重都为正
+    private static final float MIN_WEIGHT = 1e-6f;
+
+    private static final RecommendationModel EMPTY = new Builder(Collections.<ChatCharacter>emptyList()).build(0, 0, 0, 0);
+
+    // 下标 -> 角色ID
+    private final long[] itemIds;
+    // 物品-物品相似度（CSR）
+    private final int[] neighborOffsets;
+    private final int[] neighbors;
+    private final float[] similarities;
+    // 按近期热度降序的角色ID
+    private final long[] trending;
+    // 用户ID -> 预计算推荐角色ID
+    private final Map<Long, long[]> userRecommendations;
+    private final long builtAt = System.currentTimeMillis();
+
+    private RecommendationModel(long[] itemIds, int[] neighborOffsets, int[] neighbors, float[] similarities,
+                                long[] trending, Map<Long, long[]> userRecommendations) {
+        this.itemIds = itemIds;
+        this.neighborOffsets = neighborOffsets;
+        this.neighbors = neighbors;
+        this.similarities = similarities;
+        this.trending = trending;
+        this.userRecommendations = userRecommendations;
+    }
+
+    static RecommendationModel empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 用户的预计算推荐，冷启动用户返回null
+     */
+    long[] recommendationsFor(Long userId) {
+        return userRecommendations.get(userId);
+    }
+
+    long[] getTrending() {
+        return trending;
+    }
+
+    int getItemCount() {
+        return itemIds.length;
+    }
+
+    int getUserCount() {
+        return userRecommendations.size();
+    }
+
+    int getPairCount() {
+        return neighbors.length;
+    }
+
+    long getBuiltAt() {
+        return builtAt;
+    }
+
+    /**
+     * 模型构建器
+     * 依次添加 (用户, 角色, 对话次数, 距今天数) 聚合后的交互记录，再一次性构建
+     */
+    static final class Builder {
+
+        private final long[] itemIds;
+        private final Map<Long, Integer> itemIndex = new HashMap<>();
+        private final TagIndex tags;
+
+        private final Map<Long, Integer> userIndex = new HashMap<>();
+        private final List<Long> userIds = new ArrayList<>();
+
+        // 交互三元组，按添加顺序存放
+        private int[] interactionUsers = new int[64];
+        private int[] interactionItems = new int[64];
+        private float[] interactionWeights = new float[64];
+        private final float[] itemHeat;
+        private int interactionCount;
+
+        Builder(List<ChatCharacter> characters) {
+            this.itemIds = new long[characters.size()];
+            this.itemHeat = new float[characters.size()];
+            TagIndex.Builder tagBuilder = new TagIndex.Builder(characters.size());
+            for (int i = 0; i < characters.size(); i++) {
+                ChatCharacter character = characters.get(i);
+                itemIds[i] = character.getId();
+                itemIndex.put(character.getId(), i);
+                tagBuilder.add(i, character.getSkills());
+            }
+            this.tags = tagBuilder.build();
+        }
+
+        /**
+         * 添加一条聚合交互：权重随对话次数对数增长、随时间指数衰减；
+         * 热度使用更短的半衰期单独累计，作为冷启动兜底
+         */
+        Builder add(long userId, long characterId, long count, double ageDays,
+                    double halfLifeDays, double trendingHalfLifeDays) {
+            Integer item = itemIndex.get(characterId);
+            if (item == null || count <= 0) {
+                return this;
+            }
+            double age = Math.max(0, ageDays);
+            double strength = Math.log1p(count);
+            float weight = (float) (strength * Math.pow(0.5, age / halfLifeDays));
+            if (weight < MIN_WEIGHT) {
+                return this;
+            }
+            Integer user = userIndex.get(userId);
+            if (user == null) {
+                user = userIds.size();
+                userIndex.put(userId, user);
+                userIds.add(userId);
+            }
+
+            if (interactionCount == interactionUsers.length) {
+                int capacity = interactionCount * 2;
+                interactionUsers = Arrays.copyOf(interactionUsers, capacity);
+                interactionItems = Arrays.copyOf(interactionItems, capacity);
+                interactionWeights = Arrays.copyOf(interactionWeights, capacity);
+            }
+            interactionUsers[interactionCount] = user;
+            interactionItems[interactionCount] = item;
+            interactionWeights[interactionCount] = weight;
+            interactionCount++;
+            itemHeat[item] += (float) (strength * Math.pow(0.5, age / trendingHalfLifeDays));
+            return this;
+        }
+
+        /**
+         * @param maxNeighbors  每个角色保留的相似角色数
+         * @param topN          每个用户预计算的推荐数
+         * @param tagWeight     技能标签重合度的融合权重
+         * @param trendingWeight 近期热度的融合权重
+         */
+        RecommendationModel build(int maxNeighbors, int topN, double tagWeight, double trendingWeight) {
+            int itemCount = itemIds.length;
+            int userCount = userIds.size();
+
+            // 用户 -> 角色（CSR）
+            int[] userOffsets = new int[userCount + 1];
+            int[] itemOffsets = new int[itemCount + 1];
+            for (int k = 0; k < interactionCount; k++) {
+                userOffsets[interactionUsers[k] + 1]++;
+                itemOffsets[interactionItems[k] + 1]++;
+            }
+            for (int u = 0; u < userCount; u++) {
+                userOffsets[u + 1] += userOffsets[u];
+            }
+            for (int i = 0; i < itemCount; i++) {
+                itemOffsets[i + 1] += itemOffsets[i];
+            }
+            int[] userItems = new int[interactionCount];
+            float[] userWeights = new float[interactionCount];
+            int[] itemUsers = new int[interactionCount];
+            float[] itemWeights = new float[interactionCount];
+            int[] userCursor = Arrays.copyOf(userOffsets, userCount);
+            int[] itemCursor = Arrays.copyOf(itemOffsets, itemCount);
+            float[] norms = new float[itemCount];
+            for (int k = 0; k < interactionCount; k++) {
+                int u = interactionUsers[k];
+                int i = interactionItems[k];
+                float w = interactionWeights[k];
+                userItems[userCursor[u]] = i;
+                userWeights[userCursor[u]++] = w;
+                itemUsers[itemCursor[i]] = u;
+                itemWeights[itemCursor[i]++] = w;
+                norms[i] += w * w;
+            }
+            for (int i = 0; i < itemCount; i++) {
+                norms[i] = (float) Math.sqrt(norms[i]);
+            }
+
+            // 物品-物品余弦相似度，每个角色只保留前maxNeighbors个
+            int[] neighborOffsets = new int[itemCount + 1];
+            int[] neighborList = new int[Math.max(0, itemCount * Math.min(maxNeighbors, Math.max(0, itemCount - 1)))];
+            float[] similarityList = new float[neighborList.length];
+            float[] scratch = new float[itemCount];
+            int[] touched = new int[itemCount];
+            int pairCount = 0;
+            for (int i = 0; i < itemCount; i++) {
+                int touchedCount = 0;
+                for (int a = itemOffsets[i]; a < itemOffsets[i + 1]; a++) {
+                    int u = itemUsers[a];
+                    float wi = itemWeights[a];
+                    for (int b = userOffsets[u]; b < userOffsets[u + 1]; b++) {
+                        int j = userItems[b];
+                        if (j == i) {
+                            continue;
+                        }
+                        if (scratch[j] == 0) {
+                            touched[touchedCount++] = j;
+                        }
+                        scratch[j] += wi * userWeights[b];
+                    }
+                }
+                for (int t = 0; t < touchedCount; t++) {
+                    int j = touched[t];
+                    scratch[j] = scratch[j] / (norms[i] * norms[j]);
+                }
+                int kept = selectTop(touched, touchedCount, scratch, maxNeighbors);
+                for (int t = 0; t < kept; t++) {
+                    neighborList[pairCount] = touched[t];
+                    similarityList[pairCount++] = scratch[touched[t]];
+                }
+                for (int t = 0; t < touchedCount; t++) {
+                    scratch[touched[t]] = 0;
+                }
+                neighborOffsets[i + 1] = pairCount;
+            }
+            int[] neighbors = Arrays.copyOf(neighborList, pairCount);
+            float[] similarities = Arrays.copyOf(similarityList, pairCount);
+
+            // 近期热度排序
+            float maxHeat = 0;
+            int[] trendingOrder = new int[itemCount];
+            for (int i = 0; i < itemCount; i++) {
+                trendingOrder[i] = i;
+                maxHeat = Math.max(maxHeat, itemHeat[i]);
+            }
+            int trendingCount = selectTop(trendingOrder, itemCount, itemHeat, itemCount);
+            long[] trending = new long[trendingCount];
+            for (int t = 0; t < trendingCount; t++) {
+                trending[t] = itemIds[trendingOrder[t]];
+            }
+
+            // 预计算每个用户的前N推荐：协同过滤得分 + 标签重合度 + 热度先验，排除已对话过的角色
+            Map<Long, long[]> recommendations = new HashMap<>(userCount * 2);
+            boolean[] seen = new boolean[itemCount];
+            float[] tagAffinity = new float[tags.getTags().size()];
+            for (int u = 0; u < userCount; u++) {
+                int touchedCount = 0;
+                float profileWeight = 0;
+                for (int b = userOffsets[u]; b < userOffsets[u + 1]; b++) {
+                    seen[userItems[b]] = true;
+                }
+                for (int b = userOffsets[u]; b < userOffsets[u + 1]; b++) {
+                    int i = userItems[b];
+                    float w = userWeights[b];
+                    profileWeight += w;
+                    for (String tag : tags.tagsOf(i)) {
+                        tagAffinity[tags.tagId(tag)] += w;
+                    }
+                    for (int n = neighborOffsets[i]; n < neighborOffsets[i + 1]; n++) {
+                        int j = neighbors[n];
+                        if (seen[j]) {
+                            continue;
+                        }
+                        if (scratch[j] == 0) {
+                            touched[touchedCount++] = j;
+                        }
+                        scratch[j] += w * similarities[n];
+                    }
+                }
+
+                // 只为与用户画像有共同技能标签的角色追加标签得分
+                if (tagWeight > 0 && profileWeight > 0) {
+                    for (int tagId = 0; tagId < tagAffinity.length; tagId++) {
+                        if (tagAffinity[tagId] == 0) {
+                            continue;
+                        }
+                        BitSet matched = tags.match(tags.getTags().get(tagId));
+                        for (int j = matched.nextSetBit(0); j >= 0; j = matched.nextSetBit(j + 1)) {
+                            if (seen[j]) {
+                                continue;
+                            }
+                            int tagCount = Math.max(1, tags.tagsOf(j).size());
+                            if (scratch[j] == 0) {
+                                touched[touchedCount++] = j;
+                            }
+                            scratch[j] += (float) (tagWeight * tagAffinity[tagId] / profileWeight / tagCount);
+                        }
+                    }
+                }
+                if (trendingWeight > 0 && maxHeat > 0) {
+                    for (int t = 0; t < touchedCount; t++) {
+                        int j = touched[t];
+                        scratch[j] += (float) (trendingWeight * itemHeat[j] / maxHeat);
+                    }
+                }
+
+                int kept = selectTop(touched, touchedCount, scratch, topN);
+                long[] ids = new long[kept];
+                for (int t = 0; t < kept; t++) {
+                    ids[t] = itemIds[touched[t]];
+                }
+                recommendations.put(userIds.get(u), ids);
+
+                for (int t = 0; t < touchedCount; t++) {
+                    scratch[touched[t]] = 0;
+                }
+                for (int b = userOffsets[u]; b < userOffsets[u + 1]; b++) {
+                    seen[userItems[b]] = false;
+                }
+                Arrays.fill(tagAffinity, 0);
+            }
+
+            return new RecommendationModel(itemIds, neighborOffsets, neighbors, similarities,
+                    trending, Collections.unmodifiableMap(recommendations));
+        }
+
+        /**
+         * 把candidates前count个元素中得分最高的limit个（得分大于0）按得分降序移到数组头部，返回保留个数
+         */
+        private static int selectTop(int[] candidates, int count, float[] scores, int limit) {
+            Integer[] boxed = new Integer[count];
+            int positive = 0;
+            for (int t = 0; t < count; t++) {
+                if (scores[candidates[t]] > 0) {
+                    boxed[positive++] = candidates[t];
+                }
+            }
+            Arrays.sort(boxed, 0, positive, (a, b) -> {
+                int cmp = Float.compare(scores[b], scores[a]);
+                return cmp != 0 ? cmp : Integer.compare(a, b);
+            });
+            int kept = Math.min(positive, Math.max(0, limit));
+            for (int t = 0; t < kept; t++) {
+                candidates[t] = boxed[t];
+            }
+            return kept;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.aichat.service.speech;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * STT前的音频预处理
+ * 对WAV/PCM录音做混音为单声道、重采样到16kHz、基于能量的首尾静音裁剪，
+ * 并在静音处把长录音切成多段，各段可并行转写后按顺序拼接。
+ * 整个过程按固定大小的窗口流式进行：第一遍只解码并记录每帧能量，确定裁剪和切分位置；
+ * 各分段在上传时才从原始音频重新解码、重采样并边读边编码，堆内存占用与录音长度无关。
+ * 压缩格式（mp3、m4a等）不在此处理，原样交给上游。
+ */
+@Component
+public class AudioPreprocessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AudioPreprocessor.class);
+
+    private static final int FRAME_MILLIS = 20;
+
+    // 第一遍扫描时每次读取的采样数
+    private static final int WINDOW_SAMPLES = 8192;
+
+    @Value("${speech.preprocess.enabled:true}")
+    private boolean enabled;
+
+    @Value("${speech.preprocess.target-sample-rate:16000}")
+    private int targetSampleRate;
+
+    @Value("${speech.preprocess.vad-threshold-db:-45}")
+    private double vadThresholdDb;
+
+    @Value("${speech.preprocess.vad-padding-ms:200}")
+    private int vadPaddingMillis;
+
+    @Value("${speech.preprocess.chunk-seconds:60}")
+    private int chunkSeconds;
+
+    @Value("${speech.preprocess.chunk-search-seconds:5}")
+    private int chunkSearchSeconds;
+
+    @Value("${speech.preprocess.pcm-sample-rate:16000}")
+    private int pcmSampleRate;
+
+    @Value("${speech.preprocess.pcm-channels:1}")
+    private int pcmChannels;
+
+    /**
+     * 是否由本预处理器处理该文件
+     */
+    public boolean supports(String filename) {
+        String name = filename != null ? filename.toLowerCase(Locale.ROOT) : "";
+        return name.endsWith(".pcm") || (enabled && name.endsWith(".wav"));
+    }
+
+    /**
+     * 预处理音频，返回按时间顺序排列的16位单声道WAV分段；
+     * WAV编码不受支持时返回null，由调用方原样上传。
+     * 分段在读取时才从audio重新解码，audio需要可以多次打开，并在分段上传完成前保持有效
+     *
+     * @throws IllegalArgumentException 录音中未检测到语音时抛出
+     */
+    public List<Resource> prepare(Resource audio) throws IOException {
+        String filename = audio.getFilename() != null ? audio.getFilename() : "voice.wav";
+        boolean rawPcm = filename.toLowerCase(Locale.ROOT).endsWith(".pcm");
+
+        long start = System.nanoTime();
+        Resampler resampler;
+        long total = 0;
+        double[] energy = new double[256];
+        int frames = 0;
+        try (InputStream in = audio.getInputStream()) {
+            WavCodec.SampleReader reader = open(in, rawPcm);
+            if (reader == null) {
+                logger.debug("不支持的WAV编码，跳过预处理: {}", filename);
+                return null;
+            }
+            resampler = Resampler.of(reader.getSampleRate(), enabled ? targetSampleRate : reader.getSampleRate());
+            WavCodec.SampleSource samples = resampler.open(reader, 0);
+
+            int frameSize = frameSize(resampler.getToRate());
+            float[] window = new float[WINDOW_SAMPLES];
+            double frameSum = 0;
+            int frameFill = 0;
+            int read;
+            while ((read = samples.read(window, 0, window.length)) > 0) {
+                total += read;
+                if (!enabled) {
+                    continue;
+                }
+                for (int i = 0; i < read; i++) {
+                    frameSum += window[i] * window[i];
+                    if (++frameFill == frameSize) {
+                        if (frames == energy.length) {
+                            energy = Arrays.copyOf(energy, energy.length * 2);
+                        }
+                        energy[frames++] = 20 * Math.log10(Math.max(Math.sqrt(frameSum / frameSize), 1e-9));
+                        frameSum = 0;
+                        frameFill = 0;
+                    }
+                }
+            }
+        }
+        if (total > Integer.MAX_VALUE / 2 - WavCodec.HEADER_BYTES) {
+            throw new IllegalArgumentException("音频时长超出限制");
+        }
+        int sampleRate = resampler.getToRate();
+        energy = Arrays.copyOf(energy, frames);
+
+        int from = 0;
+        int to = (int) total;
+        if (enabled) {
+            int[] voiced = detectSpeech(energy, to, sampleRate);
+            if (voiced == null) {
+                throw new IllegalArgumentException("音频中未检测到语音");
+            }
+            from = voiced[0];
+            to = voiced[1];
+        }
+
+        List<int[]> ranges = enabled ? splitAtSilence(energy, from, to, sampleRate) : singleRange(from, to);
+        String baseName = filename.contains(".") ? filename.substring(0, filename.lastIndexOf('.')) : filename;
+        List<Resource> chunks = new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            int[] range = ranges.get(i);
+            chunks.add(new AudioRangeResource(audio, rawPcm, resampler, range[0], range[1],
+                    ranges.size() == 1 ? baseName + ".wav" : baseName + "-part" + i + ".wav"));
+        }
+
+        logger.debug("音频预处理完成: {}, 原始{}Hz/{}秒, 裁剪后{}秒, 分段{}, 耗时{}ms", filename,
+                resampler.getFromRate(), String.format("%.2f", (double) total / sampleRate),
+                String.format("%.2f", (double) (to - from) / sampleRate), chunks.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        return chunks;
+    }
+
+    /**
+     * 把已经切好的单声道语音段重采样并编码为WAV，供实时语音流直接转写
+     */
+    public Resource toWav(float[] samples, int sampleRate, String filename) {
+        float[] resampled = Resampler.of(sampleRate, targetSampleRate).resample(samples);
+        return new NamedAudioResource(WavCodec.encodeWav(resampled, 0, resampled.length, targetSampleRate), filename);
+    }
+
+    private WavCodec.SampleReader open(InputStream in, boolean rawPcm) throws IOException {
+        return rawPcm ? WavCodec.openPcm16(in, pcmSampleRate, pcmChannels) : WavCodec.openWav(in);
+    }
+
+    /**
+     * 基于帧能量的语音检测，返回含前后留白的语音区间 [起点, 终点)，全为静音时返回null
+     * 阈值取配置的绝对阈值与估计底噪+10dB中的较大者，自适应部分不超过-30dBFS，避免整段都是语音时误裁
+     *
+     * @param energy 每帧（20ms）能量，单位dBFS
+     * @param length 采样总数
+     */
+    int[] detectSpeech(double[] energy, int length, int sampleRate) {
+        if (energy.length == 0) {
+            return null;
+        }
+        double threshold = Math.max(vadThresholdDb, Math.min(noiseFloorDb(energy) + 10, -30));
+
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < energy.length; i++) {
+            if (energy[i] > threshold) {
+                if (first < 0) {
+                    first = i;
+                }
+                last = i;
+            }
+        }
+        if (first < 0) {
+            return null;
+        }
+
+        int frameSize = frameSize(sampleRate);
+        int padding = vadPaddingMillis * sampleRate / 1000;
+        int from = Math.max(0, first * frameSize - padding);
+        int to = (int) Math.min(length, (long) (last + 1) * frameSize + padding);
+        return new int[]{from, to};
+    }
+
+    /**
+     * 把超过分段时长的区间切开，每个切点在目标位置附近的能量最低帧中点，避免切断词语
+     */
+    List<int[]> splitAtSilence(double[] energy, int from, int to, int sampleRate) {
+        long chunkSamples = (long) chunkSeconds * sampleRate;
+        if (chunkSeconds <= 0 || to - from <= chunkSamples) {
+            return singleRange(from, to);
+        }
+
+        int frameSize = frameSize(sampleRate);
+        int searchSamples = chunkSearchSeconds * sampleRate;
+        List<int[]> ranges = new ArrayList<>();
+        int start = from;
+        while (to - start > chunkSamples) {
+            int target = (int) (start + chunkSamples);
+            int searchFrom = Math.max(start + (int) (chunkSamples / 2), target - searchSamples);
+            int cut = target;
+            double quietest = Double.MAX_VALUE;
+            for (int frame = (searchFrom + frameSize - 1) / frameSize;
+                 frame < energy.length && (frame + 1) * frameSize <= target; frame++) {
+                if (energy[frame] < quietest) {
+                    quietest = energy[frame];
+                    cut = frame * frameSize + frameSize / 2;
+                }
+            }
+            ranges.add(new int[]{start, cut});
+            start = cut;
+        }
+        ranges.add(new int[]{start, to});
+        return ranges;
+    }
+
+    private static List<int[]> singleRange(int from, int to) {
+        List<int[]> ranges = new ArrayList<>(1);
+        ranges.add(new int[]{from, to});
+        return ranges;
+    }
+
+    /**
+     * 取帧能量的第10百分位作为底噪估计
+     */
+    private static double noiseFloorDb(double[] energy) {
+        double[] sorted = energy.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 10];
+    }
+
+    private static int frameSize(int sampleRate) {
+        return Math.max(1, sampleRate * FRAME_MILLIS / 1000);
+    }
+
+    /**
+     * 原始音频中的一段，读取时从头解码、跳到起点，再边重采样边编码为WAV，长度预先确定
+     */
+    private final class AudioRangeResource extends AbstractResource {
+
+        private final Resource source;
+        private final boolean rawPcm;
+        private final Resampler resampler;
+        private final int from;
+        private final int to;
+        private final String filename;
+
+        AudioRangeResource(Resource source, boolean rawPcm, Resampler resampler, int from, int to, String filename) {
+            this.source = source;
+            this.rawPcm = rawPcm;
+            this.resampler = resampler;
+            this.from = from;
+            this.to = to;
+            this.filename = filename;
+        }
+
+        @Override
+        public String getFilename() {
+            return filename;
+        }
+
+        @Override
+        public String getDescription() {
+            return "preprocessed audio [" + filename + "]";
+        }
+
+        @Override
+        public long contentLength() {
+            return WavCodec.HEADER_BYTES + 2L * (to - from);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            InputStream in = source.getInputStream();
+            try {
+                WavCodec.SampleReader reader = open(in, rawPcm);
+                if (reader == null) {
+                    throw new IOException("无法重新读取音频: " + source.getDescription());
+                }
+                return WavCodec.encodingStream(resampler.open(reader, from), to - from, in);
+            } catch (IOException | RuntimeException e) {
+                in.close();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 带文件名的内存音频资源，multipart上传需要文件名
+     */
+    private static final class NamedAudioResource extends ByteArrayResource {
+
+        private final String filename;
+
+        NamedAudioResource(byte[] data, String filename) {
+            super(data, "preprocessed audio [" + filename + "]");
+            this.filename = filename;
+        }
+
+        @Override
+        public String getFilename() {
+            return filename;
+        }
+    }
+}
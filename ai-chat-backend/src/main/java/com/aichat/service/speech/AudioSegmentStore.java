@@ -0,0 +1,432 @@
+package com.aichat.service.speech;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 磁盘音频分段存储
+ * 音频按追加方式写入固定大小、内存映射的分段文件，记录格式为
+ * [键长度][键][数据长度][数据]，键长度最后写入作为提交标记，启动时顺序扫描分段重建索引。
+ * 分段总数超过上限时淘汰最久未访问的整个分段；读取直接从映射内存复制，
+ * 对外输出通过 FileChannel.transferTo 完成，不经过映射内存。
+ * 被淘汰的分段先从索引摘除，正在 transferTo 的分段由引用计数保护，最后一个传输结束时才关闭、解除映射并删除；
+ * 映射在淘汰时显式解除，不等GC回收，地址空间和文件句柄不会随淘汰累积。
+ */
+final class AudioSegmentStore implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AudioSegmentStore.class);
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Entry> index = new HashMap<>();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    // 已淘汰但仍在使用、尚未删除的分段
+    private final List<Segment> retired = new ArrayList<>();
+    private Segment active;
+    private long storedBytes;
+    // 关闭后映射已解除，不再读写
+    private boolean closed;
+
+    AudioSegmentStore(Path directory, int segmentBytes, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = Math.max(2, maxSegments);
+        Files.createDirectories(directory);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    int id = Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                    Segment segment = new Segment(id, file, segmentBytes);
+                    segment.lastAccess = Files.getLastModifiedTime(file).toMillis();
+                    segments.put(id, segment);
+                } catch (NumberFormatException e) {
+                    logger.warn("忽略无法识别的音频缓存文件: {}", file);
+                }
+            }
+        }
+        for (Segment segment : segments.values()) {
+            segment.scan(index);
+        }
+        for (Entry entry : index.values()) {
+            storedBytes += entry.length;
+        }
+        active = segments.isEmpty() ? createSegment(0) : segments.lastEntry().getValue();
+        logger.info("TTS磁盘缓存已加载: 目录={}, 分段={}, 条目={}", directory, segments.size(), index.size());
+    }
+
+    /**
+     * 读取音频，未命中返回null
+     */
+    byte[] get(String key) {
+        lock.readLock().lock();
+        try {
+            Entry entry = index.get(key);
+            if (entry == null) {
+                return null;
+            }
+            entry.segment.lastAccess = System.currentTimeMillis();
+            return entry.segment.read(entry.offset, entry.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 通过 FileChannel.transferTo 把音频写到目标通道，传输期间不持有锁，
+     * 分段被引用计数固定，淘汰时等传输结束再关闭；整个存储已关闭时返回false
+     */
+    boolean transferTo(String key, WritableByteChannel target) throws IOException {
+        Entry entry;
+        lock.readLock().lock();
+        try {
+            entry = index.get(key);
+            if (entry == null) {
+                return false;
+            }
+            entry.segment.lastAccess = System.currentTimeMillis();
+            entry.segment.pins.incrementAndGet();
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            long position = entry.offset;
+            long end = entry.offset + entry.length;
+            while (position < end) {
+                position += entry.segment.channel.transferTo(position, end - position, target);
+            }
+            return true;
+        } catch (ClosedChannelException e) {
+            return false;
+        } finally {
+            entry.segment.unpin();
+        }
+    }
+
+    /**
+     * 音频的字节数，未命中返回-1
+     */
+    int length(String key) {
+        lock.readLock().lock();
+        try {
+            Entry entry = index.get(key);
+            return entry != null ? entry.length : -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 追加音频，超过单个分段容量的数据不写入磁盘；返回该键此时是否在存储中
+     */
+    boolean put(String key, byte[] data) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int recordBytes = HEADER_BYTES + keyBytes.length + data.length;
+        if (recordBytes > segmentBytes) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            if (index.containsKey(key)) {
+                return true;
+            }
+            if (active.remaining() < recordBytes) {
+                if (segments.size() >= maxSegments) {
+                    evictLeastRecentlyUsed();
+                }
+                active = createSegment(segments.lastKey() + 1);
+            }
+            int offset = active.append(keyBytes, data);
+            index.put(key, new Entry(active, offset, data.length));
+            storedBytes += data.length;
+            return true;
+        } catch (IOException e) {
+            logger.warn("写入TTS磁盘缓存失败: {}", e.getMessage());
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long getStoredBytes() {
+        lock.readLock().lock();
+        try {
+            return storedBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            index.clear();
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+            segments.clear();
+            for (Segment segment : retired) {
+                segment.destroy();
+            }
+            retired.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        Segment segment = new Segment(id, directory.resolve(String.format("%08d%s", id, SEGMENT_SUFFIX)), segmentBytes);
+        segment.lastAccess = System.currentTimeMillis();
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private void evictLeastRecentlyUsed() {
+        retired.removeIf(Segment::isDestroyed);
+
+        Segment victim = null;
+        for (Segment segment : segments.values()) {
+            if (segment != active && (victim == null || segment.lastAccess < victim.lastAccess)) {
+                victim = segment;
+            }
+        }
+        if (victim == null) {
+            return;
+        }
+        Iterator<Entry> entries = index.values().iterator();
+        while (entries.hasNext()) {
+            Entry entry = entries.next();
+            if (entry.segment == victim) {
+                storedBytes -= entry.length;
+                entries.remove();
+            }
+        }
+        segments.remove(victim.id);
+        victim.retired = true;
+        if (!victim.release()) {
+            // 仍在传输，由最后一个传输结束时删除
+            retired.add(victim);
+        }
+        logger.debug("淘汰TTS缓存分段: {}", victim.path);
+    }
+
+    private static final class Entry {
+
+        final Segment segment;
+        final int offset;
+        final int length;
+
+        Entry(Segment segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * 固定大小的内存映射分段文件
+     */
+    private static final class Segment {
+
+        final int id;
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int writePosition;
+        volatile long lastAccess;
+
+        // 正在 transferTo 的次数
+        final AtomicInteger pins = new AtomicInteger();
+        // 已从索引摘除，不再产生新的引用
+        volatile boolean retired;
+        private final AtomicBoolean destroyed = new AtomicBoolean();
+
+        Segment(int id, Path path, int size) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        int remaining() {
+            return buffer.capacity() - writePosition;
+        }
+
+        /**
+         * 写入一条记录，返回数据的起始偏移
+         */
+        int append(byte[] key, byte[] data) {
+            int start = writePosition;
+            ByteBuffer target = buffer.duplicate();
+            target.position(start + 4);
+            target.put(key);
+            target.putInt(data.length);
+            int dataOffset = target.position();
+            target.put(data);
+            // 最后写入键长度，使记录在写完之前对扫描不可见
+            buffer.putInt(start, key.length);
+            writePosition = target.position();
+            return dataOffset;
+        }
+
+        byte[] read(int offset, int length) {
+            byte[] data = new byte[length];
+            ByteBuffer source = buffer.duplicate();
+            source.position(offset);
+            source.get(data);
+            return data;
+        }
+
+        /**
+         * 顺序扫描已提交的记录，遇到键长度为0或记录不完整时停止
+         */
+        void scan(Map<String, Entry> index) {
+            ByteBuffer source = buffer.duplicate();
+            int position = 0;
+            while (position + HEADER_BYTES <= source.capacity()) {
+                int keyLength = source.getInt(position);
+                if (keyLength <= 0 || position + HEADER_BYTES + keyLength > source.capacity()) {
+                    break;
+                }
+                byte[] key = new byte[keyLength];
+                source.position(position + 4);
+                source.get(key);
+                int dataLength = source.getInt();
+                int dataOffset = source.position();
+                if (dataLength < 0 || dataOffset + dataLength > source.capacity()) {
+                    break;
+                }
+                index.put(new String(key, StandardCharsets.UTF_8), new Entry(this, dataOffset, dataLength));
+                position = dataOffset + dataLength;
+            }
+            writePosition = position;
+        }
+
+        void unpin() {
+            if (pins.decrementAndGet() == 0 && retired) {
+                release();
+            }
+        }
+
+        /**
+         * 没有进行中的传输时关闭并删除，返回分段是否已删除
+         * 已摘除的分段不会再被固定，pins归零后不会再增加
+         */
+        boolean release() {
+            if (pins.get() > 0) {
+                return false;
+            }
+            destroy();
+            return true;
+        }
+
+        boolean isDestroyed() {
+            return destroyed.get();
+        }
+
+        void destroy() {
+            if (!destroyed.compareAndSet(false, true)) {
+                return;
+            }
+            close();
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.warn("删除TTS缓存分段失败: {}", path);
+            }
+        }
+
+        /**
+         * 刷盘、解除映射并关闭文件，调用方保证此后没有对映射内存的读写
+         */
+        void close() {
+            try {
+                buffer.force();
+                unmap(buffer);
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("关闭TTS缓存分段失败: {}", path);
+            }
+        }
+    }
+
+    /**
+     * 显式解除内存映射：Java 9+ 使用 Unsafe.invokeCleaner，Java 8 调用缓冲区的Cleaner；
+     * 两者都不可用时留给GC回收
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        } catch (NoSuchMethodException e) {
+            // Java 8，走下面的Cleaner
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("解除TTS缓存分段映射失败，留给GC回收: {}", e.toString());
+            return;
+        }
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("解除TTS缓存分段映射失败，留给GC回收: {}", e.toString());
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.aichat.service.speech;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 加窗sinc插值重采样，降采样时按目标奈奎斯特频率截止以避免混叠
+ * 采样率之比为有理数，插值相位只有有限个，按相位预先计算好归一化的滤波器系数；
+ * 系数不可变，同一组采样率的多路流可以共享。流式处理时只保留滤波器窗口附近的输入采样。
+ */
+final class Resampler {
+
+    private static final int SINC_HALF_WIDTH = 8;
+    private static final int MAX_PHASES = 1024;
+
+    // 每次从上游读取的采样数
+    private static final int BLOCK_SAMPLES = 4096;
+
+    private final int fromRate;
+    private final int toRate;
+    private final int up;
+    private final int down;
+    private final int halfWidth;
+    private final int taps;
+    private final float[][] filters;
+
+    private Resampler(int fromRate, int toRate) {
+        this.fromRate = fromRate;
+        this.toRate = toRate;
+        int divisor = gcd(fromRate, toRate);
+        int up = toRate / divisor;
+        int down = fromRate / divisor;
+        if (up > MAX_PHASES) {
+            // 相位过多时把比例近似为 MAX_PHASES 为分母的分数，速率误差可忽略
+            down = (int) Math.round((double) down * MAX_PHASES / up);
+            up = MAX_PHASES;
+        }
+        this.up = up;
+        this.down = down;
+        if (fromRate == toRate) {
+            this.halfWidth = 0;
+            this.taps = 0;
+            this.filters = new float[0][];
+            return;
+        }
+
+        double cutoff = Math.min(1.0, (double) up / down);
+        this.halfWidth = (int) Math.ceil(SINC_HALF_WIDTH / cutoff);
+        this.taps = 2 * halfWidth;
+        this.filters = new float[up][taps];
+        for (int phase = 0; phase < up; phase++) {
+            double fraction = (double) phase / up;
+            double weightSum = 0;
+            double[] weights = new double[taps];
+            for (int t = 0; t < taps; t++) {
+                double distance = fraction - (t - halfWidth + 1);
+                double x = distance * cutoff;
+                double sinc = x == 0 ? 1.0 : Math.sin(Math.PI * x) / (Math.PI * x);
+                // Blackman窗
+                double ratio = (distance + halfWidth) / taps;
+                double window = 0.42 - 0.5 * Math.cos(2 * Math.PI * ratio) + 0.08 * Math.cos(4 * Math.PI * ratio);
+                weights[t] = sinc * window;
+                weightSum += weights[t];
+            }
+            for (int t = 0; t < taps; t++) {
+                filters[phase][t] = (float) (weights[t] / weightSum);
+            }
+        }
+    }
+
+    /**
+     * 采样率相同时不计算滤波器，直接透传
+     */
+    static Resampler of(int fromRate, int toRate) {
+        if (!validRate(fromRate) || !validRate(toRate)) {
+            throw new IllegalArgumentException("无效的采样率: " + fromRate + " -> " + toRate);
+        }
+        return new Resampler(fromRate, toRate);
+    }
+
+    int getFromRate() {
+        return fromRate;
+    }
+
+    int getToRate() {
+        return toRate;
+    }
+
+    /**
+     * 输入inputLength个采样时的输出采样数
+     */
+    long outputLength(long inputLength) {
+        return fromRate == toRate ? inputLength : inputLength * up / down;
+    }
+
+    /**
+     * 对内存中的采样整体重采样
+     */
+    float[] resample(float[] input) {
+        if (fromRate == toRate || input.length == 0) {
+            return input;
+        }
+        try {
+            WavCodec.SampleSource output = open(new ArraySource(input, fromRate), 0);
+            float[] result = new float[(int) outputLength(input.length)];
+            int count = 0;
+            int read;
+            while (count < result.length && (read = output.read(result, count, result.length - count)) > 0) {
+                count += read;
+            }
+            return result;
+        } catch (IOException e) {
+            // 内存数据源不会抛出IO异常
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 流式重采样，从第startOutput个输出采样开始，之前用不到的输入直接跳过
+     */
+    WavCodec.SampleSource open(WavCodec.SampleSource input, long startOutput) throws IOException {
+        if (fromRate == toRate) {
+            input.skip(startOutput);
+            return input;
+        }
+        return new Stream(input, startOutput);
+    }
+
+    private static boolean validRate(int rate) {
+        return rate >= WavCodec.MIN_SAMPLE_RATE && rate <= WavCodec.MAX_SAMPLE_RATE;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * 流式重采样：第n个输出以 n * down / up 为中心，取前后各halfWidth个输入加权求和，
+     * 超出输入范围的位置按0处理，与整体重采样的结果逐点一致
+     */
+    private final class Stream implements WavCodec.SampleSource {
+
+        private final WavCodec.SampleSource input;
+
+        // history[0] 对应的输入采样下标
+        private long base;
+        private float[] history = new float[taps + BLOCK_SAMPLES];
+        private int size;
+        private boolean ended;
+
+        // 下一个输出采样的下标
+        private long next;
+
+        Stream(WavCodec.SampleSource input, long startOutput) throws IOException {
+            this.input = input;
+            this.next = startOutput;
+            long first = startOutput * down / up - halfWidth + 1;
+            if (first > 0) {
+                base = input.skip(first);
+                ended = base < first;
+            }
+        }
+
+        @Override
+        public int getSampleRate() {
+            return toRate;
+        }
+
+        @Override
+        public int read(float[] buffer, int offset, int length) throws IOException {
+            int count = 0;
+            while (count < length) {
+                long position = next * down;
+                long first = position / up - halfWidth + 1;
+                if (!ended && first + taps > base + size) {
+                    fill(first);
+                    continue;
+                }
+                if (ended && next >= outputLength(base + size)) {
+                    break;
+                }
+                float[] filter = filters[(int) (position % up)];
+                float sum = 0f;
+                for (int t = 0; t < taps; t++) {
+                    long k = first + t - base;
+                    if (k >= 0 && k < size) {
+                        sum += history[(int) k] * filter[t];
+                    }
+                }
+                buffer[offset + count++] = sum;
+                next++;
+            }
+            return count == 0 && length > 0 ? -1 : count;
+        }
+
+        @Override
+        public long skip(long samples) throws IOException {
+            float[] discard = new float[BLOCK_SAMPLES];
+            long skipped = 0;
+            while (skipped < samples) {
+                int read = read(discard, 0, (int) Math.min(discard.length, samples - skipped));
+                if (read < 0) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        /**
+         * 丢弃first之前不再需要的输入，再从上游读入一块
+         */
+        private void fill(long first) throws IOException {
+            int drop = (int) Math.max(0, Math.min(size, first - base));
+            if (drop > 0) {
+                System.arraycopy(history, drop, history, 0, size - drop);
+                size -= drop;
+                base += drop;
+            }
+            if (history.length - size < BLOCK_SAMPLES) {
+                history = Arrays.copyOf(history, size + BLOCK_SAMPLES);
+            }
+            int read = input.read(history, size, BLOCK_SAMPLES);
+            if (read < 0) {
+                ended = true;
+            } else {
+                size += read;
+            }
+        }
+    }
+
+    /**
+     * 内存中的采样
+     */
+    private static final class ArraySource implements WavCodec.SampleSource {
+
+        private final float[] samples;
+        private final int sampleRate;
+        private int position;
+
+        ArraySource(float[] samples, int sampleRate) {
+            this.samples = samples;
+            this.sampleRate = sampleRate;
+        }
+
+        @Override
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        @Override
+        public int read(float[] buffer, int offset, int length) {
+            if (position >= samples.length) {
+                return length > 0 ? -1 : 0;
+            }
+            int count = Math.min(length, samples.length - position);
+            System.arraycopy(samples, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public long skip(long count) {
+            int skipped = (int) Math.min(count, samples.length - position);
+            position += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.aichat.service.speech;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 句子切分器
+ * 把LLM逐token输出的增量文本按句末标点切分成适合单次TTS的句子：
+ * 过短的句子与下一句合并，超长且没有句末标点的文本在逗号等停顿处强制切分。
+ * 有状态，每个流使用一个实例。
+ */
+public final class SentenceSegmenter {
+
+    // 句末标点
+    private static final String TERMINATORS = "。！？!?；;…\n";
+    // 紧跟句末标点、应归入当前句的闭合符号
+    private static final String CLOSERS = "”’\"'」』）)】》";
+    // 超长时优先切分的停顿标点
+    private static final String SOFT_BREAKS = "，,、：: ";
+
+    private final int minLength;
+    private final int maxLength;
+    private final StringBuilder buffer = new StringBuilder();
+    private int scanned;
+
+    public SentenceSegmenter(int minLength, int maxLength) {
+        this.minLength = Math.max(1, minLength);
+        this.maxLength = Math.max(this.minLength + 1, maxLength);
+    }
+
+    /**
+     * 按句子切分token流，流结束时输出剩余文本
+     */
+    public static Flux<String> split(Flux<String> tokens, int minLength, int maxLength) {
+        return Flux.defer(() -> {
+            SentenceSegmenter segmenter = new SentenceSegmenter(minLength, maxLength);
+            return tokens.concatMapIterable(segmenter::append)
+                    .concatWith(Mono.fromSupplier(segmenter::flush).filter(sentence -> !sentence.isEmpty()));
+        });
+    }
+
+    /**
+     * 追加增量文本，返回本次凑齐的完整句子
+     */
+    public List<String> append(String delta) {
+        List<String> sentences = new ArrayList<>(2);
+        if (delta == null || delta.isEmpty()) {
+            return sentences;
+        }
+        buffer.append(delta);
+
+        int i = scanned;
+        while (i < buffer.length()) {
+            int end = boundaryAt(i);
+            if (end < 0) {
+                // 边界后还没有后续字符，等待更多输入再判断
+                break;
+            }
+            if (end > 0 && textLength(end) >= minLength) {
+                emit(end, sentences);
+                i = 0;
+                continue;
+            }
+            i = end > 0 ? end : i + 1;
+        }
+        scanned = i;
+
+        while (buffer.length() >= maxLength) {
+            emit(softBreak(), sentences);
+            scanned = 0;
+        }
+        return sentences;
+    }
+
+    /**
+     * 取出剩余的全部文本
+     */
+    public String flush() {
+        String rest = buffer.toString().trim();
+        buffer.setLength(0);
+        scanned = 0;
+        return rest;
+    }
+
+    /**
+     * 判断位置i是否为句子边界：是则返回句子结束位置（不含），否返回0，无法判断返回-1
+     */
+    private int boundaryAt(int i) {
+        char c = buffer.charAt(i);
+        if (TERMINATORS.indexOf(c) >= 0) {
+            int end = i + 1;
+            while (end < buffer.length()
+                    && (TERMINATORS.indexOf(buffer.charAt(end)) >= 0 || CLOSERS.indexOf(buffer.charAt(end)) >= 0)) {
+                end++;
+            }
+            // 标点位于末尾时后面可能还有闭合引号，等待下一段输入
+            return end < buffer.length() ? end : -1;
+        }
+        if (c == '.') {
+            if (i + 1 >= buffer.length()) {
+                return -1;
+            }
+            // 只有后面跟空白的句点才是句末，排除小数和缩写中的点
+            return Character.isWhitespace(buffer.charAt(i + 1)) ? i + 1 : 0;
+        }
+        return 0;
+    }
+
+    private int softBreak() {
+        for (int i = maxLength - 1; i >= minLength; i--) {
+            if (SOFT_BREAKS.indexOf(buffer.charAt(i)) >= 0) {
+                return i + 1;
+            }
+        }
+        return maxLength;
+    }
+
+    private int textLength(int end) {
+        int length = 0;
+        for (int i = 0; i < end; i++) {
+            if (!Character.isWhitespace(buffer.charAt(i))) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    private void emit(int end, List<String> sentences) {
+        String sentence = buffer.substring(0, end).trim();
+        buffer.delete(0, end);
+        if (!sentence.isEmpty()) {
+            sentences.add(sentence);
+        }
+    }
+}
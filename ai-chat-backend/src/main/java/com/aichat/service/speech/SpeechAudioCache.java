@@ -0,0 +1,247 @@
+package com.aichat.service.speech;
+
+import com.aichat.service.jfr.FlightRecorderEvents;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TTS音频内容寻址缓存
+ * 以 (文本, 模型, 解析后的音色和语速) 的SHA-256作为键，内存层按字节数限制做LRU，
+ * 磁盘层使用内存映射分段文件（见 AudioSegmentStore），命中时完全跳过上游TTS调用。
+ */
+@Component
+public class SpeechAudioCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpeechAudioCache.class);
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final String JFR_CACHE_NAME = "tts";
+
+    @Value("${speech.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${speech.cache.memory-max-bytes:33554432}")
+    private long memoryMaxBytes;
+
+    @Value("${speech.cache.memory-max-entry-bytes:1048576}")
+    private int memoryMaxEntryBytes;
+
+    @Value("${speech.cache.disk-dir:${java.io.tmpdir}/aichat-tts-cache}")
+    private String diskDir;
+
+    @Value("${speech.cache.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    @Value("${speech.cache.max-segments:16}")
+    private int maxSegments;
+
+    // 访问顺序的LinkedHashMap，头部为最久未访问
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(256, 0.75f, true);
+    private long memoryBytes;
+
+    private AudioSegmentStore diskStore;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            diskStore = new AudioSegmentStore(Paths.get(diskDir), segmentBytes, maxSegments);
+        } catch (IOException e) {
+            logger.warn("TTS磁盘缓存初始化失败，仅使用内存缓存: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (diskStore != null) {
+            diskStore.close();
+        }
+    }
+
+    /**
+     * 计算缓存键，只由文本、模型和解析后的语音参数决定
+     */
+    public static String key(String text, VoiceProfile profile, String model) {
+        String source = model + '\u0000' + profile.canonical() + '\u0000' + text.trim();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+                hex[i * 2 + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+
+    /**
+     * 查询缓存，依次查内存层和磁盘层，磁盘命中后提升到内存层；未命中返回null
+     */
+    public byte[] get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        FlightRecorderEvents.CacheLookup event = FlightRecorderEvents.cacheLookup();
+        byte[] audio;
+        synchronized (memory) {
+            audio = memory.get(key);
+        }
+        if (audio != null) {
+            memoryHits.increment();
+            event.record(JFR_CACHE_NAME, "memory");
+            return audio;
+        }
+        if (diskStore != null) {
+            audio = diskStore.get(key);
+            if (audio != null) {
+                diskHits.increment();
+                putMemory(key, audio);
+                event.record(JFR_CACHE_NAME, "disk");
+                return audio;
+            }
+        }
+        misses.increment();
+        event.record(JFR_CACHE_NAME, "miss");
+        return null;
+    }
+
+    /**
+     * 写入缓存（内存层和磁盘层），返回是否至少写入了一层、可以按键读取；
+     * 缓存未开启或音频超出两层的单条上限时返回false
+     */
+    public boolean put(String key, byte[] audio) {
+        if (!enabled || audio == null || audio.length == 0) {
+            return false;
+        }
+        boolean stored = putMemory(key, audio);
+        if (diskStore != null) {
+            stored |= diskStore.put(key, audio);
+        }
+        return stored;
+    }
+
+    /**
+     * 缓存音频的字节数，未命中返回-1，不计入命中统计
+     */
+    public int getLength(String key) {
+        if (!enabled) {
+            return -1;
+        }
+        synchronized (memory) {
+            byte[] audio = memory.get(key);
+            if (audio != null) {
+                return audio.length;
+            }
+        }
+        return diskStore != null ? diskStore.length(key) : -1;
+    }
+
+    /**
+     * 把缓存的音频写到目标通道：磁盘层走 FileChannel.transferTo，内存层直接写出；未命中返回false
+     */
+    public boolean transferTo(String key, WritableByteChannel target) throws IOException {
+        if (!enabled) {
+            return false;
+        }
+        byte[] audio;
+        synchronized (memory) {
+            audio = memory.get(key);
+        }
+        if (audio != null) {
+            memoryHits.increment();
+            ByteBuffer buffer = ByteBuffer.wrap(audio);
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            return true;
+        }
+        if (diskStore != null && diskStore.transferTo(key, target)) {
+            diskHits.increment();
+            return true;
+        }
+        misses.increment();
+        return false;
+    }
+
+    /**
+     * 累计命中次数（内存与磁盘）
+     */
+    public long getHitCount() {
+        return memoryHits.sum() + diskHits.sum();
+    }
+
+    /**
+     * 累计未命中次数
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 缓存统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        long memoryHitCount = memoryHits.sum();
+        long diskHitCount = diskHits.sum();
+        long missCount = misses.sum();
+        long total = memoryHitCount + diskHitCount + missCount;
+        statistics.put("enabled", enabled);
+        statistics.put("memoryHits", memoryHitCount);
+        statistics.put("diskHits", diskHitCount);
+        statistics.put("misses", missCount);
+        statistics.put("hitRatio", total > 0 ? (double) (memoryHitCount + diskHitCount) / total : 0.0);
+        synchronized (memory) {
+            statistics.put("memoryEntries", memory.size());
+            statistics.put("memoryBytes", memoryBytes);
+        }
+        if (diskStore != null) {
+            statistics.put("diskEntries", diskStore.size());
+            statistics.put("diskBytes", diskStore.getStoredBytes());
+            statistics.put("diskSegments", diskStore.getSegmentCount());
+        }
+        return statistics;
+    }
+
+    private boolean putMemory(String key, byte[] audio) {
+        if (audio.length > memoryMaxEntryBytes) {
+            return false;
+        }
+        synchronized (memory) {
+            byte[] previous = memory.put(key, audio);
+            memoryBytes += audio.length - (previous != null ? previous.length : 0);
+            Iterator<Map.Entry<String, byte[]>> eldest = memory.entrySet().iterator();
+            while (memoryBytes > memoryMaxBytes && eldest.hasNext()) {
+                memoryBytes -= eldest.next().getValue().length;
+                eldest.remove();
+            }
+            return memory.containsKey(key);
+        }
+    }
+}
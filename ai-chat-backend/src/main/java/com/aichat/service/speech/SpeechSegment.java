@@ -0,0 +1,30 @@
+package com.aichat.service.speech;
+
+/**
+ * 流式合成的一段语音
+ * 对应回复中的一个句子，index从0开始按文本顺序递增
+ */
+public class SpeechSegment {
+
+    private final int index;
+    private final String text;
+    private final byte[] audio;
+
+    public SpeechSegment(int index, String text, byte[] audio) {
+        this.index = index;
+        this.text = text;
+        this.audio = audio;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public byte[] getAudio() {
+        return audio;
+    }
+}
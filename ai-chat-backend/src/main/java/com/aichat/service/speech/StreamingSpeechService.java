@@ -0,0 +1,46 @@
+package com.aichat.service.speech;
+
+import com.aichat.service.OpenAISpeechService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+/**
+ * 流式语音合成服务
+ * 将LLM的token流切分为句子，按句并发请求TTS（限制并发数），再按句子顺序输出音频，
+ * 使首段音频只需等待第一句的生成和合成时间，而不是整段回复。
+ */
+@Service
+public class StreamingSpeechService {
+
+    @Autowired
+    private OpenAISpeechService speechService;
+
+    @Value("${speech.stream.parallelism:3}")
+    private int parallelism;
+
+    @Value("${speech.stream.min-sentence-length:4}")
+    private int minSentenceLength;
+
+    @Value("${speech.stream.max-sentence-length:120}")
+    private int maxSentenceLength;
+
+    /**
+     * 把token流合成为有序的语音片段流
+     */
+    public Flux<SpeechSegment> synthesize(Flux<String> tokens, String emotion) {
+        return synthesize(tokens, null, emotion);
+    }
+
+    /**
+     * 按角色语音配置把token流合成为有序的语音片段流，characterId为聊天角色（chat_characters）ID
+     */
+    public Flux<SpeechSegment> synthesize(Flux<String> tokens, Long characterId, String emotion) {
+        return SentenceSegmenter.split(tokens, minSentenceLength, maxSentenceLength)
+                .index()
+                .flatMapSequential(sentence -> speechService.synthesizeAsync(sentence.getT2(), characterId, emotion)
+                        .map(audio -> new SpeechSegment(sentence.getT1().intValue(), sentence.getT2(), audio)),
+                        parallelism, 1);
+    }
+}
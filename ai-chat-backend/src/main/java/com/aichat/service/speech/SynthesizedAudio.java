@@ -0,0 +1,31 @@
+package com.aichat.service.speech;
+
+/**
+ * 一次语音合成的结果
+ * key 为音频在 SpeechAudioCache 中的内容寻址键；cached 为false表示缓存未开启或音频超出缓存容量，
+ * 不能再按键下载，需要直接使用 audio。
+ */
+public final class SynthesizedAudio {
+
+    private final String key;
+    private final byte[] audio;
+    private final boolean cached;
+
+    public SynthesizedAudio(String key, byte[] audio, boolean cached) {
+        this.key = key;
+        this.audio = audio;
+        this.cached = cached;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public byte[] getAudio() {
+        return audio;
+    }
+
+    public boolean isCached() {
+        return cached;
+    }
+}
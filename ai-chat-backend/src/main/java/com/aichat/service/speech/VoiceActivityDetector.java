@@ -0,0 +1,187 @@
+package com.aichat.service.speech;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * 增量式语音活动检测与切段
+ * 逐块接收16位小端PCM（块边界可以落在采样中间），按20ms帧计算能量，
+ * 连续若干帧高于阈值判定开口，静音持续超过挂起时长判定一句结束，
+ * 每句带上开口前的预录音频一起回调；超长的句子按最大时长强制切开。
+ * 阈值取绝对阈值与自适应底噪+10dB中的较大者，底噪只在非语音帧上更新。
+ * 非线程安全，每个语音流使用一个实例。
+ */
+public final class VoiceActivityDetector {
+
+    private static final int FRAME_MILLIS = 20;
+
+    /**
+     * 检测回调
+     */
+    public interface Listener {
+
+        /**
+         * 检测到开口
+         */
+        void onSpeechStart();
+
+        /**
+         * 一句语音结束，samples为单声道浮点采样
+         */
+        void onSegment(float[] samples, int sampleRate);
+    }
+
+    private final int sampleRate;
+    private final int channels;
+    private final double thresholdDb;
+    private final int startFrames;
+    private final int hangoverFrames;
+    private final int preRollFrames;
+    private final int maxSegmentFrames;
+    private final int frameSize;
+    private final int frameBytes;
+
+    private final byte[] carry;
+    private int carryLength;
+
+    private final ArrayDeque<float[]> preRoll = new ArrayDeque<>();
+    private float[] segment;
+    private int segmentLength;
+    private int segmentFrames;
+    private boolean speaking;
+    private int voicedRun;
+    private int silentRun;
+    private double noiseFloorDb = -60;
+
+    public VoiceActivityDetector(int sampleRate, int channels, double thresholdDb, int startMillis,
+                                 int hangoverMillis, int preRollMillis, int maxSegmentMillis) {
+        if (sampleRate < WavCodec.MIN_SAMPLE_RATE || sampleRate > WavCodec.MAX_SAMPLE_RATE
+                || channels <= 0 || channels > WavCodec.MAX_CHANNELS) {
+            throw new IllegalArgumentException("无效的音频参数: sampleRate=" + sampleRate + ", channels=" + channels);
+        }
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.thresholdDb = thresholdDb;
+        this.startFrames = Math.max(1, startMillis / FRAME_MILLIS);
+        this.hangoverFrames = Math.max(1, hangoverMillis / FRAME_MILLIS);
+        this.preRollFrames = Math.max(0, preRollMillis / FRAME_MILLIS);
+        this.maxSegmentFrames = Math.max(startFrames + 1, maxSegmentMillis / FRAME_MILLIS);
+        this.frameSize = Math.max(1, sampleRate * FRAME_MILLIS / 1000);
+        this.frameBytes = frameSize * channels * 2;
+        this.carry = new byte[frameBytes];
+        this.segment = new float[frameSize * 50];
+    }
+
+    /**
+     * 输入一块PCM数据
+     */
+    public void feed(ByteBuffer pcm, Listener listener) {
+        ByteBuffer input = pcm.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        // 先补齐上一块遗留的不完整帧
+        if (carryLength > 0) {
+            int needed = Math.min(frameBytes - carryLength, input.remaining());
+            input.get(carry, carryLength, needed);
+            carryLength += needed;
+            if (carryLength < frameBytes) {
+                return;
+            }
+            processFrame(ByteBuffer.wrap(carry).order(ByteOrder.LITTLE_ENDIAN), listener);
+            carryLength = 0;
+        }
+        while (input.remaining() >= frameBytes) {
+            processFrame(input, listener);
+        }
+        carryLength = input.remaining();
+        input.get(carry, 0, carryLength);
+    }
+
+    /**
+     * 结束输入或客户端主动提交：正在说话时立即输出当前句子
+     */
+    public void flush(Listener listener) {
+        carryLength = 0;
+        if (speaking) {
+            emitSegment(listener);
+        }
+        speaking = false;
+        voicedRun = 0;
+        silentRun = 0;
+    }
+
+    public boolean isSpeaking() {
+        return speaking;
+    }
+
+    private void processFrame(ByteBuffer input, Listener listener) {
+        float[] frame = new float[frameSize];
+        double sum = 0;
+        for (int i = 0; i < frameSize; i++) {
+            float mixed = 0;
+            for (int c = 0; c < channels; c++) {
+                mixed += input.getShort() / 32768f;
+            }
+            mixed /= channels;
+            frame[i] = mixed;
+            sum += mixed * mixed;
+        }
+        double energyDb = 20 * Math.log10(Math.max(Math.sqrt(sum / frameSize), 1e-9));
+        double threshold = Math.max(thresholdDb, Math.min(noiseFloorDb + 10, -30));
+        boolean voiced = energyDb > threshold;
+
+        if (!speaking) {
+            // 底噪按指数滑动平均缓慢跟随非语音帧
+            if (!voiced) {
+                noiseFloorDb = noiseFloorDb * 0.95 + energyDb * 0.05;
+            }
+            preRoll.addLast(frame);
+            if (preRoll.size() > preRollFrames + startFrames) {
+                preRoll.removeFirst();
+            }
+            voicedRun = voiced ? voicedRun + 1 : 0;
+            if (voicedRun >= startFrames) {
+                speaking = true;
+                silentRun = 0;
+                for (float[] buffered : preRoll) {
+                    append(buffered);
+                }
+                preRoll.clear();
+                listener.onSpeechStart();
+            }
+            return;
+        }
+
+        append(frame);
+        silentRun = voiced ? 0 : silentRun + 1;
+        if (silentRun >= hangoverFrames) {
+            emitSegment(listener);
+            speaking = false;
+            voicedRun = 0;
+        } else if (segmentFrames >= maxSegmentFrames) {
+            // 超长句子强制切开，继续保持说话状态
+            emitSegment(listener);
+        }
+    }
+
+    private void append(float[] frame) {
+        if (segmentLength + frame.length > segment.length) {
+            segment = Arrays.copyOf(segment, Math.max(segment.length * 2, segmentLength + frame.length));
+        }
+        System.arraycopy(frame, 0, segment, segmentLength, frame.length);
+        segmentLength += frame.length;
+        segmentFrames++;
+    }
+
+    private void emitSegment(Listener listener) {
+        // 去掉挂起期间的大部分尾部静音，保留少量留白
+        int trailing = Math.max(0, Math.min(silentRun, segmentFrames) - preRollFrames) * frameSize;
+        float[] samples = Arrays.copyOf(segment, segmentLength - trailing);
+        segmentLength = 0;
+        segmentFrames = 0;
+        silentRun = 0;
+        if (samples.length > 0) {
+            listener.onSegment(samples, sampleRate);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.aichat.service.speech;
+
+import java.util.Locale;
+
+/**
+ * 解析后的不可变语音参数
+ * 语速按两位小数规整并限制在上游支持的范围内，保证相同参数得到相同的缓存键。
+ */
+public final class VoiceProfile {
+
+    static final double MIN_SPEED = 0.25;
+    static final double MAX_SPEED = 4.0;
+
+    private final String voice;
+    private final double speed;
+    private final double pitch;
+
+    public VoiceProfile(String voice, double speed, double pitch) {
+        this.voice = voice;
+        this.speed = round(Math.max(MIN_SPEED, Math.min(MAX_SPEED, speed)));
+        this.pitch = round(pitch);
+    }
+
+    public String getVoice() {
+        return voice;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * 音调，上游TTS暂不支持，仅作为角色配置保留
+     */
+    public double getPitch() {
+        return pitch;
+    }
+
+    /**
+     * 参与缓存键计算的规范化表示
+     */
+    String canonical() {
+        return voice + '|' + String.format(Locale.ROOT, "%.2f", speed);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    @Override
+    public String toString() {
+        return "VoiceProfile{voice=" + voice + ", speed=" + speed + ", pitch=" + pitch + "}";
+    }
+}
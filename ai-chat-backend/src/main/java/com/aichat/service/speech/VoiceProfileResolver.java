@@ -0,0 +1,200 @@
+package com.aichat.service.speech;
+
+import com.aichat.entity.AICharacter;
+import com.aichat.entity.ChatCharacter;
+import com.aichat.service.catalog.AICharacterCatalog;
+import com.aichat.service.catalog.ChatCharacterCatalog;
+import com.aichat.service.catalog.ChatCharacterChangedEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 语音参数解析器
+ * 调用方（聊天、流式语音、WebSocket实时语音）传入的是聊天角色（chat_characters）ID，
+ * 聊天角色本身没有语音配置，按名称对应到同名的AI角色（ai_characters，名称唯一）读取其 voiceConfig。
+ * 每个角色的 voiceConfig JSON 只解析一次得到基础参数，再与情绪修正合并，
+ * 按 (聊天角色, 情绪) 缓存结果，同时供TTS请求和音频缓存键使用。
+ * 对应的配置原文变化（AI角色更新、聊天角色改名，或目录定期重建）后自动重新解析。
+ */
+@Component
+public class VoiceProfileResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(VoiceProfileResolver.class);
+
+    private static final String NO_EMOTION = "";
+
+    // 情绪修正：建议音色，以及叠加在角色基础语速、音调上的倍率
+    private static final Map<String, EmotionModifier> EMOTION_MODIFIERS;
+    static {
+        Map<String, EmotionModifier> map = new HashMap<>();
+        map.put("HAPPY", new EmotionModifier("alloy", 1.2, 1.1));      // 快语速，高音调
+        map.put("EXCITED", new EmotionModifier("nova", 1.3, 1.2));     // 更快语速，更高音调
+        map.put("CALM", new EmotionModifier("echo", 0.8, 0.9));        // 慢语速，低音调
+        map.put("SAD", new EmotionModifier("fable", 0.7, 0.8));        // 很慢语速，很低音调
+        map.put("ANGRY", new EmotionModifier("onyx", 1.1, 0.9));       // 中等语速，低音调
+        map.put("SURPRISED", new EmotionModifier("shimmer", 1.2, 1.1)); // 快语速，高音调
+        map.put("THOUGHTFUL", new EmotionModifier("echo", 0.9, 0.95));   // 慢语速，中等音调
+        EMOTION_MODIFIERS = Collections.unmodifiableMap(map);
+    }
+
+    @Autowired
+    private ChatCharacterCatalog chatCharacterCatalog;
+
+    @Autowired
+    private AICharacterCatalog characterCatalog;
+
+    @Value("${api.openai.tts-voice:alloy}")
+    private String defaultVoice;
+
+    @Value("${speech.voice.supported-voices:alloy,ash,ballad,coral,echo,fable,onyx,nova,sage,shimmer,verse}")
+    private String[] supportedVoices;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Set<String> supportedVoiceSet;
+
+    // 聊天角色ID到已解析配置的映射
+    private final Map<Long, CharacterVoice> characterVoices = new ConcurrentHashMap<>();
+
+    // 不指定角色时按情绪缓存
+    private final Map<String, VoiceProfile> defaultProfiles = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        supportedVoiceSet = new HashSet<>(Arrays.asList(supportedVoices));
+    }
+
+    /**
+     * 解析语音参数
+     *
+     * @param characterId 聊天角色（chat_characters）ID；为null、角色不存在或没有同名AI角色时只按情绪决定
+     */
+    public VoiceProfile resolve(Long characterId, String emotion) {
+        // 未知情绪按无情绪处理，避免任意输入撑大缓存
+        String emotionKey = emotion != null ? emotion.toUpperCase(Locale.ROOT) : NO_EMOTION;
+        if (!EMOTION_MODIFIERS.containsKey(emotionKey)) {
+            emotionKey = NO_EMOTION;
+        }
+        AICharacter character = characterId != null ? voiceCharacter(characterId) : null;
+        if (character == null) {
+            return defaultProfiles.computeIfAbsent(emotionKey, key -> merge(null, key));
+        }
+
+        String source = character.getVoiceConfig();
+        CharacterVoice cached = characterVoices.get(characterId);
+        if (cached == null || !Objects.equals(cached.source, source)) {
+            cached = new CharacterVoice(source, parse(characterId, source));
+            characterVoices.put(characterId, cached);
+        }
+        CharacterVoice characterVoice = cached;
+        return characterVoice.byEmotion.computeIfAbsent(emotionKey, key -> merge(characterVoice.base, key));
+    }
+
+    /**
+     * 聊天角色变更后丢弃已解析的配置；AI角色的配置变化由原文比较发现
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCharacterChanged(ChatCharacterChangedEvent event) {
+        characterVoices.remove(event.getCharacter().getId());
+    }
+
+    /**
+     * 已缓存的角色数量
+     */
+    public int getCachedCharacterCount() {
+        return characterVoices.size();
+    }
+
+    /**
+     * 聊天角色对应的同名AI角色
+     */
+    private AICharacter voiceCharacter(Long chatCharacterId) {
+        return chatCharacterCatalog.getCharacter(chatCharacterId)
+                .map(ChatCharacter::getName)
+                .flatMap(characterCatalog::getCharacterByName)
+                .orElse(null);
+    }
+
+    /**
+     * 合并角色基础参数与情绪修正：角色自己的音色优先，语速和音调按情绪倍率叠加
+     */
+    private VoiceProfile merge(VoiceProfile base, String emotionKey) {
+        EmotionModifier modifier = EMOTION_MODIFIERS.get(emotionKey);
+        String voice = base != null && base.getVoice() != null ? base.getVoice()
+                : modifier != null ? modifier.voice : defaultVoice;
+        double speed = base != null ? base.getSpeed() : 1.0;
+        double pitch = base != null ? base.getPitch() : 1.0;
+        if (modifier != null) {
+            speed *= modifier.speed;
+            pitch *= modifier.pitch;
+        }
+        return new VoiceProfile(voice, speed, pitch);
+    }
+
+    /**
+     * 解析角色的 voiceConfig，格式如 {"voice_id":"nova","speed":1.0,"pitch":1.0}；
+     * 上游不支持的音色视为未配置，交给情绪或默认音色决定
+     */
+    private VoiceProfile parse(Long characterId, String source) {
+        if (source == null || source.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            JsonNode node = objectMapper.readTree(source);
+            String voice = node.hasNonNull("voice_id") ? node.get("voice_id").asText()
+                    : node.hasNonNull("voice") ? node.get("voice").asText() : null;
+            if (voice != null && !supportedVoiceSet.contains(voice.toLowerCase(Locale.ROOT))) {
+                logger.debug("角色音色不受支持，使用默认音色: characterId={}, voice={}", characterId, voice);
+                voice = null;
+            }
+            return new VoiceProfile(voice != null ? voice.toLowerCase(Locale.ROOT) : null,
+                    node.path("speed").asDouble(1.0), node.path("pitch").asDouble(1.0));
+        } catch (IOException e) {
+            logger.warn("角色语音配置解析失败: characterId={}, voiceConfig={}", characterId, source);
+            return null;
+        }
+    }
+
+    private static final class CharacterVoice {
+
+        final String source;
+        final VoiceProfile base;
+        final Map<String, VoiceProfile> byEmotion = new ConcurrentHashMap<>();
+
+        CharacterVoice(String source, VoiceProfile base) {
+            this.source = source;
+            this.base = base;
+        }
+    }
+
+    private static final class EmotionModifier {
+
+        final String voice;
+        final double speed;
+        final double pitch;
+
+        EmotionModifier(String voice, double speed, double pitch) {
+            this.voice = voice;
+            this.speed = speed;
+            this.pitch = pitch;
+        }
+    }
+}
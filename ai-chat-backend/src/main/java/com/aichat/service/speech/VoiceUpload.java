@@ -0,0 +1,97 @@
+package com.aichat.service.speech;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * 用户上传的语音
+ * 直接包装multipart分片，不把内容读入堆内存、也不另写临时文件：
+ * 小文件由容器保存在内存阈值内，大文件由容器落盘并在请求结束时清理，
+ * 转写时以流的形式逐块发送给上游。每次上传使用唯一文件名，避免并发冲突。
+ */
+public final class VoiceUpload {
+
+    private final MultipartFile file;
+    private final String filename;
+
+    private VoiceUpload(MultipartFile file, String filename) {
+        this.file = file;
+        this.filename = filename;
+    }
+
+    /**
+     * 校验并包装上传文件
+     *
+     * @throws IllegalArgumentException 文件为空、超过大小限制或格式不支持时抛出
+     */
+    public static VoiceUpload of(MultipartFile file, long maxBytes, String[] supportedFormats) {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("音频文件为空");
+        }
+        if (file.getSize() > maxBytes) {
+            throw new IllegalArgumentException("音频文件过大，最大支持 " + (maxBytes / 1024 / 1024) + "MB");
+        }
+        String extension = extensionOf(file.getOriginalFilename());
+        if (extension == null) {
+            // 未带扩展名时按录音默认格式处理
+            extension = "wav";
+        }
+        if (!Arrays.asList(supportedFormats).contains(extension)) {
+            throw new IllegalArgumentException("不支持的音频格式: " + extension);
+        }
+        return new VoiceUpload(file, "voice-" + UUID.randomUUID() + "." + extension);
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public long getSize() {
+        return file.getSize();
+    }
+
+    /**
+     * 以流方式读取的资源，带文件名和长度，供multipart请求直接转发
+     */
+    public Resource toResource() {
+        return new AbstractResource() {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+
+            @Override
+            public long contentLength() {
+                return file.getSize();
+            }
+
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return file.getInputStream();
+            }
+
+            @Override
+            public String getDescription() {
+                return "voice upload [" + filename + "]";
+            }
+        };
+    }
+
+    private static String extensionOf(String originalFilename) {
+        if (originalFilename == null) {
+            return null;
+        }
+        int dot = originalFilename.lastIndexOf('.');
+        if (dot < 0 || dot == originalFilename.length() - 1) {
+            return null;
+        }
+        return originalFilename.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
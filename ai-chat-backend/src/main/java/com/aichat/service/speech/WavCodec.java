@@ -0,0 +1,384 @@
+package com.aichat.service.speech;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * WAV/PCM编解码
+ * 解码时边读边混音为单声道浮点采样（[-1, 1]），支持8/16/24/32位整数PCM和32位浮点，
+ * 按调用方给定的窗口逐块读出，不按文件头声明的长度预先分配内存；
+ * 编码输出16位单声道PCM WAV，可以整体编码，也可以从采样流边读边编码。
+ */
+final class WavCodec {
+
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_FLOAT = 3;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    // 超出该范围的参数视为不支持，避免按伪造的文件头设计出超大的重采样滤波器
+    static final int MIN_SAMPLE_RATE = 1000;
+    static final int MAX_SAMPLE_RATE = 384000;
+    static final int MAX_CHANNELS = 32;
+
+    static final int HEADER_BYTES = 44;
+
+    // 边读边编码时每块的采样数
+    private static final int BLOCK_SAMPLES = 4096;
+
+    private WavCodec() {
+    }
+
+    /**
+     * 单声道浮点采样流
+     */
+    interface SampleSource {
+
+        int getSampleRate();
+
+        /**
+         * 读取至多length个采样，流结束时返回-1
+         */
+        int read(float[] buffer, int offset, int length) throws IOException;
+
+        /**
+         * 跳过至多count个采样，返回实际跳过的数量
+         */
+        long skip(long count) throws IOException;
+    }
+
+    /**
+     * 打开WAV，遇到压缩编码等不支持的格式时返回null
+     */
+    static SampleReader openWav(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+        if (!"RIFF".equals(readTag(in))) {
+            return null;
+        }
+        readIntLE(in);
+        if (!"WAVE".equals(readTag(in))) {
+            return null;
+        }
+
+        int format = -1;
+        int channels = 0;
+        int sampleRate = 0;
+        int bitsPerSample = 0;
+        while (true) {
+            String tag;
+            try {
+                tag = readTag(in);
+            } catch (EOFException e) {
+                return null;
+            }
+            long size = readIntLE(in) & 0xFFFFFFFFL;
+            if ("fmt ".equals(tag)) {
+                if (size < 16) {
+                    return null;
+                }
+                format = readShortLE(in);
+                channels = readShortLE(in);
+                sampleRate = readIntLE(in);
+                readIntLE(in);
+                readShortLE(in);
+                bitsPerSample = readShortLE(in);
+                long consumed = 16;
+                if (format == FORMAT_EXTENSIBLE && size >= 26) {
+                    readShortLE(in);
+                    readShortLE(in);
+                    readIntLE(in);
+                    format = readShortLE(in);
+                    consumed = 26;
+                }
+                skipFully(in, size - consumed + (size & 1));
+            } else if ("data".equals(tag)) {
+                if (format < 0) {
+                    return null;
+                }
+                // 流式录音的data长度可能为0或0xFFFFFFFF，此时读到流结束
+                long dataBytes = size == 0 || size == 0xFFFFFFFFL ? Long.MAX_VALUE : size;
+                return SampleReader.create(in, format, channels, sampleRate, bitsPerSample, dataBytes);
+            } else {
+                skipFully(in, size + (size & 1));
+            }
+        }
+    }
+
+    /**
+     * 打开无文件头的16位小端PCM
+     */
+    static SampleReader openPcm16(InputStream input, int sampleRate, int channels) {
+        return SampleReader.create(new DataInputStream(new BufferedInputStream(input)),
+                FORMAT_PCM, channels, sampleRate, 16, Long.MAX_VALUE);
+    }
+
+    /**
+     * 编码为16位单声道WAV
+     */
+    static byte[] encodeWav(float[] samples, int from, int to, int sampleRate) {
+        byte[] header = header(to - from, sampleRate);
+        byte[] wav = Arrays.copyOf(header, header.length + (to - from) * 2);
+        for (int i = from; i < to; i++) {
+            writeSample(wav, header.length + (i - from) * 2, samples[i]);
+        }
+        return wav;
+    }
+
+    /**
+     * 边读边编码为16位单声道WAV，输出恰好sampleCount个采样，关闭时一并关闭resource
+     * 上游提前结束时补静音，保证与文件头声明的长度一致
+     */
+    static InputStream encodingStream(SampleSource samples, int sampleCount, Closeable resource) {
+        return new EncodingStream(samples, sampleCount, resource);
+    }
+
+    static byte[] header(int sampleCount, int sampleRate) {
+        int dataBytes = sampleCount * 2;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_BYTES);
+        writeTag(bytes, "RIFF");
+        writeIntLE(bytes, 36 + dataBytes);
+        writeTag(bytes, "WAVE");
+        writeTag(bytes, "fmt ");
+        writeIntLE(bytes, 16);
+        writeShortLE(bytes, FORMAT_PCM);
+        writeShortLE(bytes, 1);
+        writeIntLE(bytes, sampleRate);
+        writeIntLE(bytes, sampleRate * 2);
+        writeShortLE(bytes, 2);
+        writeShortLE(bytes, 16);
+        writeTag(bytes, "data");
+        writeIntLE(bytes, dataBytes);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 逐帧解码并混音为单声道的采样流，内存占用只有一帧
+     */
+    static final class SampleReader implements SampleSource {
+
+        private final DataInputStream in;
+        private final int sampleRate;
+        private final int channels;
+        private final int bitsPerSample;
+        private final boolean isFloat;
+        private final byte[] frame;
+        private long remainingBytes;
+
+        private SampleReader(DataInputStream in, int sampleRate, int channels, int bitsPerSample,
+                             boolean isFloat, long dataBytes) {
+            this.in = in;
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            this.bitsPerSample = bitsPerSample;
+            this.isFloat = isFloat;
+            this.frame = new byte[bitsPerSample / 8 * channels];
+            this.remainingBytes = dataBytes;
+        }
+
+        /**
+         * 参数不受支持时返回null
+         */
+        static SampleReader create(DataInputStream in, int format, int channels, int sampleRate,
+                                   int bitsPerSample, long dataBytes) {
+            if (format == FORMAT_FLOAT ? bitsPerSample != 32
+                    : format != FORMAT_PCM || (bitsPerSample != 8 && bitsPerSample != 16 && bitsPerSample != 24 && bitsPerSample != 32)) {
+                return null;
+            }
+            if (channels <= 0 || channels > MAX_CHANNELS || sampleRate < MIN_SAMPLE_RATE || sampleRate > MAX_SAMPLE_RATE) {
+                return null;
+            }
+            return new SampleReader(in, sampleRate, channels, bitsPerSample, format == FORMAT_FLOAT, dataBytes);
+        }
+
+        @Override
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        @Override
+        public int read(float[] buffer, int offset, int length) throws IOException {
+            int count = 0;
+            int bytesPerSample = bitsPerSample / 8;
+            while (count < length && remainingBytes >= frame.length) {
+                if (!readFrame(in, frame)) {
+                    remainingBytes = 0;
+                    break;
+                }
+                remainingBytes -= frame.length;
+                // 各声道取平均完成混音
+                float sum = 0;
+                for (int c = 0; c < channels; c++) {
+                    sum += sampleAt(frame, c * bytesPerSample, bitsPerSample, isFloat);
+                }
+                buffer[offset + count++] = sum / channels;
+            }
+            return count == 0 && length > 0 ? -1 : count;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            long frames = Math.min(count, remainingBytes / frame.length);
+            long bytes = frames * frame.length;
+            long skipped = 0;
+            while (skipped < bytes) {
+                long n = in.skip(bytes - skipped);
+                if (n <= 0) {
+                    if (in.read() < 0) {
+                        break;
+                    }
+                    n = 1;
+                }
+                skipped += n;
+            }
+            remainingBytes -= skipped;
+            return skipped / frame.length;
+        }
+    }
+
+    /**
+     * 按块拉取采样并编码的WAV输入流
+     */
+    private static final class EncodingStream extends InputStream {
+
+        private final SampleSource samples;
+        private final Closeable resource;
+        private final float[] block = new float[BLOCK_SAMPLES];
+        private byte[] buffer;
+        private int position;
+        private int limit;
+        private int remaining;
+
+        EncodingStream(SampleSource samples, int sampleCount, Closeable resource) {
+            this.samples = samples;
+            this.resource = resource;
+            this.remaining = sampleCount;
+            this.buffer = header(sampleCount, samples.getSampleRate());
+            this.limit = buffer.length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            int count = Math.min(len, limit - position);
+            System.arraycopy(buffer, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            resource.close();
+        }
+
+        private boolean fill() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            int want = Math.min(remaining, block.length);
+            int read = samples.read(block, 0, want);
+            if (read <= 0) {
+                Arrays.fill(block, 0, want, 0f);
+                read = want;
+            }
+            if (buffer.length < read * 2) {
+                buffer = new byte[block.length * 2];
+            }
+            for (int i = 0; i < read; i++) {
+                writeSample(buffer, i * 2, block[i]);
+            }
+            remaining -= read;
+            position = 0;
+            limit = read * 2;
+            return true;
+        }
+    }
+
+    private static void writeSample(byte[] out, int offset, float sample) {
+        int value = Math.round(Math.max(-1f, Math.min(1f, sample)) * Short.MAX_VALUE);
+        out[offset] = (byte) value;
+        out[offset + 1] = (byte) (value >>> 8);
+    }
+
+    private static float sampleAt(byte[] frame, int offset, int bits, boolean isFloat) {
+        switch (bits) {
+            case 8:
+                return ((frame[offset] & 0xFF) - 128) / 128f;
+            case 16:
+                return (short) ((frame[offset] & 0xFF) | (frame[offset + 1] << 8)) / 32768f;
+            case 24:
+                return ((frame[offset] & 0xFF) | ((frame[offset + 1] & 0xFF) << 8) | (frame[offset + 2] << 16)) / 8388608f;
+            default:
+                int bitsValue = (frame[offset] & 0xFF) | ((frame[offset + 1] & 0xFF) << 8)
+                        | ((frame[offset + 2] & 0xFF) << 16) | (frame[offset + 3] << 24);
+                return isFloat ? Float.intBitsToFloat(bitsValue) : bitsValue / 2147483648f;
+        }
+    }
+
+    private static boolean readFrame(DataInputStream in, byte[] frame) throws IOException {
+        int read = 0;
+        while (read < frame.length) {
+            int n = in.read(frame, read, frame.length - read);
+            if (n < 0) {
+                return false;
+            }
+            read += n;
+        }
+        return true;
+    }
+
+    private static String readTag(DataInputStream in) throws IOException {
+        byte[] tag = new byte[4];
+        in.readFully(tag);
+        return new String(tag, StandardCharsets.US_ASCII);
+    }
+
+    private static int readIntLE(DataInputStream in) throws IOException {
+        return Integer.reverseBytes(in.readInt());
+    }
+
+    private static int readShortLE(DataInputStream in) throws IOException {
+        return Short.reverseBytes(in.readShort()) & 0xFFFF;
+    }
+
+    private static void skipFully(DataInputStream in, long bytes) throws IOException {
+        long remaining = bytes;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static void writeTag(ByteArrayOutputStream out, String tag) {
+        byte[] bytes = tag.getBytes(StandardCharsets.US_ASCII);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+
+    private static void writeShortLE(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+    }
+}
@@ -0,0 +1,126 @@
+package com.aichat.service.tracing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 链路中的一个阶段
+ * 同步代码用 try-with-resources 包住阶段，关闭时恢复当前线程的上一级阶段；
+ * 响应式阶段由 Tracer 在终止信号时调用 end 结束。
+ */
+public final class Span implements AutoCloseable {
+
+    static final Span NOOP = new Span(null, "noop", 0L, 0L, null);
+
+    private final Trace trace;
+    private final String name;
+    private final long spanId;
+    private final long parentId;
+    private final long startNanos;
+    private final Span previous;
+    private final Map<String, String> attributes = new LinkedHashMap<>();
+    private volatile long endNanos;
+    private volatile boolean error;
+
+    Span(Trace trace, String name, long spanId, long parentId, Span previous) {
+        this.trace = trace;
+        this.name = name;
+        this.spanId = spanId;
+        this.parentId = parentId;
+        this.previous = previous;
+        this.startNanos = System.nanoTime();
+    }
+
+    public Trace getTrace() {
+        return trace;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    long getSpanId() {
+        return spanId;
+    }
+
+    long getParentId() {
+        return parentId;
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    long getEndNanos() {
+        return endNanos;
+    }
+
+    boolean isEnded() {
+        return endNanos != 0L;
+    }
+
+    boolean isError() {
+        return error;
+    }
+
+    public boolean isNoop() {
+        return trace == null;
+    }
+
+    /**
+     * 附加属性，导出时随阶段一起写出
+     */
+    public Span tag(String key, Object value) {
+        if (trace != null && value != null) {
+            synchronized (attributes) {
+                attributes.put(key, String.valueOf(value));
+            }
+        }
+        return this;
+    }
+
+    Map<String, String> getAttributes() {
+        synchronized (attributes) {
+            return new LinkedHashMap<>(attributes);
+        }
+    }
+
+    /**
+     * 标记阶段失败
+     */
+    public void fail(Throwable cause) {
+        if (trace != null) {
+            error = true;
+            tag("error", cause.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * 结束阶段，重复调用只记录第一次
+     */
+    public void end() {
+        if (trace != null && endNanos == 0L) {
+            endNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * 结束阶段并把当前线程恢复到进入该阶段之前的状态
+     */
+    @Override
+    public void close() {
+        if (trace == null) {
+            return;
+        }
+        end();
+        Tracer.restoreIfCurrent(this, previous);
+    }
+
+    /**
+     * 阶段耗时（纳秒），尚未结束时按当前时间计算
+     */
+    long durationNanos() {
+        long end = endNanos;
+        return (end != 0L ? end : System.nanoTime()) - startNanos;
+    }
+}
@@ -0,0 +1,141 @@
+package com.aichat.service.tracing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 一次请求（或一句实时语音）的完整链路
+ * 阶段时间用单调时钟记录，导出时换算为以链路开始时刻为基准的墙钟时间。
+ */
+public final class Trace {
+
+    private final String traceId;
+    private volatile boolean sampled;
+    private volatile boolean debug;
+    private final long startEpochNanos;
+    private final Span root;
+    private final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    Trace(String name, boolean sampled, boolean debug) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        this.traceId = String.format("%016x%016x", random.nextLong(), random.nextLong());
+        this.sampled = sampled;
+        this.debug = debug;
+        this.startEpochNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        this.root = new Span(this, name, nextSpanId(), 0L, null);
+        spans.add(root);
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * 请求是否要求返回阶段耗时明细
+     */
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * 请求体解析后才知道需要调试明细时补开，同时强制导出
+     */
+    public void enableDebug() {
+        debug = true;
+        sampled = true;
+    }
+
+    public Span getRoot() {
+        return root;
+    }
+
+    boolean isFinished() {
+        return finished.get();
+    }
+
+    Span newSpan(String name, Span parent, Span previous) {
+        Span span = new Span(this, name, nextSpanId(), parent != null ? parent.getSpanId() : root.getSpanId(), previous);
+        spans.add(span);
+        return span;
+    }
+
+    /**
+     * 结束链路，仍未结束的阶段以当前时刻为终点；只有第一次调用返回true
+     */
+    boolean finish() {
+        if (!finished.compareAndSet(false, true)) {
+            return false;
+        }
+        for (Span span : spans) {
+            span.end();
+        }
+        return true;
+    }
+
+    List<Span> getSpans() {
+        return new ArrayList<>(spans);
+    }
+
+    /**
+     * 把单调时钟时刻换算为墙钟纳秒
+     */
+    long toEpochNanos(long nanos) {
+        return startEpochNanos + (nanos - root.getStartNanos());
+    }
+
+    /**
+     * 按阶段汇总的耗时明细（毫秒），同名阶段累加；并行阶段的累加值可能超过总耗时
+     */
+    public Map<String, Object> breakdown() {
+        Map<String, Map<String, Object>> stages = new HashMap<>();
+        for (Span span : spans) {
+            if (span == root) {
+                continue;
+            }
+            Map<String, Object> stage = stages.computeIfAbsent(span.getName(), k -> {
+                Map<String, Object> initial = new HashMap<>();
+                initial.put("ms", 0.0);
+                initial.put("count", 0);
+                return initial;
+            });
+            stage.put("ms", (Double) stage.get("ms") + toMillis(span.durationNanos()));
+            stage.put("count", (Integer) stage.get("count") + 1);
+        }
+        Map<String, Object> breakdown = new HashMap<>();
+        breakdown.put("traceId", traceId);
+        breakdown.put("totalMs", toMillis(root.durationNanos()));
+        breakdown.put("stages", stages);
+        return breakdown;
+    }
+
+    /**
+     * 从链路开始到现在的毫秒数
+     */
+    public long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(root.durationNanos());
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+
+    private static long nextSpanId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0L);
+        return id;
+    }
+}
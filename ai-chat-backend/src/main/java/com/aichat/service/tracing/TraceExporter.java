@@ -0,0 +1,207 @@
+package com.aichat.service.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 采样链路导出
+ * 结束的链路进入有界队列，由定时任务批量导出为OTLP/JSON：
+ * file 模式每批追加一行到本地文件（与Collector文件导出器格式相同），
+ * otlp 模式POST到OTLP/HTTP接收端。队列满时直接丢弃，不阻塞请求线程。
+ */
+@Component
+public class TraceExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TraceExporter.class);
+
+    private static final int SPAN_KIND_INTERNAL = 1;
+    private static final int SPAN_KIND_SERVER = 2;
+    private static final int STATUS_OK = 1;
+    private static final int STATUS_ERROR = 2;
+
+    @Value("${tracing.export.type:file}")
+    private String exportType;
+
+    @Value("${tracing.export.file:${java.io.tmpdir}/aichat-traces.jsonl}")
+    private String exportFile;
+
+    @Value("${tracing.export.otlp-endpoint:http://localhost:4318/v1/traces}")
+    private String otlpEndpoint;
+
+    @Value("${tracing.export.queue-size:2048}")
+    private int queueSize;
+
+    @Value("${tracing.export.batch-size:128}")
+    private int batchSize;
+
+    @Value("${spring.application.name:ai-chat-backend}")
+    private String serviceName;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LongAdder exported = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private BlockingQueue<Trace> queue;
+    private WebClient webClient;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(queueSize);
+        if ("otlp".equalsIgnoreCase(exportType)) {
+            webClient = WebClient.builder().build();
+        }
+        logger.info("链路导出初始化完成: type={}", exportType);
+    }
+
+    /**
+     * 提交一条已结束的采样链路
+     */
+    public void offer(Trace trace) {
+        if ("none".equalsIgnoreCase(exportType)) {
+            return;
+        }
+        if (!queue.offer(trace)) {
+            dropped.increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${tracing.export.interval-ms:1000}")
+    public void export() {
+        List<Trace> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                write(toOtlp(batch));
+                exported.add(batch.size());
+            } catch (Exception e) {
+                dropped.add(batch.size());
+                logger.warn("链路导出失败，丢弃 {} 条: {}", batch.size(), e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        export();
+    }
+
+    /**
+     * 导出统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("type", exportType);
+        statistics.put("queued", queue.size());
+        statistics.put("exported", exported.sum());
+        statistics.put("dropped", dropped.sum());
+        return statistics;
+    }
+
+    private void write(Map<String, Object> request) throws IOException {
+        String json = objectMapper.writeValueAsString(request);
+        if (webClient != null) {
+            webClient.post()
+                    .uri(otlpEndpoint)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(json)
+                    .retrieve()
+                    .toBodilessEntity()
+                    .block(Duration.ofSeconds(5));
+            return;
+        }
+        Path path = Paths.get(exportFile);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(json);
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * 按OTLP/JSON的 ExportTraceServiceRequest 结构组织一批链路
+     */
+    private Map<String, Object> toOtlp(List<Trace> traces) {
+        List<Map<String, Object>> spans = new ArrayList<>();
+        for (Trace trace : traces) {
+            for (Span span : trace.getSpans()) {
+                spans.add(toOtlp(trace, span));
+            }
+        }
+
+        Map<String, Object> scope = new HashMap<>();
+        scope.put("name", "com.aichat");
+        Map<String, Object> scopeSpans = new HashMap<>();
+        scopeSpans.put("scope", scope);
+        scopeSpans.put("spans", spans);
+
+        Map<String, Object> resource = new HashMap<>();
+        resource.put("attributes", Collections.singletonList(attribute("service.name", serviceName)));
+        Map<String, Object> resourceSpans = new HashMap<>();
+        resourceSpans.put("resource", resource);
+        resourceSpans.put("scopeSpans", Collections.singletonList(scopeSpans));
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("resourceSpans", Collections.singletonList(resourceSpans));
+        return request;
+    }
+
+    private static Map<String, Object> toOtlp(Trace trace, Span span) {
+        Map<String, Object> otlp = new HashMap<>();
+        otlp.put("traceId", trace.getTraceId());
+        otlp.put("spanId", String.format("%016x", span.getSpanId()));
+        if (span.getParentId() != 0L) {
+            otlp.put("parentSpanId", String.format("%016x", span.getParentId()));
+        }
+        otlp.put("name", span.getName());
+        otlp.put("kind", span == trace.getRoot() ? SPAN_KIND_SERVER : SPAN_KIND_INTERNAL);
+        // OTLP/JSON中64位整数以字符串表示
+        otlp.put("startTimeUnixNano", String.valueOf(trace.toEpochNanos(span.getStartNanos())));
+        otlp.put("endTimeUnixNano", String.valueOf(trace.toEpochNanos(span.getEndNanos())));
+        List<Map<String, Object>> attributes = new ArrayList<>();
+        for (Map.Entry<String, String> entry : span.getAttributes().entrySet()) {
+            attributes.add(attribute(entry.getKey(), entry.getValue()));
+        }
+        otlp.put("attributes", attributes);
+        Map<String, Object> status = new HashMap<>();
+        status.put("code", span.isError() ? STATUS_ERROR : STATUS_OK);
+        otlp.put("status", status);
+        return otlp;
+    }
+
+    private static Map<String, Object> attribute(String key, String value) {
+        Map<String, Object> stringValue = new HashMap<>();
+        stringValue.put("stringValue", value);
+        Map<String, Object> attribute = new HashMap<>();
+        attribute.put("key", key);
+        attribute.put("value", stringValue);
+        return attribute;
+    }
+}
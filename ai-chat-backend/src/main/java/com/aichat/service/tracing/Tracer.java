@@ -0,0 +1,173 @@
+package com.aichat.service.tracing;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.context.Context;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 链路追踪入口
+ * 当前阶段保存在线程本地变量中；线程池任务在提交时捕获、执行时恢复，
+ * 响应式链路优先从Reactor上下文取阶段，取不到时使用组装时所在线程的阶段。
+ * 当前没有链路时所有方法都退化为空操作。
+ */
+public final class Tracer {
+
+    public static final String STAGE_DECODE = "decode";
+    public static final String STAGE_AUTH = "auth";
+    public static final String STAGE_RATE_LIMIT = "rate_limit";
+    public static final String STAGE_CONTEXT_BUILD = "context_build";
+    public static final String STAGE_LLM = "llm";
+    public static final String STAGE_SKILL = "skill";
+    public static final String STAGE_STT = "stt";
+    public static final String STAGE_TTS = "tts";
+    public static final String STAGE_PERSISTENCE = "persistence";
+    public static final String STAGE_SEND = "send";
+
+    private static final Object CONTEXT_KEY = Span.class;
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private Tracer() {
+    }
+
+    /**
+     * 当前线程所在的阶段，没有时返回null
+     */
+    public static Span currentSpan() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 当前线程所在的链路，没有时返回null
+     */
+    public static Trace currentTrace() {
+        Span span = CURRENT.get();
+        return span != null ? span.getTrace() : null;
+    }
+
+    /**
+     * 在当前线程开始一个子阶段，关闭时恢复上一级阶段
+     */
+    public static Span startSpan(String name) {
+        Span parent = CURRENT.get();
+        if (parent == null || parent.getTrace().isFinished()) {
+            return Span.NOOP;
+        }
+        Span span = parent.getTrace().newSpan(name, parent, parent);
+        CURRENT.set(span);
+        return span;
+    }
+
+    /**
+     * 把阶段设为当前线程的阶段，返回之前的阶段供 restore 使用
+     */
+    public static Span attach(Span span) {
+        Span previous = CURRENT.get();
+        if (span == null || span.isNoop()) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(span);
+        }
+        return previous;
+    }
+
+    public static void restore(Span previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    static void restoreIfCurrent(Span span, Span previous) {
+        if (CURRENT.get() == span) {
+            restore(previous);
+        }
+    }
+
+    /**
+     * 任务在执行线程上沿用提交时的阶段
+     */
+    public static Runnable wrap(Runnable task) {
+        Span captured = CURRENT.get();
+        if (captured == null) {
+            return task;
+        }
+        return () -> {
+            Span previous = attach(captured);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        Span captured = CURRENT.get();
+        if (captured == null) {
+            return task;
+        }
+        return () -> {
+            Span previous = attach(captured);
+            try {
+                return task.call();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * 把订阅到终止信号之间的时间记为一个阶段
+     */
+    public static <T> Mono<T> trace(Mono<T> mono, String name) {
+        Span captured = CURRENT.get();
+        return Mono.deferContextual(context -> {
+            Span parent = context.getOrDefault(CONTEXT_KEY, captured);
+            if (parent == null || parent.getTrace().isFinished()) {
+                return mono;
+            }
+            Span span = parent.getTrace().newSpan(name, parent, null);
+            return mono
+                    .doOnError(span::fail)
+                    .doFinally(signal -> end(span, signal))
+                    .contextWrite(Context.of(CONTEXT_KEY, span));
+        });
+    }
+
+    public static <T> Flux<T> trace(Flux<T> flux, String name) {
+        Span captured = CURRENT.get();
+        return Flux.deferContextual(context -> {
+            Span parent = context.getOrDefault(CONTEXT_KEY, captured);
+            if (parent == null || parent.getTrace().isFinished()) {
+                return flux;
+            }
+            Span span = parent.getTrace().newSpan(name, parent, null);
+            return flux
+                    .doOnError(span::fail)
+                    .doFinally(signal -> end(span, signal))
+                    .contextWrite(Context.of(CONTEXT_KEY, span));
+        });
+    }
+
+    /**
+     * 在指定阶段下订阅响应式链路，用于没有线程本地阶段的回调线程
+     */
+    public static <T> Flux<T> within(Flux<T> flux, Span span) {
+        if (span == null || span.isNoop()) {
+            return flux;
+        }
+        return flux.contextWrite(Context.of(CONTEXT_KEY, span));
+    }
+
+    private static void end(Span span, SignalType signal) {
+        if (signal == SignalType.CANCEL) {
+            span.tag("cancelled", true);
+        }
+        span.end();
+    }
+}
@@ -0,0 +1,86 @@
+package com.aichat.service.tracing;
+
+import com.aichat.dto.ChatResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.lang.reflect.Type;
+
+/**
+ * 请求体解码和响应写出阶段
+ * 解码阶段从读取请求体开始到转换为对象结束；响应体交给消息转换器之前开始发送阶段，
+ * 由过滤器在链路结束时收尾。ChatResponse 在此填入响应耗时，调试请求附带阶段耗时明细。
+ */
+@ControllerAdvice
+public class TracingBodyAdvice extends RequestBodyAdviceAdapter implements ResponseBodyAdvice<Object> {
+
+    public static final String METADATA_TRACE = "trace";
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return Tracer.currentSpan() != null;
+    }
+
+    @Override
+    public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                           Class<? extends HttpMessageConverter<?>> converterType) {
+        Tracer.startSpan(Tracer.STAGE_DECODE);
+        return inputMessage;
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                Class<? extends HttpMessageConverter<?>> converterType) {
+        closeDecodeSpan();
+        return body;
+    }
+
+    @Override
+    public Object handleEmptyBody(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                  Class<? extends HttpMessageConverter<?>> converterType) {
+        closeDecodeSpan();
+        return body;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        Trace trace = Tracer.currentTrace();
+        if (trace == null) {
+            return body;
+        }
+        if (body instanceof ChatResponse) {
+            ChatResponse chatResponse = (ChatResponse) body;
+            if (chatResponse.getResponseTime() == null) {
+                chatResponse.setResponseTime(trace.elapsedMillis());
+            }
+            if (trace.isDebug()) {
+                chatResponse.addMetadata(METADATA_TRACE, trace.breakdown());
+            }
+        }
+        // 序列化和写出的耗时记入发送阶段，链路结束时收尾
+        Tracer.startSpan(Tracer.STAGE_SEND);
+        return body;
+    }
+
+    private static void closeDecodeSpan() {
+        Span span = Tracer.currentSpan();
+        if (span != null && Tracer.STAGE_DECODE.equals(span.getName())) {
+            span.close();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.aichat.service.tracing;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 链路追踪过滤器
+ * 排在安全过滤器链之前，为每个HTTP请求开始一条链路并在响应头中返回链路ID；
+ * 异步请求（流式响应）在异步处理结束时才结束链路。
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TracingFilter extends OncePerRequestFilter {
+
+    public static final String TRACE_ID_HEADER = "X-Trace-Id";
+
+    @Autowired
+    private TracingService tracingService;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean debug = TracingService.isDebugValue(request.getHeader(tracingService.getDebugHeader()));
+        Trace trace = tracingService.start(request.getMethod() + " " + request.getRequestURI(), debug);
+        if (trace == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        response.setHeader(TRACE_ID_HEADER, trace.getTraceId());
+        Span previous = Tracer.attach(trace.getRoot());
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            trace.getRoot().fail(e);
+            throw e;
+        } finally {
+            Tracer.restore(previous);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new FinishListener(trace));
+            } else {
+                trace.getRoot().tag("http.status_code", response.getStatus());
+                tracingService.finish(trace);
+            }
+        }
+    }
+
+    private class FinishListener implements AsyncListener {
+
+        private final Trace trace;
+
+        FinishListener(Trace trace) {
+            this.trace = trace;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            tracingService.finish(trace);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            trace.getRoot().tag("timeout", true);
+            tracingService.finish(trace);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            if (event.getThrowable() != null) {
+                trace.getRoot().fail(event.getThrowable());
+            }
+            tracingService.finish(trace);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // 再次进入异步处理时重新注册
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
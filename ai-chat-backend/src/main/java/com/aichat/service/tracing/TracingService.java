@@ -0,0 +1,96 @@
+package com.aichat.service.tracing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 链路的创建、采样和结束
+ * 每个请求都会记录阶段耗时（供调试明细使用），只有被采样或要求调试明细的链路才会导出。
+ * 同时负责跨线程传播：Reactor调度器任务和Spring线程池任务执行时沿用提交线程的阶段。
+ */
+@Component
+public class TracingService implements TaskDecorator {
+
+    private static final Logger logger = LoggerFactory.getLogger(TracingService.class);
+
+    private static final String SCHEDULE_HOOK = "aichat-tracing";
+
+    @Value("${tracing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tracing.sample-rate:0.01}")
+    private double sampleRate;
+
+    @Value("${tracing.debug-header:X-Debug-Trace}")
+    private String debugHeader;
+
+    @Autowired
+    private TraceExporter exporter;
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            Schedulers.onScheduleHook(SCHEDULE_HOOK, Tracer::wrap);
+        }
+        logger.info("链路追踪初始化完成: enabled={}, sampleRate={}", enabled, sampleRate);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Schedulers.resetOnScheduleHook(SCHEDULE_HOOK);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getDebugHeader() {
+        return debugHeader;
+    }
+
+    /**
+     * 开始一条链路，未启用时返回null
+     *
+     * @param debug 是否要求返回阶段耗时明细，调试请求总会被导出
+     */
+    public Trace start(String name, boolean debug) {
+        if (!enabled) {
+            return null;
+        }
+        boolean sampled = debug || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+        return new Trace(name, sampled, debug);
+    }
+
+    /**
+     * 结束链路，被采样的交给导出器
+     */
+    public void finish(Trace trace) {
+        if (trace != null && trace.finish() && trace.isSampled()) {
+            exporter.offer(trace);
+        }
+    }
+
+    /**
+     * 请求头或消息中的调试标记是否开启
+     */
+    public static boolean isDebugValue(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return value != null && ("true".equalsIgnoreCase(value.toString()) || "1".equals(value.toString()));
+    }
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        return Tracer.wrap(runnable);
+    }
+}
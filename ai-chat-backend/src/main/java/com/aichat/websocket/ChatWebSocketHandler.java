@@ -2,17 +2,42 @@ package com.aichat.websocket;
 
 import com.aichat.dto.ChatRequest;
 import com.aichat.dto.ChatResponse;
+import com.aichat.entity.ChatCharacter;
+import com.aichat.security.JwtPrincipal;
 import com.aichat.service.AIService;
+import com.aichat.service.CharacterService;
+import com.aichat.service.LLMService;
+import com.aichat.service.OpenAISpeechService;
+import com.aichat.service.jfr.FlightRecorderEvents;
+import com.aichat.service.metrics.ChatMetrics;
+import com.aichat.service.speech.AudioPreprocessor;
+import com.aichat.service.speech.SpeechSegment;
+import com.aichat.service.speech.StreamingSpeechService;
+import com.aichat.service.speech.VoiceActivityDetector;
+import com.aichat.service.tracing.Span;
+import com.aichat.service.tracing.Trace;
+import com.aichat.service.tracing.Tracer;
+import com.aichat.service.tracing.TracingService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
@@ -20,15 +45,75 @@ import java.util.concurrent.CopyOnWriteArraySet;
 /**
  * WebSocket聊天处理器
  * 提供实时聊天功能，支持多用户在线、消息推送等
+ *
+ * 实时语音（仅原生WebSocket）：客户端先发送 voice_start 文本帧声明格式，随后以二进制帧连续发送音频，
+ * 二进制帧可以是分片消息。PCM流由服务端增量VAD切句；Opus等封装格式由客户端发送 voice_commit 标记句尾。
+ * 每句依次推送 voice_transcript、voice_delta 文本帧，合成的语音以二进制帧推送，
+ * 帧格式为 [4字节大端头长度][UTF-8 JSON头][mp3音频]，头中包含句子序号和文本。
  */
 @Component
 public class ChatWebSocketHandler implements WebSocketHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(ChatWebSocketHandler.class);
 
+    // 会话属性：voice_start 要求了调试明细，之后每句语音回复都附带阶段耗时
+    private static final String VOICE_DEBUG_ATTRIBUTE = "voiceTraceDebug";
+
     @Autowired
     private AIService aiService;
 
+    @Autowired
+    private CharacterService characterService;
+
+    @Autowired
+    private LLMService llmService;
+
+    @Autowired
+    private OpenAISpeechService speechService;
+
+    @Autowired
+    private StreamingSpeechService streamingSpeechService;
+
+    @Autowired
+    private AudioPreprocessor audioPreprocessor;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Autowired
+    private TracingService tracingService;
+
+    @Value("${speech.duplex.vad-threshold-db:-45}")
+    private double vadThresholdDb;
+
+    @Value("${speech.duplex.start-ms:60}")
+    private int speechStartMillis;
+
+    @Value("${speech.duplex.hangover-ms:600}")
+    private int hangoverMillis;
+
+    @Value("${speech.duplex.pre-roll-ms:300}")
+    private int preRollMillis;
+
+    @Value("${speech.duplex.max-segment-ms:30000}")
+    private int maxSegmentMillis;
+
+    @Value("${speech.duplex.barge-in:true}")
+    private boolean bargeIn;
+
+    @Value("${speech.duplex.max-buffered-bytes:5242880}")
+    private int maxBufferedBytes;
+
+    @Value("${websocket.send-time-limit-ms:10000}")
+    private int sendTimeLimitMillis;
+
+    @Value("${websocket.send-buffer-bytes:1048576}")
+    private int sendBufferBytes;
+
+    // 拼接分片后的文本消息上限，与容器的文本缓冲上限一致
+    @Value("${websocket.max-text-buffer-bytes:65536}")
+    private int maxTextMessageChars;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
     
     // 存储所有活跃的WebSocket连接
@@ -40,10 +125,17 @@ public class ChatWebSocketHandler implements WebSocketHandler {
     // 存储在线用户
     private final CopyOnWriteArraySet<Long> onlineUsers = new CopyOnWriteArraySet<>();
 
+    // 实时语音流状态，按会话ID存储
+    private final Map<String, VoiceStreamSession> voiceSessions = new ConcurrentHashMap<>();
+
+    // 尚未收齐的分片文本消息
+    private final Map<String, StringBuilder> partialTexts = new ConcurrentHashMap<>();
+
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         String sessionId = session.getId();
-        sessions.put(sessionId, session);
+        // 语音回复在响应式线程上推送，发送需要串行化
+        sessions.put(sessionId, new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMillis, sendBufferBytes));
         
         logger.info("WebSocket连接建立: sessionId={}", sessionId);
         
@@ -62,13 +154,60 @@ public class ChatWebSocketHandler implements WebSocketHandler {
     @Override
     public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
         String sessionId = session.getId();
+        if (!(message instanceof PongMessage)) {
+            chatMetrics.recordFrameIn(message instanceof BinaryMessage, message.getPayloadLength());
+        }
+        if (message instanceof BinaryMessage) {
+            handleVoiceFrame(session, (BinaryMessage) message);
+            return;
+        }
+        if (message instanceof PongMessage) {
+            return;
+        }
+
+        // 分片的文本消息先拼接，收到最后一片再处理
         String payload = message.getPayload().toString();
+        if (!message.isLast()) {
+            StringBuilder partial = partialTexts.computeIfAbsent(sessionId, id -> new StringBuilder());
+            if (partial.length() + payload.length() > maxTextMessageChars) {
+                rejectOversizedMessage(session);
+                return;
+            }
+            partial.append(payload);
+            return;
+        }
+        StringBuilder partial = partialTexts.remove(sessionId);
+        if (partial != null) {
+            if (partial.length() + payload.length() > maxTextMessageChars) {
+                rejectOversizedMessage(session);
+                return;
+            }
+            payload = partial.append(payload).toString();
+        }
         
         logger.info("收到WebSocket消息: sessionId={}, payload={}", sessionId, payload);
-        
+
+        // 每条文本消息一条链路，实时语音的每句回复另有独立链路
+        Trace trace = tracingService.start("WS message", isDebugHandshake(session));
+        Span previousSpan = trace != null ? Tracer.attach(trace.getRoot()) : null;
         try {
-            Map<String, Object> messageData = objectMapper.readValue(payload, Map.class);
+            Map<String, Object> messageData;
+            try (Span ignored = Tracer.startSpan(Tracer.STAGE_DECODE)) {
+                messageData = decodeFrame(payload);
+            }
             String messageType = (String) messageData.get("type");
+            if (trace != null) {
+                trace.getRoot().tag("ws.message_type", messageType);
+                if (TracingService.isDebugValue(messageData.get("debug"))) {
+                    trace.enableDebug();
+                }
+            }
+
+            // 连接身份（令牌或匿名握手时固定的userId）为准，帧里的userId必须一致
+            if (!bindPrincipal(session, messageData)) {
+                sendErrorMessage(session, "用户身份不匹配");
+                return;
+            }
             
             switch (messageType) {
                 case "chat":
@@ -86,6 +225,15 @@ public class ChatWebSocketHandler implements WebSocketHandler {
                 case "heartbeat":
                     handleHeartbeat(session);
                     break;
+                case "voice_start":
+                    handleVoiceStart(session, messageData);
+                    break;
+                case "voice_commit":
+                    handleVoiceCommit(session);
+                    break;
+                case "voice_end":
+                    handleVoiceEnd(session);
+                    break;
                 default:
                     logger.warn("未知消息类型: {}", messageType);
             }
@@ -93,9 +241,18 @@ public class ChatWebSocketHandler implements WebSocketHandler {
         } catch (Exception e) {
             logger.error("处理WebSocket消息失败", e);
             sendErrorMessage(session, "消息处理失败: " + e.getMessage());
+        } finally {
+            if (trace != null) {
+                Tracer.restore(previousSpan);
+                tracingService.finish(trace);
+            }
         }
     }
 
+    private boolean isDebugHandshake(WebSocketSession session) {
+        return TracingService.isDebugValue(session.getHandshakeHeaders().getFirst(tracingService.getDebugHeader()));
+    }
+
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         String sessionId = session.getId();
@@ -117,9 +274,50 @@ public class ChatWebSocketHandler implements WebSocketHandler {
         broadcastOnlineCount();
     }
 
+    /**
+     * 分片拼接后超过上限时丢弃已缓冲的内容并关闭连接
+     */
+    private void rejectOversizedMessage(WebSocketSession session) throws IOException {
+        partialTexts.remove(session.getId());
+        logger.warn("WebSocket文本消息超过上限 {} 字符，关闭连接: sessionId={}", maxTextMessageChars, session.getId());
+        session.close(CloseStatus.TOO_BIG_TO_PROCESS);
+    }
+
     @Override
     public boolean supportsPartialMessages() {
-        return false;
+        // 语音二进制帧按分片直接送入VAD，文本分片在handleMessage中拼接
+        return true;
+    }
+
+    /**
+     * 把连接所属的userId写入消息；帧中携带了不同的userId时返回false。
+     * 已认证连接以令牌为准；匿名连接以握手参数为准，握手未带userId时固定为第一个携带userId的帧
+     */
+    private boolean bindPrincipal(WebSocketSession session, Map<String, Object> messageData) {
+        Map<String, Object> attributes = session.getAttributes();
+        JwtPrincipal principal = (JwtPrincipal) attributes.get(WebSocketAuthInterceptor.PRINCIPAL_ATTRIBUTE);
+        Object claimed = messageData.get("userId");
+        Long bound;
+        if (principal != null) {
+            bound = principal.getUserId();
+        } else {
+            bound = (Long) attributes.get(WebSocketAuthInterceptor.USER_ID_ATTRIBUTE);
+            if (bound == null) {
+                if (!(claimed instanceof Number)) {
+                    return claimed == null;
+                }
+                Object previous = attributes.putIfAbsent(WebSocketAuthInterceptor.USER_ID_ATTRIBUTE,
+                        ((Number) claimed).longValue());
+                bound = previous != null ? (Long) previous : ((Number) claimed).longValue();
+            }
+        }
+        if (claimed != null && !(claimed instanceof Number && ((Number) claimed).longValue() == bound)) {
+            logger.warn("WebSocket帧userId与连接身份不一致: sessionId={}, bound={}, claimed={}",
+                    session.getId(), bound, claimed);
+            return false;
+        }
+        messageData.put("userId", bound);
+        return true;
     }
 
     /**
@@ -146,6 +344,13 @@ public class ChatWebSocketHandler implements WebSocketHandler {
             responseMessage.put("timestamp", response.getTimestamp().toString());
             responseMessage.put("model", response.getModel());
             responseMessage.put("tokensUsed", response.getTokensUsed());
+            Trace trace = Tracer.currentTrace();
+            if (trace != null) {
+                responseMessage.put("responseTime", trace.elapsedMillis());
+                if (trace.isDebug()) {
+                    responseMessage.put("trace", trace.breakdown());
+                }
+            }
             
             // 发送响应给用户
             sendMessage(session, responseMessage);
@@ -225,6 +430,247 @@ public class ChatWebSocketHandler implements WebSocketHandler {
         broadcastToOthers(session, typingMessage);
     }
 
+    /**
+     * 开始实时语音流
+     */
+    private void handleVoiceStart(WebSocketSession session, Map<String, Object> messageData) {
+        if (session instanceof SockJsSession) {
+            sendErrorMessage(session, "实时语音需要原生WebSocket连接");
+            return;
+        }
+        // 匿名连接的握手和帧都可能不带userId，此时bindPrincipal不会补上
+        Object userIdValue = messageData.get("userId");
+        Object characterIdValue = messageData.get("characterId");
+        if (!(userIdValue instanceof Number)) {
+            sendErrorMessage(session, "voice_start缺少userId");
+            return;
+        }
+        if (!(characterIdValue instanceof Number)) {
+            sendErrorMessage(session, "voice_start缺少characterId");
+            return;
+        }
+        Long userId = ((Number) userIdValue).longValue();
+        Long characterId = ((Number) characterIdValue).longValue();
+        String format = ((String) messageData.getOrDefault("format", VoiceStreamSession.FORMAT_PCM)).toLowerCase(Locale.ROOT);
+        String emotion = (String) messageData.get("emotion");
+
+        VoiceActivityDetector detector = null;
+        if (VoiceStreamSession.FORMAT_PCM.equals(format)) {
+            int sampleRate = ((Number) messageData.getOrDefault("sampleRate", 16000)).intValue();
+            int channels = ((Number) messageData.getOrDefault("channels", 1)).intValue();
+            detector = new VoiceActivityDetector(sampleRate, channels, vadThresholdDb, speechStartMillis,
+                    hangoverMillis, preRollMillis, maxSegmentMillis);
+        } else if (!"opus".equals(format) && !"webm".equals(format) && !"ogg".equals(format)) {
+            sendErrorMessage(session, "不支持的语音流格式: " + format);
+            return;
+        }
+
+        String systemPrompt = characterService.getCharacterById(characterId)
+                .map(ChatCharacter::getSystemPrompt)
+                .orElse(null);
+        VoiceStreamSession voice = new VoiceStreamSession(userId, characterId, emotion, format, systemPrompt,
+                detector, maxBufferedBytes);
+        Trace trace = Tracer.currentTrace();
+        session.getAttributes().put(VOICE_DEBUG_ATTRIBUTE, trace != null && trace.isDebug());
+        VoiceStreamSession previous = voiceSessions.put(session.getId(), voice);
+        if (previous != null) {
+            previous.cancelReply();
+        }
+
+        logger.info("实时语音开始: sessionId={}, userId={}, characterId={}, format={}",
+                session.getId(), userId, characterId, format);
+
+        Map<String, Object> ready = new HashMap<>();
+        ready.put("type", "voice_ready");
+        ready.put("format", format);
+        ready.put("serverVad", voice.isPcm());
+        sendMessage(session, ready);
+    }
+
+    /**
+     * 处理语音二进制帧（可能是分片）
+     */
+    private void handleVoiceFrame(WebSocketSession session, BinaryMessage message) {
+        VoiceStreamSession voice = voiceSessions.get(session.getId());
+        if (voice == null) {
+            sendErrorMessage(session, "请先发送voice_start");
+            return;
+        }
+        try {
+            if (voice.isPcm()) {
+                voice.getDetector().feed(message.getPayload(), segmentListener(session, voice));
+            } else {
+                voice.appendContainer(message.getPayload());
+            }
+        } catch (IllegalStateException e) {
+            sendErrorMessage(session, e.getMessage());
+        }
+    }
+
+    /**
+     * 客户端标记一句结束
+     */
+    private void handleVoiceCommit(WebSocketSession session) {
+        VoiceStreamSession voice = voiceSessions.get(session.getId());
+        if (voice == null) {
+            return;
+        }
+        if (voice.isPcm()) {
+            voice.getDetector().flush(segmentListener(session, voice));
+        } else {
+            byte[] audio = voice.drainContainer();
+            if (audio != null) {
+                int segment = voice.nextSegment();
+                respondToUtterance(session, voice, segment,
+                        namedResource(audio, "voice-" + session.getId() + "-" + segment + "." + containerExtension(voice)));
+            }
+        }
+    }
+
+    /**
+     * 结束实时语音流，已说完的最后一句仍会回复
+     */
+    private void handleVoiceEnd(WebSocketSession session) {
+        handleVoiceCommit(session);
+        voiceSessions.remove(session.getId());
+        logger.info("实时语音结束: sessionId={}", session.getId());
+    }
+
+    private VoiceActivityDetector.Listener segmentListener(WebSocketSession session, VoiceStreamSession voice) {
+        return new VoiceActivityDetector.Listener() {
+            @Override
+            public void onSpeechStart() {
+                Map<String, Object> event = new HashMap<>();
+                event.put("type", "voice_speech_start");
+                // 用户开口即打断正在播报的回复
+                event.put("interrupted", bargeIn && voice.cancelReply());
+                sendMessage(session, event);
+            }
+
+            @Override
+            public void onSegment(float[] samples, int sampleRate) {
+                int segment = voice.nextSegment();
+                Resource audio = audioPreprocessor.toWav(samples, sampleRate,
+                        "voice-" + session.getId() + "-" + segment + ".wav");
+                respondToUtterance(session, voice, segment, audio);
+            }
+        };
+    }
+
+    /**
+     * 转写一句语音并流式回复：转写文本、LLM增量和按句合成的语音依次推回同一连接
+     */
+    private void respondToUtterance(WebSocketSession session, VoiceStreamSession voice, int segment, Resource audio) {
+        Trace trace = tracingService.start("WS voice_utterance",
+                Boolean.TRUE.equals(session.getAttributes().get(VOICE_DEBUG_ATTRIBUTE)));
+        Flux<SpeechSegment> pipeline = speechService.transcribeAsync(audio)
+                .filter(text -> !text.isEmpty())
+                .flatMapMany(text -> {
+                    Map<String, Object> transcript = new HashMap<>();
+                    transcript.put("type", "voice_transcript");
+                    transcript.put("segment", segment);
+                    transcript.put("text", text);
+                    sendMessage(session, transcript);
+
+                    StringBuilder fullReply = new StringBuilder();
+                    Flux<String> tokens = llmService.chatStream(text, voice.getSystemPrompt(), null)
+                            .doOnNext(delta -> {
+                                fullReply.append(delta);
+                                Map<String, Object> deltaMessage = new HashMap<>();
+                                deltaMessage.put("type", "voice_delta");
+                                deltaMessage.put("segment", segment);
+                                deltaMessage.put("delta", delta);
+                                sendMessage(session, deltaMessage);
+                            });
+                    return streamingSpeechService.synthesize(tokens, voice.getCharacterId(), voice.getEmotion())
+                            .doOnNext(speech -> sendAudio(session, segment, speech))
+                            .doOnComplete(() -> {
+                                Map<String, Object> end = new HashMap<>();
+                                end.put("type", "voice_reply_end");
+                                end.put("segment", segment);
+                                end.put("userId", voice.getUserId());
+                                end.put("characterId", voice.getCharacterId());
+                                end.put("message", fullReply.toString());
+                                end.put("timestamp", LocalDateTime.now().toString());
+                                if (trace != null && trace.isDebug()) {
+                                    end.put("trace", trace.breakdown());
+                                }
+                                sendMessage(session, end);
+                            });
+                });
+        Disposable reply = Tracer.within(pipeline, trace != null ? trace.getRoot() : null)
+                .doFinally(signal -> tracingService.finish(trace))
+                .subscribe(speech -> { }, error -> {
+                    logger.error("实时语音回复失败: sessionId={}, segment={}", session.getId(), segment, error);
+                    sendErrorMessage(session, "语音回复失败");
+                });
+        // 新的一句话取代尚未完成的旧回复
+        voice.replaceReply(reply);
+    }
+
+    /**
+     * 以二进制帧推送一段合成语音
+     */
+    private void sendAudio(WebSocketSession session, int segment, SpeechSegment speech) {
+        WebSocketSession target = sessions.getOrDefault(session.getId(), session);
+        try (Span ignored = Tracer.startSpan(Tracer.STAGE_SEND)) {
+            if (!target.isOpen()) {
+                return;
+            }
+            ByteBuffer frame = encodeAudioFrame(segment, speech);
+            chatMetrics.recordFrameOut(true, frame.remaining());
+            target.sendMessage(new BinaryMessage(frame));
+        } catch (IOException e) {
+            logger.error("发送语音帧失败", e);
+        }
+    }
+
+    /**
+     * 解析一条文本帧
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, Object> decodeFrame(String payload) throws IOException {
+        return objectMapper.readValue(payload, Map.class);
+    }
+
+    /**
+     * 序列化一条文本帧
+     */
+    String encodeFrame(Object message) throws IOException {
+        return objectMapper.writeValueAsString(message);
+    }
+
+    /**
+     * 编码语音二进制帧：4字节头部长度 + JSON头部 + 音频数据
+     */
+    ByteBuffer encodeAudioFrame(int segment, SpeechSegment speech) throws IOException {
+        Map<String, Object> header = new HashMap<>();
+        header.put("type", "voice_audio");
+        header.put("segment", segment);
+        header.put("index", speech.getIndex());
+        header.put("text", speech.getText());
+        header.put("format", "mp3");
+        byte[] headerBytes = objectMapper.writeValueAsString(header).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(4 + headerBytes.length + speech.getAudio().length);
+        frame.putInt(headerBytes.length).put(headerBytes).put(speech.getAudio());
+        frame.flip();
+        return frame;
+    }
+
+    private static String containerExtension(VoiceStreamSession voice) {
+        // Opus帧由浏览器MediaRecorder封装，默认按webm提交
+        return "opus".equals(voice.getFormat()) ? "webm" : voice.getFormat();
+    }
+
+    private static Resource namedResource(byte[] audio, String filename) {
+        return new ByteArrayResource(audio) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        };
+    }
+
     /**
      * 处理心跳消息
      */
@@ -239,10 +685,12 @@ public class ChatWebSocketHandler implements WebSocketHandler {
      * 发送消息给指定会话
      */
     private void sendMessage(WebSocketSession session, Object message) {
-        try {
-            if (session.isOpen()) {
-                String jsonMessage = objectMapper.writeValueAsString(message);
-                session.sendMessage(new TextMessage(jsonMessage));
+        WebSocketSession target = sessions.getOrDefault(session.getId(), session);
+        try (Span ignored = Tracer.startSpan(Tracer.STAGE_SEND)) {
+            if (target.isOpen()) {
+                TextMessage textMessage = new TextMessage(encodeFrame(message));
+                chatMetrics.recordFrameOut(false, textMessage.getPayloadLength());
+                target.sendMessage(textMessage);
             }
         } catch (IOException e) {
             logger.error("发送WebSocket消息失败", e);
@@ -264,19 +712,27 @@ public class ChatWebSocketHandler implements WebSocketHandler {
      * 广播消息给所有其他用户
      */
     private void broadcastToOthers(WebSocketSession excludeSession, Object message) {
-        sessions.values().parallelStream()
-            .filter(session -> !session.getId().equals(excludeSession.getId()))
-            .filter(WebSocketSession::isOpen)
-            .forEach(session -> sendMessage(session, message));
+        broadcast(message, excludeSession.getId());
     }
 
     /**
      * 广播消息给所有用户
      */
     private void broadcastToAll(Object message) {
-        sessions.values().parallelStream()
+        broadcast(message, null);
+    }
+
+    private void broadcast(Object message, String excludeSessionId) {
+        FlightRecorderEvents.WebSocketBroadcast event = FlightRecorderEvents.webSocketBroadcast();
+        int fanOut = sessions.values().parallelStream()
+            .filter(session -> !session.getId().equals(excludeSessionId))
             .filter(WebSocketSession::isOpen)
-            .forEach(session -> sendMessage(session, message));
+            .mapToInt(session -> {
+                sendMessage(session, message);
+                return 1;
+            })
+            .sum();
+        event.record(message instanceof Map ? String.valueOf(((Map<?, ?>) message).get("type")) : null, fanOut);
     }
 
     /**
@@ -296,6 +752,11 @@ public class ChatWebSocketHandler implements WebSocketHandler {
     private void cleanupSession(WebSocketSession session) {
         String sessionId = session.getId();
         sessions.remove(sessionId);
+        partialTexts.remove(sessionId);
+        VoiceStreamSession voice = voiceSessions.remove(sessionId);
+        if (voice != null) {
+            voice.cancelReply();
+        }
         
         // 查找并移除用户映射
         userSessions.entrySet().removeIf(entry -> entry.getValue().equals(sessionId));
@@ -333,6 +794,33 @@ public class ChatWebSocketHandler implements WebSocketHandler {
         return onlineUsers.size();
     }
 
+    /**
+     * 获取活跃连接数量
+     */
+    public int getActiveSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * 获取进行中的实时语音会话数量
+     */
+    public int getVoiceSessionCount() {
+        return voiceSessions.size();
+    }
+
+    /**
+     * 所有连接尚未发出的发送缓冲字节数
+     */
+    public long getSendBufferBytes() {
+        long total = 0;
+        for (WebSocketSession session : sessions.values()) {
+            if (session instanceof ConcurrentWebSocketSessionDecorator) {
+                total += ((ConcurrentWebSocketSessionDecorator) session).getBufferSize();
+            }
+        }
+        return total;
+    }
+
     /**
      * 检查用户是否在线
      */
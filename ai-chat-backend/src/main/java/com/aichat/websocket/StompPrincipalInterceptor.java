@@ -0,0 +1,41 @@
+package com.aichat.websocket;
+
+import com.aichat.security.JwtPrincipal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * STOMP入站通道拦截器
+ * 握手阶段由 {@link WebSocketAuthInterceptor} 验证的身份在CONNECT帧上绑定为STOMP会话用户，
+ * 之后该会话的所有消息都携带此身份，控制器以它为准而不是消息体中的userId。
+ */
+@Component
+public class StompPrincipalInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(StompPrincipalInterceptor.class);
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.CONNECT) {
+            return message;
+        }
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        JwtPrincipal principal = attributes != null
+                ? (JwtPrincipal) attributes.get(WebSocketAuthInterceptor.PRINCIPAL_ATTRIBUTE) : null;
+        if (principal != null) {
+            accessor.setUser(principal);
+            logger.debug("STOMP会话绑定用户: sessionId={}, userId={}", accessor.getSessionId(), principal.getUserId());
+        }
+        return message;
+    }
+}
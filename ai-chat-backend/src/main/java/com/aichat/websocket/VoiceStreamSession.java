@@ -0,0 +1,127 @@
+package com.aichat.websocket;
+
+import com.aichat.service.speech.VoiceActivityDetector;
+import reactor.core.Disposable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 单个WebSocket连接上的实时语音流状态
+ * PCM流由服务端VAD切句；Opus等封装格式无法在服务端逐帧解码，
+ * 由客户端发送 voice_commit 标记一句结束，服务端只负责缓冲。
+ */
+final class VoiceStreamSession {
+
+    static final String FORMAT_PCM = "pcm";
+
+    private final Long userId;
+    private final Long characterId;
+    private final String emotion;
+    private final String format;
+    private final String systemPrompt;
+    private final VoiceActivityDetector detector;
+    private final int maxBufferedBytes;
+
+    private final ByteArrayOutputStream containerBuffer = new ByteArrayOutputStream();
+    private final AtomicInteger segmentCounter = new AtomicInteger();
+    private final AtomicReference<Disposable> reply = new AtomicReference<>();
+
+    VoiceStreamSession(Long userId, Long characterId, String emotion, String format, String systemPrompt,
+                       VoiceActivityDetector detector, int maxBufferedBytes) {
+        this.userId = userId;
+        this.characterId = characterId;
+        this.emotion = emotion;
+        this.format = format;
+        this.systemPrompt = systemPrompt;
+        this.detector = detector;
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    Long getUserId() {
+        return userId;
+    }
+
+    Long getCharacterId() {
+        return characterId;
+    }
+
+    String getEmotion() {
+        return emotion;
+    }
+
+    String getFormat() {
+        return format;
+    }
+
+    String getSystemPrompt() {
+        return systemPrompt;
+    }
+
+    boolean isPcm() {
+        return detector != null;
+    }
+
+    VoiceActivityDetector getDetector() {
+        return detector;
+    }
+
+    int nextSegment() {
+        return segmentCounter.incrementAndGet();
+    }
+
+    /**
+     * 缓冲封装格式的音频帧
+     *
+     * @throws IllegalStateException 超过单句缓冲上限时抛出
+     */
+    void appendContainer(ByteBuffer payload) {
+        if (containerBuffer.size() + payload.remaining() > maxBufferedBytes) {
+            containerBuffer.reset();
+            throw new IllegalStateException("单句语音过长，请分句提交");
+        }
+        if (payload.hasArray()) {
+            containerBuffer.write(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+        } else {
+            byte[] bytes = new byte[payload.remaining()];
+            payload.duplicate().get(bytes);
+            containerBuffer.write(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * 取出并清空已缓冲的封装格式音频，没有数据时返回null
+     */
+    byte[] drainContainer() {
+        if (containerBuffer.size() == 0) {
+            return null;
+        }
+        byte[] audio = containerBuffer.toByteArray();
+        containerBuffer.reset();
+        return audio;
+    }
+
+    /**
+     * 记录新的回复流，并取消仍在进行的上一条回复
+     */
+    void replaceReply(Disposable next) {
+        Disposable previous = reply.getAndSet(next);
+        if (previous != null) {
+            previous.dispose();
+        }
+    }
+
+    /**
+     * 取消正在进行的回复，返回是否确实打断了回复
+     */
+    boolean cancelReply() {
+        Disposable previous = reply.getAndSet(null);
+        if (previous != null && !previous.isDisposed()) {
+            previous.dispose();
+            return true;
+        }
+        return false;
+    }
+}
@@ -1,31 +1,71 @@
 package com.aichat.websocket;
 
+import com.aichat.security.InvalidTokenException;
+import com.aichat.security.JwtPrincipal;
+import com.aichat.security.JwtVerifier;
+import com.aichat.service.tracing.Span;
+import com.aichat.service.tracing.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.server.HandshakeInterceptor;
 
+import javax.annotation.PostConstruct;
 import java.util.Map;
 
 /**
  * WebSocket认证拦截器
- * 在WebSocket握手阶段进行身份验证
+ * 在WebSocket握手阶段进行身份验证：令牌可以放在查询参数token中，也可以放在Authorization请求头中。
+ * 验证通过后身份写入会话属性，之后该连接上所有帧的userId都以此为准。
+ * 配置了签名密钥时默认必须携带令牌；允许匿名连接时，连接固定为握手参数中的userId，帧中不能再冒充其他用户。
  */
 @Component
 public class WebSocketAuthInterceptor implements HandshakeInterceptor {
 
     private static final Logger logger = LoggerFactory.getLogger(WebSocketAuthInterceptor.class);
 
+    /**
+     * 会话属性：已验证的身份（JwtPrincipal）
+     */
+    public static final String PRINCIPAL_ATTRIBUTE = "principal";
+
+    /**
+     * 会话属性：连接所属的userId（Long），匿名连接取握手参数或首个携带userId的帧
+     */
+    public static final String USER_ID_ATTRIBUTE = "userId";
+
+    @Autowired
+    private JwtVerifier jwtVerifier;
+
+    // 为false时允许不带令牌的匿名连接，带了令牌则必须有效；未配置时，配置了签名密钥即为true
+    @Value("${security.jwt.websocket-required:#{null}}")
+    private Boolean websocketRequired;
+
+    private boolean tokenRequired;
+
+    @PostConstruct
+    public void init() {
+        tokenRequired = websocketRequired != null ? websocketRequired : jwtVerifier.isConfigured();
+        if (!tokenRequired) {
+            logger.warn("WebSocket允许不带令牌的匿名连接，连接身份以握手参数userId为准");
+        }
+    }
+
     @Override
     public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
                                    WebSocketHandler wsHandler, Map<String, Object> attributes) throws Exception {
         
-        logger.info("WebSocket握手前验证: {}", request.getURI());
+        logger.info("WebSocket握手前验证: {}", request.getURI().getPath());
         
         // 获取查询参数
+        String token = null;
+        String userId = null;
         String query = request.getURI().getQuery();
         if (query != null) {
             // 解析用户ID和token
@@ -37,19 +77,49 @@ public class WebSocketAuthInterceptor implements HandshakeInterceptor {
                     String value = keyValue[1];
                     
                     if ("userId".equals(key)) {
-                        attributes.put("userId", value);
-                        logger.info("WebSocket用户ID: {}", value);
+                        userId = value;
                     } else if ("token".equals(key)) {
-                        attributes.put("token", value);
-                        logger.info("WebSocket认证token已获取");
+                        token = value;
                     }
                 }
             }
         }
-        
-        // 简单验证逻辑（实际项目中应该验证JWT token）
-        // 这里暂时允许所有连接
-        return true;
+        if (token == null) {
+            String authorization = request.getHeaders().getFirst("Authorization");
+            if (authorization != null && authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+                token = authorization.substring(7).trim();
+            }
+        }
+
+        if (token == null || token.isEmpty()) {
+            if (tokenRequired) {
+                logger.warn("WebSocket握手缺少令牌: {}", request.getRemoteAddress());
+                response.setStatusCode(HttpStatus.UNAUTHORIZED);
+                return false;
+            }
+            if (userId != null) {
+                try {
+                    attributes.put(USER_ID_ATTRIBUTE, Long.parseLong(userId));
+                } catch (NumberFormatException e) {
+                    logger.warn("WebSocket握手userId无效: {}", userId);
+                    response.setStatusCode(HttpStatus.BAD_REQUEST);
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        try (Span ignored = Tracer.startSpan(Tracer.STAGE_AUTH)) {
+            JwtPrincipal principal = jwtVerifier.verify(token);
+            attributes.put(PRINCIPAL_ATTRIBUTE, principal);
+            attributes.put(USER_ID_ATTRIBUTE, principal.getUserId());
+            logger.info("WebSocket用户已认证: userId={}", principal.getUserId());
+            return true;
+        } catch (InvalidTokenException e) {
+            logger.warn("WebSocket令牌无效: {}", e.getMessage());
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
     }
 
     @Override
@@ -58,7 +128,7 @@ public class WebSocketAuthInterceptor implements HandshakeInterceptor {
         if (exception != null) {
             logger.error("WebSocket握手失败", exception);
         } else {
-            logger.info("WebSocket握手成功: {}", request.getURI());
+            logger.info("WebSocket握手成功: {}", request.getURI().getPath());
         }
     }
-}
\ No newline at end of file
+}
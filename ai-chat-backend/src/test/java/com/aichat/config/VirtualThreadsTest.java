@@ -0,0 +1,113 @@
+package com.aichat.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VirtualThreadsTest {
+
+    @Test
+    void supportFollowsRuntimeVersion() {
+        assertEquals(featureVersion() >= 21, VirtualThreads.isSupported());
+    }
+
+    @Test
+    void unsupportedRuntimeFailsFast() {
+        assumeFalse(VirtualThreads.isSupported());
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> VirtualThreads.threadFactory("vt-"));
+        assertTrue(error.getMessage().contains(System.getProperty("java.version")));
+        assertThrows(IllegalStateException.class, () -> VirtualThreads.newThreadPerTaskExecutor("vt-"));
+
+        VirtualThreadConfig config = config(4);
+        assertThrows(IllegalStateException.class, config::init);
+    }
+
+    @Test
+    void threadFactoryCreatesNamedVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+        ThreadFactory factory = VirtualThreads.threadFactory("vt-");
+
+        Thread first = factory.newThread(() -> { });
+        Thread second = factory.newThread(() -> { });
+
+        assertTrue(isVirtual(first));
+        assertEquals("vt-0", first.getName());
+        assertEquals("vt-1", second.getName());
+    }
+
+    @Test
+    void threadPerTaskExecutorRunsEachTaskOnVirtualThread() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("task-");
+        try {
+            Future<Thread> first = executor.submit(Thread::currentThread);
+            Future<Thread> second = executor.submit(Thread::currentThread);
+
+            assertTrue(isVirtual(first.get(5, TimeUnit.SECONDS)));
+            assertNotSame(first.get(), second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void channelAndTaskExecutorsUseVirtualThreadsUpToConcurrencyLimit() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+        VirtualThreadConfig config = config(4);
+        config.init();
+
+        ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+        config.virtualThreadTaskExecutorCustomizer().customize(taskExecutor);
+        assertEquals(4, taskExecutor.getCorePoolSize());
+        assertEquals(4, taskExecutor.getMaxPoolSize());
+        taskExecutor.initialize();
+        try {
+            Thread worker = taskExecutor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+            assertTrue(isVirtual(worker));
+            assertTrue(worker.getName().startsWith("task-vt-"));
+        } finally {
+            taskExecutor.shutdown();
+        }
+
+        ChannelRegistration registration = new ChannelRegistration();
+        config.configureClientInboundChannel(registration);
+        ThreadPoolTaskExecutor channelExecutor = (ThreadPoolTaskExecutor) ReflectionTestUtils.getField(
+                ReflectionTestUtils.getField(registration, "registration"), "taskExecutor");
+        assertEquals(4, channelExecutor.getMaxPoolSize());
+        channelExecutor.initialize();
+        try {
+            Thread worker = channelExecutor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+            assertTrue(isVirtual(worker));
+            assertTrue(worker.getName().startsWith("stomp-inbound-vt-"));
+        } finally {
+            channelExecutor.shutdown();
+        }
+    }
+
+    private static VirtualThreadConfig config(int maxConcurrency) {
+        VirtualThreadConfig config = new VirtualThreadConfig();
+        ReflectionTestUtils.setField(config, "maxConcurrency", maxConcurrency);
+        return config;
+    }
+
+    private static boolean isVirtual(Thread thread) throws Exception {
+        return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+
+    private static int featureVersion() {
+        String version = System.getProperty("java.specification.version");
+        return version.startsWith("1.") ? Integer.parseInt(version.substring(2)) : Integer.parseInt(version);
+    }
+}
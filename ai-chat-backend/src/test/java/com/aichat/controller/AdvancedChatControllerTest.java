@@ -0,0 +1,215 @@
+package com.aichat.controller;
+
+import com.aichat.dto.BatchChatRequest;
+import com.aichat.dto.ChatRequest;
+import com.aichat.dto.ChatResponse;
+import com.aichat.service.ChatService;
+import com.aichat.service.LLMService;
+import com.aichat.service.OpenAISpeechService;
+import com.aichat.service.ReactiveChatService;
+import com.aichat.service.batch.BatchChatService;
+import com.aichat.service.catalog.ChatCharacterCatalog;
+import com.aichat.service.prompt.CharacterPromptCache;
+import com.aichat.service.speech.SpeechAudioCache;
+import com.aichat.service.speech.SynthesizedAudio;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AdvancedChatControllerTest {
+
+    private LLMService llmService;
+    private SimpMessagingTemplate messagingTemplate;
+    private ReactiveChatService reactiveChatService;
+    private BatchChatService batchChatService;
+    private OpenAISpeechService speechService;
+    private SpeechAudioCache audioCache;
+    private AdvancedChatController controller;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        llmService = mock(LLMService.class);
+        ChatCharacterCatalog catalog = mock(ChatCharacterCatalog.class);
+        when(catalog.getCharacter(any())).thenReturn(Optional.empty());
+        ObjectProvider<ChatService> provider = mock(ObjectProvider.class);
+        CharacterPromptCache prompts = new CharacterPromptCache();
+        ReflectionTestUtils.setField(prompts, "characterCatalog", catalog);
+        prompts.init();
+
+        reactiveChatService = new ReactiveChatService();
+        ReflectionTestUtils.setField(reactiveChatService, "llmService", llmService);
+        ReflectionTestUtils.setField(reactiveChatService, "characterCatalog", catalog);
+        ReflectionTestUtils.setField(reactiveChatService, "characterPrompts", prompts);
+        ReflectionTestUtils.setField(reactiveChatService, "chatService", provider);
+        ReflectionTestUtils.setField(reactiveChatService, "persistenceThreads", 1);
+        ReflectionTestUtils.setField(reactiveChatService, "persistenceQueueSize", 10);
+        reactiveChatService.init();
+
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        controller = new AdvancedChatController();
+        ReflectionTestUtils.setField(controller, "reactiveChatService", reactiveChatService);
+        ReflectionTestUtils.setField(controller, "messagingTemplate", messagingTemplate);
+
+        speechService = mock(OpenAISpeechService.class);
+        audioCache = mock(SpeechAudioCache.class);
+        ReflectionTestUtils.setField(controller, "speechService", speechService);
+        ReflectionTestUtils.setField(controller, "audioCache", audioCache);
+
+        batchChatService = new BatchChatService();
+        ReflectionTestUtils.setField(batchChatService, "reactiveChatService", reactiveChatService);
+        ReflectionTestUtils.setField(batchChatService, "defaultConcurrency", 2);
+        ReflectionTestUtils.setField(batchChatService, "maxConcurrency", 2);
+        ReflectionTestUtils.setField(batchChatService, "defaultItemTimeoutMillis", 5000L);
+        ReflectionTestUtils.setField(batchChatService, "maxItems", 1);
+        ReflectionTestUtils.setField(batchChatService, "maxJobItems", 1);
+        ReflectionTestUtils.setField(batchChatService, "maxActiveJobs", 0);
+        ReflectionTestUtils.setField(controller, "batchChatService", batchChatService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reactiveChatService.shutdown();
+    }
+
+    @Test
+    void reactiveSendReturnsReplyAndBroadcastsIt() {
+        when(llmService.chatAsync(anyString(), anyString(), anyString())).thenReturn(Mono.just("在的"));
+
+        ResponseEntity<ChatResponse> entity = controller.sendMessageReactive(new ChatRequest(1L, 7L, "在吗"))
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(HttpStatus.OK, entity.getStatusCode());
+        assertEquals("在的", entity.getBody().getMessage());
+        verify(messagingTemplate).convertAndSend(eq("/topic/chat/1"), same(entity.getBody()));
+    }
+
+    @Test
+    void reactiveSendFailureOfNewConversationCarriesGeneratedSessionId() {
+        when(llmService.chatAsync(anyString(), anyString(), anyString()))
+                .thenReturn(Mono.error(new IllegalStateException("upstream 503")));
+        ChatRequest request = new ChatRequest(1L, 7L, "在吗");
+
+        ResponseEntity<ChatResponse> entity = controller.sendMessageReactive(request).block(Duration.ofSeconds(5));
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, entity.getStatusCode());
+        ChatResponse body = entity.getBody();
+        assertEquals(ChatResponse.ResponseStatus.ERROR, body.getStatus());
+        assertEquals("upstream 503", body.getError());
+        assertNotNull(body.getSessionId());
+        assertEquals(request.getSessionId(), body.getSessionId());
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void reactiveSendFailureKeepsClientSessionId() {
+        when(llmService.chatAsync(anyString(), anyString(), anyString()))
+                .thenReturn(Mono.error(new IllegalStateException("upstream 503")));
+
+        ResponseEntity<ChatResponse> entity = controller
+                .sendMessageReactive(new ChatRequest(1L, 7L, "在吗", "s-1", null))
+                .block(Duration.ofSeconds(5));
+
+        assertEquals("s-1", entity.getBody().getSessionId());
+    }
+
+    @Test
+    void invalidBatchProcessReturnsSameErrorBodyAsBatchJobs() {
+        ResponseEntity<Flux<?>> process = controller.batchProcessMessages(new BatchChatRequest());
+        ResponseEntity<Map<String, Object>> submit = controller.submitBatchJob(new BatchChatRequest());
+
+        assertEquals(HttpStatus.BAD_REQUEST, process.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, submit.getStatusCode());
+        List<?> lines = process.getBody().collectList().block(Duration.ofSeconds(5));
+        assertEquals(Collections.singletonList(submit.getBody()), lines);
+        assertEquals(false, submit.getBody().get("success"));
+        assertEquals("批量请求不能为空", submit.getBody().get("error"));
+    }
+
+    @Test
+    void batchJobOverActiveLimitReturnsTooManyRequests() {
+        BatchChatRequest request = new BatchChatRequest(Collections.singletonList(new ChatRequest(1L, 7L, "在吗")));
+
+        ResponseEntity<Map<String, Object>> submit = controller.submitBatchJob(request);
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, submit.getStatusCode());
+        assertEquals(false, submit.getBody().get("success"));
+        assertNotNull(submit.getBody().get("error"));
+    }
+
+    @Test
+    void unknownBatchJobIsNotFound() {
+        assertEquals(HttpStatus.NOT_FOUND, controller.getBatchJob("missing", 0, 10).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, controller.cancelBatchJob("missing").getStatusCode());
+    }
+
+    @Test
+    void cachedSpeechIsReturnedAsDownloadUrl() {
+        when(speechService.synthesizeToCache("你好", null)).thenReturn(new SynthesizedAudio("k1", new byte[] {1, 2, 3}, true));
+
+        Map<String, Object> body = controller.textToSpeech("你好", "default", 1L).getBody();
+
+        assertEquals("/api/v2/chat/audio/k1", body.get("audioUrl"));
+        assertFalse(body.containsKey("audioData"));
+    }
+
+    @Test
+    void uncachedSpeechIsReturnedInline() {
+        when(speechService.synthesizeToCache("你好", null)).thenReturn(new SynthesizedAudio("k1", new byte[] {1, 2, 3}, false));
+
+        Map<String, Object> body = controller.textToSpeech("你好", "default", 1L).getBody();
+
+        assertFalse(body.containsKey("audioUrl"));
+        assertArrayEquals(new byte[] {1, 2, 3}, Base64.getDecoder().decode((String) body.get("audioData")));
+        assertEquals("mp3", body.get("audioFormat"));
+    }
+
+    @Test
+    void cachedAudioIsServedWithContentLength() throws IOException {
+        when(audioCache.getLength("k1")).thenReturn(3);
+        when(audioCache.transferTo(eq("k1"), any())).thenAnswer(invocation -> {
+            invocation.getArgument(1, WritableByteChannel.class).write(ByteBuffer.wrap(new byte[] {1, 2, 3}));
+            return true;
+        });
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.getSynthesizedAudio("k1", response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(3, response.getContentLength());
+        assertArrayEquals(new byte[] {1, 2, 3}, response.getContentAsByteArray());
+    }
+
+    @Test
+    void missingAudioIsNotFound() throws IOException {
+        when(audioCache.getLength("k1")).thenReturn(-1);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.getSynthesizedAudio("k1", response);
+
+        assertEquals(404, response.getStatus());
+        verify(audioCache, never()).transferTo(anyString(), any());
+    }
+}
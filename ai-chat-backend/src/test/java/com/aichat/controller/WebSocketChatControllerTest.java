@@ -0,0 +1,105 @@
+package com.aichat.controller;
+
+import com.aichat.dto.ChatRequest;
+import com.aichat.dto.ChatResponse;
+import com.aichat.security.JwtPrincipal;
+import com.aichat.service.AIService;
+import com.aichat.websocket.WebSocketAuthInterceptor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WebSocketChatControllerTest {
+
+    private AIService aiService;
+    private WebSocketChatController controller;
+
+    @BeforeEach
+    void setUp() {
+        aiService = mock(AIService.class);
+        when(aiService.sendMessage(any())).thenReturn(new ChatResponse());
+        controller = new WebSocketChatController();
+        ReflectionTestUtils.setField(controller, "aiService", aiService);
+    }
+
+    @Test
+    void authenticatedSenderComesFromPrincipal() {
+        SimpMessageHeaderAccessor headers = headers(new HashMap<>());
+        headers.setUser(new JwtPrincipal(7L, "alice", Collections.<String>emptyList(), Long.MAX_VALUE));
+
+        controller.sendMessage(message(null, "你好"), headers);
+
+        assertEquals(Long.valueOf(7), sentRequest().getUserId());
+    }
+
+    @Test
+    void authenticatedSenderCannotClaimAnotherUser() {
+        SimpMessageHeaderAccessor headers = headers(new HashMap<>());
+        headers.setUser(new JwtPrincipal(7L, "alice", Collections.<String>emptyList(), Long.MAX_VALUE));
+
+        Map<String, Object> reply = controller.sendMessage(message(8, "你好"), headers);
+
+        assertEquals("error", reply.get("type"));
+        verifyNoInteractions(aiService);
+        assertNull(controller.joinRoom(message(8, null), headers));
+    }
+
+    @Test
+    void anonymousSenderIsPinnedToHandshakeUserId() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(WebSocketAuthInterceptor.USER_ID_ATTRIBUTE, 3L);
+        SimpMessageHeaderAccessor headers = headers(attributes);
+
+        controller.sendMessage(message("3", "你好"), headers);
+        assertEquals(Long.valueOf(3), sentRequest().getUserId());
+
+        assertEquals("error", controller.sendMessage(message(4, "你好"), headers).get("type"));
+        assertEquals(3L, controller.handleTyping(message(null, null), headers).get("userId"));
+    }
+
+    @Test
+    void anonymousWithoutHandshakeUserIdIsPinnedToFirstMessage() {
+        Map<String, Object> attributes = new HashMap<>();
+        SimpMessageHeaderAccessor headers = headers(attributes);
+
+        assertNull(controller.leaveRoom(message(null, null), headers));
+        assertEquals(5L, controller.joinRoom(message(5, null), headers).get("userId"));
+
+        assertEquals(5L, attributes.get(WebSocketAuthInterceptor.USER_ID_ATTRIBUTE));
+        assertNull(controller.leaveRoom(message(6, null), headers));
+    }
+
+    private ChatRequest sentRequest() {
+        ArgumentCaptor<ChatRequest> captor = ArgumentCaptor.forClass(ChatRequest.class);
+        verify(aiService).sendMessage(captor.capture());
+        return captor.getValue();
+    }
+
+    private static SimpMessageHeaderAccessor headers(Map<String, Object> attributes) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setSessionId("s1");
+        accessor.setSessionAttributes(attributes);
+        return accessor;
+    }
+
+    private static Map<String, Object> message(Object userId, String content) {
+        Map<String, Object> message = new HashMap<>();
+        if (userId != null) {
+            message.put("userId", userId);
+        }
+        if (content != null) {
+            message.put("content", content);
+        }
+        return message;
+    }
+}
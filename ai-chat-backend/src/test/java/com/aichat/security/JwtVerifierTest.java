@@ -0,0 +1,319 @@
+package com.aichat.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtVerifierTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret";
+    private static final long NOW = 1_700_000_000L;
+    private static final long SKEW = 30;
+
+    private static final KeyPair RSA_KEYS = generateRsaKeys();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private MutableClock clock;
+    private JwtVerifier verifier;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(NOW * 1000);
+        verifier = verifier("", "");
+    }
+
+    @Test
+    void acceptsValidHs256Token() {
+        JwtPrincipal principal = verifier.verify(hs256(header("HS256"), claims(42, NOW + 600), SECRET));
+
+        assertEquals(Long.valueOf(42), principal.getUserId());
+        assertEquals(NOW + 600, principal.getExpiresAt());
+    }
+
+    @Test
+    void acceptsValidRs256Token() {
+        JwtPrincipal principal = verifier.verify(rs256(header("RS256"), claims(7, NOW + 600), RSA_KEYS.getPrivate()));
+
+        assertEquals(Long.valueOf(7), principal.getUserId());
+    }
+
+    @Test
+    void rejectsAlgNone() {
+        String token = encode(header("none")) + "." + encode(claims(42, NOW + 600)) + ".";
+
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(token));
+    }
+
+    @Test
+    void rejectsHsTokenSignedWithAnotherSecret() {
+        String token = hs256(header("HS256"), claims(42, NOW + 600), "another-secret");
+
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(token));
+    }
+
+    @Test
+    void rejectsTamperedClaims() {
+        String token = hs256(header("HS256"), claims(42, NOW + 600), SECRET);
+        String[] parts = token.split("\\.");
+        String forged = parts[0] + "." + encode(claims(1, NOW + 600)) + "." + parts[2];
+
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(forged));
+    }
+
+    @Test
+    void rejectsRsTokenSignedWithAnotherKey() {
+        String token = rs256(header("RS256"), claims(7, NOW + 600), generateRsaKeys().getPrivate());
+
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(token));
+    }
+
+    @Test
+    void rejectsRsTokenResignedAsHsWithPublicKey() {
+        // 算法混淆：用公钥内容作为HMAC密钥
+        String publicKey = Base64.getEncoder().encodeToString(RSA_KEYS.getPublic().getEncoded());
+        String token = hs256(header("HS256"), claims(7, NOW + 600), publicKey);
+
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(token));
+    }
+
+    @Test
+    void expiryHonoursClockSkew() {
+        String withinSkew = hs256(header("HS256"), claims(42, NOW - SKEW + 1), SECRET);
+        String beyondSkew = hs256(header("HS256"), claims(42, NOW - SKEW - 1), SECRET);
+
+        assertEquals(Long.valueOf(42), verifier.verify(withinSkew).getUserId());
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(beyondSkew));
+    }
+
+    @Test
+    void notBeforeHonoursClockSkew() {
+        Map<String, Object> soon = claims(42, NOW + 600);
+        soon.put("nbf", NOW + SKEW - 1);
+        Map<String, Object> later = claims(42, NOW + 600);
+        later.put("nbf", NOW + SKEW + 1);
+
+        assertEquals(Long.valueOf(42), verifier.verify(hs256(header("HS256"), soon, SECRET)).getUserId());
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(hs256(header("HS256"), later, SECRET)));
+    }
+
+    @Test
+    void rejectsMissingExpiry() {
+        Map<String, Object> claims = claims(42, 0);
+        claims.remove("exp");
+
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(hs256(header("HS256"), claims, SECRET)));
+    }
+
+    @Test
+    void rejectsUnknownKeyId() {
+        verifier = verifier("", "key-1");
+        Map<String, Object> known = header("HS256");
+        known.put("kid", "key-1");
+        Map<String, Object> unknown = header("HS256");
+        unknown.put("kid", "key-2");
+
+        assertEquals(Long.valueOf(42), verifier.verify(hs256(known, claims(42, NOW + 600), SECRET)).getUserId());
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(hs256(unknown, claims(42, NOW + 600), SECRET)));
+    }
+
+    @Test
+    void rejectsWrongIssuer() {
+        verifier = verifier("https://auth.example.com", "");
+        Map<String, Object> claims = claims(42, NOW + 600);
+        claims.put("iss", "https://evil.example.com");
+
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(hs256(header("HS256"), claims, SECRET)));
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(""));
+        assertThrows(InvalidTokenException.class, () -> verifier.verify("abc"));
+        assertThrows(InvalidTokenException.class, () -> verifier.verify("a.b.c.d"));
+        assertThrows(InvalidTokenException.class, () -> verifier.verify("!!!.???.###"));
+    }
+
+    @Test
+    void repeatedTokenIsServedFromCache() {
+        String token = hs256(header("HS256"), claims(42, NOW + 600), SECRET);
+
+        verifier.verify(token);
+        verifier.verify(token);
+
+        assertEquals(1, verifier.getCacheMissCount());
+        assertEquals(1, verifier.getCacheHitCount());
+    }
+
+    @Test
+    void cacheNeverOutlivesExpiry() {
+        String token = hs256(header("HS256"), claims(42, NOW + 10), SECRET);
+        verifier.verify(token);
+
+        // 已过exp但仍在时钟偏差内：不能命中缓存，重新验证后通过
+        clock.set((NOW + 11) * 1000);
+        assertEquals(Long.valueOf(42), verifier.verify(token).getUserId());
+        assertEquals(0, verifier.getCacheHitCount());
+        assertEquals(2, verifier.getCacheMissCount());
+
+        // 偏差宽限期内验证通过的令牌也不进入缓存
+        assertEquals(Long.valueOf(42), verifier.verify(token).getUserId());
+        assertEquals(0, verifier.getCacheHitCount());
+
+        clock.set((NOW + 10 + SKEW + 1) * 1000);
+        assertThrows(InvalidTokenException.class, () -> verifier.verify(token));
+    }
+
+    @Test
+    void cacheEntryExpiresAfterMaxTtl() {
+        String token = hs256(header("HS256"), claims(42, NOW + 3600), SECRET);
+        verifier.verify(token);
+
+        clock.set((NOW + 899) * 1000);
+        verifier.verify(token);
+        assertEquals(1, verifier.getCacheHitCount());
+
+        clock.set((NOW + 901) * 1000);
+        verifier.verify(token);
+        assertEquals(1, verifier.getCacheHitCount());
+        assertEquals(2, verifier.getCacheMissCount());
+    }
+
+    @Test
+    void rejectsEverythingWithoutConfiguredKeys() {
+        JwtVerifier unconfigured = new JwtVerifier();
+        ReflectionTestUtils.setField(unconfigured, "secret", "");
+        ReflectionTestUtils.setField(unconfigured, "publicKeyPem", "");
+        unconfigured.init();
+
+        assertFalse(unconfigured.isConfigured());
+        assertThrows(InvalidTokenException.class,
+                () -> unconfigured.verify(hs256(header("HS256"), claims(42, NOW + 600), SECRET)));
+    }
+
+    private JwtVerifier verifier(String issuer, String keyId) {
+        JwtVerifier verifier = new JwtVerifier();
+        ReflectionTestUtils.setField(verifier, "secret", SECRET);
+        ReflectionTestUtils.setField(verifier, "publicKeyPem", "-----BEGIN PUBLIC KEY-----\n"
+                + Base64.getMimeEncoder().encodeToString(RSA_KEYS.getPublic().getEncoded())
+                + "\n-----END PUBLIC KEY-----");
+        ReflectionTestUtils.setField(verifier, "issuer", issuer);
+        ReflectionTestUtils.setField(verifier, "keyId", keyId);
+        ReflectionTestUtils.setField(verifier, "clockSkewSeconds", SKEW);
+        ReflectionTestUtils.setField(verifier, "cacheMaxSize", 100);
+        ReflectionTestUtils.setField(verifier, "cacheMaxTtlSeconds", 900L);
+        ReflectionTestUtils.setField(verifier, "clock", clock);
+        verifier.init();
+        return verifier;
+    }
+
+    private static Map<String, Object> header(String algorithm) {
+        Map<String, Object> header = new HashMap<>();
+        header.put("alg", algorithm);
+        header.put("typ", "JWT");
+        return header;
+    }
+
+    private static Map<String, Object> claims(long userId, long expiresAt) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("sub", String.valueOf(userId));
+        claims.put("exp", expiresAt);
+        return claims;
+    }
+
+    private String hs256(Map<String, Object> header, Map<String, Object> claims, String secret) {
+        try {
+            String signingInput = encode(header) + "." + encode(claims);
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return signingInput + "." + base64(mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String rs256(Map<String, Object> header, Map<String, Object> claims, PrivateKey key) {
+        try {
+            String signingInput = encode(header) + "." + encode(claims);
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(key);
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + base64(signature.sign());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String encode(Map<String, Object> json) {
+        try {
+            return base64(objectMapper.writeValueAsBytes(json));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String base64(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static KeyPair generateRsaKeys() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile long millis;
+
+        MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        void set(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
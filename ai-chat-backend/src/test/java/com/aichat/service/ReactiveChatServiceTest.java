@@ -0,0 +1,148 @@
+package com.aichat.service;
+
+import com.aichat.dto.ChatRequest;
+import com.aichat.dto.ChatResponse;
+import com.aichat.entity.ChatCharacter;
+import com.aichat.service.catalog.ChatCharacterCatalog;
+import com.aichat.service.prompt.CharacterPromptCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReactiveChatServiceTest {
+
+    private LLMService llmService;
+    private ChatCharacterCatalog catalog;
+    private ChatService chatService;
+    private ReactiveChatService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        llmService = mock(LLMService.class);
+        catalog = mock(ChatCharacterCatalog.class);
+        when(catalog.getCharacter(any())).thenReturn(Optional.empty());
+        chatService = mock(ChatService.class);
+        when(chatService.getCharacterSystemPrompt(7L)).thenReturn("数据库提示词");
+        when(chatService.getConversationHistory(eq(1L), eq(7L), anyInt())).thenReturn("用户: 你好");
+        ObjectProvider<ChatService> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(chatService);
+
+        CharacterPromptCache prompts = new CharacterPromptCache();
+        ReflectionTestUtils.setField(prompts, "characterCatalog", catalog);
+        prompts.init();
+
+        service = new ReactiveChatService();
+        ReflectionTestUtils.setField(service, "llmService", llmService);
+        ReflectionTestUtils.setField(service, "characterCatalog", catalog);
+        ReflectionTestUtils.setField(service, "characterPrompts", prompts);
+        ReflectionTestUtils.setField(service, "chatService", provider);
+        ReflectionTestUtils.setField(service, "persistenceThreads", 2);
+        ReflectionTestUtils.setField(service, "persistenceQueueSize", 100);
+        ReflectionTestUtils.setField(service, "historyLimit", 10);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void sendGeneratesSessionIdAndPersistsReply() {
+        when(llmService.chatAsync("在吗", "数据库提示词", "用户: 你好")).thenReturn(Mono.just("在的"));
+        ChatRequest request = new ChatRequest(1L, 7L, "在吗");
+
+        ChatResponse response = service.send(request).block(Duration.ofSeconds(5));
+
+        assertEquals("在的", response.getMessage());
+        assertNotNull(response.getSessionId());
+        assertEquals(response.getSessionId(), request.getSessionId());
+        verify(chatService, timeout(5000)).saveConversation(1L, 7L, "在吗", "在的", response.getSessionId(), null);
+    }
+
+    @Test
+    void resolveSessionIdKeepsExistingId() {
+        ChatRequest request = new ChatRequest(1L, 7L, "在吗", "s-1", null);
+
+        assertEquals("s-1", service.resolveSessionId(request));
+
+        ChatRequest fresh = new ChatRequest(1L, 7L, "在吗");
+        String generated = service.resolveSessionId(fresh);
+        assertEquals(generated, service.resolveSessionId(fresh));
+    }
+
+    @Test
+    void catalogHitUsesCompiledPromptWithoutDatabase() {
+        ChatCharacter character = new ChatCharacter();
+        character.setId(7L);
+        character.setName("李白");
+        character.setSystemPrompt("一位诗人");
+        when(catalog.getCharacter(7L)).thenReturn(Optional.of(character));
+        when(llmService.chatAsync(anyString(), anyString(), anyString())).thenReturn(Mono.just("好"));
+
+        ChatResponse response = service.send(new ChatRequest(1L, 7L, "作诗")).block(Duration.ofSeconds(5));
+
+        assertEquals("李白", response.getCharacterName());
+        verify(llmService).chatAsync(eq("作诗"), startsWith("你是李白，一位诗人"), eq("用户: 你好"));
+        verify(chatService, never()).getCharacterSystemPrompt(any());
+    }
+
+    @Test
+    void historyFailureIsTreatedAsEmpty() {
+        when(chatService.getConversationHistory(anyLong(), anyLong(), anyInt())).thenThrow(new IllegalStateException("db down"));
+        when(llmService.chatAsync("在吗", "数据库提示词", "")).thenReturn(Mono.just("在的"));
+
+        ChatResponse response = service.send(new ChatRequest(1L, 7L, "在吗")).block(Duration.ofSeconds(5));
+
+        assertEquals("在的", response.getMessage());
+    }
+
+    @Test
+    void streamEmitsDeltasThenCompleteReply() {
+        when(llmService.chatStream(anyString(), anyString(), anyString())).thenReturn(Flux.just("你", "好"));
+        ChatRequest request = new ChatRequest(1L, 7L, "在吗");
+
+        List<ChatResponse> responses = service.stream(request).collectList().block(Duration.ofSeconds(5));
+
+        assertEquals(3, responses.size());
+        assertEquals(ChatResponse.ResponseStatus.PROCESSING, responses.get(0).getStatus());
+        assertEquals("好", responses.get(1).getMessage());
+        ChatResponse done = responses.get(2);
+        assertEquals(ChatResponse.ResponseStatus.SUCCESS, done.getStatus());
+        assertEquals("你好", done.getMessage());
+        for (ChatResponse response : responses) {
+            assertEquals(request.getSessionId(), response.getSessionId());
+        }
+        verify(chatService, timeout(5000)).saveConversation(1L, 7L, "在吗", "你好", request.getSessionId(), null);
+    }
+
+    @Test
+    void streamErrorEndsWithErrorResponseForSameSession() {
+        when(llmService.chatStream(anyString(), anyString(), anyString()))
+                .thenReturn(Flux.concat(Flux.just("你"), Flux.error(new IllegalStateException("upstream reset"))));
+        ChatRequest request = new ChatRequest(1L, 7L, "在吗");
+
+        List<ChatResponse> responses = service.stream(request).collectList().block(Duration.ofSeconds(5));
+
+        assertEquals(2, responses.size());
+        ChatResponse last = responses.get(1);
+        assertEquals(ChatResponse.ResponseStatus.ERROR, last.getStatus());
+        assertEquals("upstream reset", last.getError());
+        assertNotNull(last.getSessionId());
+        assertEquals(responses.get(0).getSessionId(), last.getSessionId());
+        verify(chatService, after(200).never()).saveConversation(any(), any(), any(), any(), any(), any());
+    }
+}
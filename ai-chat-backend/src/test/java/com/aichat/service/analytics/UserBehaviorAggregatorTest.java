@@ -0,0 +1,230 @@
+package com.aichat.service.analytics;
+
+import com.aichat.entity.ChatCharacter;
+import com.aichat.service.catalog.ChatCharacterCatalog;
+import com.aichat.service.metrics.ChatMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserBehaviorAggregatorTest {
+
+    private static final long MINUTE = 60_000L;
+
+    private JdbcTemplate jdbcTemplate;
+    private UserBehaviorAggregator aggregator;
+    private long morning;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:behavior-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        createSnapshotTable();
+        jdbcTemplate.execute("CREATE TABLE conversation_history (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "user_id BIGINT NOT NULL, character_id BIGINT NOT NULL, session_id VARCHAR(100), "
+                + "user_message CLOB NOT NULL, ai_response CLOB NOT NULL, timestamp TIMESTAMP NOT NULL)");
+
+        ChatCharacterCatalog catalog = mock(ChatCharacterCatalog.class);
+        when(catalog.getCharacter(anyLong())).thenReturn(Optional.empty());
+        ChatCharacter poet = new ChatCharacter();
+        poet.setId(7L);
+        poet.setName("李白");
+        when(catalog.getCharacter(7L)).thenReturn(Optional.of(poet));
+
+        aggregator = new UserBehaviorAggregator();
+        ReflectionTestUtils.setField(aggregator, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(aggregator, "characterCatalog", catalog);
+        ReflectionTestUtils.setField(aggregator, "chatMetrics", mock(ChatMetrics.class));
+        ReflectionTestUtils.setField(aggregator, "sessionGapMillis", 30 * MINUTE);
+        ReflectionTestUtils.setField(aggregator, "engagementHalfLifeHours", 168.0);
+        ReflectionTestUtils.setField(aggregator, "engagementSaturation", 20.0);
+        ReflectionTestUtils.setField(aggregator, "idleEvictMillis", 86_400_000L);
+        ReflectionTestUtils.setField(aggregator, "backfillEnabled", true);
+        ReflectionTestUtils.setField(aggregator, "emptyUserTtlMillis", 60_000L);
+        ReflectionTestUtils.setField(aggregator, "emptyUserMaxEntries", 2);
+
+        morning = LocalDate.now().atTime(9, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @Test
+    void eventsAreAggregatedIntoSessionsHoursAndFavorites() {
+        aggregator.init();
+        save(1L, 7L, "s1", 10, morning);
+        save(1L, 7L, "s1", 20, morning + 5 * MINUTE);
+        // 同一会话ID但间隔超过空闲时长，视为新会话
+        save(1L, 8L, "s1", 30, morning + 60 * MINUTE);
+        save(1L, 7L, "s2", 40, morning + 61 * MINUTE);
+
+        Map<String, Object> analysis = aggregator.describe(1L);
+
+        assertEquals(4L, analysis.get("totalMessages"));
+        assertEquals(3L, analysis.get("totalSessions"));
+        assertEquals(4L, analysis.get("messagesToday"));
+        assertEquals(25L, analysis.get("averageMessageLength"));
+        assertEquals(2L, analysis.get("averageSessionMinutes"));
+        assertEquals(9, analysis.get("mostActiveHour"));
+        assertEquals(2, ((int[]) analysis.get("hourHistogram"))[9]);
+        assertEquals(2, ((int[]) analysis.get("hourHistogram"))[10]);
+        List<?> favorites = (List<?>) analysis.get("favoriteCharacters");
+        Map<?, ?> top = (Map<?, ?>) favorites.get(0);
+        assertEquals(7L, top.get("characterId"));
+        assertEquals("李白", top.get("name"));
+        assertEquals(3L, top.get("messages"));
+        assertTrue((Long) analysis.get("engagementScore") > 0);
+    }
+
+    @Test
+    void unknownUserIsNotCached() {
+        aggregator.init();
+
+        Map<String, Object> analysis = aggregator.describe(42L);
+
+        assertEquals(0L, analysis.get("totalMessages"));
+        assertNull(analysis.get("mostActiveHour"));
+        assertNull(analysis.get("lastActiveAt"));
+        assertEquals(0, aggregator.getStatistics().get("trackedUsers"));
+    }
+
+    @Test
+    void repeatedLookupOfUnknownUserSkipsTheDatabase() {
+        aggregator.init();
+        assertFalse(aggregator.isResident(42L));
+        aggregator.describe(42L);
+        assertTrue(aggregator.isResident(42L));
+        dropTables();
+
+        Map<String, Object> analysis = aggregator.describe(42L);
+
+        assertEquals(0L, analysis.get("totalMessages"));
+        assertEquals(0, aggregator.getStatistics().get("trackedUsers"));
+    }
+
+    @Test
+    void unknownUserStartsCountingOnceItChats() {
+        aggregator.init();
+        aggregator.describe(42L);
+
+        save(42L, 7L, "s1", 10, morning);
+
+        assertEquals(1L, aggregator.describe(42L).get("totalMessages"));
+    }
+
+    @Test
+    void emptyUserMarkersAreBounded() {
+        aggregator.init();
+        aggregator.describe(41L);
+        aggregator.describe(42L);
+        aggregator.describe(43L);
+        dropTables();
+
+        assertEquals(0L, aggregator.describe(43L).get("totalMessages"));
+        // 最早记录的用户已被挤出，重新查询会访问数据库
+        assertThrows(RuntimeException.class, () -> aggregator.describe(41L));
+    }
+
+    @Test
+    void snapshotPersistsAndEvictedUserIsRestored() {
+        aggregator.init();
+        save(1L, 7L, "s1", 10, morning);
+        save(1L, 7L, "s1", 20, morning + MINUTE);
+        assertEquals(1L, aggregator.getStatistics().get("pendingSnapshots"));
+
+        aggregator.snapshot();
+        assertEquals(0L, aggregator.getStatistics().get("pendingSnapshots"));
+        assertEquals(2L, jdbcTemplate.queryForObject(
+                "SELECT total_messages FROM user_behavior_snapshots WHERE user_id = 1", Long.class));
+
+        ReflectionTestUtils.setField(aggregator, "idleEvictMillis", -1L);
+        aggregator.snapshot();
+        assertEquals(0, aggregator.getStatistics().get("trackedUsers"));
+
+        // 淘汰后的事件从快照恢复后继续累加，再次写入时更新同一行
+        save(1L, 7L, "s1", 30, morning + 2 * MINUTE);
+        aggregator.snapshot();
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_behavior_snapshots", Integer.class));
+        assertEquals(3L, jdbcTemplate.queryForObject(
+                "SELECT total_messages FROM user_behavior_snapshots WHERE user_id = 1", Long.class));
+
+        Map<String, Object> analysis = aggregator.describe(1L);
+        assertEquals(3L, analysis.get("totalMessages"));
+        assertEquals(1L, analysis.get("totalSessions"));
+        assertEquals(20L, analysis.get("averageMessageLength"));
+        assertEquals("李白", ((Map<?, ?>) ((List<?>) analysis.get("favoriteCharacters")).get(0)).get("name"));
+    }
+
+    @Test
+    void failedSnapshotIsRetriedOnNextCycle() {
+        aggregator.init();
+        save(1L, 7L, "s1", 10, morning);
+        jdbcTemplate.execute("DROP TABLE user_behavior_snapshots");
+        ReflectionTestUtils.setField(aggregator, "idleEvictMillis", -1L);
+
+        aggregator.snapshot();
+        assertEquals(1L, aggregator.getStatistics().get("pendingSnapshots"));
+        assertEquals(1, aggregator.getStatistics().get("trackedUsers"));
+
+        createSnapshotTable();
+        aggregator.snapshot();
+        assertEquals(1L, jdbcTemplate.queryForObject(
+                "SELECT total_messages FROM user_behavior_snapshots WHERE user_id = 1", Long.class));
+    }
+
+    @Test
+    void userWithoutSnapshotIsBackfilledUpToStartupWatermark() {
+        insertHistory(1L, 7L, "old", "你好", LocalDateTime.now().minusDays(2));
+        insertHistory(1L, 7L, "old", "在吗", LocalDateTime.now().minusDays(2).plusMinutes(1));
+        aggregator.init();
+        // 启动后写入的记录由事件计入，回填不再读取
+        insertHistory(1L, 7L, "new", "晚上好", LocalDateTime.now());
+
+        Map<String, Object> analysis = aggregator.describe(1L);
+
+        assertEquals(2L, analysis.get("totalMessages"));
+        assertEquals(1L, analysis.get("totalSessions"));
+        assertEquals(0L, analysis.get("messagesToday"));
+        assertEquals(2L, analysis.get("messagesLast7Days"));
+        assertEquals(2L, analysis.get("averageMessageLength"));
+        assertEquals(1, aggregator.getStatistics().get("trackedUsers"));
+    }
+
+    private void save(Long userId, Long characterId, String sessionId, int length, long timestamp) {
+        aggregator.onConversationSaved(new ConversationSavedEvent(userId, characterId, sessionId, length, timestamp));
+    }
+
+    private void insertHistory(Long userId, Long characterId, String sessionId, String message, LocalDateTime time) {
+        jdbcTemplate.update("INSERT INTO conversation_history (user_id, character_id, session_id, user_message, "
+                + "ai_response, timestamp) VALUES (?, ?, ?, ?, '好', ?)", userId, characterId, sessionId, message,
+                Timestamp.valueOf(time));
+    }
+
+    private void dropTables() {
+        jdbcTemplate.execute("DROP TABLE user_behavior_snapshots");
+        jdbcTemplate.execute("DROP TABLE conversation_history");
+    }
+
+    private void createSnapshotTable() {
+        jdbcTemplate.execute("CREATE TABLE user_behavior_snapshots (user_id BIGINT PRIMARY KEY, "
+                + "total_messages BIGINT NOT NULL, total_chars BIGINT NOT NULL, total_sessions BIGINT NOT NULL, "
+                + "closed_session_messages BIGINT NOT NULL, closed_session_millis BIGINT NOT NULL, "
+                + "session_key INT NOT NULL, session_start BIGINT NOT NULL, session_messages INT NOT NULL, "
+                + "last_event_at BIGINT NOT NULL, last_epoch_day BIGINT NOT NULL, hour_histogram VARCHAR(400) NOT NULL, "
+                + "daily_counts VARCHAR(600) NOT NULL, favorite_characters VARCHAR(400) NOT NULL, "
+                + "engagement DOUBLE NOT NULL, engagement_updated_at BIGINT NOT NULL, updated_at TIMESTAMP NOT NULL)");
+    }
+}
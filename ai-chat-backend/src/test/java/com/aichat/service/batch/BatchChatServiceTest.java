@@ -0,0 +1,139 @@
+package com.aichat.service.batch;
+
+import com.aichat.dto.BatchChatRequest;
+import com.aichat.dto.BatchItemResult;
+import com.aichat.dto.ChatRequest;
+import com.aichat.dto.ChatResponse;
+import com.aichat.service.ReactiveChatService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BatchChatServiceTest {
+
+    private ReactiveChatService reactiveChatService;
+    private BatchChatService service;
+
+    @BeforeEach
+    void setUp() {
+        reactiveChatService = mock(ReactiveChatService.class);
+        when(reactiveChatService.send(any())).thenAnswer(invocation -> {
+            ChatRequest request = invocation.getArgument(0);
+            return Mono.just(new ChatResponse(request.getCharacterId(), "回复:" + request.getMessage()));
+        });
+
+        service = new BatchChatService();
+        ReflectionTestUtils.setField(service, "reactiveChatService", reactiveChatService);
+        ReflectionTestUtils.setField(service, "defaultConcurrency", 4);
+        ReflectionTestUtils.setField(service, "maxConcurrency", 8);
+        ReflectionTestUtils.setField(service, "defaultItemTimeoutMillis", 5000L);
+        ReflectionTestUtils.setField(service, "maxItems", 3);
+        ReflectionTestUtils.setField(service, "maxJobItems", 5);
+        ReflectionTestUtils.setField(service, "maxActiveJobs", 1);
+        ReflectionTestUtils.setField(service, "jobRetentionMillis", 60_000L);
+    }
+
+    @Test
+    void processReportsEachItemIncludingInvalidAndTimedOut() {
+        doReturn(Mono.never()).when(reactiveChatService).send(argThat(request -> "慢".equals(request.getMessage())));
+        BatchChatRequest request = new BatchChatRequest(Arrays.asList(
+                new ChatRequest(1L, 7L, "你好"), new ChatRequest(1L, null, "缺角色"), new ChatRequest(1L, 7L, "慢")));
+        request.setItemTimeoutMs(100L);
+        request.setOrdered(true);
+
+        List<BatchItemResult> results = service.process(request).collectList().block(Duration.ofSeconds(5));
+
+        assertEquals(3, results.size());
+        assertEquals(BatchItemResult.Status.SUCCESS, results.get(0).getStatus());
+        assertEquals("回复:你好", results.get(0).getResponse().getMessage());
+        assertEquals(BatchItemResult.Status.ERROR, results.get(1).getStatus());
+        assertEquals(BatchItemResult.Status.TIMEOUT, results.get(2).getStatus());
+        assertEquals(2, results.get(2).getIndex());
+    }
+
+    @Test
+    void processRejectsEmptyAndOversizedRequests() {
+        assertThrows(IllegalArgumentException.class, () -> service.process(new BatchChatRequest()));
+        assertThrows(IllegalArgumentException.class, () -> service.process(request(4)));
+    }
+
+    @Test
+    void submittedJobCompletesAndPagesResults() {
+        BatchJob job = service.submit(request(5));
+
+        assertSame(job, service.getJob(job.getId()));
+        await(job);
+        assertEquals(BatchJob.Status.COMPLETED, job.getStatus());
+
+        Map<String, Object> first = job.snapshot(0, 2);
+        assertEquals(5, first.get("total"));
+        assertEquals(5, first.get("succeeded"));
+        assertEquals(2, ((List<?>) first.get("results")).size());
+        assertEquals(2, first.get("nextOffset"));
+        Map<String, Object> rest = job.snapshot(4, 10);
+        assertEquals(1, ((List<?>) rest.get("results")).size());
+        assertNotNull(rest.get("finishedAt"));
+    }
+
+    @Test
+    void submitRejectsOversizedJobs() {
+        assertThrows(IllegalArgumentException.class, () -> service.submit(request(6)));
+        assertThrows(IllegalArgumentException.class, () -> service.submit(null));
+    }
+
+    @Test
+    void activeJobLimitIsEnforcedUntilJobIsCancelled() {
+        Sinks.One<ChatResponse> pending = Sinks.one();
+        doReturn(pending.asMono()).when(reactiveChatService).send(any());
+        BatchJob running = service.submit(request(2));
+
+        assertThrows(IllegalStateException.class, () -> service.submit(request(1)));
+
+        assertTrue(service.cancel(running.getId()));
+        assertFalse(service.cancel(running.getId()));
+        assertFalse(service.cancel("missing"));
+        assertEquals(BatchJob.Status.CANCELLED, running.getStatus());
+        assertNotNull(service.submit(request(1)));
+    }
+
+    @Test
+    void finishedJobsAreEvictedAfterRetention() {
+        BatchJob job = service.submit(request(1));
+        await(job);
+
+        service.evictExpiredJobs();
+        assertNotNull(service.getJob(job.getId()));
+
+        ReflectionTestUtils.setField(service, "jobRetentionMillis", -1L);
+        service.evictExpiredJobs();
+        assertNull(service.getJob(job.getId()));
+    }
+
+    private static BatchChatRequest request(int count) {
+        List<ChatRequest> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(new ChatRequest(1L, 7L, "消息" + i));
+        }
+        return new BatchChatRequest(items);
+    }
+
+    private static void await(BatchJob job) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        assertTrue(job.isFinished());
+    }
+}
@@ -0,0 +1,229 @@
+package com.aichat.service.catalog;
+
+import com.aichat.entity.AICharacter;
+import com.aichat.repository.AICharacterRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AICharacterCatalogTest {
+
+    private AICharacterRepository repository;
+    private AICharacterCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(AICharacterRepository.class);
+        when(repository.findByIsActiveTrue()).thenReturn(Arrays.asList(
+                character(1L, "李白", "历史人物", 10, "诗歌,历史", "作诗", 1),
+                character(2L, "苏格拉底", "历史人物", 30, "哲学", "辩论,提问", 3),
+                character(3L, "数学导师", "专业导师", 20, "数学", "解题", 2)));
+        catalog = catalog(repository);
+    }
+
+    @Test
+    void loadsLazilyOnFirstReadAndPrecomputesViews() {
+        verify(repository, never()).findByIsActiveTrue();
+
+        assertEquals(ids(2, 3, 1), ids(catalog.getPopularCharacters(10)));
+        assertEquals(ids(2, 3), ids(catalog.getPopularCharacters(2)));
+        assertEquals(ids(2, 3, 1), ids(catalog.getLatestCharacters(10)));
+        assertEquals(ids(3, 1, 2), ids(catalog.getCharactersOrderedByName()));
+        assertEquals(ids(1, 2), ids(catalog.getCharactersByType("历史人物")));
+        assertTrue(catalog.getCharactersByType("虚拟角色").isEmpty());
+        assertTrue(catalog.getPopularCharacters(0).isEmpty());
+
+        verify(repository, times(1)).findByIsActiveTrue();
+    }
+
+    @Test
+    void tagQueriesFollowPopularityOrder() {
+        assertEquals(ids(1), ids(catalog.getCharactersByKnowledgeDomain("诗歌")));
+        assertEquals(ids(2), ids(catalog.getCharactersBySkill("提问")));
+        assertEquals(ids(2, 1), ids(catalog.getCharactersByTags(
+                Arrays.asList("哲学", "历史"), Collections.<String>emptyList(), false)));
+        assertEquals(ids(1), ids(catalog.getCharactersByTags(
+                Collections.singletonList("历史"), Collections.singletonList("作诗"), true)));
+        assertEquals(Arrays.asList("辩论", "提问"), catalog.getSkills(2L).get());
+        assertFalse(catalog.getSkills(99L).isPresent());
+    }
+
+    @Test
+    void viewsAreUnmodifiable() {
+        List<AICharacter> active = catalog.getActiveCharacters();
+
+        assertThrows(UnsupportedOperationException.class, () -> active.add(new AICharacter()));
+        assertThrows(UnsupportedOperationException.class, () -> catalog.getPopularCharacters(1).clear());
+    }
+
+    @Test
+    void updateEventReplacesCharacterWithoutTouchingOldSnapshot() {
+        List<AICharacter> before = catalog.getPopularCharacters(10);
+        AICharacter renamed = character(1L, "诗仙李白", "历史人物", 50, "诗歌", "作诗", 1);
+
+        catalog.onCharacterChanged(AICharacterChangedEvent.updated(renamed));
+
+        assertEquals(ids(2, 3, 1), ids(before));
+        assertEquals(ids(1, 2, 3), ids(catalog.getPopularCharacters(10)));
+        assertEquals("诗仙李白", catalog.getCharacter(1L).get().getName());
+        assertEquals(ids(1), ids(catalog.search("诗仙", 10)));
+        assertTrue(catalog.getCharactersByKnowledgeDomain("历史").isEmpty());
+        verify(repository, times(1)).findByIsActiveTrue();
+    }
+
+    @Test
+    void newCharacterIsAddedAndIndexed() {
+        catalog.size();
+
+        catalog.onCharacterChanged(AICharacterChangedEvent.updated(
+                character(4L, "侦探", "虚拟角色", 5, "推理", "破案", 4)));
+
+        assertEquals(4, catalog.size());
+        assertEquals(ids(4), ids(catalog.getCharactersByType("虚拟角色")));
+        assertEquals(ids(4), ids(catalog.search("侦探", 10)));
+        assertTrue(catalog.getAvailableSkills().contains("破案"));
+    }
+
+    @Test
+    void deactivationAndRemovalDropCharacter() {
+        catalog.size();
+        AICharacter deactivated = character(2L, "苏格拉底", "历史人物", 30, "哲学", "辩论", 3);
+        deactivated.setIsActive(false);
+
+        catalog.onCharacterChanged(AICharacterChangedEvent.updated(deactivated));
+        catalog.onCharacterChanged(AICharacterChangedEvent.removed(3L));
+
+        assertEquals(ids(1), ids(catalog.getActiveCharacters()));
+        assertFalse(catalog.getCharacter(2L).isPresent());
+        assertTrue(catalog.search("苏格拉底", 10).isEmpty());
+        assertTrue(catalog.search("数学", 10).isEmpty());
+    }
+
+    @Test
+    void eventBeforeFirstLoadTriggersFullReload() {
+        catalog.onCharacterChanged(AICharacterChangedEvent.removed(1L));
+
+        // 尚无快照时直接从数据库重建，事件中的变更已在库中
+        verify(repository, times(1)).findByIsActiveTrue();
+        assertEquals(3, catalog.size());
+    }
+
+    @Test
+    void reloadPicksUpDatabaseChanges() {
+        assertEquals(3, catalog.size());
+        when(repository.findByIsActiveTrue()).thenReturn(Collections.singletonList(
+                character(9L, "新角色", "虚拟角色", 0, null, null, 9)));
+
+        catalog.reload();
+
+        assertEquals(ids(9), ids(catalog.getActiveCharacters()));
+        assertTrue(catalog.search("李白", 10).isEmpty());
+        assertEquals(ids(9), ids(catalog.search("新角色", 10)));
+    }
+
+    @Test
+    void transactionalListenerAppliesOnlyAfterCommit() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean(AICharacterRepository.class, () -> repository);
+            context.register(ListenerConfig.class);
+            context.refresh();
+            AICharacterCatalog listening = context.getBean(AICharacterCatalog.class);
+            assertEquals(3, listening.size());
+
+            TransactionSynchronizationManager.initSynchronization();
+            TransactionSynchronizationManager.setActualTransactionActive(true);
+            try {
+                context.publishEvent(AICharacterChangedEvent.removed(1L));
+                assertTrue(listening.getCharacter(1L).isPresent());
+
+                List<TransactionSynchronization> synchronizations =
+                        new ArrayList<>(TransactionSynchronizationManager.getSynchronizations());
+                for (TransactionSynchronization synchronization : synchronizations) {
+                    synchronization.afterCommit();
+                    synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+                }
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+                TransactionSynchronizationManager.setActualTransactionActive(false);
+            }
+
+            assertFalse(listening.getCharacter(1L).isPresent());
+            assertEquals(2, listening.size());
+        }
+    }
+
+    @Test
+    void transactionalListenerRunsImmediatelyWithoutTransaction() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean(AICharacterRepository.class, () -> repository);
+            context.register(ListenerConfig.class);
+            context.refresh();
+            AICharacterCatalog listening = context.getBean(AICharacterCatalog.class);
+            assertEquals(3, listening.size());
+
+            context.publishEvent(AICharacterChangedEvent.removed(1L));
+
+            assertFalse(listening.getCharacter(1L).isPresent());
+        }
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    static class ListenerConfig {
+
+        @Bean
+        AICharacterCatalog aiCharacterCatalog() {
+            return new AICharacterCatalog();
+        }
+    }
+
+    private static AICharacterCatalog catalog(AICharacterRepository repository) {
+        AICharacterCatalog catalog = new AICharacterCatalog();
+        ReflectionTestUtils.setField(catalog, "characterRepository", repository);
+        ReflectionTestUtils.setField(catalog, "popularityWeight", 0.1);
+        return catalog;
+    }
+
+    private static AICharacter character(Long id, String name, String type, int popularity,
+                                         String domains, String skills, int createdDay) {
+        AICharacter character = new AICharacter(name, name + "的简介", type);
+        character.setId(id);
+        character.setPopularityScore(popularity);
+        character.setKnowledgeDomains(domains);
+        character.setAvailableSkills(skills);
+        character.setIsActive(true);
+        character.setCreatedAt(LocalDateTime.of(2024, 1, createdDay, 0, 0));
+        return character;
+    }
+
+    private static List<Long> ids(long... ids) {
+        List<Long> result = new ArrayList<>();
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    private static List<Long> ids(List<AICharacter> characters) {
+        List<Long> result = new ArrayList<>();
+        for (AICharacter character : characters) {
+            result.add(character.getId());
+        }
+        return result;
+    }
+}
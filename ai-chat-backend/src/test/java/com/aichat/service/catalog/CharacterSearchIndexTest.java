@@ -0,0 +1,103 @@
+package com.aichat.service.catalog;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CharacterSearchIndexTest {
+
+    private CharacterSearchIndex<String> index;
+
+    @BeforeEach
+    void setUp() {
+        index = new CharacterSearchIndex<>(0.1);
+        // 五个历史老师，人气依次递增
+        for (long id = 1; id <= 5; id++) {
+            index.put(document(id, "历史老师" + id, "讲解历史故事", (int) id * 10));
+        }
+        index.put(document(6L, "数学老师", "讲解几何", 100));
+    }
+
+    @Test
+    void pageReportsTotalMatchesNotPageSize() {
+        CharacterSearchIndex.Hits<String> hits = index.search("历史", 0, 2);
+
+        assertEquals(2, hits.getItems().size());
+        assertEquals(5, hits.getTotal());
+    }
+
+    @Test
+    void pagesConcatenateToFullRanking() {
+        List<String> all = index.search("历史", 100);
+        List<String> paged = new ArrayList<>();
+        for (int offset = 0; offset < 5; offset += 2) {
+            CharacterSearchIndex.Hits<String> hits = index.search("历史", offset, 2);
+            assertEquals(5, hits.getTotal());
+            paged.addAll(hits.getItems());
+        }
+
+        assertEquals(5, all.size());
+        assertEquals(all, paged);
+    }
+
+    @Test
+    void lastPageIsPartial() {
+        CharacterSearchIndex.Hits<String> hits = index.search("历史", 4, 2);
+
+        assertEquals(1, hits.getItems().size());
+        assertEquals(5, hits.getTotal());
+    }
+
+    @Test
+    void pageBeyondResultsIsEmptyButKeepsTotal() {
+        CharacterSearchIndex.Hits<String> hits = index.search("历史", 10, 2);
+
+        assertTrue(hits.getItems().isEmpty());
+        assertEquals(5, hits.getTotal());
+    }
+
+    @Test
+    void zeroLimitStillCountsMatches() {
+        CharacterSearchIndex.Hits<String> hits = index.search("历史", 0, 0);
+
+        assertTrue(hits.getItems().isEmpty());
+        assertEquals(5, hits.getTotal());
+    }
+
+    @Test
+    void popularityBreaksEqualRelevance() {
+        assertEquals(Arrays.asList("历史老师5", "历史老师4"), index.search("历史", 0, 2).getItems());
+    }
+
+    @Test
+    void updatedPopularityChangesRanking() {
+        index.updatePopularity(1L, "历史老师1", 1000);
+
+        assertEquals("历史老师1", index.search("历史", 0, 1).getItems().get(0));
+    }
+
+    @Test
+    void blankOrUnmatchedQueryHasNoHits() {
+        assertEquals(0, index.search("  ", 0, 10).getTotal());
+        assertEquals(0, index.search("化学", 0, 10).getTotal());
+    }
+
+    @Test
+    void removedDocumentIsNotCounted() {
+        index.remove(3L);
+
+        assertEquals(4, index.search("历史", 0, 10).getTotal());
+    }
+
+    private static CharacterSearchIndex.Document<String> document(Long id, String name, String description, int popularity) {
+        return new CharacterSearchIndex.Document<>(id, name, popularity)
+                .field(name, 3.0f)
+                .field(description, 1.0f)
+                .completion(name);
+    }
+}
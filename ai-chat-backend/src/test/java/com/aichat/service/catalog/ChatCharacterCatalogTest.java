@@ -0,0 +1,100 @@
+package com.aichat.service.catalog;
+
+import com.aichat.entity.ChatCharacter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ChatCharacterCatalogTest {
+
+    private TypedQuery<ChatCharacter> query;
+    private ChatCharacterCatalog catalog;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        query = mock(TypedQuery.class);
+        when(query.getResultList()).thenReturn(Arrays.asList(
+                character(1L, "李白", "作诗,饮酒", 1),
+                character(2L, "杜甫", "作诗", 3),
+                character(3L, "侦探", "推理", 2)));
+        EntityManager entityManager = mock(EntityManager.class);
+        when(entityManager.createQuery(anyString(), eq(ChatCharacter.class))).thenReturn(query);
+
+        catalog = new ChatCharacterCatalog();
+        ReflectionTestUtils.setField(catalog, "entityManager", entityManager);
+        ReflectionTestUtils.setField(catalog, "popularityWeight", 0.1);
+    }
+
+    @Test
+    void precomputesNameAndRecencyOrder() {
+        assertEquals(Arrays.asList(3L, 1L, 2L), ids(catalog.getActiveCharacters()));
+        assertEquals(Arrays.asList(2L, 3L), ids(catalog.getLatestCharacters(2)));
+        assertTrue(catalog.getLatestCharacters(0).isEmpty());
+        verify(query, times(1)).getResultList();
+    }
+
+    @Test
+    void updateEventReplacesCharacterAndReindexes() {
+        catalog.getActiveCharacters();
+
+        catalog.onCharacterChanged(new ChatCharacterChangedEvent(character(3L, "名侦探", "推理,格斗", 2)));
+
+        assertEquals("名侦探", catalog.getCharacter(3L).get().getName());
+        assertEquals(Arrays.asList(3L), ids(catalog.search("格斗", 10)));
+        assertEquals(3, catalog.getActiveCharacters().size());
+        verify(query, times(1)).getResultList();
+    }
+
+    @Test
+    void softDeletedCharacterLeavesSnapshotAndIndex() {
+        catalog.getActiveCharacters();
+        ChatCharacter deleted = character(1L, "李白", "作诗,饮酒", 1);
+        deleted.setIsActive(false);
+
+        catalog.onCharacterChanged(new ChatCharacterChangedEvent(deleted));
+
+        assertFalse(catalog.getCharacter(1L).isPresent());
+        assertTrue(catalog.search("饮酒", 10).isEmpty());
+        assertEquals(Arrays.asList(2L), ids(catalog.search("作诗", 10)));
+    }
+
+    @Test
+    void eventBeforeFirstLoadReloadsFromDatabase() {
+        catalog.onCharacterChanged(new ChatCharacterChangedEvent(character(4L, "新角色", null, 4)));
+
+        verify(query, times(1)).getResultList();
+        assertFalse(catalog.getCharacter(4L).isPresent());
+        assertEquals(3, catalog.getActiveCharacters().size());
+    }
+
+    private static ChatCharacter character(Long id, String name, String skills, int createdDay) {
+        ChatCharacter character = new ChatCharacter();
+        character.setId(id);
+        character.setName(name);
+        character.setDescription(name + "的简介");
+        character.setSkills(skills);
+        character.setIsActive(true);
+        character.setCreatedAt(LocalDateTime.of(2024, 1, createdDay, 0, 0));
+        return character;
+    }
+
+    private static List<Long> ids(List<ChatCharacter> characters) {
+        List<Long> result = new ArrayList<>();
+        for (ChatCharacter character : characters) {
+            result.add(character.getId());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,182 @@
+package com.aichat.service.catalog;
+
+import com.aichat.entity.AICharacter;
+import com.aichat.repository.AICharacterRepository;
+import com.aichat.service.metrics.ChatMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PopularityCounterTest {
+
+    private AICharacterRepository repository;
+    private JdbcTemplate jdbcTemplate;
+    private AICharacterCatalog catalog;
+    private PopularityCounter counter;
+
+    // 模拟数据库中累计写入的增量
+    private final Map<Long, Long> written = new HashMap<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        repository = mock(AICharacterRepository.class);
+        when(repository.findByIsActiveTrue()).thenAnswer(invocation -> Arrays.asList(
+                character(1L, 10 + written.getOrDefault(1L, 0L)),
+                character(2L, 20 + written.getOrDefault(2L, 0L))));
+        catalog = new AICharacterCatalog();
+        ReflectionTestUtils.setField(catalog, "characterRepository", repository);
+        ReflectionTestUtils.setField(catalog, "popularityWeight", 0.1);
+
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> batch = invocation.getArgument(1);
+            for (Object[] args : batch) {
+                written.merge((Long) args[1], (Long) args[0], Long::sum);
+            }
+            return new int[batch.size()];
+        });
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(
+                invocation -> ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+
+        counter = new PopularityCounter();
+        ReflectionTestUtils.setField(counter, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(counter, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(counter, "characterCatalog", catalog);
+        ReflectionTestUtils.setField(counter, "chatMetrics", mock(ChatMetrics.class));
+        ReflectionTestUtils.setField(counter, "trendingEnabled", true);
+        ReflectionTestUtils.setField(counter, "trendingHalfLifeMinutes", 60.0);
+        ReflectionTestUtils.setField(counter, "trendingSize", 10);
+    }
+
+    @Test
+    void flushWritesOneBatchAndPublishesPopularity() {
+        assertEquals(Long.valueOf(2), catalog.getPopularCharacters(1).get(0).getId());
+        for (int i = 0; i < 15; i++) {
+            counter.increment(1L);
+        }
+        counter.increment(2L);
+        assertEquals(16, counter.getPendingCount());
+
+        counter.flush();
+
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+        assertEquals(Long.valueOf(15), written.get(1L));
+        assertEquals(Long.valueOf(1), written.get(2L));
+        assertEquals(0, counter.getPendingCount());
+        assertEquals(Integer.valueOf(25), catalog.getCharacter(1L).get().getPopularityScore());
+        assertEquals(Long.valueOf(1), catalog.getPopularCharacters(1).get(0).getId());
+        assertEquals(Arrays.asList(1L, 2L), counter.getTrendingCharacterIds(10));
+    }
+
+    @Test
+    void emptyFlushDoesNotTouchDatabase() {
+        counter.increment(1L);
+        counter.flush();
+        counter.flush();
+
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void failedWriteKeepsIncrementsForNextFlush() {
+        catalog.size();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenAnswer(invocation -> {
+                    List<Object[]> batch = invocation.getArgument(1);
+                    for (Object[] args : batch) {
+                        written.merge((Long) args[1], (Long) args[0], Long::sum);
+                    }
+                    return new int[batch.size()];
+                });
+        counter.increment(1L);
+        counter.increment(1L);
+
+        counter.flush();
+        assertEquals(2, counter.getPendingCount());
+        assertEquals(Integer.valueOf(10), catalog.getCharacter(1L).get().getPopularityScore());
+
+        counter.increment(1L);
+        counter.flush();
+        assertEquals(Long.valueOf(3), written.get(1L));
+        assertEquals(Integer.valueOf(13), catalog.getCharacter(1L).get().getPopularityScore());
+    }
+
+    @Test
+    void concurrentIncrementsAreNeitherLostNorDoubleCounted() throws Exception {
+        catalog.size();
+        int threads = 8;
+        int perThread = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    counter.increment(1L);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        while (!futures.stream().allMatch(Future::isDone)) {
+            counter.flush();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        counter.flush();
+
+        assertEquals(Long.valueOf((long) threads * perThread), written.get(1L));
+        assertEquals(Integer.valueOf(10 + threads * perThread), catalog.getCharacter(1L).get().getPopularityScore());
+    }
+
+    @Test
+    void reloadDuringWriteIsResolvedByReloadingAgain() {
+        catalog.size();
+        // 写库期间发生一次重建，并且读到了已写入的增量，直接吸收会重复计入
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> batch = invocation.getArgument(1);
+            for (Object[] args : batch) {
+                written.merge((Long) args[1], (Long) args[0], Long::sum);
+            }
+            catalog.reload();
+            return new int[batch.size()];
+        });
+        counter.increment(1L);
+
+        counter.flush();
+
+        assertEquals(Integer.valueOf(11), catalog.getCharacter(1L).get().getPopularityScore());
+        verify(repository, times(3)).findByIsActiveTrue();
+    }
+
+    private static AICharacter character(Long id, long popularity) {
+        AICharacter character = new AICharacter("角色" + id, null, "虚拟角色");
+        character.setId(id);
+        character.setPopularityScore((int) popularity);
+        character.setIsActive(true);
+        return character;
+    }
+}
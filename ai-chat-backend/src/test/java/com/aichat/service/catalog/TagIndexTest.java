@@ -0,0 +1,80 @@
+package com.aichat.service.catalog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagIndexTest {
+
+    private final TagIndex index = new TagIndex.Builder(4)
+            .add(0, "历史, 文学")
+            .add(1, "文学，哲学,文学")
+            .add(2, null)
+            .add(3, "历史,哲学")
+            .build();
+
+    @Test
+    void parsesBothCommasTrimsAndDeduplicates() {
+        assertEquals(Arrays.asList("文学", "哲学"), TagIndex.parseTags(" 文学，哲学,文学 ,,"));
+        assertTrue(TagIndex.parseTags("  ").isEmpty());
+        assertTrue(TagIndex.parseTags(null).isEmpty());
+    }
+
+    @Test
+    void assignsIdsInFirstSeenOrder() {
+        assertEquals(Arrays.asList("历史", "文学", "哲学"), index.getTags());
+        assertEquals(1, index.tagId(" 文学 "));
+        assertEquals(-1, index.tagId("音乐"));
+        assertEquals(-1, index.tagId(null));
+    }
+
+    @Test
+    void tagsOfReturnsParsedTagsPerOrdinal() {
+        assertEquals(Arrays.asList("文学", "哲学"), index.tagsOf(1));
+        assertTrue(index.tagsOf(2).isEmpty());
+        assertTrue(index.tagsOf(4).isEmpty());
+        assertTrue(index.tagsOf(-1).isEmpty());
+    }
+
+    @Test
+    void matchReturnsCopy() {
+        BitSet match = index.match("历史");
+        assertEquals(bits(0, 3), match);
+
+        match.clear();
+        assertEquals(bits(0, 3), index.match("历史"));
+        assertTrue(index.match("音乐").isEmpty());
+    }
+
+    @Test
+    void matchAllIntersects() {
+        assertEquals(bits(1), index.matchAll(Arrays.asList("文学", "哲学")));
+        assertTrue(index.matchAll(Arrays.asList("历史", "文学", "哲学")).isEmpty());
+        assertTrue(index.matchAll(Arrays.asList("历史", "音乐")).isEmpty());
+        assertEquals(bits(0, 1, 2, 3), index.matchAll(Collections.<String>emptyList()));
+    }
+
+    @Test
+    void matchAnyUnitesAndIgnoresUnknownTags() {
+        assertEquals(bits(0, 1, 3), index.matchAny(Arrays.asList("文学", "哲学", "音乐")));
+        assertTrue(index.matchAny(Collections.singletonList("音乐")).isEmpty());
+    }
+
+    @Test
+    void emptyIndexMatchesNothing() {
+        assertTrue(TagIndex.empty().getTags().isEmpty());
+        assertTrue(TagIndex.empty().matchAll(Collections.<String>emptyList()).isEmpty());
+    }
+
+    private static BitSet bits(int... ordinals) {
+        BitSet bits = new BitSet();
+        for (int ordinal : ordinals) {
+            bits.set(ordinal);
+        }
+        return bits;
+    }
+}
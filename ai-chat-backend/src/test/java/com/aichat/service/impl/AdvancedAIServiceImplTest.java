@@ -0,0 +1,65 @@
+package com.aichat.service.impl;
+
+import com.aichat.dto.ChatRequest;
+import com.aichat.service.personality.PersonalityProfileStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AdvancedAIServiceImplTest {
+
+    private PersonalityProfileStore personalityProfiles;
+    private AdvancedAIServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        personalityProfiles = mock(PersonalityProfileStore.class);
+        service = new AdvancedAIServiceImpl(WebClient.builder());
+        ReflectionTestUtils.setField(service, "personalityProfiles", personalityProfiles);
+        ReflectionTestUtils.setField(service, "deepseekModel", "deepseek-chat");
+        ReflectionTestUtils.setField(service, "emotionAnalysisEnabled", true);
+        ReflectionTestUtils.setField(service, "personalityAdaptationEnabled", true);
+    }
+
+    @Test
+    void profileLearnsTextOnlyWhileEmotionTraitsAreOff() {
+        service.sendMessage(new ChatRequest(1L, 7L, "今天很开心"));
+
+        verify(personalityProfiles).observe(1L, "今天很开心", null);
+        verify(personalityProfiles, after(200).times(1)).observe(any(), any(), any());
+    }
+
+    @Test
+    void profileIsUpdatedWithEmotionOfTheMessageWhenEnabled() {
+        ReflectionTestUtils.setField(service, "personalityEmotionTraitsEnabled", true);
+
+        service.sendMessage(new ChatRequest(1L, 7L, "今天很开心"));
+
+        verify(personalityProfiles, timeout(5000)).observe(eq(1L), eq("今天很开心"),
+                argThat(emotion -> emotion != null && "joy".equals(emotion.getPrimaryEmotion())));
+        verify(personalityProfiles, times(1)).observe(any(), any(), any());
+    }
+
+    @Test
+    void profileUsesTextOnlyWhenEmotionAnalysisIsDisabled() {
+        ReflectionTestUtils.setField(service, "personalityEmotionTraitsEnabled", true);
+        ReflectionTestUtils.setField(service, "emotionAnalysisEnabled", false);
+
+        service.sendMessage(new ChatRequest(1L, 7L, "今天很开心"));
+
+        verify(personalityProfiles).observe(1L, "今天很开心", null);
+    }
+
+    @Test
+    void profileIsNotUpdatedWhenAdaptationIsDisabled() {
+        ReflectionTestUtils.setField(service, "personalityAdaptationEnabled", false);
+
+        service.sendMessage(new ChatRequest(1L, 7L, "今天很开心"));
+
+        verify(personalityProfiles, after(200).never()).observe(any(), any(), any());
+    }
+}
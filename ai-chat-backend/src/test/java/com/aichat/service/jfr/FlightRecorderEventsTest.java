@@ -0,0 +1,78 @@
+package com.aichat.service.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecorderEventsTest {
+
+    private final FlightRecorderEvents events = new FlightRecorderEvents();
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void tearDown() {
+        events.shutdown();
+    }
+
+    @Test
+    void disabledTypesShareNoopWithoutAllocating() {
+        init(false, "llm,db-write");
+
+        assertSame(FlightRecorderEvents.dbWrite(), FlightRecorderEvents.dbWrite());
+        assertSame(FlightRecorderEvents.dbWrite(), FlightRecorderEvents.cacheLookup());
+        assertFalse(FlightRecorderEvents.llmCall() instanceof Event);
+        FlightRecorderEvents.webSocketBroadcast().record("chat", 3);
+    }
+
+    @Test
+    void onlyConfiguredTypesAreRegistered() {
+        init(true, "db-write, unknown");
+
+        assertTrue(FlightRecorderEvents.dbWrite() instanceof DbWriteEvent);
+        assertNotSame(FlightRecorderEvents.dbWrite(), FlightRecorderEvents.dbWrite());
+        assertFalse(FlightRecorderEvents.llmCall() instanceof Event);
+        assertFalse(FlightRecorderEvents.skillExecution() instanceof Event);
+
+        events.shutdown();
+        assertFalse(FlightRecorderEvents.dbWrite() instanceof Event);
+    }
+
+    @Test
+    void registeredEventIsWrittenToRecording() throws IOException {
+        init(true, "db-write");
+        Path file = directory.resolve("events.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("com.aichat.DbWrite").withoutThreshold();
+            recording.start();
+            FlightRecorderEvents.dbWrite().record("save_conversation", 2, "success");
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> recorded = RecordingFile.readAllEvents(file);
+        assertEquals(1, recorded.size());
+        assertEquals("save_conversation", recorded.get(0).getString("operation"));
+        assertEquals(2, recorded.get(0).getInt("records"));
+        assertEquals("success", recorded.get(0).getString("outcome"));
+    }
+
+    private void init(boolean enabled, String types) {
+        ReflectionTestUtils.setField(events, "enabled", enabled);
+        ReflectionTestUtils.setField(events, "types", types.split(","));
+        events.init();
+    }
+}
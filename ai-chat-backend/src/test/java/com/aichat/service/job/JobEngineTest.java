@@ -0,0 +1,149 @@
+package com.aichat.service.job;
+
+import com.aichat.entity.AnalyticsJob;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobEngineTest {
+
+    private static final String TYPE = "echo";
+
+    private JdbcTemplate jdbcTemplate;
+    private JobEngine engine;
+    private volatile CountDownLatch started = new CountDownLatch(0);
+    private volatile CountDownLatch release = new CountDownLatch(0);
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:jobs-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE analytics_jobs (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "job_type VARCHAR(50) NOT NULL, dedup_key VARCHAR(120) NOT NULL, payload CLOB NOT NULL, "
+                + "priority INT NOT NULL, status VARCHAR(20) NOT NULL, attempts INT NOT NULL, max_attempts INT NOT NULL, "
+                + "next_run_at TIMESTAMP NOT NULL, result CLOB, error VARCHAR(1000), result_expires_at TIMESTAMP, "
+                + "created_at TIMESTAMP NOT NULL, started_at TIMESTAMP, finished_at TIMESTAMP)");
+
+        JobHandler handler = new JobHandler() {
+            @Override
+            public String getType() {
+                return TYPE;
+            }
+
+            @Override
+            public Object execute(Map<String, Object> payload) throws Exception {
+                started.countDown();
+                assertTrue(release.await(5, TimeUnit.SECONDS));
+                return payload;
+            }
+        };
+
+        engine = new JobEngine();
+        ReflectionTestUtils.setField(engine, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(engine, "jobHandlers", Collections.singletonList(handler));
+        ReflectionTestUtils.setField(engine, "workerCount", 1);
+        ReflectionTestUtils.setField(engine, "queueCapacity", 10);
+        ReflectionTestUtils.setField(engine, "defaultMaxAttempts", 3);
+        ReflectionTestUtils.setField(engine, "backoffInitialMillis", 10L);
+        ReflectionTestUtils.setField(engine, "backoffMaxMillis", 100L);
+        ReflectionTestUtils.setField(engine, "resultTtlMillis", 60_000L);
+        ReflectionTestUtils.setField(engine, "retentionMillis", 60_000L);
+        ReflectionTestUtils.setField(engine, "runningTimeoutMillis", 60_000L);
+        ReflectionTestUtils.setField(engine, "awaitTimeoutMillis", 5_000L);
+        engine.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void staleRunningJobWithAttemptsLeftIsRequeuedAndRunsAgain() {
+        long id = insertRunning(1, 3, LocalDateTime.now().minusHours(1));
+
+        engine.reapStale();
+
+        AnalyticsJob reaped = engine.getJob(id);
+        assertEquals(AnalyticsJob.Status.PENDING, reaped.getStatus());
+        assertTrue(reaped.getError().startsWith("执行超时"));
+
+        engine.dispatchDue();
+        AnalyticsJob finished = engine.await(id).block(Duration.ofSeconds(5));
+        assertEquals(AnalyticsJob.Status.SUCCEEDED, finished.getStatus());
+        assertEquals(2, finished.getAttempts());
+    }
+
+    @Test
+    void staleRunningJobOutOfAttemptsFailsAndWakesWaiters() {
+        long id = insertRunning(3, 3, LocalDateTime.now().minusHours(1));
+        CountDownLatch done = new CountDownLatch(1);
+        AnalyticsJob[] result = new AnalyticsJob[1];
+        engine.await(id).subscribe(job -> {
+            result[0] = job;
+            done.countDown();
+        });
+
+        engine.reapStale();
+
+        assertDoesNotThrow(() -> assertTrue(done.await(5, TimeUnit.SECONDS)));
+        assertEquals(AnalyticsJob.Status.FAILED, result[0].getStatus());
+        assertNotNull(result[0].getFinishedAt());
+        assertTrue(result[0].getError().startsWith("执行超时"));
+    }
+
+    @Test
+    void recentlyStartedJobIsNotReaped() {
+        long id = insertRunning(1, 3, LocalDateTime.now().minusSeconds(5));
+
+        engine.reapStale();
+
+        AnalyticsJob job = engine.getJob(id);
+        assertEquals(AnalyticsJob.Status.RUNNING, job.getStatus());
+        assertNull(job.getError());
+    }
+
+    @Test
+    void jobStillExecutingInThisProcessIsNotReaped() throws Exception {
+        started = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        AnalyticsJob job = engine.submit(TYPE, Collections.<String, Object>singletonMap("k", "v"), JobEngine.PRIORITY_NORMAL);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        ReflectionTestUtils.setField(engine, "runningTimeoutMillis", 0L);
+        Thread.sleep(5);
+
+        engine.reapStale();
+
+        assertEquals(AnalyticsJob.Status.RUNNING, engine.getJob(job.getId()).getStatus());
+        release.countDown();
+        Map<String, Object> result = engine.submitAndAwait(TYPE, Collections.<String, Object>singletonMap("k", "v"),
+                JobEngine.PRIORITY_NORMAL, new TypeReference<Map<String, Object>>() {}).block(Duration.ofSeconds(5));
+        assertEquals("v", result.get("k"));
+        assertEquals(1, engine.getJob(job.getId()).getAttempts());
+    }
+
+    private long insertRunning(int attempts, int maxAttempts, LocalDateTime startedAt) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO analytics_jobs (job_type, dedup_key, payload, priority, status, attempts, "
+                        + "max_attempts, next_run_at, created_at, started_at) VALUES (?, ?, '{}', 0, 'RUNNING', ?, ?, ?, ?, ?)",
+                TYPE, TYPE + ":" + UUID.randomUUID(), attempts, maxAttempts,
+                Timestamp.valueOf(now), Timestamp.valueOf(now), Timestamp.valueOf(startedAt));
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM analytics_jobs", Long.class);
+    }
+}
@@ -0,0 +1,87 @@
+package com.aichat.service.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private ChatMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new ChatMetrics();
+        ReflectionTestUtils.setField(metrics, "registry", registry);
+        metrics.init();
+    }
+
+    @Test
+    void streamRecordsFirstTokenOnceAndTotalOnCompletion() {
+        Flux<String> stream = metrics.timeLlmStream(Flux.just("a", "b", "c"), "deepseek-chat");
+
+        assertEquals(3, stream.collectList().block().size());
+
+        assertEquals(1, registry.get(ChatMetrics.LLM_FIRST_TOKEN).tag("model", "deepseek-chat").timer().count());
+        assertEquals(1, registry.get(ChatMetrics.LLM_LATENCY)
+                .tags("mode", "stream", "outcome", ChatMetrics.OUTCOME_SUCCESS).timer().count());
+    }
+
+    @Test
+    void cancelledAndFailedCallsAreTaggedByOutcome() {
+        metrics.timeLlmStream(Flux.just("a", "b"), "m").take(1).blockLast();
+        assertThrows(IllegalStateException.class,
+                () -> metrics.timeTts(Mono.error(new IllegalStateException())).block());
+
+        assertEquals(1, registry.get(ChatMetrics.LLM_LATENCY)
+                .tag("outcome", ChatMetrics.OUTCOME_CANCELLED).timer().count());
+        assertEquals(1, registry.get(ChatMetrics.TTS_LATENCY)
+                .tag("outcome", ChatMetrics.OUTCOME_ERROR).timer().count());
+    }
+
+    @Test
+    void timingStartsAtSubscriptionNotAssembly() {
+        Mono<String> call = metrics.timeStt(Mono.just("文本"));
+        assertNull(registry.find(ChatMetrics.STT_LATENCY).timer());
+
+        call.block();
+        call.block();
+
+        assertEquals(2, registry.get(ChatMetrics.STT_LATENCY).timer().count());
+    }
+
+    @Test
+    void framesAreSummarizedByType() {
+        metrics.recordFrameIn(true, 640);
+        metrics.recordFrameIn(false, 20);
+        metrics.recordFrameOut(false, 100);
+
+        assertEquals(640, registry.get(ChatMetrics.WS_FRAMES_IN).tag("type", "binary").summary().totalAmount());
+        assertEquals(20, registry.get(ChatMetrics.WS_FRAMES_IN).tag("type", "text").summary().totalAmount());
+        assertEquals(0, registry.get(ChatMetrics.WS_FRAMES_OUT).tag("type", "binary").summary().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void latencySnapshotGroupsByTagValues() {
+        metrics.recordLlm("deepseek-chat", System.nanoTime(), ChatMetrics.OUTCOME_SUCCESS);
+        metrics.recordDbWrite("save_conversation", System.nanoTime(), ChatMetrics.OUTCOME_ERROR);
+
+        Map<String, Object> snapshot = metrics.latencySnapshot();
+
+        Map<String, Object> llm = (Map<String, Object>) snapshot.get("llm");
+        Map<String, Object> stats = (Map<String, Object>) llm.get("blocking/deepseek-chat/success");
+        assertEquals(1L, stats.get("count"));
+        assertTrue(stats.containsKey("p99Ms"));
+        assertTrue(((Map<String, Object>) snapshot.get("dbWrite")).containsKey("save_conversation/error"));
+        assertTrue(((Map<String, Object>) snapshot.get("tts")).isEmpty());
+    }
+}
@@ -0,0 +1,101 @@
+package com.aichat.service.metrics;
+
+import com.aichat.service.ChatService;
+import com.aichat.service.analytics.ConversationSavedEvent;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ChatServiceMetricsPostProcessorTest {
+
+    private SimpleMeterRegistry registry;
+    private ApplicationEventPublisher eventPublisher;
+    private ChatServiceMetricsPostProcessor postProcessor;
+    private ChatService target;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        ChatMetrics chatMetrics = new ChatMetrics();
+        ReflectionTestUtils.setField(chatMetrics, "registry", registry);
+        chatMetrics.init();
+        ObjectProvider<ChatMetrics> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(chatMetrics);
+
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        postProcessor = new ChatServiceMetricsPostProcessor(provider, eventPublisher);
+        target = mock(ChatService.class);
+    }
+
+    @Test
+    void otherBeansAreReturnedAsIs() {
+        Object bean = new Object();
+
+        assertSame(bean, postProcessor.postProcessAfterInitialization(bean, "other"));
+    }
+
+    @Test
+    void successfulSaveIsTimedAndPublished() {
+        ChatService proxy = wrap();
+
+        proxy.saveConversation(7L, 2L, "你好", "回复", "session-1", null);
+
+        verify(target).saveConversation(7L, 2L, "你好", "回复", "session-1", null);
+        assertEquals(1, timer(ChatMetrics.OUTCOME_SUCCESS).count());
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        ConversationSavedEvent event = (ConversationSavedEvent) captor.getValue();
+        assertEquals(Long.valueOf(7), event.getUserId());
+        assertEquals(Long.valueOf(2), event.getCharacterId());
+        assertEquals("session-1", event.getSessionId());
+        assertEquals(2, event.getMessageLength());
+    }
+
+    @Test
+    void failedSaveRethrowsOriginalExceptionAndPublishesNothing() {
+        DataAccessResourceFailureException failure = new DataAccessResourceFailureException("down");
+        doThrow(failure).when(target).saveConversation(any(), any(), any(), any(), any(), any());
+        ChatService proxy = wrap();
+
+        DataAccessResourceFailureException thrown = assertThrows(DataAccessResourceFailureException.class,
+                () -> proxy.saveConversation(7L, 2L, null, "回复", null, null));
+
+        assertSame(failure, thrown);
+        assertEquals(1, timer(ChatMetrics.OUTCOME_ERROR).count());
+        assertNull(registry.find(ChatMetrics.DB_WRITE_LATENCY).tag("outcome", ChatMetrics.OUTCOME_SUCCESS).timer());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void otherMethodsPassThroughUntimed() {
+        when(target.getCharacterSystemPrompt(2L)).thenReturn("提示词");
+        ChatService proxy = wrap();
+
+        assertEquals("提示词", proxy.getCharacterSystemPrompt(2L));
+        assertNull(registry.find(ChatMetrics.DB_WRITE_LATENCY).timer());
+    }
+
+    private ChatService wrap() {
+        Object wrapped = postProcessor.postProcessAfterInitialization(target, "chatService");
+        assertNotSame(target, wrapped);
+        return (ChatService) wrapped;
+    }
+
+    private Timer timer(String outcome) {
+        return registry.get(ChatMetrics.DB_WRITE_LATENCY)
+                .tag("operation", "save_conversation")
+                .tag("outcome", outcome)
+                .timer();
+    }
+}
@@ -0,0 +1,169 @@
+package com.aichat.service.personality;
+
+import com.aichat.dto.EmotionAnalysisResult;
+import com.aichat.dto.PersonalityProfile;
+import com.aichat.service.metrics.ChatMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PersonalityProfileStoreTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ChatMetrics chatMetrics;
+    private PersonalityProfileStore store;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:personality-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE personality_profiles (user_id BIGINT PRIMARY KEY, turns INT NOT NULL, "
+                + "state CLOB NOT NULL, updated_at TIMESTAMP NOT NULL)");
+        chatMetrics = mock(ChatMetrics.class);
+        store = store(2, 60_000L);
+    }
+
+    @Test
+    void observeBuildsProfileAndHintWithoutWritingThrough() {
+        store.observe(1L, "请问这个怎么用？谢谢！", null);
+
+        PersonalityProfile profile = store.getProfile(1L);
+        assertNotNull(profile);
+        assertTrue(profile.getCommunicationStyle().contains("礼貌正式"));
+        assertTrue(store.getPromptHint(1L).startsWith("用户的交流风格是："));
+        assertEquals(0, rows());
+
+        store.flush();
+        assertEquals(1, rows());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT turns FROM personality_profiles WHERE user_id = 1", Integer.class));
+
+        // 没有新的更新时不再写库
+        store.flush();
+        verify(chatMetrics, times(1)).recordDbWrite(eq("personality_flush"), anyLong(), eq(ChatMetrics.OUTCOME_SUCCESS));
+    }
+
+    @Test
+    void userWithoutHistoryHasNoProfileAndIsCachedOnce() {
+        assertNull(store.getProfile(9L));
+        assertNull(store.getPromptHint(9L));
+
+        Map<String, Object> statistics = store.getStatistics();
+        assertEquals(1L, statistics.get("loads"));
+        assertEquals(1L, statistics.get("hits"));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedToPendingWritesAndRestored() {
+        store.observe(1L, "你好", null);
+        store.observe(2L, "你好", null);
+        // 访问1之后2成为最久未访问
+        store.getProfile(1L);
+        store.observe(3L, "你好", null);
+
+        Map<String, Object> statistics = store.getStatistics();
+        assertEquals(2, statistics.get("entries"));
+        assertEquals(1, statistics.get("pendingWrites"));
+        assertEquals(1L, statistics.get("evictions"));
+
+        // 未写库的条目从待写队列取回，不读数据库也不丢失更新
+        store.observe(2L, "再见", null);
+        assertEquals(2, store.getProfile(2L).getBehaviorPatterns().get("turns"));
+        assertEquals(3L, store.getStatistics().get("loads"));
+
+        store.flush();
+        assertEquals(0, store.getStatistics().get("pendingWrites"));
+        assertEquals(3, rows());
+    }
+
+    @Test
+    void expiredEntriesAreFlushedAndReloadedFromDatabase() {
+        store.observe(1L, "你好！", null);
+        store.observe(1L, "今天天气不错", null);
+        ReflectionTestUtils.setField(store, "ttlMillis", -1L);
+
+        store.flush();
+        assertEquals(0, store.getStatistics().get("entries"));
+        assertEquals(0, store.getStatistics().get("pendingWrites"));
+
+        PersonalityProfileStore restarted = store(2, 60_000L);
+        assertEquals(2, restarted.getProfile(1L).getBehaviorPatterns().get("turns"));
+        restarted.observe(1L, "再来一句", null);
+        restarted.flush();
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT turns FROM personality_profiles WHERE user_id = 1", Integer.class));
+    }
+
+    @Test
+    void failedFlushKeepsUpdatesForNextCycle() {
+        store.observe(1L, "你好", null);
+        jdbcTemplate.execute("ALTER TABLE personality_profiles RENAME TO personality_profiles_old");
+
+        store.flush();
+        verify(chatMetrics).recordDbWrite(eq("personality_flush"), anyLong(), eq(ChatMetrics.OUTCOME_ERROR));
+
+        jdbcTemplate.execute("ALTER TABLE personality_profiles_old RENAME TO personality_profiles");
+        store.flush();
+        assertEquals(1, rows());
+    }
+
+    @Test
+    void loadFailureSkipsUpdateInsteadOfCachingEmptyProfile() {
+        jdbcTemplate.execute("DROP TABLE personality_profiles");
+
+        store.observe(1L, "你好", null);
+
+        assertNull(store.getProfile(1L));
+        Map<String, Object> statistics = store.getStatistics();
+        assertEquals(0, statistics.get("entries"));
+        assertEquals(2L, statistics.get("loadFailures"));
+    }
+
+    @Test
+    void suppliedEmotionResultDrivesEmotionalTraits() {
+        // 由测试给出逐条的情感分数，不依赖 analyzeEmotion 的占位实现
+        for (int i = 0; i < 5; i++) {
+            store.observe(1L, "今天过得还行", null);
+            store.observe(2L, "今天过得还行", emotion(0.8, 0.1));
+        }
+
+        PersonalityProfile withoutEmotion = store.getProfile(1L);
+        PersonalityProfile withEmotion = store.getProfile(2L);
+        assertEquals(0.5, withoutEmotion.getNeuroticismScore());
+        assertTrue(withEmotion.getNeuroticismScore() > 0.8);
+        assertEquals(0.8, ((Map<?, ?>) withEmotion.getConversationPreferences().get("emotionMix")).get("sadness"));
+    }
+
+    private PersonalityProfileStore store(int maxEntries, long ttlMillis) {
+        PersonalityProfileStore created = new PersonalityProfileStore();
+        ReflectionTestUtils.setField(created, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(created, "chatMetrics", chatMetrics);
+        ReflectionTestUtils.setField(created, "maxEntries", maxEntries);
+        ReflectionTestUtils.setField(created, "ttlMillis", ttlMillis);
+        return created;
+    }
+
+    private int rows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM personality_profiles", Integer.class);
+    }
+
+    private static EmotionAnalysisResult emotion(double sadness, double fear) {
+        Map<String, Double> scores = new HashMap<>();
+        scores.put("sadness", sadness);
+        scores.put("fear", fear);
+        EmotionAnalysisResult result = new EmotionAnalysisResult();
+        result.setEmotionScores(scores);
+        result.setIntensity(3);
+        result.setSentimentScore(-0.6);
+        return result;
+    }
+}
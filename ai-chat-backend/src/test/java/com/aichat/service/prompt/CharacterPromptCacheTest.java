@@ -0,0 +1,119 @@
+package com.aichat.service.prompt;
+
+import com.aichat.entity.ChatCharacter;
+import com.aichat.service.catalog.ChatCharacterCatalog;
+import com.aichat.service.catalog.ChatCharacterChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CharacterPromptCacheTest {
+
+    private ChatCharacterCatalog catalog;
+    private CharacterPromptCache cache;
+
+    @BeforeEach
+    void setUp() {
+        catalog = mock(ChatCharacterCatalog.class);
+        cache = new CharacterPromptCache();
+        ReflectionTestUtils.setField(cache, "characterCatalog", catalog);
+        cache.init();
+    }
+
+    @Test
+    void defaultTemplateRendersCharacterAndDynamicSlots() {
+        ChatCharacter poet = character(1L, "李白", "一位诗人。", 1);
+        poet.setPersonality("豪放");
+
+        PromptTemplate template = cache.get(poet);
+
+        assertEquals("你是李白，一位诗人。\n性格特点：豪放\n", template.render(null));
+        assertEquals("你是李白，一位诗人。\n性格特点：豪放\n偏好简短回复",
+                template.render(Collections.singletonMap(CharacterPromptCache.SLOT_PERSONALIZATION, "偏好简短回复")));
+    }
+
+    @Test
+    void compiledTemplateIsReusedUntilCharacterChanges() {
+        ChatCharacter poet = character(1L, "李白", "一位诗人。", 1);
+        PromptTemplate first = cache.get(poet);
+
+        assertSame(first, cache.get(poet));
+        assertEquals(1L, cache.getStatistics().get("hits"));
+
+        ChatCharacter edited = character(1L, "李白", "唐代诗人。", 2);
+        PromptTemplate rebuilt = cache.get(edited);
+        assertNotSame(first, rebuilt);
+        assertTrue(rebuilt.render(null).startsWith("你是李白，唐代诗人。"));
+        assertEquals(2L, cache.getStatistics().get("compilations"));
+        // 旧前缀不再被任何角色使用，已释放
+        assertEquals(1, cache.getStatistics().get("prefixes"));
+    }
+
+    @Test
+    void changedEventInvalidatesCompiledTemplate() {
+        ChatCharacter poet = character(1L, "李白", "一位诗人。", 1);
+        PromptTemplate first = cache.get(poet);
+
+        cache.onCharacterChanged(new ChatCharacterChangedEvent(poet));
+
+        assertEquals(0, cache.getStatistics().get("characters"));
+        assertEquals(0, cache.getStatistics().get("prefixes"));
+        assertNotSame(first, cache.get(poet));
+        assertEquals(2L, cache.getStatistics().get("compilations"));
+
+        // 未缓存的角色的事件不影响其他条目
+        cache.onCharacterChanged(new ChatCharacterChangedEvent(character(2L, "杜甫", "诗人。", 1)));
+        assertEquals(1, cache.getStatistics().get("characters"));
+    }
+
+    @Test
+    void identicalPrefixesAreShared() {
+        PromptTemplate first = cache.get(character(1L, "侦探", "擅长推理。", 1));
+        PromptTemplate second = cache.get(character(2L, "侦探", "擅长推理。", 1));
+
+        assertSame(first.getPrefix(), second.getPrefix());
+        assertEquals(1, cache.getStatistics().get("prefixes"));
+    }
+
+    @Test
+    void systemPromptComesFromCatalogSnapshot() {
+        when(catalog.getCharacter(1L)).thenReturn(Optional.of(character(1L, "李白", "一位诗人。", 1)));
+        when(catalog.getCharacter(2L)).thenReturn(Optional.empty());
+
+        assertEquals("你是李白，一位诗人。\n", cache.getSystemPrompt(1L));
+        assertNull(cache.getSystemPrompt(2L));
+        assertNull(cache.getSystemPrompt(null));
+    }
+
+    @Test
+    void unsavedCharacterIsNotCached() {
+        cache.get(character(null, "草稿", "未保存。", 1));
+
+        assertEquals(0, cache.getStatistics().get("characters"));
+    }
+
+    @Test
+    void invalidConfiguredTemplateFailsAtStartup() {
+        CharacterPromptCache invalid = new CharacterPromptCache();
+        ReflectionTestUtils.setField(invalid, "configuredTemplate", "{{#name}}未闭合");
+
+        assertThrows(IllegalArgumentException.class, invalid::init);
+    }
+
+    private static ChatCharacter character(Long id, String name, String systemPrompt, int updatedDay) {
+        ChatCharacter character = new ChatCharacter();
+        character.setId(id);
+        character.setName(name);
+        character.setSystemPrompt(systemPrompt);
+        character.setIsActive(true);
+        character.setUpdatedAt(LocalDateTime.of(2024, 1, updatedDay, 0, 0));
+        return character;
+    }
+}
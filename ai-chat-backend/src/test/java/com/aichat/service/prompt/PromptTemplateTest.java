@@ -0,0 +1,89 @@
+package com.aichat.service.prompt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptTemplateTest {
+
+    @Test
+    void staticValuesFoldIntoPrefix() {
+        Map<String, String> values = new HashMap<>();
+        values.put("name", "李白");
+        values.put("background", "");
+
+        PromptTemplate template = compile("你是{{name}}。{{#background}}背景：{{background}}{{/background}}结束", values);
+
+        assertEquals("你是李白。结束", template.getPrefix().getText());
+        assertSame(template.getPrefix().getText(), template.render(null));
+    }
+
+    @Test
+    void dynamicSlotsAndSectionsAreFilledPerRender() {
+        PromptTemplate template = compile("你是{{name}}。{{#history}}历史：\n{{history}}{{/history}}",
+                Collections.singletonMap("name", "李白"));
+        Map<String, Object> values = new HashMap<>();
+        values.put("history", (PromptTemplate.SlotWriter) out -> out.append("用户：你好\n"));
+
+        assertEquals("你是李白。", template.getPrefix().getText());
+        assertEquals("你是李白。历史：\n用户：你好\n", template.render(values));
+        assertEquals("你是李白。", template.render(Collections.singletonMap("history", "")));
+    }
+
+    @Test
+    void insertedValuesAreNotParsedAsTemplate() {
+        PromptTemplate template = compile("你是{{name}}，{{personalization}}", Collections.singletonMap("name", "{{x}}"));
+
+        assertEquals("你是{{x}}，", template.getPrefix().getText());
+        assertEquals("你是{{x}}，{{#history}}不会展开{{/history}}",
+                template.render(Collections.singletonMap("personalization", "{{#history}}不会展开{{/history}}")));
+    }
+
+    @Test
+    void unknownAndMissingSlotsRenderNothing() {
+        PromptTemplate template = compile("A{{unknown}}B{{#missing}}C{{missing}}{{/missing}}D{{ spaced }}",
+                Collections.<String, String>emptyMap());
+
+        assertEquals("A", template.getPrefix().getText());
+        assertEquals("ABD", template.render(null));
+        assertEquals("ABD", template.render(Collections.singletonMap("other", "x")));
+        assertEquals("ABD!", template.render(Collections.singletonMap("spaced", "!")));
+        assertEquals("ABC1D", template.render(Collections.singletonMap("missing", 1)));
+    }
+
+    @Test
+    void staticValueOfNullRemovesSlotAndSection() {
+        Map<String, String> values = new HashMap<>();
+        values.put("name", null);
+
+        PromptTemplate template = compile("[{{name}}]{{#name}}有名字{{/name}}", values);
+
+        assertEquals("[]", template.render(null));
+    }
+
+    @Test
+    void malformedTemplatesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> compile("你好{{name", Collections.<String, String>emptyMap()));
+        assertThrows(IllegalArgumentException.class, () -> compile("{{#a}}内容", Collections.<String, String>emptyMap()));
+        assertThrows(IllegalArgumentException.class, () -> compile("{{#a}}内容{{/b}}", Collections.<String, String>emptyMap()));
+        assertThrows(IllegalArgumentException.class, () -> compile("{{/a}}", Collections.<String, String>emptyMap()));
+        assertThrows(IllegalArgumentException.class, () -> compile("{{ }}", Collections.<String, String>emptyMap()));
+    }
+
+    @Test
+    void equalPrefixesShareFingerprint() {
+        PromptPrefix first = new PromptPrefix("你是李白。");
+
+        assertEquals(first.getFingerprint(), new PromptPrefix("你是李白。").getFingerprint());
+        assertNotEquals(first.getFingerprint(), new PromptPrefix("你是杜甫。").getFingerprint());
+        assertEquals(64, first.getFingerprint().length());
+    }
+
+    private static PromptTemplate compile(String template, Map<String, String> values) {
+        return PromptTemplate.compile(template, values, PromptPrefix::new);
+    }
+}
@@ -0,0 +1,112 @@
+package com.aichat.service.recommend;
+
+import com.aichat.entity.ChatCharacter;
+import com.aichat.service.catalog.ChatCharacterCatalog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.aichat.service.recommend.RecommendationModelTest.character;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CharacterRecommenderTest {
+
+    private final Map<Long, ChatCharacter> active = new HashMap<>();
+    private TypedQuery<Object[]> query;
+    private CharacterRecommender recommender;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        for (long id = 1; id <= 5; id++) {
+            active.put(id, character(id, null));
+        }
+        ChatCharacterCatalog catalog = mock(ChatCharacterCatalog.class);
+        when(catalog.getActiveCharacters()).thenAnswer(invocation -> new ArrayList<>(active.values()));
+        when(catalog.getCharacter(anyLong())).thenAnswer(invocation -> Optional.ofNullable(active.get(invocation.<Long>getArgument(0))));
+        when(catalog.getLatestCharacters(anyInt())).thenAnswer(invocation -> {
+            List<ChatCharacter> latest = new ArrayList<>();
+            for (long id = 5; id >= 1; id--) {
+                if (active.containsKey(id)) {
+                    latest.add(active.get(id));
+                }
+            }
+            return latest;
+        });
+
+        query = mock(TypedQuery.class);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        EntityManager entityManager = mock(EntityManager.class);
+        when(entityManager.createQuery(anyString(), eq(Object[].class))).thenReturn(query);
+
+        recommender = new CharacterRecommender();
+        ReflectionTestUtils.setField(recommender, "entityManager", entityManager);
+        ReflectionTestUtils.setField(recommender, "characterCatalog", catalog);
+        ReflectionTestUtils.setField(recommender, "lookbackDays", 180);
+        ReflectionTestUtils.setField(recommender, "halfLifeDays", 30.0);
+        ReflectionTestUtils.setField(recommender, "trendingHalfLifeDays", 3.0);
+        ReflectionTestUtils.setField(recommender, "maxNeighbors", 50);
+        ReflectionTestUtils.setField(recommender, "topN", 20);
+        ReflectionTestUtils.setField(recommender, "tagWeight", 0.0);
+        ReflectionTestUtils.setField(recommender, "trendingWeight", 0.0);
+    }
+
+    @Test
+    void coldStartFallsBackToLatestCharacters() {
+        assertEquals(Arrays.asList(5L, 4L, 3L), ids(recommender.recommend(7L, 3)));
+        assertTrue(recommender.recommend(7L, 0).isEmpty());
+    }
+
+    @Test
+    void personalizedResultsComeFirstThenTrendingThenLatest() {
+        LocalDateTime now = LocalDateTime.now();
+        when(query.getResultList()).thenReturn(Arrays.asList(
+                row(10, 1, 1, now), row(10, 2, 1, now),
+                row(11, 1, 1, now), row(11, 3, 9, now),
+                row(12, 1, 1, now)));
+
+        recommender.refresh();
+
+        // 用户12：个性化推荐2、3，之后按热度补上1，再用最新角色补齐
+        assertEquals(Arrays.asList(2L, 3L, 1L, 5L), ids(recommender.recommend(12L, 4)));
+        assertEquals(Arrays.asList(3L, 1L), ids(recommender.getTrendingCharacters(2)));
+        assertEquals(3, recommender.getModelStatus().get("users"));
+    }
+
+    @Test
+    void deactivatedCharactersAreSkippedUntilNextRefresh() {
+        LocalDateTime now = LocalDateTime.now();
+        when(query.getResultList()).thenReturn(Arrays.asList(
+                row(10, 1, 1, now), row(10, 2, 1, now), row(12, 1, 1, now)));
+        recommender.refresh();
+
+        active.remove(2L);
+
+        assertFalse(ids(recommender.recommend(12L, 5)).contains(2L));
+        assertEquals(4, recommender.recommend(12L, 5).size());
+    }
+
+    private static Object[] row(long userId, long characterId, long count, LocalDateTime lastAt) {
+        return new Object[]{userId, characterId, count, lastAt};
+    }
+
+    private static List<Long> ids(List<ChatCharacter> characters) {
+        List<Long> result = new ArrayList<>();
+        for (ChatCharacter character : characters) {
+            result.add(character.getId());
+        }
+        return result;
+    }
+}
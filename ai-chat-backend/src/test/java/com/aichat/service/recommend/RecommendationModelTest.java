@@ -0,0 +1,126 @@
+package com.aichat.service.recommend;
+
+import com.aichat.entity.ChatCharacter;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecommendationModelTest {
+
+    private static final double HALF_LIFE = 30;
+    private static final double TRENDING_HALF_LIFE = 3;
+
+    private final List<ChatCharacter> characters = Arrays.asList(
+            character(1L, "诗歌"),
+            character(2L, "诗歌"),
+            character(3L, "推理"),
+            character(4L, "推理"),
+            character(5L, "诗歌,推理"));
+
+    @Test
+    void recommendsCoOccurringCharactersByCosineSimilarity() {
+        RecommendationModel model = new RecommendationModel.Builder(characters)
+                .add(10, 1, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(10, 2, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(11, 1, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(11, 2, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(11, 3, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(12, 1, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .build(10, 10, 0, 0);
+
+        // sim(1,2)=2/√6 > sim(1,3)=1/√3
+        assertArrayEquals(new long[]{2, 3}, model.recommendationsFor(12L));
+        assertArrayEquals(new long[]{3}, model.recommendationsFor(10L));
+        assertArrayEquals(new long[0], model.recommendationsFor(11L));
+        assertNull(model.recommendationsFor(99L));
+        assertEquals(5, model.getItemCount());
+        assertEquals(3, model.getUserCount());
+        assertEquals(6, model.getPairCount());
+    }
+
+    @Test
+    void neighborAndResultListsAreTruncated() {
+        RecommendationModel model = new RecommendationModel.Builder(characters)
+                .add(10, 1, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(10, 2, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(11, 1, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(11, 2, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(11, 3, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(12, 1, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .build(1, 1, 0, 0);
+
+        assertArrayEquals(new long[]{2}, model.recommendationsFor(12L));
+        assertEquals(3, model.getPairCount());
+    }
+
+    @Test
+    void tagOverlapRecommendsWithoutCoOccurrence() {
+        RecommendationModel model = new RecommendationModel.Builder(characters)
+                .add(10, 4, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .build(10, 10, 0.3, 0);
+
+        // 角色5有两个标签，单个标签的得分减半
+        assertArrayEquals(new long[]{3, 5}, model.recommendationsFor(10L));
+    }
+
+    @Test
+    void recentInteractionsOutweighOldOnes() {
+        RecommendationModel model = new RecommendationModel.Builder(characters)
+                .add(10, 1, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(10, 4, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(11, 1, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(11, 3, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(12, 1, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(12, 2, 1, 90, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(14, 2, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(13, 1, 1, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .build(10, 10, 0, 0);
+
+        // 与角色3、4的共现都是新近的；与角色2的共现已衰减到1/8，下标更小也排在最后
+        assertArrayEquals(new long[]{3, 4, 2}, model.recommendationsFor(13L));
+    }
+
+    @Test
+    void trendingFollowsShortHalfLifeHeat() {
+        RecommendationModel model = new RecommendationModel.Builder(characters)
+                .add(10, 1, 100, 30, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(11, 2, 5, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(12, 3, 1, 1, HALF_LIFE, TRENDING_HALF_LIFE)
+                .build(10, 10, 0, 0);
+
+        assertArrayEquals(new long[]{2, 3, 1}, model.getTrending());
+    }
+
+    @Test
+    void ignoresUnknownCharactersEmptyCountsAndFullyDecayedInteractions() {
+        RecommendationModel model = new RecommendationModel.Builder(characters)
+                .add(10, 42, 3, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(11, 1, 0, 0, HALF_LIFE, TRENDING_HALF_LIFE)
+                .add(12, 1, 1, 10_000, HALF_LIFE, TRENDING_HALF_LIFE)
+                .build(10, 10, 0.3, 0.05);
+
+        assertEquals(0, model.getUserCount());
+        assertEquals(0, model.getTrending().length);
+    }
+
+    @Test
+    void emptyModelHasNoRecommendations() {
+        RecommendationModel empty = RecommendationModel.empty();
+
+        assertNull(empty.recommendationsFor(1L));
+        assertEquals(0, empty.getTrending().length);
+        assertEquals(0, empty.getItemCount());
+    }
+
+    static ChatCharacter character(Long id, String skills) {
+        ChatCharacter character = new ChatCharacter();
+        character.setId(id);
+        character.setName("角色" + id);
+        character.setSkills(skills);
+        character.setIsActive(true);
+        return character;
+    }
+}
@@ -0,0 +1,130 @@
+package com.aichat.service.speech;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AudioPreprocessorTest {
+
+    private AudioPreprocessor preprocessor;
+
+    @BeforeEach
+    void setUp() {
+        preprocessor = new AudioPreprocessor();
+        ReflectionTestUtils.setField(preprocessor, "enabled", true);
+        ReflectionTestUtils.setField(preprocessor, "targetSampleRate", 16000);
+        ReflectionTestUtils.setField(preprocessor, "vadThresholdDb", -45.0);
+        ReflectionTestUtils.setField(preprocessor, "vadPaddingMillis", 200);
+        ReflectionTestUtils.setField(preprocessor, "chunkSeconds", 60);
+        ReflectionTestUtils.setField(preprocessor, "chunkSearchSeconds", 5);
+        ReflectionTestUtils.setField(preprocessor, "pcmSampleRate", 16000);
+        ReflectionTestUtils.setField(preprocessor, "pcmChannels", 1);
+    }
+
+    @Test
+    void trimsLeadingAndTrailingSilence() throws IOException {
+        // 1秒静音 + 2秒语音 + 1秒静音
+        float[] samples = tone(16000, 4, 1.0, 3.0);
+
+        List<Resource> chunks = preprocessor.prepare(named(WavCodec.encodeWav(samples, 0, samples.length, 16000), "a.wav"));
+
+        assertEquals(1, chunks.size());
+        Resource chunk = chunks.get(0);
+        assertEquals("a.wav", chunk.getFilename());
+        // 语音2秒，前后各留200ms
+        long sampleCount = (chunk.contentLength() - WavCodec.HEADER_BYTES) / 2;
+        assertEquals(2.4 * 16000, sampleCount, 16000 * 0.04);
+        assertEquals(chunk.contentLength(), read(chunk).length);
+    }
+
+    @Test
+    void resamplesToTargetRate() throws IOException {
+        float[] samples = tone(44100, 1, 0, 1);
+
+        List<Resource> chunks = preprocessor.prepare(named(WavCodec.encodeWav(samples, 0, samples.length, 44100), "b.wav"));
+
+        byte[] wav = read(chunks.get(0));
+        WavCodec.SampleReader reader = WavCodec.openWav(new ByteArrayInputStream(wav));
+        assertEquals(16000, reader.getSampleRate());
+        assertEquals(wav.length, chunks.get(0).contentLength());
+    }
+
+    @Test
+    void splitsLongRecordingAtSilence() throws IOException {
+        ReflectionTestUtils.setField(preprocessor, "chunkSeconds", 2);
+        ReflectionTestUtils.setField(preprocessor, "chunkSearchSeconds", 1);
+        // 语音中间 1.5-1.7秒处有一段静音
+        float[] samples = tone(16000, 4, 0, 4);
+        for (int i = (int) (1.5 * 16000); i < (int) (1.7 * 16000); i++) {
+            samples[i] = 0f;
+        }
+
+        List<Resource> chunks = preprocessor.prepare(named(WavCodec.encodeWav(samples, 0, samples.length, 16000), "c.wav"));
+
+        assertTrue(chunks.size() >= 2);
+        assertEquals("c-part0.wav", chunks.get(0).getFilename());
+        long firstSamples = (chunks.get(0).contentLength() - WavCodec.HEADER_BYTES) / 2;
+        assertTrue(firstSamples >= 1.5 * 16000 && firstSamples <= 1.7 * 16000, "切点应落在静音段: " + firstSamples);
+        long total = 0;
+        for (Resource chunk : chunks) {
+            total += (chunk.contentLength() - WavCodec.HEADER_BYTES) / 2;
+            assertEquals(chunk.contentLength(), read(chunk).length);
+        }
+        assertEquals(samples.length, total);
+    }
+
+    @Test
+    void rejectsSilentRecording() {
+        float[] samples = new float[16000];
+
+        assertThrows(IllegalArgumentException.class,
+                () -> preprocessor.prepare(named(WavCodec.encodeWav(samples, 0, samples.length, 16000), "d.wav")));
+    }
+
+    @Test
+    void returnsNullForUnsupportedEncoding() throws IOException {
+        assertNull(preprocessor.prepare(named(new byte[]{'R', 'I', 'F', 'F', 4, 0, 0, 0, 'W', 'A', 'V', 'E'}, "e.wav")));
+    }
+
+    /**
+     * 在 [from, to) 秒之间生成440Hz正弦，其余为静音
+     */
+    private static float[] tone(int sampleRate, int seconds, double from, double to) {
+        float[] samples = new float[sampleRate * seconds];
+        for (int i = (int) (from * sampleRate); i < (int) (to * sampleRate); i++) {
+            samples[i] = (float) (0.5 * Math.sin(2 * Math.PI * 440 * i / sampleRate));
+        }
+        return samples;
+    }
+
+    private static Resource named(byte[] data, String filename) {
+        return new ByteArrayResource(data) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        };
+    }
+
+    private static byte[] read(Resource resource) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = resource.getInputStream()) {
+            byte[] buffer = new byte[1000];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+}
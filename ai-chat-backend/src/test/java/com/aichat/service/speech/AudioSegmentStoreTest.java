@@ -0,0 +1,204 @@
+package com.aichat.service.speech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AudioSegmentStoreTest {
+
+    private static final int SEGMENT_BYTES = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void storesAndReadsBack() throws IOException {
+        try (AudioSegmentStore store = new AudioSegmentStore(directory, SEGMENT_BYTES, 4)) {
+            store.put("a", audio(100, 1));
+            store.put("a", audio(100, 9));
+
+            assertArrayEquals(audio(100, 1), store.get("a"));
+            assertNull(store.get("b"));
+            assertEquals(1, store.size());
+            assertEquals(100, store.getStoredBytes());
+        }
+    }
+
+    @Test
+    void rebuildsIndexFromSegmentFilesOnRestart() throws IOException {
+        try (AudioSegmentStore store = new AudioSegmentStore(directory, SEGMENT_BYTES, 4)) {
+            for (int i = 0; i < 10; i++) {
+                store.put("key-" + i, audio(1000, i));
+            }
+        }
+
+        try (AudioSegmentStore reopened = new AudioSegmentStore(directory, SEGMENT_BYTES, 4)) {
+            assertEquals(10, reopened.size());
+            for (int i = 0; i < 10; i++) {
+                assertArrayEquals(audio(1000, i), reopened.get("key-" + i));
+            }
+            reopened.put("key-10", audio(1000, 10));
+            assertArrayEquals(audio(1000, 10), reopened.get("key-10"));
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedSegmentAndDeletesItsFile() throws Exception {
+        try (AudioSegmentStore store = new AudioSegmentStore(directory, SEGMENT_BYTES, 2)) {
+            // 每个分段放3条记录
+            for (int i = 0; i < 6; i++) {
+                store.put("key-" + i, audio(1200, i));
+            }
+            assertEquals(2, store.getSegmentCount());
+
+            store.put("key-6", audio(1200, 6));
+
+            assertNull(store.get("key-0"));
+            assertNull(store.get("key-2"));
+            assertArrayEquals(audio(1200, 3), store.get("key-3"));
+            assertArrayEquals(audio(1200, 6), store.get("key-6"));
+            assertEquals(2, store.getSegmentCount());
+            assertEquals(2, segmentFiles());
+        }
+    }
+
+    @Test
+    void recordsLargerThanSegmentAreNotStored() throws IOException {
+        try (AudioSegmentStore store = new AudioSegmentStore(directory, SEGMENT_BYTES, 2)) {
+            store.put("big", audio(SEGMENT_BYTES, 1));
+
+            assertNull(store.get("big"));
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    void transferToWritesAudio() throws IOException {
+        try (AudioSegmentStore store = new AudioSegmentStore(directory, SEGMENT_BYTES, 2)) {
+            store.put("a", audio(700, 3));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            assertTrue(store.transferTo("a", Channels.newChannel(out)));
+            assertFalse(store.transferTo("missing", Channels.newChannel(out)));
+
+            assertArrayEquals(audio(700, 3), out.toByteArray());
+        }
+    }
+
+    @Test
+    void evictedSegmentStaysUntilTransferCompletes() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (AudioSegmentStore store = new AudioSegmentStore(directory, SEGMENT_BYTES, 2)) {
+            for (int i = 0; i < 6; i++) {
+                store.put("key-" + i, audio(1200, i));
+            }
+            Path victim = firstSegment();
+
+            CountDownLatch writing = new CountDownLatch(1);
+            CountDownLatch proceed = new CountDownLatch(1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            WritableByteChannel slow = new BlockingChannel(out, writing, proceed);
+            Future<Boolean> transfer = executor.submit(() -> store.transferTo("key-0", slow));
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+            // 传输进行中淘汰该分段：索引立即摘除，文件保留
+            store.put("key-6", audio(1200, 6));
+            assertNull(store.get("key-0"));
+            assertTrue(Files.exists(victim));
+
+            proceed.countDown();
+            assertTrue(transfer.get(5, TimeUnit.SECONDS));
+            assertArrayEquals(audio(1200, 0), out.toByteArray());
+            assertFalse(Files.exists(victim));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void closedStoreNoLongerServesOrAcceptsAudio() throws IOException {
+        AudioSegmentStore store = new AudioSegmentStore(directory, SEGMENT_BYTES, 2);
+        store.put("a", audio(100, 1));
+
+        store.close();
+        store.close();
+
+        assertNull(store.get("a"));
+        assertFalse(store.transferTo("a", Channels.newChannel(new ByteArrayOutputStream())));
+        store.put("b", audio(100, 2));
+        assertEquals(0, store.size());
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".seg")).count();
+        }
+    }
+
+    private Path firstSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".seg")).sorted().findFirst().get();
+        }
+    }
+
+    private static byte[] audio(int length, int seed) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte) seed);
+        data[0] = (byte) (seed * 31);
+        return data;
+    }
+
+    /**
+     * 第一次写入时通知并阻塞，模拟慢客户端
+     */
+    private static final class BlockingChannel implements WritableByteChannel {
+
+        private final WritableByteChannel delegate;
+        private final CountDownLatch writing;
+        private final CountDownLatch proceed;
+
+        BlockingChannel(ByteArrayOutputStream out, CountDownLatch writing, CountDownLatch proceed) {
+            this.delegate = Channels.newChannel(out);
+            this.writing = writing;
+            this.proceed = proceed;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            writing.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            return delegate.write(source);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
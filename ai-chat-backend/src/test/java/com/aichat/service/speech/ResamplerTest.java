@@ -0,0 +1,119 @@
+package com.aichat.service.speech;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResamplerTest {
+
+    @Test
+    void sameRateIsPassThrough() {
+        float[] samples = {0.1f, 0.2f, 0.3f};
+
+        assertSame(samples, Resampler.of(16000, 16000).resample(samples));
+    }
+
+    @Test
+    void outputLengthFollowsRateRatio() {
+        assertEquals(16000, Resampler.of(48000, 16000).outputLength(48000));
+        assertEquals(16000, Resampler.of(44100, 16000).outputLength(44100));
+        assertEquals(32000, Resampler.of(8000, 16000).outputLength(16000));
+    }
+
+    @Test
+    void downsamplingKeepsLowFrequencyTone() {
+        int from = 48000;
+        float[] input = new float[from];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (float) (0.5 * Math.sin(2 * Math.PI * 440 * i / from));
+        }
+
+        float[] output = Resampler.of(from, 16000).resample(input);
+
+        assertEquals(16000, output.length);
+        // 避开边缘，逐点与理想信号比较
+        for (int i = 100; i < output.length - 100; i++) {
+            assertEquals(0.5 * Math.sin(2 * Math.PI * 440 * i / 16000.0), output[i], 0.01);
+        }
+    }
+
+    @Test
+    void downsamplingRemovesToneAboveTargetNyquist() {
+        int from = 48000;
+        float[] input = new float[from];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (float) (0.5 * Math.sin(2 * Math.PI * 12000 * i / from));
+        }
+
+        float[] output = Resampler.of(from, 16000).resample(input);
+
+        for (int i = 100; i < output.length - 100; i++) {
+            assertEquals(0, output[i], 0.01);
+        }
+    }
+
+    @Test
+    void streamingFromOffsetMatchesWholeArray() throws IOException {
+        float[] input = new float[44100];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (float) Math.sin(i * 0.013) * 0.3f + (float) Math.cos(i * 0.0021) * 0.2f;
+        }
+        Resampler resampler = Resampler.of(44100, 16000);
+        float[] whole = resampler.resample(input);
+
+        WavCodec.SampleSource stream = resampler.open(new ArraySource(input, 44100), 5000);
+        float[] tail = new float[whole.length - 5000];
+        int count = 0;
+        int read;
+        while (count < tail.length && (read = stream.read(tail, count, Math.min(777, tail.length - count))) > 0) {
+            count += read;
+        }
+
+        assertEquals(tail.length, count);
+        assertArrayEquals(Arrays.copyOfRange(whole, 5000, whole.length), tail, 0f);
+    }
+
+    @Test
+    void rejectsUnsupportedRates() {
+        assertThrows(IllegalArgumentException.class, () -> Resampler.of(0, 16000));
+        assertThrows(IllegalArgumentException.class, () -> Resampler.of(16000, WavCodec.MAX_SAMPLE_RATE + 1));
+    }
+
+    private static final class ArraySource implements WavCodec.SampleSource {
+
+        private final float[] samples;
+        private final int sampleRate;
+        private int position;
+
+        ArraySource(float[] samples, int sampleRate) {
+            this.samples = samples;
+            this.sampleRate = sampleRate;
+        }
+
+        @Override
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        @Override
+        public int read(float[] buffer, int offset, int length) {
+            if (position >= samples.length) {
+                return -1;
+            }
+            int count = Math.min(length, samples.length - position);
+            System.arraycopy(samples, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public long skip(long count) {
+            int skipped = (int) Math.min(count, samples.length - position);
+            position += skipped;
+            return skipped;
+        }
+    }
+}
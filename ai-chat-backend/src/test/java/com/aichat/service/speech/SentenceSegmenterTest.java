@@ -0,0 +1,94 @@
+package com.aichat.service.speech;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SentenceSegmenterTest {
+
+    @Test
+    void splitsAtChineseTerminators() {
+        SentenceSegmenter segmenter = new SentenceSegmenter(2, 100);
+
+        List<String> sentences = feed(segmenter, "你好呀！今天天气", "不错。我们", "出去走走吧？");
+        sentences.add(segmenter.flush());
+
+        assertEquals(Arrays.asList("你好呀！", "今天天气不错。", "我们出去走走吧？"), sentences);
+    }
+
+    @Test
+    void waitsForClosingQuoteAfterTerminator() {
+        SentenceSegmenter segmenter = new SentenceSegmenter(2, 100);
+
+        assertTrue(segmenter.append("他说：“走吧。").isEmpty());
+        assertEquals(Arrays.asList("他说：“走吧。”"), segmenter.append("”然后"));
+        assertEquals("然后", segmenter.flush());
+    }
+
+    @Test
+    void consecutiveTerminatorsStayWithSentence() {
+        SentenceSegmenter segmenter = new SentenceSegmenter(2, 100);
+
+        assertEquals(Arrays.asList("真的吗？！"), segmenter.append("真的吗？！好"));
+    }
+
+    @Test
+    void periodOnlyEndsSentenceBeforeWhitespace() {
+        SentenceSegmenter segmenter = new SentenceSegmenter(2, 100);
+
+        assertTrue(segmenter.append("Pi is 3.14 and e.g").isEmpty());
+        assertTrue(segmenter.append(".").isEmpty());
+        assertEquals(Arrays.asList("Pi is 3.14 and e.g."), segmenter.append(" More"));
+        assertEquals("More", segmenter.flush());
+    }
+
+    @Test
+    void shortSentenceMergesWithNext() {
+        SentenceSegmenter segmenter = new SentenceSegmenter(4, 100);
+
+        List<String> sentences = feed(segmenter, "嗯。好的，我们开始吧。", "下");
+
+        assertEquals(Arrays.asList("嗯。好的，我们开始吧。"), sentences);
+    }
+
+    @Test
+    void longTextWithoutTerminatorBreaksAtPause() {
+        SentenceSegmenter segmenter = new SentenceSegmenter(2, 10);
+
+        List<String> sentences = segmenter.append("一二三四五，六七八九十一二");
+
+        assertEquals(Arrays.asList("一二三四五，"), sentences);
+        assertEquals("六七八九十一二", segmenter.flush());
+    }
+
+    @Test
+    void longTextWithoutPauseBreaksAtMaxLength() {
+        SentenceSegmenter segmenter = new SentenceSegmenter(2, 5);
+
+        List<String> sentences = segmenter.append("一二三四五六七八九十一");
+
+        assertEquals(Arrays.asList("一二三四五", "六七八九十"), sentences);
+        assertEquals("一", segmenter.flush());
+    }
+
+    @Test
+    void emptyInputProducesNothing() {
+        SentenceSegmenter segmenter = new SentenceSegmenter(2, 10);
+
+        assertTrue(segmenter.append(null).isEmpty());
+        assertTrue(segmenter.append("").isEmpty());
+        assertEquals("", segmenter.flush());
+    }
+
+    private static List<String> feed(SentenceSegmenter segmenter, String... deltas) {
+        List<String> sentences = new ArrayList<>();
+        for (String delta : deltas) {
+            sentences.addAll(segmenter.append(delta));
+        }
+        return sentences;
+    }
+}
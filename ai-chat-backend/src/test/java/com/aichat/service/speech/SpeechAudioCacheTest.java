@@ -0,0 +1,151 @@
+package com.aichat.service.speech;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpeechAudioCacheTest {
+
+    private static final VoiceProfile NOVA = new VoiceProfile("nova", 1.0, 0);
+
+    @TempDir
+    Path directory;
+
+    private SpeechAudioCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = cache(300);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    void keyDependsOnlyOnTrimmedTextModelAndResolvedVoice() {
+        String key = SpeechAudioCache.key("你好", NOVA, "tts-1");
+
+        assertEquals(64, key.length());
+        assertEquals(key, SpeechAudioCache.key("  你好\n", new VoiceProfile("nova", 1.0001, 0), "tts-1"));
+        assertNotEquals(key, SpeechAudioCache.key("你好！", NOVA, "tts-1"));
+        assertNotEquals(key, SpeechAudioCache.key("你好", new VoiceProfile("alloy", 1.0, 0), "tts-1"));
+        assertNotEquals(key, SpeechAudioCache.key("你好", new VoiceProfile("nova", 1.2, 0), "tts-1"));
+        assertNotEquals(key, SpeechAudioCache.key("你好", NOVA, "tts-1-hd"));
+    }
+
+    @Test
+    void keySeparatesFieldsUnambiguously() {
+        assertNotEquals(SpeechAudioCache.key("b", NOVA, "a"), SpeechAudioCache.key("a\u0000b", NOVA, ""));
+    }
+
+    @Test
+    void missThenHitFromMemory() {
+        assertNull(cache.get("k"));
+
+        cache.put("k", audio(100, 1));
+
+        assertArrayEquals(audio(100, 1), cache.get("k"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void memoryEvictionFallsBackToDiskAndPromotes() {
+        cache.put("a", audio(200, 1));
+        cache.put("b", audio(200, 2));
+
+        // 内存层只能放下一条，a已被挤出，从磁盘层读回
+        assertArrayEquals(audio(200, 1), cache.get("a"));
+        assertEquals(1L, cache.getStatistics().get("diskHits"));
+        assertEquals(1, cache.getStatistics().get("memoryEntries"));
+
+        assertArrayEquals(audio(200, 1), cache.get("a"));
+        assertEquals(1L, cache.getStatistics().get("memoryHits"));
+    }
+
+    @Test
+    void diskTierSurvivesRestart() {
+        cache.put("a", audio(200, 1));
+        cache.close();
+
+        cache = cache(300);
+
+        assertArrayEquals(audio(200, 1), cache.get("a"));
+        assertEquals(1L, cache.getStatistics().get("diskHits"));
+    }
+
+    @Test
+    void transferToServesBothTiers() throws IOException {
+        cache.put("a", audio(200, 1));
+        cache.put("b", audio(200, 2));
+
+        ByteArrayOutputStream fromDisk = new ByteArrayOutputStream();
+        ByteArrayOutputStream fromMemory = new ByteArrayOutputStream();
+        assertTrue(cache.transferTo("a", Channels.newChannel(fromDisk)));
+        assertTrue(cache.transferTo("b", Channels.newChannel(fromMemory)));
+        assertFalse(cache.transferTo("c", Channels.newChannel(new ByteArrayOutputStream())));
+
+        assertArrayEquals(audio(200, 1), fromDisk.toByteArray());
+        assertArrayEquals(audio(200, 2), fromMemory.toByteArray());
+    }
+
+    @Test
+    void disabledCacheStoresNothing() {
+        SpeechAudioCache disabled = new SpeechAudioCache();
+        ReflectionTestUtils.setField(disabled, "enabled", false);
+        disabled.init();
+
+        assertFalse(disabled.put("a", audio(10, 1)));
+
+        assertNull(disabled.get("a"));
+        assertEquals(-1, disabled.getLength("a"));
+    }
+
+    @Test
+    void lengthIsReportedFromEitherTier() {
+        assertTrue(cache.put("a", audio(200, 1)));
+        assertTrue(cache.put("b", audio(150, 2)));
+
+        assertEquals(200, cache.getLength("a"));
+        assertEquals(150, cache.getLength("b"));
+        assertEquals(-1, cache.getLength("missing"));
+    }
+
+    @Test
+    void audioTooLargeForBothTiersIsNotStored() {
+        assertFalse(cache.put("huge", audio(5000, 1)));
+
+        assertNull(cache.get("huge"));
+        assertEquals(-1, cache.getLength("huge"));
+    }
+
+    private SpeechAudioCache cache(long memoryMaxBytes) {
+        SpeechAudioCache cache = new SpeechAudioCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "memoryMaxBytes", memoryMaxBytes);
+        ReflectionTestUtils.setField(cache, "memoryMaxEntryBytes", 1024);
+        ReflectionTestUtils.setField(cache, "diskDir", directory.toString());
+        ReflectionTestUtils.setField(cache, "segmentBytes", 4096);
+        ReflectionTestUtils.setField(cache, "maxSegments", 4);
+        cache.init();
+        return cache;
+    }
+
+    private static byte[] audio(int length, int seed) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte) seed);
+        return data;
+    }
+}
@@ -0,0 +1,168 @@
+package com.aichat.service.speech;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VoiceActivityDetectorTest {
+
+    private static final int RATE = 16000;
+    // 20ms一帧
+    private static final int FRAME = 320;
+
+    @Test
+    void silenceSpeechHangoverEndsUtteranceWithPreRoll() {
+        // 开口3帧，挂起10帧，预录5帧，最长50帧
+        VoiceActivityDetector detector = detector(1, 1000);
+        Recorder recorder = new Recorder();
+
+        detector.feed(pcm(1, silence(25)), recorder);
+        assertEquals(0, recorder.starts);
+        detector.feed(pcm(1, tone(20)), recorder);
+        assertEquals(1, recorder.starts);
+        assertTrue(detector.isSpeaking());
+        assertTrue(recorder.segments.isEmpty());
+
+        detector.feed(pcm(1, silence(20)), recorder);
+
+        assertFalse(detector.isSpeaking());
+        assertEquals(1, recorder.segments.size());
+        // 5帧预录静音 + 20帧语音 + 挂起的10帧静音中保留5帧
+        float[] segment = recorder.segments.get(0);
+        assertEquals(30 * FRAME, segment.length);
+        assertEquals(0f, segment[5 * FRAME - 1]);
+        assertNotEquals(0f, segment[5 * FRAME + 1]);
+    }
+
+    @Test
+    void shortNoiseBurstDoesNotOpenUtterance() {
+        VoiceActivityDetector detector = detector(1, 1000);
+        Recorder recorder = new Recorder();
+
+        detector.feed(pcm(1, concat(silence(10), tone(2), silence(20))), recorder);
+        detector.flush(recorder);
+
+        assertEquals(0, recorder.starts);
+        assertTrue(recorder.segments.isEmpty());
+    }
+
+    @Test
+    void maxUtteranceCapSplitsLongSpeech() {
+        VoiceActivityDetector detector = detector(1, 1000);
+        Recorder recorder = new Recorder();
+
+        detector.feed(pcm(1, tone(125)), recorder);
+        assertTrue(detector.isSpeaking());
+        detector.flush(recorder);
+
+        assertEquals(1, recorder.starts);
+        assertEquals(3, recorder.segments.size());
+        assertEquals(50 * FRAME, recorder.segments.get(0).length);
+        assertEquals(50 * FRAME, recorder.segments.get(1).length);
+        assertEquals(25 * FRAME, recorder.segments.get(2).length);
+        assertFalse(detector.isSpeaking());
+    }
+
+    @Test
+    void chunkBoundariesInsideSamplesGiveSameSegments() {
+        byte[] stream = pcmBytes(2, concat(silence(25), tone(20), silence(20)));
+        Recorder whole = new Recorder();
+        detector(2, 1000).feed(ByteBuffer.wrap(stream), whole);
+
+        Recorder chunked = new Recorder();
+        VoiceActivityDetector detector = detector(2, 1000);
+        for (int offset = 0; offset < stream.length; offset += 333) {
+            detector.feed(ByteBuffer.wrap(stream, offset, Math.min(333, stream.length - offset)), chunked);
+        }
+
+        assertEquals(1, chunked.segments.size());
+        assertArrayEquals(whole.segments.get(0), chunked.segments.get(0));
+    }
+
+    @Test
+    void flushWhileSilentEmitsNothing() {
+        VoiceActivityDetector detector = detector(1, 1000);
+        Recorder recorder = new Recorder();
+
+        detector.feed(pcm(1, silence(10)), recorder);
+        detector.flush(recorder);
+
+        assertTrue(recorder.segments.isEmpty());
+    }
+
+    @Test
+    void rejectsInvalidFormat() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new VoiceActivityDetector(0, 1, -45, 60, 200, 100, 1000));
+        assertThrows(IllegalArgumentException.class,
+                () -> new VoiceActivityDetector(RATE, 0, -45, 60, 200, 100, 1000));
+    }
+
+    private static VoiceActivityDetector detector(int channels, int maxSegmentMillis) {
+        return new VoiceActivityDetector(RATE, channels, -45, 60, 200, 100, maxSegmentMillis);
+    }
+
+    private static float[] silence(int frames) {
+        return new float[frames * FRAME];
+    }
+
+    private static float[] tone(int frames) {
+        float[] samples = new float[frames * FRAME];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (float) (0.5 * Math.sin(2 * Math.PI * 440 * i / RATE));
+        }
+        // 避免第一个采样恰好为0，便于断言语音起点
+        samples[0] = 0.25f;
+        return samples;
+    }
+
+    private static float[] concat(float[]... parts) {
+        int length = 0;
+        for (float[] part : parts) {
+            length += part.length;
+        }
+        float[] result = new float[length];
+        int offset = 0;
+        for (float[] part : parts) {
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+        return result;
+    }
+
+    private static ByteBuffer pcm(int channels, float[] samples) {
+        return ByteBuffer.wrap(pcmBytes(channels, samples));
+    }
+
+    private static byte[] pcmBytes(int channels, float[] samples) {
+        ByteBuffer buffer = ByteBuffer.allocate(samples.length * channels * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (float sample : samples) {
+            for (int c = 0; c < channels; c++) {
+                buffer.putShort((short) Math.round(sample * 32767));
+            }
+        }
+        return buffer.array();
+    }
+
+    private static final class Recorder implements VoiceActivityDetector.Listener {
+
+        int starts;
+        final List<float[]> segments = new ArrayList<>();
+
+        @Override
+        public void onSpeechStart() {
+            starts++;
+        }
+
+        @Override
+        public void onSegment(float[] samples, int sampleRate) {
+            assertEquals(RATE, sampleRate);
+            segments.add(samples);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.aichat.service.speech;
+
+import com.aichat.entity.AICharacter;
+import com.aichat.entity.ChatCharacter;
+import com.aichat.service.catalog.AICharacterCatalog;
+import com.aichat.service.catalog.ChatCharacterCatalog;
+import com.aichat.service.catalog.ChatCharacterChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class VoiceProfileResolverTest {
+
+    private ChatCharacterCatalog chatCharacterCatalog;
+    private AICharacterCatalog characterCatalog;
+    private VoiceProfileResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        chatCharacterCatalog = mock(ChatCharacterCatalog.class);
+        when(chatCharacterCatalog.getCharacter(anyLong())).thenReturn(Optional.empty());
+        when(chatCharacterCatalog.getCharacter(5L)).thenReturn(Optional.of(chatCharacter(5L, "李白")));
+        when(chatCharacterCatalog.getCharacter(6L)).thenReturn(Optional.of(chatCharacter(6L, "新角色")));
+
+        // AI角色ID与聊天角色ID是两套编号：ID 5 的AI角色是另一个人物
+        characterCatalog = mock(AICharacterCatalog.class);
+        when(characterCatalog.getCharacter(anyLong())).thenReturn(Optional.empty());
+        when(characterCatalog.getCharacter(5L)).thenReturn(Optional.of(aiCharacter(5L, "苏格拉底", "{\"voice_id\":\"echo\"}")));
+        when(characterCatalog.getCharacterByName(anyString())).thenReturn(Optional.empty());
+        when(characterCatalog.getCharacterByName("李白"))
+                .thenReturn(Optional.of(aiCharacter(1L, "李白", "{\"voice_id\":\"Onyx\",\"speed\":0.9}")));
+        when(characterCatalog.getCharacterByName("苏格拉底"))
+                .thenReturn(Optional.of(aiCharacter(5L, "苏格拉底", "{\"voice_id\":\"echo\"}")));
+
+        resolver = new VoiceProfileResolver();
+        ReflectionTestUtils.setField(resolver, "chatCharacterCatalog", chatCharacterCatalog);
+        ReflectionTestUtils.setField(resolver, "characterCatalog", characterCatalog);
+        ReflectionTestUtils.setField(resolver, "defaultVoice", "alloy");
+        ReflectionTestUtils.setField(resolver, "supportedVoices", new String[]{"alloy", "echo", "nova", "onyx"});
+        resolver.init();
+    }
+
+    @Test
+    void chatCharacterIdResolvesToSameNamedAICharacterVoice() {
+        VoiceProfile profile = resolver.resolve(5L, null);
+
+        assertEquals("onyx", profile.getVoice());
+        assertEquals(0.9, profile.getSpeed(), 1e-9);
+        verify(characterCatalog, never()).getCharacter(anyLong());
+    }
+
+    @Test
+    void emotionModifiesCharacterSpeedButKeepsItsVoice() {
+        VoiceProfile profile = resolver.resolve(5L, "happy");
+
+        assertEquals("onyx", profile.getVoice());
+        assertEquals(1.08, profile.getSpeed(), 1e-9);
+    }
+
+    @Test
+    void unknownCharacterOrMissingCounterpartFallsBackToEmotionAndDefault() {
+        assertEquals("alloy", resolver.resolve(99L, null).getVoice());
+        assertEquals("alloy", resolver.resolve(6L, null).getVoice());
+        assertEquals("nova", resolver.resolve(6L, "EXCITED").getVoice());
+        assertEquals("alloy", resolver.resolve(null, "unknown").getVoice());
+        assertEquals(0, resolver.getCachedCharacterCount());
+    }
+
+    @Test
+    void changedVoiceConfigIsReparsed() {
+        assertEquals("onyx", resolver.resolve(5L, null).getVoice());
+        when(characterCatalog.getCharacterByName("李白"))
+                .thenReturn(Optional.of(aiCharacter(1L, "李白", "{\"voice_id\":\"nova\"}")));
+
+        assertEquals("nova", resolver.resolve(5L, null).getVoice());
+    }
+
+    @Test
+    void unsupportedVoiceIsTreatedAsUnconfigured() {
+        when(characterCatalog.getCharacterByName("李白"))
+                .thenReturn(Optional.of(aiCharacter(1L, "李白", "{\"voice_id\":\"robot\",\"speed\":1.5}")));
+
+        VoiceProfile profile = resolver.resolve(5L, "CALM");
+
+        assertEquals("echo", profile.getVoice());
+        assertEquals(1.2, profile.getSpeed(), 1e-9);
+    }
+
+    @Test
+    void chatCharacterChangeEvictsCachedProfile() {
+        resolver.resolve(5L, null);
+        assertEquals(1, resolver.getCachedCharacterCount());
+
+        resolver.onCharacterChanged(new ChatCharacterChangedEvent(chatCharacter(5L, "李白")));
+
+        assertEquals(0, resolver.getCachedCharacterCount());
+    }
+
+    private static ChatCharacter chatCharacter(Long id, String name) {
+        ChatCharacter character = new ChatCharacter();
+        character.setId(id);
+        character.setName(name);
+        character.setIsActive(true);
+        return character;
+    }
+
+    private static AICharacter aiCharacter(Long id, String name, String voiceConfig) {
+        AICharacter character = new AICharacter(name, null, "历史人物");
+        character.setId(id);
+        character.setVoiceConfig(voiceConfig);
+        character.setIsActive(true);
+        return character;
+    }
+}
@@ -0,0 +1,63 @@
+package com.aichat.service.speech;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class VoiceUploadTest {
+
+    private static final String[] FORMATS = {"wav", "mp3", "webm"};
+
+    @Test
+    void streamsUploadWithoutReadingItIntoHeap() throws IOException {
+        MockMultipartFile file = spy(new MockMultipartFile("audio", "录音.MP3", "audio/mpeg", new byte[]{1, 2, 3, 4}));
+
+        VoiceUpload upload = VoiceUpload.of(file, 1024, FORMATS);
+        Resource resource = upload.toResource();
+
+        assertEquals(4, resource.contentLength());
+        assertEquals(upload.getFilename(), resource.getFilename());
+        try (InputStream in = resource.getInputStream()) {
+            assertArrayEquals(new byte[]{1, 2, 3, 4}, StreamUtils.copyToByteArray(in));
+        }
+        verify(file, never()).getBytes();
+        verify(file, never()).transferTo(any(java.io.File.class));
+    }
+
+    @Test
+    void assignsUniqueFilenamesWithNormalizedExtension() {
+        MockMultipartFile file = new MockMultipartFile("audio", "a.MP3", "audio/mpeg", new byte[]{1});
+
+        VoiceUpload first = VoiceUpload.of(file, 1024, FORMATS);
+        VoiceUpload second = VoiceUpload.of(file, 1024, FORMATS);
+
+        assertTrue(first.getFilename().matches("voice-[0-9a-f-]{36}\\.mp3"));
+        assertNotEquals(first.getFilename(), second.getFilename());
+        assertEquals(1, first.getSize());
+    }
+
+    @Test
+    void missingExtensionDefaultsToWav() {
+        MockMultipartFile file = new MockMultipartFile("audio", "recording", "audio/wav", new byte[]{1});
+
+        assertTrue(VoiceUpload.of(file, 1024, FORMATS).getFilename().endsWith(".wav"));
+    }
+
+    @Test
+    void rejectsEmptyOversizedAndUnsupportedUploads() {
+        assertThrows(IllegalArgumentException.class, () -> VoiceUpload.of(null, 1024, FORMATS));
+        assertThrows(IllegalArgumentException.class,
+                () -> VoiceUpload.of(new MockMultipartFile("audio", "a.wav", null, new byte[0]), 1024, FORMATS));
+        assertThrows(IllegalArgumentException.class,
+                () -> VoiceUpload.of(new MockMultipartFile("audio", "a.wav", null, new byte[2048]), 1024, FORMATS));
+        assertThrows(IllegalArgumentException.class,
+                () -> VoiceUpload.of(new MockMultipartFile("audio", "a.exe", null, new byte[1]), 1024, FORMATS));
+    }
+}
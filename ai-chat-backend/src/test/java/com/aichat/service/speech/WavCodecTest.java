@@ -0,0 +1,247 @@
+package com.aichat.service.speech;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WavCodecTest {
+
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_ADPCM = 2;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    @Test
+    void decodesStereoPcm16AsMonoAverage() throws IOException {
+        byte[] wav = wav(fmt(FORMAT_PCM, 2, 16000, 16), data(pcm16(16384, 0, -16384, -16384)));
+
+        float[] samples = readAll(WavCodec.openWav(new ByteArrayInputStream(wav)));
+
+        assertArrayEquals(new float[]{0.25f, -0.5f}, samples, 1e-6f);
+    }
+
+    @Test
+    void forgedDataSizeReadsOnlyWhatIsPresent() throws IOException {
+        byte[] wav = wav(fmt(FORMAT_PCM, 1, 16000, 16), chunk("data", 0x7FFFFFF0, pcm16(1000, 2000, 3000)));
+
+        WavCodec.SampleReader reader = WavCodec.openWav(new ByteArrayInputStream(wav));
+
+        assertEquals(3, readAll(reader).length);
+    }
+
+    @Test
+    void zeroDataSizeReadsToEndOfStream() throws IOException {
+        byte[] wav = wav(fmt(FORMAT_PCM, 1, 16000, 16), chunk("data", 0, pcm16(1, 2, 3, 4)));
+
+        assertEquals(4, readAll(WavCodec.openWav(new ByteArrayInputStream(wav))).length);
+    }
+
+    @Test
+    void streamingDataSizeReadsToEndOfStream() throws IOException {
+        byte[] wav = wav(fmt(FORMAT_PCM, 1, 16000, 16), chunk("data", 0xFFFFFFFF, pcm16(1, 2, 3, 4, 5)));
+
+        assertEquals(5, readAll(WavCodec.openWav(new ByteArrayInputStream(wav))).length);
+    }
+
+    @Test
+    void dataSizeLimitsSamplesWhenTrailingChunksFollow() throws IOException {
+        byte[] samples = pcm16(100, 200);
+        byte[] wav = wav(fmt(FORMAT_PCM, 1, 16000, 16), data(samples), chunk("LIST", 4, new byte[4]));
+
+        assertEquals(2, readAll(WavCodec.openWav(new ByteArrayInputStream(wav))).length);
+    }
+
+    @Test
+    void extensibleFormatUsesSubFormat() throws IOException {
+        byte[] wav = wav(extensibleFmt(FORMAT_PCM, 1, 16000, 16), data(pcm16(16384)));
+
+        assertArrayEquals(new float[]{0.5f}, readAll(WavCodec.openWav(new ByteArrayInputStream(wav))), 1e-6f);
+    }
+
+    @Test
+    void extensibleFormatWithCompressedSubFormatIsUnsupported() throws IOException {
+        byte[] wav = wav(extensibleFmt(FORMAT_ADPCM, 1, 16000, 4), data(new byte[16]));
+
+        assertNull(WavCodec.openWav(new ByteArrayInputStream(wav)));
+    }
+
+    @Test
+    void oddSizedChunksArePadded() throws IOException {
+        byte[] wav = wav(fmt(FORMAT_PCM, 1, 16000, 16), chunk("junk", 3, new byte[]{1, 2, 3, 0}),
+                data(pcm16(16384, -16384)));
+
+        assertArrayEquals(new float[]{0.5f, -0.5f}, readAll(WavCodec.openWav(new ByteArrayInputStream(wav))), 1e-6f);
+    }
+
+    @Test
+    void truncatedFmtChunkIsUnsupported() throws IOException {
+        byte[] wav = wav(chunk("fmt ", 8, new byte[8]), data(pcm16(1)));
+
+        assertNull(WavCodec.openWav(new ByteArrayInputStream(wav)));
+    }
+
+    @Test
+    void outOfRangeParametersAreUnsupported() throws IOException {
+        assertNull(WavCodec.openWav(new ByteArrayInputStream(wav(fmt(FORMAT_PCM, 1, 500, 16), data(pcm16(1))))));
+        assertNull(WavCodec.openWav(new ByteArrayInputStream(wav(fmt(FORMAT_PCM, 1, 1_000_000, 16), data(pcm16(1))))));
+        assertNull(WavCodec.openWav(new ByteArrayInputStream(wav(fmt(FORMAT_PCM, 0, 16000, 16), data(pcm16(1))))));
+        assertNull(WavCodec.openWav(new ByteArrayInputStream(wav(fmt(FORMAT_PCM, 64, 16000, 16), data(pcm16(1))))));
+        assertNull(WavCodec.openWav(new ByteArrayInputStream(wav(fmt(FORMAT_PCM, 1, 16000, 12), data(pcm16(1))))));
+    }
+
+    @Test
+    void missingDataChunkIsUnsupported() throws IOException {
+        assertNull(WavCodec.openWav(new ByteArrayInputStream(wav(fmt(FORMAT_PCM, 1, 16000, 16)))));
+        assertNull(WavCodec.openWav(new ByteArrayInputStream("RIFF....AVI ".getBytes(StandardCharsets.US_ASCII))));
+    }
+
+    @Test
+    void skipStopsAtEndOfData() throws IOException {
+        byte[] wav = wav(fmt(FORMAT_PCM, 2, 16000, 16), data(pcm16(1, 1, 2, 2, 3, 3)));
+        WavCodec.SampleReader reader = WavCodec.openWav(new ByteArrayInputStream(wav));
+
+        assertEquals(2, reader.skip(2));
+        assertEquals(1, reader.skip(10));
+        assertEquals(-1, reader.read(new float[4], 0, 4));
+    }
+
+    @Test
+    void encodeWavRoundTrips() throws IOException {
+        float[] samples = {0f, 0.5f, -0.5f, 0.25f};
+        byte[] wav = WavCodec.encodeWav(samples, 1, 4, 16000);
+
+        assertEquals(WavCodec.HEADER_BYTES + 6, wav.length);
+        WavCodec.SampleReader reader = WavCodec.openWav(new ByteArrayInputStream(wav));
+        assertEquals(16000, reader.getSampleRate());
+        assertArrayEquals(new float[]{0.5f, -0.5f, 0.25f}, readAll(reader), 1e-4f);
+    }
+
+    @Test
+    void encodingStreamPadsWithSilenceWhenSourceEndsEarly() throws IOException {
+        byte[] source = wav(fmt(FORMAT_PCM, 1, 8000, 16), data(pcm16(16384, 16384)));
+        boolean[] closed = new boolean[1];
+
+        byte[] encoded;
+        try (InputStream in = WavCodec.encodingStream(WavCodec.openWav(new ByteArrayInputStream(source)), 5,
+                () -> closed[0] = true)) {
+            encoded = toBytes(in);
+        }
+
+        assertTrue(closed[0]);
+        assertEquals(WavCodec.HEADER_BYTES + 10, encoded.length);
+        assertArrayEquals(new float[]{0.5f, 0.5f, 0f, 0f, 0f},
+                readAll(WavCodec.openWav(new ByteArrayInputStream(encoded))), 1e-4f);
+    }
+
+    @Test
+    void rawPcmIsReadToEndOfStream() throws IOException {
+        WavCodec.SampleReader reader = WavCodec.openPcm16(new ByteArrayInputStream(pcm16(16384, 0, 0, 16384)), 16000, 2);
+
+        assertArrayEquals(new float[]{0.25f, 0.25f}, readAll(reader), 1e-6f);
+    }
+
+    private static float[] readAll(WavCodec.SampleSource source) throws IOException {
+        assertNotNull(source);
+        float[] buffer = new float[64];
+        int count = 0;
+        int read;
+        while ((read = source.read(buffer, count, Math.min(3, buffer.length - count))) > 0) {
+            count += read;
+        }
+        float[] result = new float[count];
+        System.arraycopy(buffer, 0, result, 0, count);
+        return result;
+    }
+
+    private static byte[] wav(byte[]... chunks) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (byte[] chunk : chunks) {
+            body.write(chunk, 0, chunk.length);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTag(out, "RIFF");
+        writeInt(out, 4 + body.size());
+        writeTag(out, "WAVE");
+        byte[] bytes = body.toByteArray();
+        out.write(bytes, 0, bytes.length);
+        return out.toByteArray();
+    }
+
+    private static byte[] fmt(int format, int channels, int sampleRate, int bits) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeShort(out, format);
+        writeShort(out, channels);
+        writeInt(out, sampleRate);
+        writeInt(out, sampleRate * channels * bits / 8);
+        writeShort(out, channels * bits / 8);
+        writeShort(out, bits);
+        return chunk("fmt ", out.size(), out.toByteArray());
+    }
+
+    private static byte[] extensibleFmt(int subFormat, int channels, int sampleRate, int bits) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeShort(out, FORMAT_EXTENSIBLE);
+        writeShort(out, channels);
+        writeInt(out, sampleRate);
+        writeInt(out, sampleRate * channels * bits / 8);
+        writeShort(out, channels * bits / 8);
+        writeShort(out, bits);
+        writeShort(out, 22);
+        writeShort(out, bits);
+        writeInt(out, 0);
+        // 子格式GUID：前两个字节为格式码，其余为固定后缀
+        writeShort(out, subFormat);
+        out.write(new byte[14], 0, 14);
+        return chunk("fmt ", out.size(), out.toByteArray());
+    }
+
+    private static byte[] data(byte[] samples) {
+        return chunk("data", samples.length, samples);
+    }
+
+    private static byte[] chunk(String tag, int declaredSize, byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTag(out, tag);
+        writeInt(out, declaredSize);
+        out.write(body, 0, body.length);
+        return out.toByteArray();
+    }
+
+    private static byte[] pcm16(int... values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int value : values) {
+            writeShort(out, value);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] toBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[7];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeTag(ByteArrayOutputStream out, String tag) {
+        byte[] bytes = tag.getBytes(StandardCharsets.US_ASCII);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        writeShort(out, value);
+        writeShort(out, value >>> 16);
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+    }
+}
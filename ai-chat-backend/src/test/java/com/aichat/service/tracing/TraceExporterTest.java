@@ -0,0 +1,181 @@
+package com.aichat.service.tracing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceExporterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesOneOtlpJsonLinePerBatch() throws IOException {
+        Path file = directory.resolve("traces/out.jsonl");
+        TraceExporter exporter = exporter("file", file.toString(), 128, 16);
+        Trace trace = trace();
+
+        exporter.offer(trace);
+        exporter.export();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(1, lines.size());
+        assertSpans(objectMapper.readTree(lines.get(0)), trace);
+        assertEquals(1L, exporter.getStatistics().get("exported"));
+        assertEquals(0, exporter.getStatistics().get("queued"));
+    }
+
+    @Test
+    void splitsQueueIntoBatches() throws IOException {
+        Path file = directory.resolve("out.jsonl");
+        TraceExporter exporter = exporter("file", file.toString(), 128, 2);
+        for (int i = 0; i < 5; i++) {
+            exporter.offer(trace());
+        }
+
+        exporter.export();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(3, lines.size());
+        assertEquals(2 * 2, objectMapper.readTree(lines.get(0)).at("/resourceSpans/0/scopeSpans/0/spans").size());
+        assertEquals(2, objectMapper.readTree(lines.get(2)).at("/resourceSpans/0/scopeSpans/0/spans").size());
+        assertEquals(5L, exporter.getStatistics().get("exported"));
+    }
+
+    @Test
+    void fullQueueDropsInsteadOfBlocking() {
+        TraceExporter exporter = exporter("file", directory.resolve("out.jsonl").toString(), 2, 16);
+
+        for (int i = 0; i < 5; i++) {
+            exporter.offer(trace());
+        }
+
+        assertEquals(2, exporter.getStatistics().get("queued"));
+        assertEquals(3L, exporter.getStatistics().get("dropped"));
+    }
+
+    @Test
+    void failedWriteDropsBatch() {
+        // 目标路径是目录，追加写入失败
+        TraceExporter exporter = exporter("file", directory.toString(), 128, 16);
+        exporter.offer(trace());
+
+        exporter.export();
+
+        assertEquals(1L, exporter.getStatistics().get("dropped"));
+        assertEquals(0L, exporter.getStatistics().get("exported"));
+        assertEquals(0, exporter.getStatistics().get("queued"));
+    }
+
+    @Test
+    void noneTypeIgnoresTraces() {
+        TraceExporter exporter = exporter("none", directory.resolve("out.jsonl").toString(), 128, 16);
+
+        exporter.offer(trace());
+        exporter.export();
+
+        assertEquals(0, exporter.getStatistics().get("queued"));
+        assertFalse(Files.exists(directory.resolve("out.jsonl")));
+    }
+
+    @Test
+    void postsBatchToOtlpEndpoint() throws IOException {
+        AtomicReference<String> body = new AtomicReference<>();
+        AtomicReference<String> contentType = new AtomicReference<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/traces", exchange -> {
+            contentType.set(exchange.getRequestHeaders().getFirst("Content-Type"));
+            body.set(StreamUtils.copyToString(exchange.getRequestBody(), StandardCharsets.UTF_8));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            TraceExporter exporter = exporter("otlp", null, 128, 16);
+            ReflectionTestUtils.setField(exporter, "otlpEndpoint",
+                    "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/traces");
+            Trace trace = trace();
+
+            exporter.offer(trace);
+            exporter.export();
+
+            assertTrue(contentType.get().startsWith("application/json"));
+            assertSpans(objectMapper.readTree(body.get()), trace);
+            assertEquals(1L, exporter.getStatistics().get("exported"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private void assertSpans(JsonNode request, Trace trace) {
+        JsonNode resourceSpans = request.at("/resourceSpans/0");
+        assertEquals("service.name", resourceSpans.at("/resource/attributes/0/key").asText());
+        assertEquals("ai-chat-backend", resourceSpans.at("/resource/attributes/0/value/stringValue").asText());
+        assertEquals("com.aichat", resourceSpans.at("/scopeSpans/0/scope/name").asText());
+
+        Map<String, JsonNode> byName = new HashMap<>();
+        for (JsonNode span : resourceSpans.at("/scopeSpans/0/spans")) {
+            assertEquals(trace.getTraceId(), span.get("traceId").asText());
+            assertTrue(span.get("spanId").asText().matches("[0-9a-f]{16}"));
+            // 64位整数按字符串输出
+            assertTrue(span.get("startTimeUnixNano").isTextual());
+            assertTrue(Long.parseLong(span.get("endTimeUnixNano").asText())
+                    >= Long.parseLong(span.get("startTimeUnixNano").asText()));
+            byName.put(span.get("name").asText(), span);
+        }
+        assertEquals(2, byName.size());
+
+        JsonNode root = byName.get("POST /api/chat");
+        assertEquals(2, root.get("kind").asInt());
+        assertFalse(root.has("parentSpanId"));
+        assertEquals(1, root.at("/status/code").asInt());
+        assertEquals("http.method", root.at("/attributes/0/key").asText());
+        assertEquals("POST", root.at("/attributes/0/value/stringValue").asText());
+
+        JsonNode llm = byName.get(Tracer.STAGE_LLM);
+        assertEquals(1, llm.get("kind").asInt());
+        assertEquals(root.get("spanId").asText(), llm.get("parentSpanId").asText());
+        assertEquals(2, llm.at("/status/code").asInt());
+        assertEquals("error", llm.at("/attributes/0/key").asText());
+        assertEquals("IllegalStateException", llm.at("/attributes/0/value/stringValue").asText());
+    }
+
+    private static Trace trace() {
+        Trace trace = new Trace("POST /api/chat", true, false);
+        trace.getRoot().tag("http.method", "POST");
+        Span llm = trace.newSpan(Tracer.STAGE_LLM, null, null);
+        llm.fail(new IllegalStateException());
+        llm.end();
+        trace.finish();
+        return trace;
+    }
+
+    private static TraceExporter exporter(String type, String file, int queueSize, int batchSize) {
+        TraceExporter exporter = new TraceExporter();
+        ReflectionTestUtils.setField(exporter, "exportType", type);
+        ReflectionTestUtils.setField(exporter, "exportFile", file);
+        ReflectionTestUtils.setField(exporter, "queueSize", queueSize);
+        ReflectionTestUtils.setField(exporter, "batchSize", batchSize);
+        ReflectionTestUtils.setField(exporter, "serviceName", "ai-chat-backend");
+        exporter.init();
+        return exporter;
+    }
+}
@@ -0,0 +1,91 @@
+package com.aichat.websocket;
+
+import com.aichat.service.CharacterService;
+import com.aichat.service.metrics.ChatMetrics;
+import com.aichat.service.tracing.TracingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ChatWebSocketHandlerTest {
+
+    private ChatWebSocketHandler handler;
+    private CharacterService characterService;
+    private WebSocketSession session;
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        characterService = mock(CharacterService.class);
+        when(characterService.getCharacterById(anyLong())).thenReturn(Optional.empty());
+        TracingService tracingService = mock(TracingService.class);
+        when(tracingService.getDebugHeader()).thenReturn("X-Debug-Trace");
+
+        handler = new ChatWebSocketHandler();
+        ReflectionTestUtils.setField(handler, "characterService", characterService);
+        ReflectionTestUtils.setField(handler, "chatMetrics", mock(ChatMetrics.class));
+        ReflectionTestUtils.setField(handler, "tracingService", tracingService);
+        ReflectionTestUtils.setField(handler, "maxTextMessageChars", 65536);
+        ReflectionTestUtils.setField(handler, "vadThresholdDb", -45.0);
+        ReflectionTestUtils.setField(handler, "speechStartMillis", 60);
+        ReflectionTestUtils.setField(handler, "hangoverMillis", 600);
+        ReflectionTestUtils.setField(handler, "preRollMillis", 300);
+        ReflectionTestUtils.setField(handler, "maxSegmentMillis", 30000);
+        ReflectionTestUtils.setField(handler, "maxBufferedBytes", 1024);
+
+        session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+        when(session.getAttributes()).thenReturn(attributes);
+        when(session.getHandshakeHeaders()).thenReturn(new HttpHeaders());
+        when(session.isOpen()).thenReturn(true);
+    }
+
+    @Test
+    void anonymousVoiceStartWithoutUserIdGetsErrorFrame() throws Exception {
+        handler.handleMessage(session, new TextMessage("{\"type\":\"voice_start\",\"characterId\":2}"));
+
+        Map<String, Object> reply = lastFrame();
+        assertEquals("error", reply.get("type"));
+        assertEquals("voice_start缺少userId", reply.get("message"));
+        verifyNoInteractions(characterService);
+    }
+
+    @Test
+    void voiceStartWithoutCharacterIdGetsErrorFrame() throws Exception {
+        handler.handleMessage(session, new TextMessage("{\"type\":\"voice_start\",\"userId\":7}"));
+
+        assertEquals("voice_start缺少characterId", lastFrame().get("message"));
+    }
+
+    @Test
+    void voiceStartUsesHandshakeUserId() throws Exception {
+        attributes.put(WebSocketAuthInterceptor.USER_ID_ATTRIBUTE, 7L);
+
+        handler.handleMessage(session, new TextMessage("{\"type\":\"voice_start\",\"characterId\":2}"));
+
+        Map<String, Object> reply = lastFrame();
+        assertEquals("voice_ready", reply.get("type"));
+        assertEquals(Boolean.TRUE, reply.get("serverVad"));
+        verify(characterService).getCharacterById(2L);
+    }
+
+    private Map<String, Object> lastFrame() throws Exception {
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, atLeastOnce()).sendMessage(captor.capture());
+        List<TextMessage> frames = captor.getAllValues();
+        return handler.decodeFrame(frames.get(frames.size() - 1).getPayload());
+    }
+}
@@ -0,0 +1,62 @@
+package com.aichat.websocket;
+
+import com.aichat.security.JwtPrincipal;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StompPrincipalInterceptorTest {
+
+    private final StompPrincipalInterceptor interceptor = new StompPrincipalInterceptor();
+    private final MessageChannel channel = mock(MessageChannel.class);
+
+    @Test
+    void connectBindsHandshakePrincipal() {
+        JwtPrincipal principal = new JwtPrincipal(7L, "alice", Collections.<String>emptyList(), Long.MAX_VALUE);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(WebSocketAuthInterceptor.PRINCIPAL_ATTRIBUTE, principal);
+
+        Message<?> result = interceptor.preSend(message(StompCommand.CONNECT, attributes), channel);
+
+        assertSame(principal, StompHeaderAccessor.wrap(result).getUser());
+    }
+
+    @Test
+    void anonymousConnectHasNoUser() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(WebSocketAuthInterceptor.USER_ID_ATTRIBUTE, 7L);
+
+        Message<?> result = interceptor.preSend(message(StompCommand.CONNECT, attributes), channel);
+
+        assertNull(StompHeaderAccessor.wrap(result).getUser());
+    }
+
+    @Test
+    void otherFramesPassThroughUntouched() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(WebSocketAuthInterceptor.PRINCIPAL_ATTRIBUTE,
+                new JwtPrincipal(7L, "alice", Collections.<String>emptyList(), Long.MAX_VALUE));
+        Message<?> send = message(StompCommand.SEND, attributes);
+
+        assertSame(send, interceptor.preSend(send, channel));
+        assertNull(StompHeaderAccessor.wrap(send).getUser());
+    }
+
+    private static Message<?> message(StompCommand command, Map<String, Object> attributes) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setSessionId("s1");
+        accessor.setSessionAttributes(attributes);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,77 @@
+package com.aichat.websocket;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VoiceStreamSessionTest {
+
+    @Test
+    void buffersContainerFramesUntilDrained() {
+        VoiceStreamSession voice = session(16);
+        ByteBuffer direct = ByteBuffer.allocateDirect(3);
+        direct.put(new byte[]{4, 5, 6}).flip();
+
+        voice.appendContainer(ByteBuffer.wrap(new byte[]{0, 1, 2, 3}, 1, 3));
+        voice.appendContainer(direct);
+
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6}, voice.drainContainer());
+        assertNull(voice.drainContainer());
+        assertFalse(voice.isPcm());
+    }
+
+    @Test
+    void oversizedUtteranceIsDiscarded() {
+        VoiceStreamSession voice = session(4);
+        voice.appendContainer(ByteBuffer.wrap(new byte[3]));
+
+        assertThrows(IllegalStateException.class, () -> voice.appendContainer(ByteBuffer.wrap(new byte[2])));
+
+        // 超限后丢弃整句，下一句从空缓冲开始
+        assertNull(voice.drainContainer());
+        voice.appendContainer(ByteBuffer.wrap(new byte[]{7}));
+        assertArrayEquals(new byte[]{7}, voice.drainContainer());
+    }
+
+    @Test
+    void newReplyCancelsPreviousOne() {
+        VoiceStreamSession voice = session(16);
+        Disposable first = Disposables.single();
+        Disposable second = Disposables.single();
+
+        voice.replaceReply(first);
+        voice.replaceReply(second);
+
+        assertTrue(first.isDisposed());
+        assertFalse(second.isDisposed());
+        assertTrue(voice.cancelReply());
+        assertTrue(second.isDisposed());
+        assertFalse(voice.cancelReply());
+    }
+
+    @Test
+    void cancellingFinishedReplyIsNotBargeIn() {
+        VoiceStreamSession voice = session(16);
+        Disposable finished = Disposables.single();
+        finished.dispose();
+        voice.replaceReply(finished);
+
+        assertFalse(voice.cancelReply());
+    }
+
+    @Test
+    void segmentsAreNumberedFromOne() {
+        VoiceStreamSession voice = session(16);
+
+        assertEquals(1, voice.nextSegment());
+        assertEquals(2, voice.nextSegment());
+    }
+
+    private static VoiceStreamSession session(int maxBufferedBytes) {
+        return new VoiceStreamSession(1L, 2L, null, "opus", null, null, maxBufferedBytes);
+    }
+}
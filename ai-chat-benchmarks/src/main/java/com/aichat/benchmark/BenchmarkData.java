@@ -0,0 +1,94 @@
+package com.aichat.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试输入数据
+ * 所有输入由固定种子生成，同一参数在不同提交之间得到完全相同的消息和历史，结果才能直接对比。
+ */
+public final class BenchmarkData {
+
+    public static final long SEED = 20240601L;
+
+    // 每组参数预生成的消息条数，基准方法轮流取用，避免分支预测记住单条输入
+    public static final int BATCH = 64;
+
+    // 普通词汇
+    private static final String[] WORDS = {
+        "今天", "我们", "一起", "聊聊", "历史", "这个", "问题", "觉得", "非常", "有意思",
+        "老师", "学校", "朋友", "周末", "天气", "电影", "音乐", "书", "工作", "生活",
+        "李白", "诗歌", "宇宙", "科学", "旅行", "城市", "晚上", "时候", "可以", "已经"
+    };
+
+    // 情感关键词，覆盖情感分析的各个类别
+    private static final String[] EMOTION_WORDS = {
+        "开心", "高兴", "难过", "失望", "生气", "讨厌", "害怕", "焦虑", "惊讶", "没想到", "恶心"
+    };
+
+    // 问句和创作请求触发词，覆盖意图识别的各个分支
+    private static final String[] INTENT_WORDS = {
+        "什么", "怎么", "为什么", "何时", "哪里", "谁", "写诗", "故事", "想象"
+    };
+
+    private static final String[] PUNCTUATION = {"，", "。", "！", "？"};
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * 生成一条大约 length 个字符的用户消息
+     */
+    public static String message(Random random, int length) {
+        StringBuilder text = new StringBuilder(length + 8);
+        while (text.length() < length) {
+            int roll = random.nextInt(100);
+            if (roll < 8) {
+                text.append(EMOTION_WORDS[random.nextInt(EMOTION_WORDS.length)]);
+            } else if (roll < 12) {
+                text.append(INTENT_WORDS[random.nextInt(INTENT_WORDS.length)]);
+            } else if (roll < 22) {
+                text.append(PUNCTUATION[random.nextInt(PUNCTUATION.length)]);
+            } else {
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * 生成 count 条长度为 length 的消息
+     */
+    public static String[] messages(long seed, int count, int length) {
+        Random random = new Random(seed);
+        String[] messages = new String[count];
+        for (int i = 0; i < count; i++) {
+            messages[i] = message(random, length);
+        }
+        return messages;
+    }
+
+    /**
+     * 生成 turns 轮对话，每轮依次为用户消息和AI回复
+     */
+    public static List<String[]> conversation(long seed, int turns) {
+        Random random = new Random(seed);
+        List<String[]> conversation = new ArrayList<>(turns);
+        for (int i = 0; i < turns; i++) {
+            String user = message(random, 20 + random.nextInt(60));
+            String reply = message(random, 40 + random.nextInt(160));
+            conversation.add(new String[]{user, reply});
+        }
+        return conversation;
+    }
+
+    /**
+     * 生成 length 字节的伪音频数据
+     */
+    public static byte[] audio(long seed, int length) {
+        byte[] audio = new byte[length];
+        new Random(seed).nextBytes(audio);
+        return audio;
+    }
+}
@@ -0,0 +1,50 @@
+package com.aichat.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * 基准测试入口
+ * 接受JMH的全部命令行参数；未指定结果格式时默认输出JSON到 target/jmh-result.json，
+ * 便于在不同提交之间对比。
+ *
+ * 用法：
+ *   java -jar target/benchmarks.jar                     运行全部基准
+ *   java -jar target/benchmarks.jar SkillBenchmark      只运行匹配的基准
+ *   java -jar target/benchmarks.jar -rff base.json      指定结果文件
+ *   java -jar target/benchmarks.jar -l                  列出全部基准
+ */
+public final class BenchmarkRunner {
+
+    public static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        if (commandLine.shouldList()) {
+            new Runner(commandLine).list();
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            options.result(DEFAULT_RESULT_FILE);
+        }
+        new Runner(options.build()).run();
+    }
+}
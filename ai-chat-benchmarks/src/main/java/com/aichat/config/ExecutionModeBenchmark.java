@@ -0,0 +1,128 @@
+package com.aichat.config;
+
+import com.aichat.mock.Distribution;
+import com.aichat.mock.MockUpstreamConfig;
+import com.aichat.mock.MockUpstreamServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 平台线程与虚拟线程执行模式对比
+ * 每次操作同时提交 concurrency 个阻塞式LLM调用（WebClient + block()，与 DeepSeekService.chatWithContext 相同），
+ * 上游为固定50ms延迟的模拟服务，计一批调用全部返回的耗时。
+ * platform 模式为200线程的固定线程池（Tomcat默认最大线程数），virtual 模式每个调用一个虚拟线程，需在JDK 21及以上运行：
+ *   java -jar target/benchmarks.jar ExecutionModeBenchmark -jvm /path/to/jdk21/bin/java
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutionModeBenchmark {
+
+    // Tomcat默认的最大工作线程数
+    private static final int PLATFORM_THREADS = 200;
+
+    private static final long UPSTREAM_LATENCY_MILLIS = 50;
+
+    @Param({"platform", "virtual"})
+    private String mode;
+
+    // 同时在途的阻塞调用数
+    @Param({"200", "1000", "4000"})
+    private int concurrency;
+
+    private MockUpstreamServer upstream;
+    private ConnectionProvider connectionProvider;
+    private WebClient webClient;
+    private ExecutorService executor;
+    private Map<String, Object> requestBody;
+
+    @Setup
+    public void setUp() throws IOException {
+        if ("virtual".equals(mode) && !VirtualThreads.isSupported()) {
+            throw new IllegalStateException("virtual 模式需要JDK 21及以上运行时，当前为 " + System.getProperty("java.version"));
+        }
+
+        MockUpstreamConfig config = new MockUpstreamConfig();
+        config.setPort(0);
+        // 模拟服务以占用线程的方式模拟延迟，线程数不能成为瓶颈
+        config.setThreads(concurrency);
+        config.setChatFirstTokenMillis(Distribution.fixed(UPSTREAM_LATENCY_MILLIS));
+        config.setChatCompletionTokens(Distribution.fixed(1));
+        upstream = MockUpstreamServer.start(config);
+
+        connectionProvider = ConnectionProvider.builder("execution-mode-benchmark")
+                .maxConnections(concurrency)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        webClient = WebClient.builder()
+                .baseUrl(upstream.getBaseUrl())
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .defaultHeader("Content-Type", "application/json")
+                .build();
+
+        executor = "virtual".equals(mode)
+                ? VirtualThreads.newThreadPerTaskExecutor("benchmark-vt-")
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+
+        Map<String, String> message = new HashMap<>();
+        message.put("role", "user");
+        message.put("content", "你好");
+        requestBody = new HashMap<>();
+        requestBody.put("model", "deepseek-chat");
+        requestBody.put("messages", Collections.singletonList(message));
+        requestBody.put("stream", false);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        connectionProvider.dispose();
+        upstream.close();
+    }
+
+    @Benchmark
+    public int blockingCalls() throws Exception {
+        List<Future<String>> replies = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            replies.add(executor.submit(() -> webClient.post()
+                    .uri("/chat/completions")
+                    .bodyValue(requestBody)
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .block()));
+        }
+        int bytes = 0;
+        for (Future<String> reply : replies) {
+            bytes += reply.get().length();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,79 @@
+package com.aichat.dto;
+
+import com.aichat.benchmark.BenchmarkData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ChatResponse的Jackson序列化
+ * ObjectMapper按Spring Boot默认方式构建（含Java时间模块，日期写成ISO字符串），与REST接口的输出一致。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChatResponseBenchmark {
+
+    // 回复的字符数
+    @Param({"64", "1024"})
+    private int messageLength;
+
+    private ObjectMapper objectMapper;
+    private ChatResponse response;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        Random random = new Random(BenchmarkData.SEED);
+        response = ChatResponse.success(2L, "李白", BenchmarkData.message(random, messageLength));
+        response.setTimestamp(LocalDateTime.of(2024, 6, 1, 12, 0));
+        response.setSessionId("session-benchmark");
+        response.setModel("deepseek-chat");
+        response.setTokensUsed(messageLength / 4);
+        response.setSkillsUsed(Arrays.asList("情感分析", "知识问答"));
+        response.setEmotionalState("快乐");
+        response.setConfidence(0.82);
+        response.setResponseTime(850L);
+
+        Map<String, Object> stage = new HashMap<>();
+        stage.put("ms", 812L);
+        stage.put("count", 1);
+        Map<String, Object> stages = new HashMap<>();
+        stages.put("llm", stage);
+        Map<String, Object> trace = new HashMap<>();
+        trace.put("traceId", "4bf92f3577b34da6a3ce929d0e0e4736");
+        trace.put("totalMs", 850L);
+        trace.put("stages", stages);
+        response.addMetadata("trace", trace);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
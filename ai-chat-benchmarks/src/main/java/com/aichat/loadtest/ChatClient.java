@@ -0,0 +1,33 @@
+package com.aichat.loadtest;
+
+/**
+ * 压测客户端在一次会话中执行的动作
+ * 非持久连接的客户端（HTTP）没有连接、加入、输入状态和离开，这些步骤由压测脚本跳过。
+ */
+interface ChatClient extends AutoCloseable {
+
+    /**
+     * 是否维持持久连接
+     */
+    boolean isPersistent();
+
+    void connect() throws Exception;
+
+    void join() throws Exception;
+
+    void typing(boolean typing) throws Exception;
+
+    /**
+     * 发送一条聊天消息并等待完整回复
+     *
+     * @return 收到回复第一段内容的时刻（System.nanoTime），非流式协议即收到完整回复的时刻
+     */
+    long chat(String message) throws Exception;
+
+    void heartbeat() throws Exception;
+
+    void leave() throws Exception;
+
+    @Override
+    void close();
+}
@@ -0,0 +1,101 @@
+package com.aichat.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.RestTemplateXhrTransport;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.Transport;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import javax.websocket.ContainerProvider;
+import javax.websocket.WebSocketContainer;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按协议创建压测客户端，底层的WebSocket容器、SockJS和STOMP客户端由所有压测客户端共享
+ */
+class ChatClientFactory {
+
+    // 他人的广播可能较大，客户端接收缓冲放宽到512KB
+    private static final int MAX_MESSAGE_BYTES = 512 * 1024;
+
+    private final LoadTestConfig config;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StandardWebSocketClient webSocketClient;
+    private final SockJsClient sockJsClient;
+    private final WebSocketStompClient stompClient;
+    private final WebSocketStompClient sockJsStompClient;
+
+    ChatClientFactory(LoadTestConfig config) {
+        this.config = config;
+
+        WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+        container.setDefaultMaxTextMessageBufferSize(MAX_MESSAGE_BYTES);
+        container.setDefaultMaxBinaryMessageBufferSize(MAX_MESSAGE_BYTES);
+        webSocketClient = new StandardWebSocketClient(container);
+
+        List<Transport> transports = new ArrayList<>();
+        transports.add(new WebSocketTransport(webSocketClient));
+        transports.add(new RestTemplateXhrTransport());
+        sockJsClient = new SockJsClient(transports);
+
+        stompClient = new WebSocketStompClient(webSocketClient);
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        stompClient.setInboundMessageSizeLimit(MAX_MESSAGE_BYTES);
+        sockJsStompClient = new WebSocketStompClient(sockJsClient);
+        sockJsStompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        sockJsStompClient.setInboundMessageSizeLimit(MAX_MESSAGE_BYTES);
+    }
+
+    void start() {
+        sockJsClient.start();
+        stompClient.start();
+        sockJsStompClient.start();
+    }
+
+    void stop() {
+        sockJsStompClient.stop();
+        stompClient.stop();
+        sockJsClient.stop();
+    }
+
+    ChatClient create(String protocol, long userId) {
+        String http = config.getTarget();
+        String ws = http.replaceFirst("^http", "ws");
+        int connectTimeout = config.getConnectTimeoutMillis();
+        int replyTimeout = config.getReplyTimeoutMillis();
+        switch (protocol) {
+            case LoadTestConfig.PROTOCOL_WS:
+                return new WebSocketChatClient(webSocketClient, URI.create(ws + "/ws/chat?userId=" + userId),
+                        handshakeHeaders(), userId, config.getCharacterId(), objectMapper, connectTimeout, replyTimeout);
+            case LoadTestConfig.PROTOCOL_SOCKJS:
+                return new WebSocketChatClient(sockJsClient, URI.create(http + "/ws/chat?userId=" + userId),
+                        handshakeHeaders(), userId, config.getCharacterId(), objectMapper, connectTimeout, replyTimeout);
+            case LoadTestConfig.PROTOCOL_STOMP:
+                return new StompChatClient(stompClient, ws + "/ws", handshakeHeaders(), userId,
+                        connectTimeout, replyTimeout);
+            case LoadTestConfig.PROTOCOL_STOMP_SOCKJS:
+                return new StompChatClient(sockJsStompClient, http + "/ws", handshakeHeaders(), userId,
+                        connectTimeout, replyTimeout);
+            case LoadTestConfig.PROTOCOL_HTTP_TEXT:
+            case LoadTestConfig.PROTOCOL_HTTP_STREAM:
+                return new HttpChatClient(http, LoadTestConfig.PROTOCOL_HTTP_STREAM.equals(protocol), userId,
+                        config.getCharacterId(), config.getToken(), objectMapper, connectTimeout, replyTimeout);
+            default:
+                throw new IllegalArgumentException("不支持的协议: " + protocol);
+        }
+    }
+
+    private WebSocketHttpHeaders handshakeHeaders() {
+        WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+        if (config.getToken() != null) {
+            headers.setBearerAuth(config.getToken());
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,157 @@
+package com.aichat.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * HTTP客户端：http-text 调用 POST /api/chat/text，http-stream 以SSE方式调用 GET /api/v2/chat/stream
+ * 心跳为 GET /api/chat/health。连接由 HttpURLConnection 的keep-alive池复用，不单独计连接耗时。
+ */
+class HttpChatClient implements ChatClient {
+
+    private final String target;
+    private final boolean streaming;
+    private final long userId;
+    private final long characterId;
+    private final String token;
+    private final ObjectMapper objectMapper;
+    private final int connectTimeoutMillis;
+    private final int replyTimeoutMillis;
+
+    HttpChatClient(String target, boolean streaming, long userId, long characterId, String token,
+                   ObjectMapper objectMapper, int connectTimeoutMillis, int replyTimeoutMillis) {
+        this.target = target;
+        this.streaming = streaming;
+        this.userId = userId;
+        this.characterId = characterId;
+        this.token = token;
+        this.objectMapper = objectMapper;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.replyTimeoutMillis = replyTimeoutMillis;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return false;
+    }
+
+    @Override
+    public void connect() {
+    }
+
+    @Override
+    public void join() {
+    }
+
+    @Override
+    public void typing(boolean typing) {
+    }
+
+    @Override
+    public long chat(String message) throws IOException {
+        return streaming ? chatStream(message) : chatText(message);
+    }
+
+    @Override
+    public void heartbeat() throws IOException {
+        HttpURLConnection connection = open("/api/chat/health", "GET");
+        drain(connection);
+    }
+
+    @Override
+    public void leave() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private long chatText(String message) throws IOException {
+        Map<String, Object> request = new HashMap<>();
+        request.put("userId", userId);
+        request.put("characterId", characterId);
+        request.put("message", message);
+        byte[] body = objectMapper.writeValueAsBytes(request);
+
+        HttpURLConnection connection = open("/api/chat/text", "POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        drain(connection);
+        return System.nanoTime();
+    }
+
+    private long chatStream(String message) throws IOException {
+        String path = "/api/v2/chat/stream?userId=" + userId
+                + "&message=" + URLEncoder.encode(message, StandardCharsets.UTF_8.name());
+        HttpURLConnection connection = open(path, "GET");
+        connection.setRequestProperty("Accept", "text/event-stream");
+        checkStatus(connection);
+
+        long firstDelta = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (firstDelta == 0 && line.startsWith("data:")) {
+                    firstDelta = System.nanoTime();
+                }
+            }
+        }
+        if (firstDelta == 0) {
+            throw new IOException("流式响应没有内容");
+        }
+        return firstDelta;
+    }
+
+    private HttpURLConnection open(String path, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(target + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(connectTimeoutMillis);
+        connection.setReadTimeout(replyTimeoutMillis);
+        if (token != null) {
+            connection.setRequestProperty("Authorization", "Bearer " + token);
+        }
+        return connection;
+    }
+
+    private static void checkStatus(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        if (status / 100 != 2) {
+            // 读完错误响应体，连接才能回到keep-alive池
+            InputStream error = connection.getErrorStream();
+            if (error != null) {
+                drain(error);
+            }
+            throw new IOException("HTTP " + status);
+        }
+    }
+
+    private static void drain(HttpURLConnection connection) throws IOException {
+        checkStatus(connection);
+        drain(connection.getInputStream());
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        try (InputStream body = in) {
+            byte[] buffer = new byte[8192];
+            while (body.read(buffer) != -1) {
+                // 只需读完响应体
+            }
+        }
+    }
+}
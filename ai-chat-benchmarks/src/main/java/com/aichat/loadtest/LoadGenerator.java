@@ -0,0 +1,269 @@
+package com.aichat.loadtest;
+
+import com.aichat.benchmark.BenchmarkData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * WebSocket和HTTP压测工具
+ * 每个客户端一个线程，循环执行脚本化会话：连接、加入、（输入状态、聊天、思考）× N、心跳、离开。
+ * 按协议报告连接、首段回复和完整回复的延迟分布以及吞吐量、各步骤错误率，
+ * 结果写入 output-dir 下的 loadtest-result.json 和每项延迟的 .hgrm 文件。
+ *
+ * 用法：
+ *   java -Xss256k -cp target/benchmarks.jar com.aichat.loadtest.LoadGenerator \
+ *       --target=http://localhost:8080 --protocols=ws,stomp,http-stream --clients=2000 --duration-seconds=300
+ */
+public final class LoadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+
+    public static final String RESULT_FILE = "loadtest-result.json";
+
+    private static final String STEP_CONNECT = "connect";
+    private static final String STEP_JOIN = "join";
+    private static final String STEP_TYPING = "typing";
+    private static final String STEP_CHAT = "chat";
+    private static final String STEP_HEARTBEAT = "heartbeat";
+    private static final String STEP_LEAVE = "leave";
+
+    // 客户端线程栈，数千个线程时默认栈过大
+    private static final long CLIENT_STACK_BYTES = 256 * 1024;
+
+    // 会话失败后重连前的等待
+    private static final long RETRY_BACKOFF_MILLIS = 1000;
+
+    private final LoadTestConfig config;
+    private final LoadTestMetrics metrics = new LoadTestMetrics();
+    private final ChatClientFactory clientFactory;
+    private final AtomicInteger activeClients = new AtomicInteger();
+
+    private volatile long deadlineNanos;
+
+    public LoadGenerator(LoadTestConfig config) {
+        this.config = config;
+        this.clientFactory = new ChatClientFactory(config);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromArgs(args);
+        // HttpURLConnection默认每个目标只保留5个空闲连接，并发客户端多时连接反复重建
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", String.valueOf(config.getClients()));
+        }
+        new LoadGenerator(config).run();
+    }
+
+    /**
+     * 执行压测并写出结果，返回汇总报告
+     */
+    public Map<String, Object> run() throws InterruptedException, IOException {
+        if (config.getDurationSeconds() <= 0 && config.getSessionsPerClient() <= 0) {
+            throw new IllegalArgumentException("duration-seconds 和 sessions-per-client 至少设置一个");
+        }
+        logger.info("压测开始: {}", config.toMap());
+        clientFactory.start();
+
+        long start = System.nanoTime();
+        deadlineNanos = config.getDurationSeconds() > 0
+                ? start + TimeUnit.SECONDS.toNanos(config.getDurationSeconds())
+                : Long.MAX_VALUE;
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        int interval = Math.max(1, config.getReportIntervalSeconds());
+        reporter.scheduleAtFixedRate(() -> logger.info("活跃客户端: {}, 最近{}秒回复: {}, 错误: {}",
+                activeClients.get(), interval, metrics.drainIntervalReplies(), metrics.drainIntervalErrors()),
+                interval, interval, TimeUnit.SECONDS);
+
+        List<Thread> threads = new ArrayList<>(config.getClients());
+        long rampUpNanos = TimeUnit.SECONDS.toNanos(Math.max(0, config.getRampUpSeconds()));
+        try {
+            for (int i = 0; i < config.getClients(); i++) {
+                long startAt = start + rampUpNanos * i / config.getClients();
+                sleepNanos(startAt - System.nanoTime());
+                if (System.nanoTime() >= deadlineNanos) {
+                    break;
+                }
+                int index = i;
+                Thread thread = new Thread(null, () -> runClient(index), "load-client-" + i, CLIENT_STACK_BYTES);
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
+            }
+
+            // 最后一轮回复最多再等一个回复超时
+            long joinDeadline = deadlineNanos == Long.MAX_VALUE
+                    ? Long.MAX_VALUE
+                    : deadlineNanos + TimeUnit.MILLISECONDS.toNanos(config.getReplyTimeoutMillis() + config.getConnectTimeoutMillis());
+            for (Thread thread : threads) {
+                long remaining = joinDeadline - System.nanoTime();
+                if (joinDeadline == Long.MAX_VALUE) {
+                    thread.join();
+                } else if (remaining > 0) {
+                    TimeUnit.NANOSECONDS.timedJoin(thread, remaining);
+                }
+            }
+        } finally {
+            reporter.shutdownNow();
+            clientFactory.stop();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("finishedAt", Instant.now().toString());
+        result.put("elapsedSeconds", elapsed / 1e9);
+        result.put("unfinishedClients", activeClients.get());
+        result.put("config", config.toMap());
+        result.put("protocols", metrics.report(elapsed));
+        writeArtifacts(result);
+        return result;
+    }
+
+    private void runClient(int index) {
+        activeClients.incrementAndGet();
+        String protocol = config.protocolFor(index);
+        long userId = config.getUserIdOffset() + index;
+        Random random = new Random(config.getSeed() + index * 0x9E3779B97F4A7C15L);
+        try {
+            int sessions = 0;
+            while (!expired() && (config.getSessionsPerClient() <= 0 || sessions < config.getSessionsPerClient())) {
+                if (runSession(protocol, userId, random)) {
+                    metrics.increment(protocol, LoadTestMetrics.COUNTER_SESSIONS_COMPLETED);
+                } else {
+                    metrics.increment(protocol, LoadTestMetrics.COUNTER_SESSIONS_FAILED);
+                    sleepNanos(TimeUnit.MILLISECONDS.toNanos(RETRY_BACKOFF_MILLIS));
+                }
+                sessions++;
+            }
+        } finally {
+            activeClients.decrementAndGet();
+        }
+    }
+
+    /**
+     * 执行一次会话脚本，任一步骤失败即结束会话
+     */
+    private boolean runSession(String protocol, long userId, Random random) {
+        try (ChatClient client = clientFactory.create(protocol, userId)) {
+            if (client.isPersistent()) {
+                long connectStart = System.nanoTime();
+                step(protocol, STEP_CONNECT, () -> {
+                    client.connect();
+                    return null;
+                });
+                metrics.recordLatency(protocol, LoadTestMetrics.LATENCY_CONNECT, System.nanoTime() - connectStart);
+                step(protocol, STEP_JOIN, () -> {
+                    client.join();
+                    return null;
+                });
+            }
+
+            for (int i = 0; i < config.getChatsPerSession() && !expired(); i++) {
+                String message = BenchmarkData.message(random,
+                        (int) Math.max(1, config.getMessageLength().sampleLong(random)));
+                if (client.isPersistent()) {
+                    step(protocol, STEP_TYPING, () -> {
+                        client.typing(true);
+                        client.typing(false);
+                        return null;
+                    });
+                }
+                long sendStart = System.nanoTime();
+                long firstDelta = step(protocol, STEP_CHAT, () -> client.chat(message));
+                long complete = System.nanoTime();
+                metrics.recordLatency(protocol, LoadTestMetrics.LATENCY_FIRST_DELTA, firstDelta - sendStart);
+                metrics.recordLatency(protocol, LoadTestMetrics.LATENCY_FULL_REPLY, complete - sendStart);
+                metrics.increment(protocol, LoadTestMetrics.COUNTER_REPLIES);
+
+                if (i < config.getChatsPerSession() - 1) {
+                    sleepNanos(TimeUnit.MILLISECONDS.toNanos(config.getThinkTimeMillis().sampleLong(random)));
+                }
+            }
+
+            step(protocol, STEP_HEARTBEAT, () -> {
+                client.heartbeat();
+                return null;
+            });
+            if (client.isPersistent()) {
+                step(protocol, STEP_LEAVE, () -> {
+                    client.leave();
+                    return null;
+                });
+            }
+            return true;
+        } catch (StepFailedException e) {
+            return false;
+        }
+    }
+
+    private <T> T step(String protocol, String step, Callable<T> action) {
+        metrics.increment(protocol, "steps." + step);
+        try {
+            return action.call();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            metrics.recordError(protocol, step, e);
+            throw new StepFailedException();
+        } catch (Exception e) {
+            metrics.recordError(protocol, step, e);
+            logger.debug("压测步骤失败: protocol={}, step={}, error={}", protocol, step, e.toString());
+            throw new StepFailedException();
+        }
+    }
+
+    private boolean expired() {
+        return System.nanoTime() >= deadlineNanos || Thread.currentThread().isInterrupted();
+    }
+
+    private void writeArtifacts(Map<String, Object> result) throws IOException {
+        Path directory = Paths.get(config.getOutputDir());
+        Files.createDirectories(directory);
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        Path resultFile = directory.resolve(RESULT_FILE);
+        objectMapper.writeValue(resultFile.toFile(), result);
+        metrics.writeHistograms(directory);
+        logger.info("压测结束，结果已写入 {}:\n{}", resultFile.toAbsolutePath(),
+                objectMapper.writeValueAsString(result.get("protocols")));
+    }
+
+    private static void sleepNanos(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 步骤失败，错误已计数，结束当前会话
+     */
+    private static final class StepFailedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        StepFailedException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.aichat.loadtest;
+
+import com.aichat.mock.Distribution;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 压测配置，命令行参数为 --键=值，键名见 {@link #fromArgs}
+ */
+public class LoadTestConfig {
+
+    public static final String PROTOCOL_WS = "ws";
+    public static final String PROTOCOL_SOCKJS = "sockjs";
+    public static final String PROTOCOL_STOMP = "stomp";
+    public static final String PROTOCOL_STOMP_SOCKJS = "stomp-sockjs";
+    public static final String PROTOCOL_HTTP_TEXT = "http-text";
+    public static final String PROTOCOL_HTTP_STREAM = "http-stream";
+
+    // 后端地址
+    private String target = "http://localhost:8080";
+
+    // 客户端协议，多个协议时按客户端序号轮流分配
+    private List<String> protocols = new ArrayList<>();
+
+    // 并发客户端数和全部客户端启动完毕所用的时间
+    private int clients = 100;
+    private int rampUpSeconds = 10;
+
+    // 压测时长；每个客户端的会话数，0表示一直循环到压测结束
+    private int durationSeconds = 60;
+    private int sessionsPerClient;
+
+    // 每个会话的聊天轮数、轮间思考时间和消息长度
+    private int chatsPerSession = 3;
+    private Distribution thinkTimeMillis = Distribution.parse("uniform:500-2000");
+    private Distribution messageLength = Distribution.parse("uniform:10-60");
+
+    private int connectTimeoutMillis = 10000;
+    private int replyTimeoutMillis = 60000;
+
+    // 客户端的用户ID从该值起依次编号
+    private long userIdOffset = 100000;
+    private long characterId = 1;
+
+    // 可选的JWT，放在HTTP请求和WebSocket握手的Authorization请求头中
+    private String token;
+
+    private long seed = 20240601L;
+    private String outputDir = "target/loadtest";
+    private int reportIntervalSeconds = 5;
+
+    public LoadTestConfig() {
+        protocols.add(PROTOCOL_WS);
+    }
+
+    /**
+     * 支持的键：target, protocols, clients, ramp-up-seconds, duration-seconds, sessions-per-client,
+     * chats-per-session, think-time-ms, message-length, connect-timeout-ms, reply-timeout-ms,
+     * user-id-offset, character-id, token, seed, output-dir, report-interval-seconds
+     */
+    public static LoadTestConfig fromArgs(String[] args) {
+        LoadTestConfig config = new LoadTestConfig();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("参数格式应为 --键=值: " + arg);
+            }
+            String key = arg.substring(2, equals);
+            String value = arg.substring(equals + 1).trim();
+            switch (key) {
+                case "target":
+                    config.setTarget(value.endsWith("/") ? value.substring(0, value.length() - 1) : value);
+                    break;
+                case "protocols":
+                    List<String> protocols = new ArrayList<>();
+                    for (String protocol : value.split(",")) {
+                        protocols.add(checkProtocol(protocol.trim()));
+                    }
+                    config.setProtocols(protocols);
+                    break;
+                case "clients":
+                    config.setClients(Integer.parseInt(value));
+                    break;
+                case "ramp-up-seconds":
+                    config.setRampUpSeconds(Integer.parseInt(value));
+                    break;
+                case "duration-seconds":
+                    config.setDurationSeconds(Integer.parseInt(value));
+                    break;
+                case "sessions-per-client":
+                    config.setSessionsPerClient(Integer.parseInt(value));
+                    break;
+                case "chats-per-session":
+                    config.setChatsPerSession(Integer.parseInt(value));
+                    break;
+                case "think-time-ms":
+                    config.setThinkTimeMillis(Distribution.parse(value));
+                    break;
+                case "message-length":
+                    config.setMessageLength(Distribution.parse(value));
+                    break;
+                case "connect-timeout-ms":
+                    config.setConnectTimeoutMillis(Integer.parseInt(value));
+                    break;
+                case "reply-timeout-ms":
+                    config.setReplyTimeoutMillis(Integer.parseInt(value));
+                    break;
+                case "user-id-offset":
+                    config.setUserIdOffset(Long.parseLong(value));
+                    break;
+                case "character-id":
+                    config.setCharacterId(Long.parseLong(value));
+                    break;
+                case "token":
+                    config.setToken(value.isEmpty() ? null : value);
+                    break;
+                case "seed":
+                    config.setSeed(Long.parseLong(value));
+                    break;
+                case "output-dir":
+                    config.setOutputDir(value);
+                    break;
+                case "report-interval-seconds":
+                    config.setReportIntervalSeconds(Integer.parseInt(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知的配置项: " + key);
+            }
+        }
+        if (config.getClients() <= 0) {
+            throw new IllegalArgumentException("clients 必须大于0");
+        }
+        return config;
+    }
+
+    private static String checkProtocol(String protocol) {
+        switch (protocol) {
+            case PROTOCOL_WS:
+            case PROTOCOL_SOCKJS:
+            case PROTOCOL_STOMP:
+            case PROTOCOL_STOMP_SOCKJS:
+            case PROTOCOL_HTTP_TEXT:
+            case PROTOCOL_HTTP_STREAM:
+                return protocol;
+            default:
+                throw new IllegalArgumentException("不支持的协议: " + protocol);
+        }
+    }
+
+    /**
+     * 第 index 个客户端使用的协议
+     */
+    public String protocolFor(int index) {
+        return protocols.get(index % protocols.size());
+    }
+
+    /**
+     * 写入结果文件的配置摘要，令牌不写出
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("target", target);
+        map.put("protocols", protocols);
+        map.put("clients", clients);
+        map.put("rampUpSeconds", rampUpSeconds);
+        map.put("durationSeconds", durationSeconds);
+        map.put("sessionsPerClient", sessionsPerClient);
+        map.put("chatsPerSession", chatsPerSession);
+        map.put("thinkTimeMs", thinkTimeMillis.toString());
+        map.put("messageLength", messageLength.toString());
+        map.put("connectTimeoutMs", connectTimeoutMillis);
+        map.put("replyTimeoutMs", replyTimeoutMillis);
+        map.put("userIdOffset", userIdOffset);
+        map.put("characterId", characterId);
+        map.put("authenticated", token != null);
+        map.put("seed", seed);
+        return map;
+    }
+
+    // Getter和Setter方法
+    public String getTarget() { return target; }
+    public void setTarget(String target) { this.target = target; }
+
+    public List<String> getProtocols() { return protocols; }
+    public void setProtocols(List<String> protocols) { this.protocols = protocols; }
+
+    public int getClients() { return clients; }
+    public void setClients(int clients) { this.clients = clients; }
+
+    public int getRampUpSeconds() { return rampUpSeconds; }
+    public void setRampUpSeconds(int rampUpSeconds) { this.rampUpSeconds = rampUpSeconds; }
+
+    public int getDurationSeconds() { return durationSeconds; }
+    public void setDurationSeconds(int durationSeconds) { this.durationSeconds = durationSeconds; }
+
+    public int getSessionsPerClient() { return sessionsPerClient; }
+    public void setSessionsPerClient(int sessionsPerClient) { this.sessionsPerClient = sessionsPerClient; }
+
+    public int getChatsPerSession() { return chatsPerSession; }
+    public void setChatsPerSession(int chatsPerSession) { this.chatsPerSession = chatsPerSession; }
+
+    public Distribution getThinkTimeMillis() { return thinkTimeMillis; }
+    public void setThinkTimeMillis(Distribution thinkTimeMillis) { this.thinkTimeMillis = thinkTimeMillis; }
+
+    public Distribution getMessageLength() { return messageLength; }
+    public void setMessageLength(Distribution messageLength) { this.messageLength = messageLength; }
+
+    public int getConnectTimeoutMillis() { return connectTimeoutMillis; }
+    public void setConnectTimeoutMillis(int connectTimeoutMillis) { this.connectTimeoutMillis = connectTimeoutMillis; }
+
+    public int getReplyTimeoutMillis() { return replyTimeoutMillis; }
+    public void setReplyTimeoutMillis(int replyTimeoutMillis) { this.replyTimeoutMillis = replyTimeoutMillis; }
+
+    public long getUserIdOffset() { return userIdOffset; }
+    public void setUserIdOffset(long userIdOffset) { this.userIdOffset = userIdOffset; }
+
+    public long getCharacterId() { return characterId; }
+    public void setCharacterId(long characterId) { this.characterId = characterId; }
+
+    public String getToken() { return token; }
+    public void setToken(String token) { this.token = token; }
+
+    public long getSeed() { return seed; }
+    public void setSeed(long seed) { this.seed = seed; }
+
+    public String getOutputDir() { return outputDir; }
+    public void setOutputDir(String outputDir) { this.outputDir = outputDir; }
+
+    public int getReportIntervalSeconds() { return reportIntervalSeconds; }
+    public void setReportIntervalSeconds(int reportIntervalSeconds) { this.reportIntervalSeconds = reportIntervalSeconds; }
+}
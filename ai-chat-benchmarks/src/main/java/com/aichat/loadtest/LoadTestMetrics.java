@@ -0,0 +1,172 @@
+package com.aichat.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压测指标：按协议分别记录延迟分布（HdrHistogram，微秒精度）和步骤计数
+ */
+public class LoadTestMetrics {
+
+    public static final String LATENCY_CONNECT = "connect";
+    public static final String LATENCY_FIRST_DELTA = "first_delta";
+    public static final String LATENCY_FULL_REPLY = "full_reply";
+
+    public static final String COUNTER_REPLIES = "replies";
+    public static final String COUNTER_SESSIONS_COMPLETED = "sessions.completed";
+    public static final String COUNTER_SESSIONS_FAILED = "sessions.failed";
+
+    // 可记录的最大延迟10分钟，3位有效数字
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private static final double[] PERCENTILES = {50, 90, 95, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p95", "p99", "p99.9"};
+
+    private final Map<String, Map<String, Histogram>> histograms = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, LongAdder>> counters = new ConcurrentHashMap<>();
+
+    // 报告间隔内完成的回复数和错误数
+    private final LongAdder intervalReplies = new LongAdder();
+    private final LongAdder intervalErrors = new LongAdder();
+
+    public void recordLatency(String protocol, String metric, long nanos) {
+        histograms.computeIfAbsent(protocol, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(metric, k -> new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS))
+                .recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos))));
+    }
+
+    public void increment(String protocol, String counter) {
+        if (COUNTER_REPLIES.equals(counter)) {
+            intervalReplies.increment();
+        }
+        counters.computeIfAbsent(protocol, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(counter, k -> new LongAdder())
+                .increment();
+    }
+
+    /**
+     * 记录一次步骤失败，按步骤和异常类型分别计数
+     */
+    public void recordError(String protocol, String step, Throwable error) {
+        increment(protocol, "errors." + step);
+        increment(protocol, "errors." + step + "." + error.getClass().getSimpleName());
+        intervalErrors.increment();
+    }
+
+    public long drainIntervalReplies() {
+        return intervalReplies.sumThenReset();
+    }
+
+    public long drainIntervalErrors() {
+        return intervalErrors.sumThenReset();
+    }
+
+    /**
+     * 汇总结果：每个协议的延迟分位数（毫秒）、吞吐量和各步骤的错误率
+     */
+    public Map<String, Object> report(long elapsedNanos) {
+        double elapsedSeconds = Math.max(1e-9, elapsedNanos / 1e9);
+        Map<String, Object> report = new TreeMap<>();
+        for (String protocol : protocols()) {
+            Map<String, Object> protocolReport = new TreeMap<>();
+
+            Map<String, Object> latency = new TreeMap<>();
+            for (Map.Entry<String, Histogram> entry : histogramsOf(protocol).entrySet()) {
+                latency.put(entry.getKey(), summarize(entry.getValue()));
+            }
+            protocolReport.put("latencyMs", latency);
+
+            Map<String, Long> counts = new TreeMap<>();
+            for (Map.Entry<String, LongAdder> entry : countersOf(protocol).entrySet()) {
+                counts.put(entry.getKey(), entry.getValue().sum());
+            }
+            protocolReport.put("counts", counts);
+
+            Map<String, Object> throughput = new TreeMap<>();
+            throughput.put("repliesPerSecond", count(counts, COUNTER_REPLIES) / elapsedSeconds);
+            throughput.put("sessionsPerSecond", count(counts, COUNTER_SESSIONS_COMPLETED) / elapsedSeconds);
+            protocolReport.put("throughput", throughput);
+
+            Map<String, Double> errorRates = new TreeMap<>();
+            for (Map.Entry<String, Long> entry : counts.entrySet()) {
+                if (entry.getKey().startsWith("steps.")) {
+                    String step = entry.getKey().substring("steps.".length());
+                    long attempts = entry.getValue();
+                    errorRates.put(step, attempts > 0 ? (double) count(counts, "errors." + step) / attempts : 0.0);
+                }
+            }
+            protocolReport.put("errorRates", errorRates);
+
+            report.put(protocol, protocolReport);
+        }
+        return report;
+    }
+
+    /**
+     * 每个协议每项延迟写一个 .hgrm 百分位分布文件，可用HdrHistogram的绘图工具对比
+     */
+    public void writeHistograms(Path directory) throws IOException {
+        for (String protocol : protocols()) {
+            for (Map.Entry<String, Histogram> entry : histogramsOf(protocol).entrySet()) {
+                Path file = directory.resolve(protocol + "-" + entry.getKey() + ".hgrm");
+                try (PrintStream out = new PrintStream(new FileOutputStream(file.toFile()), false, "UTF-8")) {
+                    // 记录单位为微秒，输出按毫秒缩放
+                    entry.getValue().copy().outputPercentileDistribution(out, 1000.0);
+                }
+            }
+        }
+    }
+
+    private Iterable<String> protocols() {
+        TreeMap<String, Boolean> protocols = new TreeMap<>();
+        for (String protocol : histograms.keySet()) {
+            protocols.put(protocol, Boolean.TRUE);
+        }
+        for (String protocol : counters.keySet()) {
+            protocols.put(protocol, Boolean.TRUE);
+        }
+        return protocols.keySet();
+    }
+
+    private Map<String, Histogram> histogramsOf(String protocol) {
+        Map<String, Histogram> byMetric = histograms.get(protocol);
+        return byMetric != null ? new TreeMap<>(byMetric) : new TreeMap<>();
+    }
+
+    private Map<String, LongAdder> countersOf(String protocol) {
+        Map<String, LongAdder> byName = counters.get(protocol);
+        return byName != null ? byName : new TreeMap<>();
+    }
+
+    private static long count(Map<String, Long> counts, String name) {
+        Long value = counts.get(name);
+        return value != null ? value : 0L;
+    }
+
+    private static Map<String, Object> summarize(Histogram histogram) {
+        Histogram snapshot = histogram.copy();
+        Map<String, Object> summary = new TreeMap<>();
+        summary.put("count", snapshot.getTotalCount());
+        if (snapshot.getTotalCount() == 0) {
+            return summary;
+        }
+        summary.put("min", snapshot.getMinValue() / 1000.0);
+        summary.put("mean", snapshot.getMean() / 1000.0);
+        summary.put("max", snapshot.getMaxValue() / 1000.0);
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            summary.put(PERCENTILE_NAMES[i], snapshot.getValueAtPercentile(PERCENTILES[i]) / 1000.0);
+        }
+        return summary;
+    }
+}
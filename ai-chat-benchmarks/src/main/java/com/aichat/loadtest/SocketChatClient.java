@@ -0,0 +1,97 @@
+package com.aichat.loadtest;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+/**
+ * 持久连接客户端的公共部分：收到的消息连同到达时刻进入收件箱，
+ * 脚本线程按条件等待，期间到达的其他消息（他人的广播等）直接丢弃。
+ */
+abstract class SocketChatClient implements ChatClient {
+
+    private static final Inbound CLOSED = new Inbound(0, null);
+
+    protected final long userId;
+    protected final int connectTimeoutMillis;
+    protected final int replyTimeoutMillis;
+
+    private final BlockingQueue<Inbound> inbox = new LinkedBlockingQueue<>();
+    private volatile Throwable closeReason;
+
+    protected SocketChatClient(long userId, int connectTimeoutMillis, int replyTimeoutMillis) {
+        this.userId = userId;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.replyTimeoutMillis = replyTimeoutMillis;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    /**
+     * 由传输层回调线程调用
+     */
+    protected void received(Map<String, Object> payload) {
+        inbox.offer(new Inbound(System.nanoTime(), payload));
+    }
+
+    /**
+     * 连接被关闭或出错，唤醒正在等待的脚本线程
+     */
+    protected void closed(Throwable reason) {
+        if (closeReason == null) {
+            closeReason = reason != null ? reason : new IOException("连接已关闭");
+        }
+        inbox.offer(CLOSED);
+    }
+
+    /**
+     * 等待满足 expected 的消息，返回其到达时刻；满足 failure 的消息视为服务端返回的错误
+     */
+    protected long await(Predicate<Map<String, Object>> expected, Predicate<Map<String, Object>> failure,
+                         String description, long timeoutMillis) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            Inbound inbound = remaining > 0 ? inbox.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (inbound == null) {
+                throw new TimeoutException("等待" + description + "超时");
+            }
+            if (inbound == CLOSED) {
+                inbox.offer(CLOSED);
+                throw closeReason instanceof Exception ? (Exception) closeReason : new IOException(closeReason);
+            }
+            if (expected.test(inbound.payload)) {
+                return inbound.nanos;
+            }
+            if (failure != null && failure.test(inbound.payload)) {
+                throw new IllegalStateException("服务端返回错误: " + inbound.payload.get("message"));
+            }
+        }
+    }
+
+    protected static Predicate<Map<String, Object>> type(String type) {
+        return payload -> type.equals(payload.get("type"));
+    }
+
+    protected boolean isSelf(Object userIdValue) {
+        return userIdValue != null && String.valueOf(userId).equals(String.valueOf(userIdValue));
+    }
+
+    private static final class Inbound {
+
+        private final long nanos;
+        private final Map<String, Object> payload;
+
+        Inbound(long nanos, Map<String, Object> payload) {
+            this.nanos = nanos;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.aichat.loadtest;
+
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * STOMP /ws 客户端，原生WebSocket和SockJS由传入的 WebSocketStompClient 决定
+ * 订阅 /topic/messages 和 /topic/notifications。回复广播给所有订阅者，聊天按消息ID认领自己的回复。
+ * 简单代理不支持订阅回执，连接阶段反复发送输入状态直到收到自己的回显，确认订阅已生效；
+ * STOMP没有应用层心跳，心跳步骤同样以一次输入状态回显衡量代理往返延迟。
+ */
+class StompChatClient extends SocketChatClient {
+
+    private static final String ROOM_ID = "loadtest";
+
+    // 确认订阅生效时重发输入状态的间隔
+    private static final long SUBSCRIBE_PROBE_MILLIS = 200;
+
+    private final WebSocketStompClient stompClient;
+    private final String url;
+    private final WebSocketHttpHeaders headers;
+
+    private StompSession session;
+
+    StompChatClient(WebSocketStompClient stompClient, String url, WebSocketHttpHeaders headers, long userId,
+                    int connectTimeoutMillis, int replyTimeoutMillis) {
+        super(userId, connectTimeoutMillis, replyTimeoutMillis);
+        this.stompClient = stompClient;
+        this.url = url;
+        this.headers = headers;
+    }
+
+    @Override
+    public void connect() throws Exception {
+        session = stompClient.connect(url, headers, new SessionHandler())
+                .get(connectTimeoutMillis, TimeUnit.MILLISECONDS);
+        FrameHandler frameHandler = new FrameHandler();
+        session.subscribe("/topic/messages", frameHandler);
+        session.subscribe("/topic/notifications", frameHandler);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(connectTimeoutMillis);
+        while (true) {
+            try {
+                roundTrip(SUBSCRIBE_PROBE_MILLIS);
+                return;
+            } catch (TimeoutException e) {
+                if (System.nanoTime() > deadline) {
+                    throw new TimeoutException("订阅未在连接超时内生效");
+                }
+            }
+        }
+    }
+
+    @Override
+    public void join() throws Exception {
+        Map<String, Object> message = new HashMap<>();
+        message.put("userId", userId);
+        message.put("roomId", ROOM_ID);
+        session.send("/app/chat.joinRoom", message);
+        await(payload -> "user_join".equals(payload.get("type")) && isSelf(payload.get("userId")),
+                null, "加入房间通知", replyTimeoutMillis);
+    }
+
+    @Override
+    public void typing(boolean typing) throws Exception {
+        session.send("/app/chat.typing", typingMessage(typing));
+    }
+
+    @Override
+    public long chat(String text) throws Exception {
+        String messageId = UUID.randomUUID().toString();
+        Map<String, Object> message = new HashMap<>();
+        message.put("userId", userId);
+        message.put("content", text);
+        message.put("messageType", "text");
+        message.put("messageId", messageId);
+        session.send("/app/chat.sendMessage", message);
+        return await(payload -> "chat_message".equals(payload.get("type")) && messageId.equals(payload.get("replyTo")),
+                payload -> "error".equals(payload.get("type")) && messageId.equals(payload.get("replyTo")),
+                "聊天回复", replyTimeoutMillis);
+    }
+
+    @Override
+    public void heartbeat() throws Exception {
+        roundTrip(replyTimeoutMillis);
+    }
+
+    @Override
+    public void leave() {
+        Map<String, Object> message = new HashMap<>();
+        message.put("userId", userId);
+        message.put("roomId", ROOM_ID);
+        session.send("/app/chat.leaveRoom", message);
+    }
+
+    @Override
+    public void close() {
+        if (session != null && session.isConnected()) {
+            session.disconnect();
+        }
+    }
+
+    private void roundTrip(long timeoutMillis) throws Exception {
+        session.send("/app/chat.typing", typingMessage(false));
+        await(payload -> "typing_status".equals(payload.get("type")) && isSelf(payload.get("userId"))
+                        && Boolean.FALSE.equals(payload.get("isTyping")),
+                null, "输入状态回显", timeoutMillis);
+    }
+
+    private Map<String, Object> typingMessage(boolean typing) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("userId", userId);
+        message.put("isTyping", typing);
+        return message;
+    }
+
+    private class SessionHandler extends StompSessionHandlerAdapter {
+
+        @Override
+        public void handleException(StompSession session, StompCommand command, StompHeaders headers,
+                                    byte[] payload, Throwable exception) {
+            closed(exception);
+        }
+
+        @Override
+        public void handleTransportError(StompSession session, Throwable exception) {
+            closed(exception);
+        }
+    }
+
+    private class FrameHandler implements StompFrameHandler {
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return Map.class;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void handleFrame(StompHeaders headers, Object payload) {
+            received((Map<String, Object>) payload);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.aichat.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /ws/chat 客户端，原生WebSocket和SockJS共用，协议与前端一致：
+ * join 等待 join_success，chat 等待 chat_response，heartbeat 等待 heartbeat_response，typing 和 leave 不等待。
+ */
+class WebSocketChatClient extends SocketChatClient {
+
+    private final WebSocketClient client;
+    private final URI uri;
+    private final WebSocketHttpHeaders headers;
+    private final long characterId;
+    private final ObjectMapper objectMapper;
+    private final Handler handler = new Handler();
+
+    private WebSocketSession session;
+
+    WebSocketChatClient(WebSocketClient client, URI uri, WebSocketHttpHeaders headers, long userId, long characterId,
+                        ObjectMapper objectMapper, int connectTimeoutMillis, int replyTimeoutMillis) {
+        super(userId, connectTimeoutMillis, replyTimeoutMillis);
+        this.client = client;
+        this.uri = uri;
+        this.headers = headers;
+        this.characterId = characterId;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void connect() throws Exception {
+        session = client.doHandshake(handler, headers, uri).get(connectTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void join() throws Exception {
+        Map<String, Object> message = message("join");
+        message.put("userId", userId);
+        send(message);
+        await(type("join_success"), type("error"), "加入聊天确认", replyTimeoutMillis);
+    }
+
+    @Override
+    public void typing(boolean typing) throws Exception {
+        Map<String, Object> message = message("typing");
+        message.put("userId", userId);
+        message.put("isTyping", typing);
+        send(message);
+    }
+
+    @Override
+    public long chat(String text) throws Exception {
+        Map<String, Object> message = message("chat");
+        message.put("userId", userId);
+        message.put("characterId", characterId);
+        message.put("message", text);
+        send(message);
+        return await(type("chat_response"), type("error"), "聊天回复", replyTimeoutMillis);
+    }
+
+    @Override
+    public void heartbeat() throws Exception {
+        send(message("heartbeat"));
+        await(type("heartbeat_response"), type("error"), "心跳回复", replyTimeoutMillis);
+    }
+
+    @Override
+    public void leave() throws Exception {
+        Map<String, Object> message = message("leave");
+        message.put("userId", userId);
+        send(message);
+    }
+
+    @Override
+    public void close() {
+        if (session != null && session.isOpen()) {
+            try {
+                session.close(CloseStatus.NORMAL);
+            } catch (IOException ignored) {
+                // 连接已断开
+            }
+        }
+    }
+
+    private static Map<String, Object> message(String type) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("type", type);
+        return message;
+    }
+
+    private void send(Map<String, Object> message) throws IOException {
+        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
+    }
+
+    private class Handler extends AbstractWebSocketHandler {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+            received(objectMapper.readValue(message.getPayload(), Map.class));
+        }
+
+        @Override
+        public void handleTransportError(WebSocketSession session, Throwable exception) {
+            closed(exception);
+        }
+
+        @Override
+        public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+            closed(new IOException("连接已关闭: " + status));
+        }
+
+        @Override
+        public boolean supportsPartialMessages() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.aichat.mock;
+
+import java.util.Random;
+
+/**
+ * 取值分布（延迟毫秒数、token数、字节数等），采样结果不小于0
+ * 配置格式：
+ *   fixed:200            固定值
+ *   uniform:100-400      [100, 400] 均匀分布
+ *   normal:300:50        均值300、标准差50的正态分布
+ *   lognormal:300:0.5    中位数300、对数标准差0.5的对数正态分布，长尾接近真实的上游延迟
+ */
+public final class Distribution {
+
+    private enum Kind { FIXED, UNIFORM, NORMAL, LOGNORMAL }
+
+    private final Kind kind;
+    private final double first;
+    private final double second;
+    private final String spec;
+
+    private Distribution(Kind kind, double first, double second, String spec) {
+        this.kind = kind;
+        this.first = first;
+        this.second = second;
+        this.spec = spec;
+    }
+
+    public static Distribution fixed(double value) {
+        return new Distribution(Kind.FIXED, value, 0, "fixed:" + value);
+    }
+
+    public static Distribution parse(String spec) {
+        String trimmed = spec.trim();
+        int colon = trimmed.indexOf(':');
+        if (colon < 0) {
+            return new Distribution(Kind.FIXED, parseNumber(trimmed, spec), 0, trimmed);
+        }
+        String kind = trimmed.substring(0, colon).toLowerCase();
+        String args = trimmed.substring(colon + 1);
+        switch (kind) {
+            case "fixed":
+                return new Distribution(Kind.FIXED, parseNumber(args, spec), 0, trimmed);
+            case "uniform": {
+                String[] range = args.split("-");
+                if (range.length != 2) {
+                    throw new IllegalArgumentException("均匀分布格式应为 uniform:最小值-最大值: " + spec);
+                }
+                double min = parseNumber(range[0], spec);
+                double max = parseNumber(range[1], spec);
+                if (max < min) {
+                    throw new IllegalArgumentException("均匀分布的最大值小于最小值: " + spec);
+                }
+                return new Distribution(Kind.UNIFORM, min, max, trimmed);
+            }
+            case "normal":
+            case "lognormal": {
+                String[] params = args.split(":");
+                if (params.length != 2) {
+                    throw new IllegalArgumentException("分布格式应为 " + kind + ":参数1:参数2: " + spec);
+                }
+                return new Distribution("normal".equals(kind) ? Kind.NORMAL : Kind.LOGNORMAL,
+                        parseNumber(params[0], spec), parseNumber(params[1], spec), trimmed);
+            }
+            default:
+                throw new IllegalArgumentException("不支持的分布类型: " + spec);
+        }
+    }
+
+    public double sample(Random random) {
+        double value;
+        switch (kind) {
+            case UNIFORM:
+                value = first + random.nextDouble() * (second - first);
+                break;
+            case NORMAL:
+                value = first + random.nextGaussian() * second;
+                break;
+            case LOGNORMAL:
+                value = first * Math.exp(random.nextGaussian() * second);
+                break;
+            default:
+                value = first;
+        }
+        return Math.max(0, value);
+    }
+
+    public long sampleLong(Random random) {
+        return Math.round(sample(random));
+    }
+
+    private static double parseNumber(String value, String spec) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("分布参数不是数字: " + spec, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -0,0 +1,209 @@
+package com.aichat.mock;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * 模拟上游服务配置
+ * 独立运行时由命令行参数 --键=值 或 --config=文件.properties 提供，键名见 {@link #fromProperties}；
+ * 在测试中直接构造后用setter调整。
+ */
+public class MockUpstreamConfig {
+
+    // 监听端口，0表示随机端口
+    private int port = 18080;
+
+    // 随机种子，同一种子下按相同顺序到达的请求得到相同的延迟和内容
+    private long seed = 20240601L;
+
+    // 处理请求的线程数，延迟通过占用线程模拟，应不小于压测并发
+    private int threads = 256;
+
+    // 出错时从中随机选择的HTTP状态码
+    private List<Integer> errorStatuses = new ArrayList<>();
+
+    // 对话：首个token前的等待、生成速度、回复长度
+    private Distribution chatFirstTokenMillis = Distribution.parse("lognormal:400:0.4");
+    private Distribution chatTokensPerSecond = Distribution.fixed(40);
+    private Distribution chatCompletionTokens = Distribution.parse("uniform:60-240");
+    private double chatErrorRate;
+
+    // 流式回复中途断开连接的比例
+    private double chatAbortRate;
+
+    // 语音合成：固定延迟和每个字符对应的音频字节数
+    private Distribution ttsLatencyMillis = Distribution.parse("lognormal:250:0.3");
+    private int ttsBytesPerChar = 600;
+    private double ttsErrorRate;
+
+    // 语音识别：固定延迟、每MB上传额外延迟、转写文本长度
+    private Distribution sttLatencyMillis = Distribution.parse("lognormal:500:0.3");
+    private int sttMillisPerMegabyte = 200;
+    private Distribution sttTranscriptChars = Distribution.parse("uniform:10-60");
+    private double sttErrorRate;
+
+    public MockUpstreamConfig() {
+        errorStatuses.add(500);
+        errorStatuses.add(503);
+        errorStatuses.add(429);
+    }
+
+    /**
+     * 从命令行参数解析，--config 指定的文件先加载，其余参数覆盖文件中的同名键
+     */
+    public static MockUpstreamConfig fromArgs(String[] args) throws IOException {
+        Properties properties = new Properties();
+        Properties overrides = new Properties();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("参数格式应为 --键=值: " + arg);
+            }
+            int equals = arg.indexOf('=');
+            String key = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            if ("config".equals(key)) {
+                try (InputStream in = Files.newInputStream(Paths.get(value))) {
+                    properties.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+                }
+            } else {
+                overrides.setProperty(key, value);
+            }
+        }
+        properties.putAll(overrides);
+        return fromProperties(properties);
+    }
+
+    /**
+     * 支持的键：port, seed, threads, error-statuses,
+     * chat.first-token-ms, chat.tokens-per-second, chat.completion-tokens, chat.error-rate, chat.abort-rate,
+     * tts.latency-ms, tts.bytes-per-char, tts.error-rate,
+     * stt.latency-ms, stt.ms-per-mb, stt.transcript-chars, stt.error-rate
+     */
+    public static MockUpstreamConfig fromProperties(Properties properties) {
+        MockUpstreamConfig config = new MockUpstreamConfig();
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key).trim();
+            switch (key) {
+                case "port":
+                    config.setPort(Integer.parseInt(value));
+                    break;
+                case "seed":
+                    config.setSeed(Long.parseLong(value));
+                    break;
+                case "threads":
+                    config.setThreads(Integer.parseInt(value));
+                    break;
+                case "error-statuses":
+                    List<Integer> statuses = new ArrayList<>();
+                    for (String status : value.split(",")) {
+                        statuses.add(Integer.parseInt(status.trim()));
+                    }
+                    config.setErrorStatuses(statuses);
+                    break;
+                case "chat.first-token-ms":
+                    config.setChatFirstTokenMillis(Distribution.parse(value));
+                    break;
+                case "chat.tokens-per-second":
+                    config.setChatTokensPerSecond(Distribution.parse(value));
+                    break;
+                case "chat.completion-tokens":
+                    config.setChatCompletionTokens(Distribution.parse(value));
+                    break;
+                case "chat.error-rate":
+                    config.setChatErrorRate(parseRate(key, value));
+                    break;
+                case "chat.abort-rate":
+                    config.setChatAbortRate(parseRate(key, value));
+                    break;
+                case "tts.latency-ms":
+                    config.setTtsLatencyMillis(Distribution.parse(value));
+                    break;
+                case "tts.bytes-per-char":
+                    config.setTtsBytesPerChar(Integer.parseInt(value));
+                    break;
+                case "tts.error-rate":
+                    config.setTtsErrorRate(parseRate(key, value));
+                    break;
+                case "stt.latency-ms":
+                    config.setSttLatencyMillis(Distribution.parse(value));
+                    break;
+                case "stt.ms-per-mb":
+                    config.setSttMillisPerMegabyte(Integer.parseInt(value));
+                    break;
+                case "stt.transcript-chars":
+                    config.setSttTranscriptChars(Distribution.parse(value));
+                    break;
+                case "stt.error-rate":
+                    config.setSttErrorRate(parseRate(key, value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知的配置项: " + key);
+            }
+        }
+        return config;
+    }
+
+    private static double parseRate(String key, String value) {
+        double rate = Double.parseDouble(value);
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException(key + " 应在0到1之间: " + value);
+        }
+        return rate;
+    }
+
+    // Getter和Setter方法
+    public int getPort() { return port; }
+    public void setPort(int port) { this.port = port; }
+
+    public long getSeed() { return seed; }
+    public void setSeed(long seed) { this.seed = seed; }
+
+    public int getThreads() { return threads; }
+    public void setThreads(int threads) { this.threads = threads; }
+
+    public List<Integer> getErrorStatuses() { return errorStatuses; }
+    public void setErrorStatuses(List<Integer> errorStatuses) { this.errorStatuses = errorStatuses; }
+
+    public Distribution getChatFirstTokenMillis() { return chatFirstTokenMillis; }
+    public void setChatFirstTokenMillis(Distribution chatFirstTokenMillis) { this.chatFirstTokenMillis = chatFirstTokenMillis; }
+
+    public Distribution getChatTokensPerSecond() { return chatTokensPerSecond; }
+    public void setChatTokensPerSecond(Distribution chatTokensPerSecond) { this.chatTokensPerSecond = chatTokensPerSecond; }
+
+    public Distribution getChatCompletionTokens() { return chatCompletionTokens; }
+    public void setChatCompletionTokens(Distribution chatCompletionTokens) { this.chatCompletionTokens = chatCompletionTokens; }
+
+    public double getChatErrorRate() { return chatErrorRate; }
+    public void setChatErrorRate(double chatErrorRate) { this.chatErrorRate = chatErrorRate; }
+
+    public double getChatAbortRate() { return chatAbortRate; }
+    public void setChatAbortRate(double chatAbortRate) { this.chatAbortRate = chatAbortRate; }
+
+    public Distribution getTtsLatencyMillis() { return ttsLatencyMillis; }
+    public void setTtsLatencyMillis(Distribution ttsLatencyMillis) { this.ttsLatencyMillis = ttsLatencyMillis; }
+
+    public int getTtsBytesPerChar() { return ttsBytesPerChar; }
+    public void setTtsBytesPerChar(int ttsBytesPerChar) { this.ttsBytesPerChar = ttsBytesPerChar; }
+
+    public double getTtsErrorRate() { return ttsErrorRate; }
+    public void setTtsErrorRate(double ttsErrorRate) { this.ttsErrorRate = ttsErrorRate; }
+
+    public Distribution getSttLatencyMillis() { return sttLatencyMillis; }
+    public void setSttLatencyMillis(Distribution sttLatencyMillis) { this.sttLatencyMillis = sttLatencyMillis; }
+
+    public int getSttMillisPerMegabyte() { return sttMillisPerMegabyte; }
+    public void setSttMillisPerMegabyte(int sttMillisPerMegabyte) { this.sttMillisPerMegabyte = sttMillisPerMegabyte; }
+
+    public Distribution getSttTranscriptChars() { return sttTranscriptChars; }
+    public void setSttTranscriptChars(Distribution sttTranscriptChars) { this.sttTranscriptChars = sttTranscriptChars; }
+
+    public double getSttErrorRate() { return sttErrorRate; }
+    public void setSttErrorRate(double sttErrorRate) { this.sttErrorRate = sttErrorRate; }
+}
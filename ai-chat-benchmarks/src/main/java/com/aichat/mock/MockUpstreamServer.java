@@ -0,0 +1,374 @@
+package com.aichat.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 模拟的LLM和语音上游服务
+ * 实现后端用到的 /chat/completions（流式和非流式）、/audio/speech、/audio/transcriptions，
+ * 延迟、生成速度、错误率和报文大小都可配置，用于在不消耗token、不受上游抖动影响的情况下压测后端自身的开销和故障处理。
+ * 路径同时接受 /v1 前缀；GET /mock/stats 返回各端点的请求数和注入的故障数。
+ *
+ * 独立运行：
+ *   java -cp target/benchmarks.jar com.aichat.mock.MockUpstreamServer --port=18080 --chat.error-rate=0.02
+ * 后端以 mock-upstream 配置文件启动即指向该服务。测试中用 {@link #start(MockUpstreamConfig)} 启动，端口可设为0。
+ */
+public class MockUpstreamServer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MockUpstreamServer.class);
+
+    private static final String ENDPOINT_CHAT = "chat";
+    private static final String ENDPOINT_SPEECH = "speech";
+    private static final String ENDPOINT_TRANSCRIPTION = "transcription";
+
+    // 生成回复的词表，每个token一到两个汉字
+    private static final String[] TOKENS = {
+        "我", "们", "今天", "可以", "一起", "聊聊", "这个", "问题", "其实", "非常",
+        "有趣", "历史", "上", "的", "人物", "诗", "酒", "明月", "江湖", "故乡",
+        "，", "。", "！", "觉得", "也许", "因为", "所以", "你", "他", "时候"
+    };
+
+    private final MockUpstreamConfig config;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong requestSequence = new AtomicLong();
+    private final Map<String, LongAdder> requestCounts = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> faultCounts = new ConcurrentHashMap<>();
+
+    private MockUpstreamServer(MockUpstreamConfig config) throws IOException {
+        this.config = config;
+        this.server = HttpServer.create(new InetSocketAddress(config.getPort()), 1024);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, config.getThreads()));
+        server.setExecutor(executor);
+        for (String prefix : new String[]{"", "/v1"}) {
+            server.createContext(prefix + "/chat/completions", post(ENDPOINT_CHAT, this::handleChat));
+            server.createContext(prefix + "/audio/speech", post(ENDPOINT_SPEECH, this::handleSpeech));
+            server.createContext(prefix + "/audio/transcriptions", post(ENDPOINT_TRANSCRIPTION, this::handleTranscription));
+        }
+        server.createContext("/mock/stats", exchange -> writeJson(exchange, 200, getStatistics()));
+    }
+
+    /**
+     * 按配置启动服务
+     */
+    public static MockUpstreamServer start(MockUpstreamConfig config) throws IOException {
+        MockUpstreamServer mock = new MockUpstreamServer(config);
+        mock.server.start();
+        logger.info("模拟上游服务已启动: {}", mock.getBaseUrl());
+        return mock;
+    }
+
+    public static void main(String[] args) throws IOException {
+        MockUpstreamServer mock = start(MockUpstreamConfig.fromArgs(args));
+        Runtime.getRuntime().addShutdownHook(new Thread(mock::close, "mock-upstream-shutdown"));
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + getPort();
+    }
+
+    /**
+     * 各端点的请求数和注入的故障数
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("requests", sums(requestCounts));
+        statistics.put("faults", sums(faultCounts));
+        statistics.put("seed", config.getSeed());
+        return statistics;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        logger.info("模拟上游服务已停止: {}", getStatistics());
+    }
+
+    /**
+     * 对话补全：先等待首token延迟，再按生成速度逐个输出token
+     */
+    private void handleChat(HttpExchange exchange, byte[] body, Random random) throws IOException {
+        JsonNode request = objectMapper.readTree(body);
+        boolean stream = request.path("stream").asBoolean(false);
+        boolean includeUsage = request.path("stream_options").path("include_usage").asBoolean(false);
+        String model = request.path("model").asText("deepseek-chat");
+        int promptTokens = 0;
+        for (JsonNode message : request.path("messages")) {
+            promptTokens += message.path("content").asText("").length();
+        }
+
+        long firstTokenMillis = config.getChatFirstTokenMillis().sampleLong(random);
+        if (injectFault(ENDPOINT_CHAT, config.getChatErrorRate(), random)) {
+            sleepMillis(firstTokenMillis);
+            writeError(exchange, random);
+            return;
+        }
+
+        int completionTokens = (int) Math.max(1, config.getChatCompletionTokens().sampleLong(random));
+        long tokenIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(0.1, config.getChatTokensPerSecond().sample(random)));
+        List<String> tokens = new ArrayList<>(completionTokens);
+        for (int i = 0; i < completionTokens; i++) {
+            tokens.add(TOKENS[random.nextInt(TOKENS.length)]);
+        }
+        int abortAt = random.nextDouble() < config.getChatAbortRate() ? random.nextInt(completionTokens) : -1;
+        String id = "chatcmpl-mock-" + Long.toHexString(random.nextLong() & Long.MAX_VALUE);
+        long created = System.currentTimeMillis() / 1000;
+
+        sleepMillis(firstTokenMillis);
+        if (!stream) {
+            sleepNanos(tokenIntervalNanos * (completionTokens - 1));
+            StringBuilder content = new StringBuilder();
+            for (String token : tokens) {
+                content.append(token);
+            }
+            Map<String, Object> message = new LinkedHashMap<>();
+            message.put("role", "assistant");
+            message.put("content", content.toString());
+            Map<String, Object> choice = new LinkedHashMap<>();
+            choice.put("index", 0);
+            choice.put("message", message);
+            choice.put("finish_reason", "stop");
+            Map<String, Object> response = completion(id, "chat.completion", created, model, choice);
+            response.put("usage", usage(promptTokens, completionTokens));
+            writeJson(exchange, 200, response);
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        writeEvent(out, completion(id, "chat.completion.chunk", created, model, deltaChoice("", null)));
+        long deadline = System.nanoTime();
+        for (int i = 0; i < completionTokens; i++) {
+            if (i == abortAt) {
+                faultCounts.computeIfAbsent(ENDPOINT_CHAT, k -> new LongAdder()).increment();
+                throw new StreamAbortedException();
+            }
+            if (i > 0) {
+                deadline += tokenIntervalNanos;
+                sleepNanos(deadline - System.nanoTime());
+            }
+            writeEvent(out, completion(id, "chat.completion.chunk", created, model, deltaChoice(tokens.get(i), null)));
+        }
+        writeEvent(out, completion(id, "chat.completion.chunk", created, model, deltaChoice(null, "stop")));
+        if (includeUsage) {
+            Map<String, Object> usageChunk = completion(id, "chat.completion.chunk", created, model, null);
+            usageChunk.put("usage", usage(promptTokens, completionTokens));
+            writeEvent(out, usageChunk);
+        }
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.close();
+    }
+
+    /**
+     * 语音合成：按文本长度返回随机音频数据
+     */
+    private void handleSpeech(HttpExchange exchange, byte[] body, Random random) throws IOException {
+        JsonNode request = objectMapper.readTree(body);
+        int chars = request.path("input").asText("").length();
+        sleepMillis(config.getTtsLatencyMillis().sampleLong(random));
+        if (injectFault(ENDPOINT_SPEECH, config.getTtsErrorRate(), random)) {
+            writeError(exchange, random);
+            return;
+        }
+        byte[] audio = new byte[Math.max(1, chars * config.getTtsBytesPerChar())];
+        random.nextBytes(audio);
+        exchange.getResponseHeaders().set("Content-Type", "audio/mpeg");
+        exchange.sendResponseHeaders(200, audio.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(audio);
+        }
+    }
+
+    /**
+     * 语音识别：延迟随上传大小增加，返回随机文本
+     */
+    private void handleTranscription(HttpExchange exchange, byte[] body, Random random) throws IOException {
+        long latency = config.getSttLatencyMillis().sampleLong(random)
+                + (long) body.length * config.getSttMillisPerMegabyte() / (1024 * 1024);
+        sleepMillis(latency);
+        if (injectFault(ENDPOINT_TRANSCRIPTION, config.getSttErrorRate(), random)) {
+            writeError(exchange, random);
+            return;
+        }
+        long chars = Math.max(1, config.getSttTranscriptChars().sampleLong(random));
+        StringBuilder text = new StringBuilder();
+        while (text.length() < chars) {
+            text.append(TOKENS[random.nextInt(TOKENS.length)]);
+        }
+        writeJson(exchange, 200, Collections.singletonMap("text", text.toString()));
+    }
+
+    private HttpHandler post(String endpoint, EndpointHandler handler) {
+        return exchange -> {
+            try {
+                if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                requestCounts.computeIfAbsent(endpoint, k -> new LongAdder()).increment();
+                byte[] body = readBody(exchange.getRequestBody());
+                handler.handle(exchange, body, nextRandom());
+            } catch (StreamAbortedException e) {
+                // 不关闭交换、直接抛出，服务器关闭连接且不写出分块结束标记，客户端看到的是中途断开
+                throw e;
+            } catch (IOException | RuntimeException e) {
+                exchange.close();
+                throw e;
+            }
+            exchange.close();
+        };
+    }
+
+    /**
+     * 每个请求独立的随机数，按到达顺序由种子派生
+     */
+    private Random nextRandom() {
+        return new Random(config.getSeed() + requestSequence.incrementAndGet() * 0x9E3779B97F4A7C15L);
+    }
+
+    private boolean injectFault(String endpoint, double rate, Random random) {
+        if (rate <= 0 || random.nextDouble() >= rate) {
+            return false;
+        }
+        faultCounts.computeIfAbsent(endpoint, k -> new LongAdder()).increment();
+        return true;
+    }
+
+    private void writeError(HttpExchange exchange, Random random) throws IOException {
+        List<Integer> statuses = config.getErrorStatuses();
+        int status = statuses.isEmpty() ? 500 : statuses.get(random.nextInt(statuses.size()));
+        Map<String, Object> error = new HashMap<>();
+        error.put("message", "模拟上游错误");
+        error.put("type", status == 429 ? "rate_limit_exceeded" : "server_error");
+        error.put("code", status);
+        writeJson(exchange, status, Collections.singletonMap("error", error));
+    }
+
+    private void writeJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void writeEvent(OutputStream out, Object data) throws IOException {
+        out.write(("data: " + objectMapper.writeValueAsString(data) + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static Map<String, Object> completion(String id, String object, long created, String model,
+                                                  Map<String, Object> choice) {
+        Map<String, Object> completion = new LinkedHashMap<>();
+        completion.put("id", id);
+        completion.put("object", object);
+        completion.put("created", created);
+        completion.put("model", model);
+        completion.put("choices", choice != null ? Collections.singletonList(choice) : Collections.emptyList());
+        return completion;
+    }
+
+    private static Map<String, Object> deltaChoice(String content, String finishReason) {
+        Map<String, Object> delta = new LinkedHashMap<>();
+        if (content != null) {
+            delta.put("content", content);
+        }
+        Map<String, Object> choice = new LinkedHashMap<>();
+        choice.put("index", 0);
+        choice.put("delta", delta);
+        choice.put("finish_reason", finishReason);
+        return choice;
+    }
+
+    private static Map<String, Object> usage(int promptTokens, int completionTokens) {
+        Map<String, Object> usage = new LinkedHashMap<>();
+        usage.put("prompt_tokens", promptTokens);
+        usage.put("completion_tokens", completionTokens);
+        usage.put("total_tokens", promptTokens + completionTokens);
+        return usage;
+    }
+
+    private static Map<String, Long> sums(Map<String, LongAdder> counters) {
+        Map<String, Long> sums = new HashMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            sums.put(entry.getKey(), entry.getValue().sum());
+        }
+        return sums;
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+        }
+        return body.toByteArray();
+    }
+
+    private static void sleepMillis(long millis) {
+        sleepNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static void sleepNanos(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 模拟流式响应中途断开
+     */
+    private static final class StreamAbortedException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        StreamAbortedException() {
+            super("模拟上游流式响应中途断开");
+        }
+    }
+
+    @FunctionalInterface
+    private interface EndpointHandler {
+        void handle(HttpExchange exchange, byte[] body, Random random) throws IOException;
+    }
+}
@@ -0,0 +1,140 @@
+package com.aichat.service;
+
+import com.aichat.benchmark.BenchmarkData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DeepSeek请求构建和响应解析
+ * 响应使用固定种子生成的Chat Completions格式报文，不发出任何网络请求。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeepSeekBenchmark {
+
+    private static final String SYSTEM_PROMPT = "你是唐代浪漫主义诗人李白，说话豪放洒脱，喜欢引用自己的诗句。";
+
+    // 对话历史轮数
+    @Param({"0", "20", "200"})
+    private int historyTurns;
+
+    // 回复的字符数
+    @Param({"64", "1024"})
+    private int replyLength;
+
+    private DeepSeekService deepSeekService;
+    private ObjectMapper objectMapper;
+    private String history;
+    private String userMessage;
+    private String responseBody;
+    private List<String> streamChunks;
+
+    @Setup
+    public void setUp() throws IOException {
+        deepSeekService = new DeepSeekService("http://localhost:0", "benchmark", "deepseek-chat");
+        objectMapper = new ObjectMapper();
+
+        StringBuilder joined = new StringBuilder();
+        for (String[] turn : BenchmarkData.conversation(BenchmarkData.SEED, historyTurns)) {
+            joined.append("用户：").append(turn[0]).append("\n");
+            joined.append("AI：").append(turn[1]).append("\n");
+        }
+        history = joined.toString();
+
+        Random random = new Random(BenchmarkData.SEED);
+        userMessage = BenchmarkData.message(random, 40);
+        String reply = BenchmarkData.message(random, replyLength);
+        responseBody = objectMapper.writeValueAsString(completion(reply));
+
+        // 流式回复按每段约8个字符切分
+        streamChunks = new ArrayList<>();
+        for (int i = 0; i < reply.length(); i += 8) {
+            String delta = reply.substring(i, Math.min(reply.length(), i + 8));
+            streamChunks.add(objectMapper.writeValueAsString(chunk(delta)));
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, String>> buildMessages() {
+        return deepSeekService.buildMessages(SYSTEM_PROMPT, history, userMessage);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public String parseResponse() throws IOException {
+        Map<String, Object> response = objectMapper.readValue(responseBody, Map.class);
+        return deepSeekService.extractResponseContent(response);
+    }
+
+    @Benchmark
+    public void parseStream(Blackhole blackhole) {
+        DeepSeekService.StreamUsage usage = new DeepSeekService.StreamUsage();
+        for (String data : streamChunks) {
+            blackhole.consume(deepSeekService.extractDeltaContent(data, usage));
+        }
+        blackhole.consume(usage.deltas);
+    }
+
+    private static Map<String, Object> completion(String content) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("role", "assistant");
+        message.put("content", content);
+        Map<String, Object> choice = new HashMap<>();
+        choice.put("index", 0);
+        choice.put("message", message);
+        choice.put("finish_reason", "stop");
+
+        Map<String, Object> usage = new HashMap<>();
+        usage.put("prompt_tokens", 512);
+        usage.put("completion_tokens", content.length());
+        usage.put("total_tokens", 512 + content.length());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("id", "chatcmpl-benchmark");
+        response.put("object", "chat.completion");
+        response.put("created", 1700000000L);
+        response.put("model", "deepseek-chat");
+        response.put("choices", Collections.singletonList(choice));
+        response.put("usage", usage);
+        return response;
+    }
+
+    private static Map<String, Object> chunk(String delta) {
+        Map<String, Object> choice = new HashMap<>();
+        choice.put("index", 0);
+        choice.put("delta", Collections.singletonMap("content", delta));
+        choice.put("finish_reason", null);
+
+        Map<String, Object> chunk = new HashMap<>();
+        chunk.put("id", "chatcmpl-benchmark");
+        chunk.put("object", "chat.completion.chunk");
+        chunk.put("created", 1700000000L);
+        chunk.put("model", "deepseek-chat");
+        chunk.put("choices", Collections.singletonList(choice));
+        return chunk;
+    }
+}
@@ -0,0 +1,74 @@
+package com.aichat.service.impl;
+
+import com.aichat.benchmark.BenchmarkData;
+import com.aichat.entity.ChatCharacter;
+import com.aichat.entity.ConversationHistory;
+import com.aichat.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 长对话历史下的上下文拼装
+ * 分别覆盖个性化提示词（实体形式的历史）和技能服务的上下文截取（文本形式的历史）。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContextAssemblyBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int turns;
+
+    private AdvancedAIServiceImpl aiService;
+    private AISkillServiceImpl skillService;
+    private User user;
+    private ChatCharacter character;
+    private List<ConversationHistory> history;
+    private List<String> textHistory;
+
+    @Setup
+    public void setUp() {
+        aiService = new AdvancedAIServiceImpl(WebClient.builder());
+        skillService = new AISkillServiceImpl();
+
+        user = new User();
+        user.setId(1L);
+        character = new ChatCharacter("李白", "唐代诗人",
+                "你是唐代浪漫主义诗人，说话豪放洒脱，喜欢引用自己的诗句。");
+
+        history = new ArrayList<>(turns);
+        textHistory = new ArrayList<>(turns * 2);
+        for (String[] turn : BenchmarkData.conversation(BenchmarkData.SEED, turns)) {
+            history.add(new ConversationHistory(1L, 1L, turn[0], turn[1]));
+            textHistory.add("用户：" + turn[0]);
+            textHistory.add("AI：" + turn[1]);
+        }
+    }
+
+    @Benchmark
+    public String personalizedPrompt() {
+        return aiService.generatePersonalizedPrompt(user, character, history).block();
+    }
+
+    @Benchmark
+    public String skillContext() {
+        return skillService.buildContextFromHistory(textHistory);
+    }
+}
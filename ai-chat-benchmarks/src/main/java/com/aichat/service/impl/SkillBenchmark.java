@@ -0,0 +1,58 @@
+package com.aichat.service.impl;
+
+import com.aichat.benchmark.BenchmarkData;
+import com.aichat.service.AISkillService.EmotionAnalysisResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 技能服务的纯CPU路径：关键词情感分析和意图识别
+ * 两者都不访问AI服务，按消息长度观察正则和关键词扫描的开销。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SkillBenchmark {
+
+    @Param({"16", "256", "4096"})
+    private int messageLength;
+
+    private AISkillServiceImpl skillService;
+    private String[] messages;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        skillService = new AISkillServiceImpl();
+        messages = BenchmarkData.messages(BenchmarkData.SEED, BenchmarkData.BATCH, messageLength);
+    }
+
+    @Benchmark
+    public EmotionAnalysisResult analyzeEmotion() {
+        return skillService.analyzeEmotion(nextMessage(), "李白");
+    }
+
+    @Benchmark
+    public String detectUserIntent() {
+        return skillService.detectUserIntent(nextMessage());
+    }
+
+    private String nextMessage() {
+        cursor = (cursor + 1) & (BenchmarkData.BATCH - 1);
+        return messages[cursor];
+    }
+}
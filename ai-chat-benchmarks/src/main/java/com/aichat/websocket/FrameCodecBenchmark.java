@@ -0,0 +1,86 @@
+package com.aichat.websocket;
+
+import com.aichat.benchmark.BenchmarkData;
+import com.aichat.service.speech.SpeechSegment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebSocket帧的解析和序列化
+ * 文本帧使用 chat 请求和 chat_response 回复，二进制帧使用一段合成语音。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FrameCodecBenchmark {
+
+    // 聊天消息的字符数
+    @Param({"32", "512"})
+    private int messageLength;
+
+    private ChatWebSocketHandler handler;
+    private String chatFrame;
+    private Map<String, Object> chatResponse;
+    private SpeechSegment speech;
+
+    @Setup
+    public void setUp() throws IOException {
+        handler = new ChatWebSocketHandler();
+        Random random = new Random(BenchmarkData.SEED);
+
+        Map<String, Object> chat = new HashMap<>();
+        chat.put("type", "chat");
+        chat.put("userId", 1L);
+        chat.put("characterId", 2L);
+        chat.put("message", BenchmarkData.message(random, messageLength));
+        chatFrame = handler.encodeFrame(chat);
+
+        chatResponse = new HashMap<>();
+        chatResponse.put("type", "chat_response");
+        chatResponse.put("userId", 1L);
+        chatResponse.put("characterId", 2L);
+        chatResponse.put("message", BenchmarkData.message(random, messageLength * 2));
+        chatResponse.put("timestamp", "2024-06-01T12:00:00");
+        chatResponse.put("model", "deepseek-chat");
+        chatResponse.put("tokensUsed", messageLength / 2);
+        chatResponse.put("responseTime", 850L);
+
+        // 一句话约1秒的24kbps音频
+        speech = new SpeechSegment(3, BenchmarkData.message(random, 24),
+                BenchmarkData.audio(BenchmarkData.SEED, 3 * 1024));
+    }
+
+    @Benchmark
+    public Map<String, Object> decodeChatFrame() throws IOException {
+        return handler.decodeFrame(chatFrame);
+    }
+
+    @Benchmark
+    public String encodeChatResponse() throws IOException {
+        return handler.encodeFrame(chatResponse);
+    }
+
+    @Benchmark
+    public ByteBuffer encodeAudioFrame() throws IOException {
+        return handler.encodeAudioFrame(1, speech);
+    }
+}